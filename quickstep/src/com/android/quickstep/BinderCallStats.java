@@ -0,0 +1,387 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.quickstep;
+
+import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+import static com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR;
+
+import android.os.Binder.ProxyTransactListener;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.RemoteException;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A binder proxy transaction listener counting and timing all the outgoing binder calls of the
+ * process, by interface, method and calling thread.
+ *
+ * The durations of the recent calls are kept in histograms over {@link #WINDOW_COUNT} windows of
+ * {@link #WINDOW_MS}. A method called {@link #REPEAT_THRESHOLD} times or more from the same
+ * thread within {@link #REPEAT_WINDOW_MS} is reported as a repeated call. The arguments of the
+ * calls are not visible to the listener, so the repeated calls may differ in their arguments.
+ *
+ * The repeated calls can also be logged as they happen with:
+ * $ adb shell setprop log.tag.BinderCallStats DEBUG
+ */
+public class BinderCallStats implements ProxyTransactListener {
+
+    private static final String TAG = "BinderCallStats";
+
+    public static final BinderCallStats INSTANCE = new BinderCallStats();
+
+    @VisibleForTesting
+    static final int THREAD_MAIN = 0;
+    @VisibleForTesting
+    static final int THREAD_MODEL = 1;
+    @VisibleForTesting
+    static final int THREAD_UI_HELPER = 2;
+    @VisibleForTesting
+    static final int THREAD_OTHER = 3;
+    private static final String[] THREAD_NAMES = {"main", "model", "ui_helper", "other"};
+
+    // Upper bounds of the histogram buckets, the last bucket has no upper bound
+    private static final long[] BUCKET_LIMITS_US =
+            {250, 500, 1_000, 2_000, 4_000, 8_000, 16_000, 32_000, 64_000};
+
+    @VisibleForTesting
+    static final long WINDOW_MS = 60_000;
+    @VisibleForTesting
+    static final int WINDOW_COUNT = 5;
+    @VisibleForTesting
+    static final long REPEAT_WINDOW_MS = 1_000;
+    @VisibleForTesting
+    static final int REPEAT_THRESHOLD = 3;
+    private static final int MAX_REPEATED_CALLS = 20;
+    private static final int MAX_DUMPED_METHODS = 40;
+
+    // Guarded by itself
+    private final WeakHashMap<IBinder, String> mDescriptors = new WeakHashMap<>();
+
+    private final Object mLock = new Object();
+    // Guarded by mLock
+    private final ArrayMap<String, SparseArray<MethodStats[]>> mStats = new ArrayMap<>();
+    private final ArrayDeque<RepeatedCall> mRepeatedCalls = new ArrayDeque<>();
+    private final Map<String, SparseArray<String>> mMethodNames = new ArrayMap<>();
+
+    @VisibleForTesting
+    BinderCallStats() { }
+
+    @Override
+    public Object onTransactStarted(IBinder binder, int transactionCode, int flags) {
+        MethodStats stats = startCall(getDescriptor(binder), transactionCode, getThreadType(),
+                SystemClock.uptimeMillis());
+        return new Session(stats, SystemClock.elapsedRealtimeNanos());
+    }
+
+    @Override
+    public Object onTransactStarted(IBinder binder, int transactionCode) {
+        return onTransactStarted(binder, transactionCode, 0);
+    }
+
+    @Override
+    public void onTransactEnded(@Nullable Object session) {
+        if (session instanceof Session s) {
+            endCall(s.stats, SystemClock.elapsedRealtimeNanos() - s.startNanos,
+                    SystemClock.uptimeMillis());
+        }
+    }
+
+    @AnyThread
+    @VisibleForTesting
+    MethodStats startCall(@NonNull String descriptor, int code, int threadType, long nowMs) {
+        synchronized (mLock) {
+            SparseArray<MethodStats[]> methods = mStats.get(descriptor);
+            if (methods == null) {
+                methods = new SparseArray<>();
+                mStats.put(descriptor, methods);
+            }
+            MethodStats[] byThread = methods.get(code);
+            if (byThread == null) {
+                byThread = new MethodStats[THREAD_NAMES.length];
+                methods.put(code, byThread);
+            }
+            MethodStats stats = byThread[threadType];
+            if (stats == null) {
+                stats = new MethodStats(descriptor, code, threadType);
+                byThread[threadType] = stats;
+            }
+
+            if (nowMs - stats.burstStartMs > REPEAT_WINDOW_MS) {
+                stats.burstStartMs = nowMs;
+                stats.burstCount = 1;
+                stats.burst = null;
+            } else if (++stats.burstCount >= REPEAT_THRESHOLD) {
+                if (stats.burst == null) {
+                    stats.burst = new RepeatedCall(stats, System.currentTimeMillis());
+                    if (mRepeatedCalls.size() >= MAX_REPEATED_CALLS) {
+                        mRepeatedCalls.removeFirst();
+                    }
+                    mRepeatedCalls.add(stats.burst);
+                    if (Log.isLoggable(TAG, Log.DEBUG)) {
+                        Log.d(TAG, "Repeated call to " + descriptor + "#" + code
+                                + " on " + THREAD_NAMES[threadType]);
+                    }
+                }
+                stats.burst.count = stats.burstCount;
+            }
+            return stats;
+        }
+    }
+
+    @AnyThread
+    @VisibleForTesting
+    void endCall(@NonNull MethodStats stats, long durationNs, long nowMs) {
+        synchronized (mLock) {
+            stats.count++;
+            stats.totalNs += durationNs;
+            stats.maxNs = Math.max(stats.maxNs, durationNs);
+
+            long window = nowMs / WINDOW_MS;
+            long elapsedWindows = window - stats.window;
+            for (int i = 1; i <= Math.min(elapsedWindows, WINDOW_COUNT); i++) {
+                stats.histograms[(int) ((stats.window + i) % WINDOW_COUNT)].clear();
+            }
+            stats.window = window;
+            stats.histograms[(int) (window % WINDOW_COUNT)].add(durationNs);
+        }
+    }
+
+    private String getDescriptor(IBinder binder) {
+        synchronized (mDescriptors) {
+            String descriptor = mDescriptors.get(binder);
+            if (descriptor == null) {
+                try {
+                    descriptor = binder.getInterfaceDescriptor();
+                } catch (RemoteException e) {
+                    Log.e(TAG, "Error getting IPC descriptor", e);
+                }
+                if (descriptor == null) {
+                    descriptor = binder.getClass().getSimpleName();
+                }
+                mDescriptors.put(binder, descriptor);
+            }
+            return descriptor;
+        }
+    }
+
+    private static int getThreadType() {
+        Thread thread = Thread.currentThread();
+        if (thread == Looper.getMainLooper().getThread()) {
+            return THREAD_MAIN;
+        } else if (thread == MODEL_EXECUTOR.getThread()) {
+            return THREAD_MODEL;
+        } else if (thread == UI_HELPER_EXECUTOR.getThread()) {
+            return THREAD_UI_HELPER;
+        }
+        return THREAD_OTHER;
+    }
+
+    /**
+     * Returns the name of the AIDL method for {@code code}, read from the constants of the
+     * generated stub.
+     */
+    private String getMethodName(String descriptor, int code) {
+        SparseArray<String> names = mMethodNames.get(descriptor);
+        if (names == null) {
+            names = new SparseArray<>();
+            try {
+                Class<?> stub = Class.forName(descriptor + "$Stub", false,
+                        BinderCallStats.class.getClassLoader());
+                for (Field field : stub.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())
+                            && field.getType() == int.class
+                            && field.getName().startsWith("TRANSACTION_")) {
+                        field.setAccessible(true);
+                        names.put(field.getInt(null),
+                                field.getName().substring("TRANSACTION_".length()));
+                    }
+                }
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+                // Not an AIDL interface, or not accessible
+            }
+            mMethodNames.put(descriptor, names);
+        }
+        return names.get(code, "#" + code);
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        synchronized (mLock) {
+            List<MethodStats> all = new ArrayList<>();
+            for (int i = 0; i < mStats.size(); i++) {
+                SparseArray<MethodStats[]> methods = mStats.valueAt(i);
+                for (int j = 0; j < methods.size(); j++) {
+                    for (MethodStats stats : methods.valueAt(j)) {
+                        if (stats != null && stats.count > 0) {
+                            all.add(stats);
+                        }
+                    }
+                }
+            }
+            all.sort((a, b) -> Long.compare(b.totalNs, a.totalNs));
+
+            writer.println(prefix + "BinderCallStats: methods=" + all.size());
+            long window = SystemClock.uptimeMillis() / WINDOW_MS;
+            for (int i = 0; i < Math.min(all.size(), MAX_DUMPED_METHODS); i++) {
+                MethodStats stats = all.get(i);
+                writer.println(prefix + "  " + stats.descriptor + "."
+                        + getMethodName(stats.descriptor, stats.code)
+                        + " [" + THREAD_NAMES[stats.threadType] + "]"
+                        + " count=" + stats.count
+                        + " total=" + formatMs(stats.totalNs)
+                        + " max=" + formatMs(stats.maxNs)
+                        + " recent=" + stats.getRecentHistogram(window));
+            }
+
+            if (!mRepeatedCalls.isEmpty()) {
+                writer.println(prefix + "  Repeated calls:");
+                SimpleDateFormat format = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+                for (RepeatedCall call : mRepeatedCalls) {
+                    writer.println(prefix + "    " + format.format(new Date(call.timeMs)) + " "
+                            + call.stats.descriptor + "."
+                            + getMethodName(call.stats.descriptor, call.stats.code)
+                            + " [" + THREAD_NAMES[call.stats.threadType] + "]"
+                            + " x" + call.count + " within " + REPEAT_WINDOW_MS + "ms");
+                }
+            }
+        }
+    }
+
+    private static String formatMs(long ns) {
+        return String.format(Locale.US, "%.2fms", ns / 1_000_000f);
+    }
+
+    private record Session(MethodStats stats, long startNanos) { }
+
+    @VisibleForTesting
+    static class MethodStats {
+
+        final String descriptor;
+        final int code;
+        final int threadType;
+
+        long count;
+        long totalNs;
+        long maxNs;
+
+        // Histograms of the last windows, indexed by window % WINDOW_COUNT
+        final Histogram[] histograms = new Histogram[WINDOW_COUNT];
+        long window;
+
+        long burstStartMs = Long.MIN_VALUE / 2;
+        int burstCount;
+        @Nullable
+        RepeatedCall burst;
+
+        MethodStats(String descriptor, int code, int threadType) {
+            this.descriptor = descriptor;
+            this.code = code;
+            this.threadType = threadType;
+            for (int i = 0; i < WINDOW_COUNT; i++) {
+                histograms[i] = new Histogram();
+            }
+        }
+
+        /**
+         * Returns the histogram of the calls in the last windows before {@code currentWindow}.
+         */
+        Histogram getRecentHistogram(long currentWindow) {
+            Histogram result = new Histogram();
+            for (long w = Math.max(window - WINDOW_COUNT + 1, currentWindow - WINDOW_COUNT + 1);
+                    w <= window; w++) {
+                result.addAll(histograms[(int) (w % WINDOW_COUNT)]);
+            }
+            return result;
+        }
+    }
+
+    @VisibleForTesting
+    static class Histogram {
+
+        final long[] counts = new long[BUCKET_LIMITS_US.length + 1];
+
+        void add(long durationNs) {
+            long durationUs = durationNs / 1000;
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS_US.length && durationUs >= BUCKET_LIMITS_US[bucket]) {
+                bucket++;
+            }
+            counts[bucket]++;
+        }
+
+        void addAll(Histogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+        }
+
+        void clear() {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = 0;
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("{");
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    continue;
+                }
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(i < BUCKET_LIMITS_US.length
+                                ? "<" + BUCKET_LIMITS_US[i] / 1000f + "ms"
+                                : ">=" + BUCKET_LIMITS_US[i - 1] / 1000f + "ms")
+                        .append(": ").append(counts[i]);
+            }
+            return sb.append("}").toString();
+        }
+    }
+
+    private static class RepeatedCall {
+
+        final MethodStats stats;
+        final long timeMs;
+        int count;
+
+        RepeatedCall(MethodStats stats, long timeMs) {
+            this.stats = stats;
+            this.timeMs = timeMs;
+        }
+    }
+}
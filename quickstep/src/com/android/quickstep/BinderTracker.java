@@ -41,7 +41,8 @@ import java.util.function.Consumer;
 import kotlin.random.Random;
 
 /**
- * A binder proxy transaction listener for tracking binder calls on main thread.
+ * A binder proxy transaction listener for tracking binder calls on main thread, and for
+ * accounting all the binder calls of the process with {@link BinderCallStats}.
  */
 public class BinderTracker {
 
@@ -56,6 +57,11 @@ public class BinderTracker {
             "android.os.IPowerManager",
             "android.os.IServiceManager");
 
+    @Nullable
+    private static volatile BinderCallStats sCallStats;
+    @Nullable
+    private static TraceHelperExtension sTracker;
+
     /**
      * Starts tracking binder class and returns a {@link SafeCloseable} to end tracking
      */
@@ -64,14 +70,34 @@ public class BinderTracker {
 
         TraceHelperExtension helper = new TraceHelperExtension(callback);
         TraceHelper.INSTANCE = helper;
+        sTracker = helper;
         Binder.setProxyTransactListener(helper);
 
         return () -> {
-            Binder.setProxyTransactListener(null);
+            sTracker = null;
+            Binder.setProxyTransactListener(sCallStats);
             TraceHelper.INSTANCE = current;
         };
     }
 
+    /**
+     * Starts accounting all binder calls in {@code stats} and returns a {@link SafeCloseable} to
+     * end accounting. This can be used along with {@link #startTracking}.
+     */
+    public static SafeCloseable startAccounting(BinderCallStats stats) {
+        sCallStats = stats;
+        if (sTracker == null) {
+            Binder.setProxyTransactListener(stats);
+        }
+
+        return () -> {
+            sCallStats = null;
+            if (sTracker == null) {
+                Binder.setProxyTransactListener(null);
+            }
+        };
+    }
+
     private static final LinkedList<String> mMainThreadTraceStack = new LinkedList<>();
     private static final LinkedList<String> mMainThreadIgnoreIpcStack = new LinkedList<>();
 
@@ -133,8 +159,11 @@ public class BinderTracker {
 
         @Override
         public Object onTransactStarted(IBinder binder, int transactionCode, int flags) {
+            BinderCallStats callStats = sCallStats;
+            Object session = callStats == null
+                    ? null : callStats.onTransactStarted(binder, transactionCode, flags);
             if (!isMainThread() || (flags & FLAG_ONEWAY) == FLAG_ONEWAY) {
-                return null;
+                return session;
             }
 
             String ipcBypass = mMainThreadIgnoreIpcStack.peekLast();
@@ -142,7 +171,7 @@ public class BinderTracker {
             try {
                 descriptor = binder.getInterfaceDescriptor();
                 if (sAllowedFrameworkClasses.contains(descriptor)) {
-                    return null;
+                    return session;
                 }
             } catch (RemoteException e) {
                 Log.e(TAG, "Error getting IPC descriptor", e);
@@ -156,7 +185,7 @@ public class BinderTracker {
             } else {
                 Log.d(TAG, "MainThread-IPC " + descriptor + " ignored due to " + ipcBypass);
             }
-            return null;
+            return session;
         }
 
         @NonNull
@@ -185,7 +214,10 @@ public class BinderTracker {
 
         @Override
         public void onTransactEnded(Object session) {
-            // Do nothing
+            BinderCallStats callStats = sCallStats;
+            if (callStats != null) {
+                callStats.onTransactEnded(session);
+            }
         }
     }
 
@@ -15,6 +15,8 @@
  */
 package com.android.quickstep;
 
+import static com.android.launcher3.Flags.enableBinderCallAccounting;
+
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.os.Looper;
@@ -64,6 +66,9 @@ public class QuickstepProcessInitializer extends MainProcessInitializer {
         // This allows us to see Handler callbacks on traces.
         Looper.getMainLooper().setTraceTag(Trace.TRACE_TAG_APP);
 
+        if (enableBinderCallAccounting()) {
+            BinderTracker.startAccounting(BinderCallStats.INSTANCE);
+        }
         if (BuildConfig.IS_STUDIO_BUILD) {
             BinderTracker.startTracking(call ->  Log.e("BinderCall",
                     call.descriptor + " called on main thread under " + call.activeTrace
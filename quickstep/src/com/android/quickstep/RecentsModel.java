@@ -115,6 +115,21 @@ public class RecentsModel implements RecentTasksDataSource, IconChangeListener,
         mIconCache = iconCache;
         mIconCache.registerTaskVisualsChangeListener(this);
         mThumbnailCache = thumbnailCache;
+        if (mThumbnailCache.isDiskCacheEnabled()) {
+            // Restore the thumbnails persisted before the process was restarted
+            mTaskList.getTaskKeys(mThumbnailCache.getCacheSize(), taskGroups -> {
+                ArrayList<Task.TaskKey> keys = new ArrayList<>();
+                for (GroupTask group : taskGroups) {
+                    if (group.task1 != null) {
+                        keys.add(group.task1.key);
+                    }
+                    if (group.task2 != null) {
+                        keys.add(group.task2.key);
+                    }
+                }
+                mThumbnailCache.warmUpFromDisk(keys);
+            });
+        }
         if (isCachePreloadingEnabled()) {
             mCallbacks = new ComponentCallbacks() {
                 @Override
@@ -258,6 +273,7 @@ public class RecentsModel implements RecentTasksDataSource, IconChangeListener,
     }
 
     public void onTrimMemory(int level) {
+        mThumbnailCache.onTrimMemory(level);
         if (level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
             mThumbnailCache.getHighResLoadingState().setVisible(false);
         }
@@ -307,6 +323,8 @@ public class RecentsModel implements RecentTasksDataSource, IconChangeListener,
     public void dump(String prefix, PrintWriter writer) {
         writer.println(prefix + "RecentsModel:");
         mTaskList.dump("  ", writer);
+        mThumbnailCache.dump("  ", writer);
+        mIconCache.dump("  ", writer);
     }
 
     /**
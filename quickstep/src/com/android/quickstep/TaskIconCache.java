@@ -32,11 +32,13 @@ import android.graphics.Bitmap;
 import android.graphics.drawable.AdaptiveIconDrawable;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.text.TextUtils;
 import android.util.SparseArray;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import com.android.launcher3.Flags;
@@ -46,6 +48,7 @@ import com.android.launcher3.Utilities;
 import com.android.launcher3.icons.BaseIconFactory;
 import com.android.launcher3.icons.BaseIconFactory.IconOptions;
 import com.android.launcher3.icons.BitmapInfo;
+import com.android.launcher3.icons.IconCacheStats;
 import com.android.launcher3.icons.IconProvider;
 import com.android.launcher3.icons.MonochromeIconFactory;
 import com.android.launcher3.pm.UserCache;
@@ -56,13 +59,14 @@ import com.android.launcher3.util.DisplayController.Info;
 import com.android.launcher3.util.FlagOp;
 import com.android.launcher3.util.Preconditions;
 import com.android.quickstep.task.thumbnail.data.TaskIconDataSource;
-import com.android.quickstep.util.TaskKeyLruCache;
+import com.android.quickstep.util.TaskKeyConcurrentLruCache;
 import com.android.quickstep.util.TaskVisualsChangeListener;
 import com.android.launcher3.util.Themes;
 import com.android.systemui.shared.recents.model.Task;
 import com.android.systemui.shared.recents.model.Task.TaskKey;
 import com.android.systemui.shared.system.PackageManagerWrapper;
 
+import java.io.PrintWriter;
 import java.util.concurrent.Executor;
 
 /**
@@ -72,10 +76,18 @@ public class TaskIconCache implements TaskIconDataSource, DisplayInfoChangeListe
 
     public static final int FLAG_THEMED = 1 << 0;
 
+    // Tiers of the lookups recorded in the stats
+    public static final int TIER_MEMORY = 0;
+    public static final int TIER_TASK_DESCRIPTION = 1;
+    public static final int TIER_PACKAGE_MANAGER = 2;
+    public static final int TIER_DEFAULT = 3;
+
     private final Executor mBgExecutor;
 
     private final Context mContext;
-    private final TaskKeyLruCache<TaskCacheEntry> mIconCache;
+    private final TaskKeyConcurrentLruCache<TaskCacheEntry> mIconCache;
+    private final IconCacheStats mStats = new IconCacheStats(
+            "TaskIconCache", "memory", "task_description", "package_manager", "default");
     private final SparseArray<BitmapInfo> mDefaultIcons = new SparseArray<>();
     private BitmapInfo mDefaultIconBase = null;
 
@@ -97,7 +109,7 @@ public class TaskIconCache implements TaskIconDataSource, DisplayInfoChangeListe
         Resources res = context.getResources();
         int cacheSize = res.getInteger(R.integer.recentsIconCacheSize);
 
-        mIconCache = new TaskKeyLruCache<>(cacheSize);
+        mIconCache = new TaskKeyConcurrentLruCache<>(cacheSize);
 
         DisplayController.INSTANCE.get(mContext).addChangeListener(this);
         LauncherPrefs.get(mContext).addListener(this, LauncherPrefs.THEMED_ICONS);
@@ -137,8 +149,13 @@ public class TaskIconCache implements TaskIconDataSource, DisplayInfoChangeListe
             callback.onTaskIconReceived(task.icon, task.titleDescription, task.title);
             return null;
         }
+        long requestNs = SystemClock.elapsedRealtimeNanos();
         CancellableTask<TaskCacheEntry> request = new CancellableTask<>(
-                () -> getCacheEntry(task),
+                () -> {
+                    TaskCacheEntry entry = getCacheEntry(task);
+                    mStats.recordRequest(SystemClock.elapsedRealtimeNanos() - requestNs);
+                    return entry;
+                },
                 MAIN_EXECUTOR,
                 result -> {
                     callback.onTaskIconReceived(
@@ -170,10 +187,13 @@ public class TaskIconCache implements TaskIconDataSource, DisplayInfoChangeListe
 
     @WorkerThread
     private TaskCacheEntry getCacheEntry(Task task) {
+        long startNs = SystemClock.elapsedRealtimeNanos();
         TaskCacheEntry entry = mIconCache.getAndInvalidateIfModified(task.key);
         if (entry != null) {
+            mStats.record(TIER_MEMORY, SystemClock.elapsedRealtimeNanos() - startNs, false);
             return entry;
         }
+        int tier;
 
         TaskDescription desc = task.taskDescription;
         TaskKey key = task.key;
@@ -186,6 +206,7 @@ public class TaskIconCache implements TaskIconDataSource, DisplayInfoChangeListe
         // TODO: Load icon resource (b/143363444)
         Bitmap icon = getIcon(desc, key.userId);
         if (icon != null) {
+            tier = TIER_TASK_DESCRIPTION;
             entry.icon = getBitmapInfo(
                     new BitmapDrawable(mContext.getResources(), icon),
                     key.userId,
@@ -195,6 +216,7 @@ public class TaskIconCache implements TaskIconDataSource, DisplayInfoChangeListe
             activityInfo = PackageManagerWrapper.getInstance().getActivityInfo(
                     key.getComponent(), key.userId);
             if (activityInfo != null) {
+                tier = TIER_PACKAGE_MANAGER;
                 BitmapInfo bitmapInfo = getBitmapInfo(
                         mIconProvider.getIcon(activityInfo),
                         key.userId,
@@ -202,6 +224,7 @@ public class TaskIconCache implements TaskIconDataSource, DisplayInfoChangeListe
                         activityInfo.applicationInfo.isInstantApp());
                 entry.icon = bitmapInfo.newIcon(mContext, mThemedIconsEnabled ? FLAG_THEMED : 0);
             } else {
+                tier = TIER_DEFAULT;
                 entry.icon = getDefaultIcon(key.userId);
             }
         }
@@ -220,6 +243,7 @@ public class TaskIconCache implements TaskIconDataSource, DisplayInfoChangeListe
         }
 
         mIconCache.put(task.key, entry);
+        mStats.record(tier, SystemClock.elapsedRealtimeNanos() - startNs, false);
         return entry;
     }
 
@@ -324,6 +348,17 @@ public class TaskIconCache implements TaskIconDataSource, DisplayInfoChangeListe
         public String title = "";
     }
 
+    @VisibleForTesting
+    public IconCacheStats getStats() {
+        return mStats;
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "TaskIconCache: size=" + mIconCache.getSize()
+                + " maxSize=" + mIconCache.getMaxSize());
+        mStats.dump(prefix + "  ", writer);
+    }
+
     /** Callback used when retrieving app icons from cache. */
     public interface GetTaskIconCallback {
         /** Called when task icon is retrieved. */
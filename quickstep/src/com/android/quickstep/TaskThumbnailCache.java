@@ -18,10 +18,12 @@ package com.android.quickstep;
 import static com.android.launcher3.Flags.enableGridOnlyOverview;
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
 
+import android.app.ActivityManager;
 import android.content.Context;
 import android.content.res.Resources;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.launcher3.R;
@@ -32,19 +34,35 @@ import com.android.quickstep.task.thumbnail.data.TaskThumbnailDataSource;
 import com.android.quickstep.util.TaskKeyByLastActiveTimeCache;
 import com.android.quickstep.util.TaskKeyCache;
 import com.android.quickstep.util.TaskKeyLruCache;
+import com.android.quickstep.util.ThumbnailDiskCache;
+import com.android.quickstep.util.ThumbnailTieredCache;
 import com.android.systemui.shared.recents.model.Task;
 import com.android.systemui.shared.recents.model.Task.TaskKey;
 import com.android.systemui.shared.recents.model.ThumbnailData;
 import com.android.systemui.shared.system.ActivityManagerWrapper;
 
+import java.io.File;
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 public class TaskThumbnailCache implements TaskThumbnailDataSource {
 
+    // Fractions of the app memory class which the high-res and low-res thumbnails can use
+    private static final int HIGH_RES_BUDGET_DIVISOR = 4;
+    private static final int LOW_RES_BUDGET_DIVISOR = 8;
+    // Scale of the low-res thumbnails if the system doesn't define it
+    private static final float DEFAULT_LOW_RES_SCALE = 0.5f;
+    private static final String DISK_CACHE_DIR = "recents_thumbnails";
+    // Number of thumbnails persisted on disk, relative to the in-memory cache size
+    private static final int DISK_CACHE_SIZE_MULTIPLIER = 2;
+
     private final Executor mBgExecutor;
     private final TaskKeyCache<ThumbnailData> mCache;
+    @Nullable
+    private final ThumbnailDiskCache mDiskCache;
     private final HighResLoadingState mHighResLoadingState;
     private final boolean mEnableTaskSnapshotPreloading;
     private final Context mContext;
@@ -63,7 +81,7 @@ public class TaskThumbnailCache implements TaskThumbnailDataSource {
         private HighResLoadingState(Context context) {
             // If the device does not support low-res thumbnails, only attempt to load high-res
             // thumbnails
-            mForceHighResThumbnails = !supportsLowResThumbnails();
+            mForceHighResThumbnails = getLowResThumbnailScale() <= 0;
         }
 
         @Override
@@ -109,7 +127,20 @@ public class TaskThumbnailCache implements TaskThumbnailDataSource {
     private TaskThumbnailCache(Context context, Executor bgExecutor, int cacheSize) {
         this(context, bgExecutor,
                 enableGridOnlyOverview() ? new TaskKeyByLastActiveTimeCache<>(cacheSize)
-                        : new TaskKeyLruCache<>(cacheSize));
+                        : createTieredCache(context, bgExecutor, cacheSize));
+    }
+
+    private static TaskKeyCache<ThumbnailData> createTieredCache(Context context,
+            Executor bgExecutor, int cacheSize) {
+        ActivityManager am = context.getSystemService(ActivityManager.class);
+        if (am == null) {
+            return new TaskKeyLruCache<>(cacheSize);
+        }
+        long memoryClassBytes = am.getMemoryClass() * 1024L * 1024L;
+        return new ThumbnailTieredCache(cacheSize,
+                memoryClassBytes / HIGH_RES_BUDGET_DIVISOR,
+                memoryClassBytes / LOW_RES_BUDGET_DIVISOR,
+                getLowResThumbnailScale(), bgExecutor);
     }
 
     @VisibleForTesting
@@ -121,6 +152,11 @@ public class TaskThumbnailCache implements TaskThumbnailDataSource {
         Resources res = context.getResources();
         mEnableTaskSnapshotPreloading = res.getBoolean(R.bool.config_enableTaskSnapshotPreloading);
         mCache = cache;
+        mDiskCache = res.getBoolean(R.bool.config_enableRecentsThumbnailDiskCache)
+                ? new ThumbnailDiskCache(new File(context.getCacheDir(), DISK_CACHE_DIR),
+                        getLowResThumbnailScale(),
+                        cache.getMaxSize() * DISK_CACHE_SIZE_MULTIPLIER)
+                : null;
     }
 
     /**
@@ -144,6 +180,42 @@ public class TaskThumbnailCache implements TaskThumbnailDataSource {
     public void updateTaskSnapShot(int taskId, ThumbnailData thumbnail) {
         Preconditions.assertUIThread();
         mCache.updateIfAlreadyInCache(taskId, thumbnail);
+        if (mDiskCache != null) {
+            // The persisted thumbnail is outdated, it is persisted again the next time it is
+            // fetched
+            mBgExecutor.execute(() -> mDiskCache.remove(taskId));
+        }
+    }
+
+    /**
+     * Asynchronously loads the thumbnails persisted for the given tasks into the cache, unless
+     * they are already cached.
+     */
+    public void warmUpFromDisk(List<TaskKey> keys) {
+        if (mDiskCache == null) {
+            return;
+        }
+        Preconditions.assertUIThread();
+        mBgExecutor.execute(() -> {
+            for (TaskKey key : keys) {
+                ThumbnailData thumbnailData = mDiskCache.read(key);
+                if (thumbnailData == null) {
+                    continue;
+                }
+                MAIN_EXECUTOR.execute(() -> {
+                    if (mCache.getAndInvalidateIfModified(key) == null) {
+                        mCache.put(key, thumbnailData);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return Whether thumbnails are persisted on disk.
+     */
+    public boolean isDiskCacheEnabled() {
+        return mDiskCache != null;
     }
 
     /**
@@ -218,6 +290,9 @@ public class TaskThumbnailCache implements TaskThumbnailDataSource {
                         }
                     }
                     mCache.put(key, result);
+                    if (mDiskCache != null) {
+                        mBgExecutor.execute(() -> mDiskCache.write(key, result));
+                    }
                     callback.accept(result);
                 }
         );
@@ -237,6 +312,9 @@ public class TaskThumbnailCache implements TaskThumbnailDataSource {
      */
     public void remove(Task.TaskKey key) {
         mCache.remove(key);
+        if (mDiskCache != null) {
+            mBgExecutor.execute(() -> mDiskCache.remove(key.id));
+        }
     }
 
     /**
@@ -261,18 +339,30 @@ public class TaskThumbnailCache implements TaskThumbnailDataSource {
     }
 
     /**
-     * @return Whether device supports low-res thumbnails. Low-res files are an optimization
-     * for faster load times of snapshots. Devices can optionally disable low-res files so that
-     * they only store snapshots at high-res scale. The actual scale can be configured in
-     * frameworks/base config overlay.
+     * Releases thumbnails according to the given trim level.
+     */
+    public void onTrimMemory(int level) {
+        mCache.onTrimMemory(level);
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "TaskThumbnailCache:");
+        mCache.dump(prefix + "  ", writer);
+    }
+
+    /**
+     * @return The scale of low-res thumbnails, or 0 if the device doesn't support them. Low-res
+     * files are an optimization for faster load times of snapshots. Devices can optionally disable
+     * low-res files so that they only store snapshots at high-res scale. The actual scale can be
+     * configured in frameworks/base config overlay.
      */
-    private static boolean supportsLowResThumbnails() {
+    private static float getLowResThumbnailScale() {
         Resources res = Resources.getSystem();
         int resId = res.getIdentifier("config_lowResTaskSnapshotScale", "dimen", "android");
         if (resId != 0) {
-            return 0 < res.getFloat(resId);
+            return res.getFloat(resId);
         }
-        return true;
+        return DEFAULT_LOW_RES_SCALE;
     }
 
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.logging;
+
+import static com.android.launcher3.util.Executors.ORDERED_BG_EXECUTOR;
+
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.logger.LauncherAtom.MetricsRecord;
+import com.android.launcher3.util.MainThreadInitializedObject;
+import com.android.launcher3.util.SafeCloseable;
+import com.android.quickstep.logging.StatsLogCompatManager.MetricsSink;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link MetricsSink} writing the records to a local file, to be analysed offline.
+ *
+ * Records are queued in memory and written in batches, as length-delimited {@link MetricsRecord}
+ * protos, on {@link com.android.launcher3.util.Executors#ORDERED_BG_EXECUTOR}. Records are
+ * dropped when the queue is full. When the file grows over {@link #MAX_FILE_SIZE}, it replaces
+ * the previous rotated file, so at most twice that size is used.
+ */
+public class MetricsFileSink implements MetricsSink, SafeCloseable {
+
+    private static final String TAG = "MetricsFileSink";
+
+    public static final MainThreadInitializedObject<MetricsFileSink> INSTANCE =
+            new MainThreadInitializedObject<>(context -> new MetricsFileSink(
+                    new File(context.getFilesDir(), "metrics"), ORDERED_BG_EXECUTOR.getHandler()));
+
+    static final String FILE_NAME = "metrics.pb";
+    static final String ROTATED_FILE_NAME = "metrics.1.pb";
+
+    @VisibleForTesting
+    static final int MAX_QUEUE_SIZE = 512;
+    @VisibleForTesting
+    static final int BATCH_SIZE = 32;
+    private static final long FLUSH_DELAY_MS = 10_000;
+    private static final long MAX_FILE_SIZE = 256 << 10;
+
+    private final File mDir;
+    private final Handler mHandler;
+    private final Runnable mFlushRunnable = this::flush;
+
+    // Guarded by mQueue
+    private final ArrayDeque<MetricsRecord> mQueue = new ArrayDeque<>();
+    private boolean mFlushScheduled;
+    private long mRecordedCount;
+    private long mDroppedCount;
+    private long mWrittenCount;
+    private long mFailedCount;
+
+    @VisibleForTesting
+    MetricsFileSink(File dir, Handler handler) {
+        mDir = dir;
+        mHandler = handler;
+    }
+
+    @AnyThread
+    @Override
+    public void record(MetricsRecord record) {
+        synchronized (mQueue) {
+            mRecordedCount++;
+            if (mQueue.size() >= MAX_QUEUE_SIZE) {
+                mDroppedCount++;
+                return;
+            }
+            mQueue.add(record);
+            if (mQueue.size() >= BATCH_SIZE) {
+                mHandler.removeCallbacks(mFlushRunnable);
+                mHandler.post(mFlushRunnable);
+                mFlushScheduled = true;
+            } else if (!mFlushScheduled) {
+                mHandler.postDelayed(mFlushRunnable, FLUSH_DELAY_MS);
+                mFlushScheduled = true;
+            }
+        }
+    }
+
+    /**
+     * Writes the queued records to the file.
+     */
+    @WorkerThread
+    @VisibleForTesting
+    void flush() {
+        List<MetricsRecord> records;
+        synchronized (mQueue) {
+            mFlushScheduled = false;
+            if (mQueue.isEmpty()) {
+                return;
+            }
+            records = new ArrayList<>(mQueue);
+            mQueue.clear();
+        }
+
+        File file = new File(mDir, FILE_NAME);
+        boolean success = false;
+        if (mDir.exists() || mDir.mkdirs()) {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
+                for (MetricsRecord record : records) {
+                    record.writeDelimitedTo(out);
+                }
+                success = true;
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write metrics", e);
+            }
+        }
+        synchronized (mQueue) {
+            if (success) {
+                mWrittenCount += records.size();
+            } else {
+                mFailedCount += records.size();
+            }
+        }
+
+        if (file.length() > MAX_FILE_SIZE) {
+            File rotated = new File(mDir, ROTATED_FILE_NAME);
+            if (!file.renameTo(rotated)) {
+                Log.e(TAG, "Failed to rotate metrics file");
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Returns the records written to {@code file}.
+     */
+    @WorkerThread
+    public static List<MetricsRecord> readRecords(File file) throws IOException {
+        List<MetricsRecord> records = new ArrayList<>();
+        try (InputStream in = new FileInputStream(file)) {
+            MetricsRecord record;
+            while ((record = MetricsRecord.parseDelimitedFrom(in)) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Returns the files holding the records, from the oldest to the newest.
+     */
+    public File[] getFiles() {
+        return new File[] {new File(mDir, ROTATED_FILE_NAME), new File(mDir, FILE_NAME)};
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        synchronized (mQueue) {
+            writer.println(prefix + "MetricsFileSink:"
+                    + " recorded=" + mRecordedCount
+                    + " written=" + mWrittenCount
+                    + " queued=" + mQueue.size()
+                    + " dropped=" + mDroppedCount
+                    + " failed=" + mFailedCount);
+        }
+    }
+
+    @Override
+    public void close() {
+        mHandler.removeCallbacks(mFlushRunnable);
+        mHandler.post(mFlushRunnable);
+    }
+}
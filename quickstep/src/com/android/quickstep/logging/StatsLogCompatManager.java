@@ -23,6 +23,7 @@ import static android.view.Surface.ROTATION_90;
 import static androidx.core.util.Preconditions.checkNotNull;
 import static androidx.core.util.Preconditions.checkState;
 
+import static com.android.launcher3.Flags.enableLocalMetricsSink;
 import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_NON_ACTIONABLE;
 import static com.android.launcher3.logger.LauncherAtom.ContainerInfo.ContainerCase.ALL_APPS_CONTAINER;
 import static com.android.launcher3.logger.LauncherAtom.ContainerInfo.ContainerCase.EXTENDED_CONTAINERS;
@@ -48,6 +49,7 @@ import android.util.Log;
 import android.util.StatsEvent;
 import android.view.View;
 
+import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
@@ -63,6 +65,7 @@ import com.android.launcher3.logger.LauncherAtom.FolderContainer.ParentContainer
 import com.android.launcher3.logger.LauncherAtom.FolderIcon;
 import com.android.launcher3.logger.LauncherAtom.FromState;
 import com.android.launcher3.logger.LauncherAtom.LauncherAttributes;
+import com.android.launcher3.logger.LauncherAtom.MetricsRecord;
 import com.android.launcher3.logger.LauncherAtom.ToState;
 import com.android.launcher3.logger.LauncherAtomExtensions.DeviceSearchResultContainer;
 import com.android.launcher3.logger.LauncherAtomExtensions.DeviceSearchResultContainer.SearchAttributes;
@@ -120,8 +123,14 @@ public class StatsLogCompatManager extends StatsLogManager {
     public static final CopyOnWriteArrayList<StatsLogConsumer> LOGS_CONSUMER =
             new CopyOnWriteArrayList<>();
 
+    public static final CopyOnWriteArrayList<MetricsSink> METRICS_SINKS =
+            new CopyOnWriteArrayList<>();
+
     public StatsLogCompatManager(Context context) {
         super(context);
+        if (enableLocalMetricsSink()) {
+            METRICS_SINKS.addIfAbsent(MetricsFileSink.INSTANCE.get(context));
+        }
     }
 
     @Override
@@ -242,6 +251,7 @@ public class StatsLogCompatManager extends StatsLogManager {
          * Indicates the current rotation of the display. Uses {@link android.view.Surface values.}
          */
         private final int mDisplayRotation;
+        private long mLogTimeMillis;
 
         StatsCompatLogger(Context context, ActivityContext activityContext) {
             mContext = context;
@@ -355,6 +365,7 @@ public class StatsLogCompatManager extends StatsLogManager {
 
         @Override
         public void log(EventEnum event) {
+            mLogTimeMillis = System.currentTimeMillis();
             if (DEBUG) {
                 String name = (event instanceof Enum) ? ((Enum) event).name() :
                         event.getId() + "";
@@ -483,6 +494,19 @@ public class StatsLogCompatManager extends StatsLogManager {
                 consumer.consume(event, atomInfo);
             }
 
+            if (!METRICS_SINKS.isEmpty()) {
+                MetricsRecord.Builder record = MetricsRecord.newBuilder()
+                        .setTimestampMillis(mLogTimeMillis)
+                        .setEventId(event.getId())
+                        .setInstanceId(instanceId.getId())
+                        .setItemInfo(atomInfo)
+                        .setSrcState(srcState)
+                        .setDstState(dstState)
+                        .setInputType(inputType);
+                mCardinality.ifPresent(record::setCardinality);
+                recordMetrics(record.build());
+            }
+
             // TODO: remove this when b/231648228 is fixed.
             if (Utilities.isRunningInTestHarness()) {
                 return;
@@ -609,6 +633,20 @@ public class StatsLogCompatManager extends StatsLogManager {
                 Log.d(LATENCY_TAG, logStringBuilder.toString());
             }
 
+            if (!METRICS_SINKS.isEmpty()) {
+                recordMetrics(MetricsRecord.newBuilder()
+                        .setTimestampMillis(System.currentTimeMillis())
+                        .setEventId(event.getId())
+                        .setInstanceId(mInstanceId.getId())
+                        .setLatencyMillis(mLatencyInMillis)
+                        .setLatencyType(mType.getId())
+                        .setPackageId(mPackageId)
+                        .setQueryLength(mQueryLength)
+                        .setSubEventType(mSubEventType)
+                        .setCardinality(mCardinality)
+                        .build());
+            }
+
             SysUiStatsLog.write(SysUiStatsLog.LAUNCHER_LATENCY,
                     event.getId(), // event_id
                     mInstanceId.getId(), // instance_id
@@ -924,4 +962,19 @@ public class StatsLogCompatManager extends StatsLogManager {
         @WorkerThread
         void consume(EventEnum event, LauncherAtom.ItemInfo atomInfo);
     }
+
+    private static void recordMetrics(MetricsRecord record) {
+        for (MetricsSink sink : METRICS_SINKS) {
+            sink.record(record);
+        }
+    }
+
+    /**
+     * Receives the launcher events and latencies, in addition to statsd, for local analysis.
+     */
+    public interface MetricsSink {
+
+        @AnyThread
+        void record(MetricsRecord record);
+    }
 }
@@ -86,8 +86,8 @@ public class ActiveGestureErrorDetector {
         final Set<GestureEvent> encounteredEvents = new ArraySet<>();
         // Set flags and check order of operations.
         long lastStartRecentAnimationEventEntryTime = 0;
-        for (ActiveGestureLog.EventEntry eventEntry : eventLog.eventEntries) {
-            GestureEvent gestureEvent = eventEntry.getGestureEvent();
+        for (int i = 0; i < eventLog.size(); i++) {
+            GestureEvent gestureEvent = eventLog.getGestureEvent(i);
             if (gestureEvent == null) {
                 continue;
             }
@@ -236,7 +236,7 @@ public class ActiveGestureErrorDetector {
                                     + "onAnimationStart callback ran before startRecentsAnimation",
                             writer);
                     errorDetected |= printErrorIfTrue(
-                            eventEntry.getTime() - lastStartRecentAnimationEventEntryTime
+                            eventLog.getTime(i) - lastStartRecentAnimationEventEntryTime
                                     > ON_START_RECENT_ANIMATION_TIME_LIMIT,
                             prefix,
                             /* errorMessage= */"ON_START_RECENTS_ANIMATION "
@@ -272,13 +272,13 @@ public class ActiveGestureErrorDetector {
                             writer);
                     break;
                 case START_RECENTS_ANIMATION:
-                    lastStartRecentAnimationEventEntryTime = eventEntry.getTime();
+                    lastStartRecentAnimationEventEntryTime = eventLog.getTime(i);
                     break;
                 case RECENTS_ANIMATION_START_PENDING:
                     errorDetected |= printErrorIfTrue(
                             true,
                             prefix,
-                            /* errorMessage= */ (eventEntry.getDuplicateCount() + 1)
+                            /* errorMessage= */ (eventLog.getDuplicateCount(i) + 1)
                                     + " gesture(s) attempted while a requested recents"
                                     + " animation is still pending.",
                             writer);
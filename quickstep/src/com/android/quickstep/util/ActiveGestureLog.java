@@ -23,7 +23,7 @@ import com.android.launcher3.util.Preconditions;
 import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -62,7 +62,7 @@ public class ActiveGestureLog {
      *                   execution.
      */
     public void trackEvent(@Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        addLog(CompoundString.NO_OP, gestureEvent);
+        addLog(null, EventLog.PAYLOAD_NONE, 0, null, gestureEvent);
     }
 
     /**
@@ -76,6 +76,10 @@ public class ActiveGestureLog {
         addLog(event, extras, null);
     }
 
+    public void addLog(@NonNull String event, float extras) {
+        addLog(event, EventLog.PAYLOAD_FLOAT, Float.floatToRawIntBits(extras), null, null);
+    }
+
     public void addLog(@NonNull String event, boolean extras) {
         addLog(event, extras, null);
     }
@@ -87,21 +91,21 @@ public class ActiveGestureLog {
      */
     public void addLog(
             @NonNull String event, @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        addLog(new CompoundString(event), gestureEvent);
+        addLog(event, EventLog.PAYLOAD_NONE, 0, null, gestureEvent);
     }
 
     public void addLog(
             @NonNull String event,
             int extras,
             @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        addLog(new CompoundString(event).append(": ").append(extras), gestureEvent);
+        addLog(event, EventLog.PAYLOAD_INT, extras, null, gestureEvent);
     }
 
     public void addLog(
             @NonNull String event,
             boolean extras,
             @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        addLog(new CompoundString(event).append(": ").append(extras), gestureEvent);
+        addLog(event, EventLog.PAYLOAD_BOOLEAN, extras ? 1 : 0, null, gestureEvent);
     }
 
     public void addLog(@NonNull CompoundString compoundString) {
@@ -111,35 +115,41 @@ public class ActiveGestureLog {
     public void addLog(
             @NonNull CompoundString compoundString,
             @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
+        if (compoundString.mIsNoOp) {
+            addLog(null, EventLog.PAYLOAD_NONE, 0, null, gestureEvent);
+        } else {
+            addLog(null, EventLog.PAYLOAD_COMPOUND, 0, compoundString, gestureEvent);
+        }
+    }
+
+    private synchronized void addLog(
+            @Nullable String event,
+            int payloadType,
+            long payload,
+            @Nullable CompoundString compoundString,
+            @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
         EventLog lastEventLog = logs[(nextIndex + logs.length - 1) % logs.length];
         if (lastEventLog == null || mCurrentLogId != lastEventLog.logId) {
-            EventLog eventLog = new EventLog(mCurrentLogId, mIsFullyGesturalNavMode);
-            EventEntry eventEntry = new EventEntry();
-
-            eventEntry.update(compoundString, gestureEvent);
-            eventLog.eventEntries.add(eventEntry);
-            logs[nextIndex] = eventLog;
+            // Reuse the log of the oldest gesture, to avoid reallocating its buffers
+            EventLog eventLog = logs[nextIndex];
+            if (eventLog == null) {
+                eventLog = new EventLog();
+                logs[nextIndex] = eventLog;
+            }
+            eventLog.reset(mCurrentLogId, mIsFullyGesturalNavMode);
+            eventLog.add(event, payloadType, payload, compoundString, gestureEvent);
             nextIndex = (nextIndex + 1) % logs.length;
             return;
         }
 
-        // Update the last EventLog
-        List<EventEntry> lastEventEntries = lastEventLog.eventEntries;
-        EventEntry lastEntry = !lastEventEntries.isEmpty()
-                ? lastEventEntries.get(lastEventEntries.size() - 1) : null;
-
-        // Update the last EventEntry if it's a duplicate
-        if (isEntrySame(lastEntry, compoundString, gestureEvent)) {
-            lastEntry.duplicateCount++;
-            return;
+        // Update the last entry if it's a duplicate
+        if (!lastEventLog.incrementIfLastSame(
+                event, payloadType, payload, compoundString, gestureEvent)) {
+            lastEventLog.add(event, payloadType, payload, compoundString, gestureEvent);
         }
-        EventEntry eventEntry = new EventEntry();
-
-        eventEntry.update(compoundString, gestureEvent);
-        lastEventEntries.add(eventEntry);
     }
 
-    public void dump(String prefix, PrintWriter writer) {
+    public synchronized void dump(String prefix, PrintWriter writer) {
         writer.println(prefix + "ActiveGestureErrorDetector:");
         for (int i = 0; i < logs.length; i++) {
             EventLog eventLog = logs[(nextIndex + i) % logs.length];
@@ -159,17 +169,18 @@ public class ActiveGestureLog {
             }
 
             writer.println(prefix + "\tLogs for logId: " + eventLog.logId);
-            for (EventEntry eventEntry : eventLog.eventEntries) {
-                if (eventEntry.mCompoundString.mIsNoOp) {
+            for (int j = 0; j < eventLog.size(); j++) {
+                if (!eventLog.hasMessage(j)) {
                     continue;
                 }
-                date.setTime(eventEntry.time);
+                date.setTime(eventLog.getTime(j));
 
                 StringBuilder msg = new StringBuilder(prefix + "\t\t")
-                        .append(sdf.format(date))
-                        .append(eventEntry.mCompoundString);
-                if (eventEntry.duplicateCount > 0) {
-                    msg.append(" & ").append(eventEntry.duplicateCount).append(" similar events");
+                        .append(sdf.format(date));
+                eventLog.appendMessage(msg, j);
+                int duplicateCount = eventLog.getDuplicateCount(j);
+                if (duplicateCount > 0) {
+                    msg.append(" & ").append(duplicateCount).append(" similar events");
                 }
                 writer.println(msg);
             }
@@ -193,59 +204,135 @@ public class ActiveGestureLog {
         return mCurrentLogId;
     }
 
-    private boolean isEntrySame(
-            EventEntry entry,
-            CompoundString compoundString,
-            ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        return entry != null
-                && entry.mCompoundString.equals(compoundString)
-                && entry.gestureEvent == gestureEvent;
-    }
+    /**
+     * An entire log of entries associated with a single log ID.
+     *
+     * Entries are stored in parallel arrays of primitives, which are reused for the following
+     * gestures once this log is the oldest tracked, so that recording an entry doesn't allocate.
+     * The messages are only rendered at dump time.
+     */
+    protected static class EventLog {
 
-    /** A single event entry. */
-    protected static class EventEntry {
+        private static final int INITIAL_CAPACITY = 64;
 
-        @NonNull private CompoundString mCompoundString;
-        private ActiveGestureErrorDetector.GestureEvent gestureEvent;
-        private long time;
-        private int duplicateCount;
+        static final int PAYLOAD_NONE = 0;
+        static final int PAYLOAD_INT = 1;
+        static final int PAYLOAD_BOOLEAN = 2;
+        static final int PAYLOAD_FLOAT = 3;
+        static final int PAYLOAD_COMPOUND = 4;
 
-        private EventEntry() {}
+        protected int logId;
+        protected boolean mIsFullyGesturalNavMode;
 
-        @Nullable
-        protected ActiveGestureErrorDetector.GestureEvent getGestureEvent() {
-            return gestureEvent;
+        private int mSize;
+        private long[] mTimes = new long[INITIAL_CAPACITY];
+        private String[] mEvents = new String[INITIAL_CAPACITY];
+        private byte[] mPayloadTypes = new byte[INITIAL_CAPACITY];
+        private long[] mPayloads = new long[INITIAL_CAPACITY];
+        private CompoundString[] mCompoundStrings = new CompoundString[INITIAL_CAPACITY];
+        private ActiveGestureErrorDetector.GestureEvent[] mGestureEvents =
+                new ActiveGestureErrorDetector.GestureEvent[INITIAL_CAPACITY];
+        private int[] mDuplicateCounts = new int[INITIAL_CAPACITY];
+
+        private EventLog() {}
+
+        private void reset(int logId, boolean isFullyGesturalNavMode) {
+            this.logId = logId;
+            mIsFullyGesturalNavMode = isFullyGesturalNavMode;
+            // Release the references held by the previous gesture
+            Arrays.fill(mEvents, 0, mSize, null);
+            Arrays.fill(mCompoundStrings, 0, mSize, null);
+            Arrays.fill(mGestureEvents, 0, mSize, null);
+            mSize = 0;
         }
 
-        public int getDuplicateCount() {
-            return duplicateCount;
+        private void add(
+                @Nullable String event,
+                int payloadType,
+                long payload,
+                @Nullable CompoundString compoundString,
+                @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
+            if (mSize == mTimes.length) {
+                int capacity = mSize * 2;
+                mTimes = Arrays.copyOf(mTimes, capacity);
+                mEvents = Arrays.copyOf(mEvents, capacity);
+                mPayloadTypes = Arrays.copyOf(mPayloadTypes, capacity);
+                mPayloads = Arrays.copyOf(mPayloads, capacity);
+                mCompoundStrings = Arrays.copyOf(mCompoundStrings, capacity);
+                mGestureEvents = Arrays.copyOf(mGestureEvents, capacity);
+                mDuplicateCounts = Arrays.copyOf(mDuplicateCounts, capacity);
+            }
+            mTimes[mSize] = System.currentTimeMillis();
+            mEvents[mSize] = event;
+            mPayloadTypes[mSize] = (byte) payloadType;
+            mPayloads[mSize] = payload;
+            mCompoundStrings[mSize] = compoundString;
+            mGestureEvents[mSize] = gestureEvent;
+            mDuplicateCounts[mSize] = 0;
+            mSize++;
         }
 
-        private void update(
-                @NonNull CompoundString compoundString,
-                ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-            this.mCompoundString = compoundString;
-            this.gestureEvent = gestureEvent;
-            time = System.currentTimeMillis();
-            duplicateCount = 0;
+        private boolean incrementIfLastSame(
+                @Nullable String event,
+                int payloadType,
+                long payload,
+                @Nullable CompoundString compoundString,
+                @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
+            int last = mSize - 1;
+            if (last < 0
+                    || mPayloadTypes[last] != payloadType
+                    || mPayloads[last] != payload
+                    || mGestureEvents[last] != gestureEvent
+                    || !Objects.equals(mEvents[last], event)
+                    || !Objects.equals(mCompoundStrings[last], compoundString)) {
+                return false;
+            }
+            mDuplicateCounts[last]++;
+            return true;
         }
 
-        public long getTime() {
-            return time;
+        protected int size() {
+            return mSize;
         }
-    }
 
-    /** An entire log of entries associated with a single log ID */
-    protected static class EventLog {
+        protected long getTime(int index) {
+            return mTimes[index];
+        }
 
-        protected final List<EventEntry> eventEntries =
-                Collections.synchronizedList(new ArrayList<>());
-        protected final int logId;
-        protected final boolean mIsFullyGesturalNavMode;
+        @Nullable
+        protected ActiveGestureErrorDetector.GestureEvent getGestureEvent(int index) {
+            return mGestureEvents[index];
+        }
 
-        private EventLog(int logId, boolean isFullyGesturalNavMode) {
-            this.logId = logId;
-            mIsFullyGesturalNavMode = isFullyGesturalNavMode;
+        protected int getDuplicateCount(int index) {
+            return mDuplicateCounts[index];
+        }
+
+        private boolean hasMessage(int index) {
+            return mEvents[index] != null || mCompoundStrings[index] != null;
+        }
+
+        private void appendMessage(StringBuilder out, int index) {
+            if (mPayloadTypes[index] == PAYLOAD_COMPOUND) {
+                out.append(mCompoundStrings[index]);
+                return;
+            }
+            out.append(mEvents[index]);
+            long payload = mPayloads[index];
+            switch (mPayloadTypes[index]) {
+                case PAYLOAD_INT:
+                    out.append(": ").append((int) payload);
+                    break;
+                case PAYLOAD_BOOLEAN:
+                    out.append(": ").append(payload != 0);
+                    break;
+                case PAYLOAD_FLOAT:
+                    out.append(": ")
+                            .append(String.format("%.2f", Float.intBitsToFloat((int) payload)));
+                    break;
+                default:
+                    break;
+            }
         }
     }
 
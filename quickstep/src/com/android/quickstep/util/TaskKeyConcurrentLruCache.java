@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import android.util.Log;
+
+import com.android.systemui.shared.recents.model.Task.TaskKey;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * A {@link TaskKeyCache} which can be accessed concurrently without a global lock.
+ *
+ * Lookups only read the underlying {@link ConcurrentHashMap} and record the access time of the
+ * entry, so they never block. Only evicting entries, when the cache grows over its maximum size,
+ * is serialized. The least recently accessed entry is found by scanning the entries, which is
+ * cheap for the small sizes used by recents. If an entry is accessed during an eviction, the
+ * eviction order is approximate.
+ *
+ * @param <V> The type of the value
+ */
+public class TaskKeyConcurrentLruCache<V> implements TaskKeyCache<V> {
+
+    private final ConcurrentHashMap<Integer, TimedEntry<V>> mMap = new ConcurrentHashMap<>();
+    private final AtomicLong mClock = new AtomicLong();
+    private final Object mEvictionLock = new Object();
+
+    private volatile int mMaxSize;
+
+    public TaskKeyConcurrentLruCache(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    @Override
+    public void evictAll() {
+        mMap.clear();
+    }
+
+    @Override
+    public void remove(TaskKey key) {
+        mMap.remove(key.id);
+    }
+
+    @Override
+    public void removeAll(Predicate<TaskKey> keyCheck) {
+        mMap.values().removeIf(e -> keyCheck.test(e.mKey));
+    }
+
+    @Override
+    public V getAndInvalidateIfModified(TaskKey key) {
+        TimedEntry<V> entry = mMap.get(key.id);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.mKey.windowingMode == key.windowingMode
+                && entry.mKey.lastActiveTime == key.lastActiveTime) {
+            entry.mLastAccess = mClock.incrementAndGet();
+            return entry.mValue;
+        }
+        // Only remove this entry, another thread may have already replaced it
+        mMap.remove(key.id, entry);
+        return null;
+    }
+
+    @Override
+    public void put(TaskKey key, V value) {
+        if (key == null || value == null) {
+            Log.e("TaskKeyCache", "Unexpected null key or value: " + key + ", " + value);
+            return;
+        }
+        mMap.put(key.id, new TimedEntry<>(key, value, mClock.incrementAndGet()));
+        removeExcess();
+    }
+
+    @Override
+    public void updateIfAlreadyInCache(int taskId, V data) {
+        // Entries are replaced rather than modified, so that readers see the new value fully
+        // published by the map
+        mMap.computeIfPresent(taskId,
+                (id, entry) -> new TimedEntry<>(entry.mKey, data, entry.mLastAccess));
+    }
+
+    @Override
+    public void updateCacheSizeAndRemoveExcess(int cacheSize) {
+        mMaxSize = cacheSize;
+        removeExcess();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    @Override
+    public int getSize() {
+        return mMap.size();
+    }
+
+    private void removeExcess() {
+        if (mMap.size() <= mMaxSize) {
+            return;
+        }
+        synchronized (mEvictionLock) {
+            while (mMap.size() > mMaxSize) {
+                Map.Entry<Integer, TimedEntry<V>> eldest = null;
+                for (Map.Entry<Integer, TimedEntry<V>> e : mMap.entrySet()) {
+                    if (eldest == null
+                            || e.getValue().mLastAccess < eldest.getValue().mLastAccess) {
+                        eldest = e;
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+                mMap.remove(eldest.getKey(), eldest.getValue());
+            }
+        }
+    }
+
+    private static class TimedEntry<V> extends Entry<V> {
+
+        volatile long mLastAccess;
+
+        TimedEntry(TaskKey key, V value, long lastAccess) {
+            super(key, value);
+            mLastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.quickstep.util
+
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.graphics.Rect
+import android.util.AtomicFile
+import android.util.Log
+import androidx.annotation.WorkerThread
+import com.android.systemui.shared.recents.model.Task.TaskKey
+import com.android.systemui.shared.recents.model.ThumbnailData
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import kotlin.math.max
+import kotlin.math.roundToInt
+
+/**
+ * Persists low-res task thumbnails in [dir], so that they can be shown before the system
+ * provides a snapshot, after the launcher process restarts.
+ *
+ * Thumbnails are stored per task id and last active time, as compressed bitmaps preceded by the
+ * rest of the [ThumbnailData]. A thumbnail is only returned for the same last active time,
+ * matching [TaskKeyCache.getAndInvalidateIfModified], and older thumbnails of a task are deleted
+ * when it is read or written. At most [maxEntries] thumbnails are kept.
+ */
+class ThumbnailDiskCache(
+    private val dir: File,
+    private val lowResScale: Float,
+    private val maxEntries: Int,
+) {
+
+    /** Returns the persisted thumbnail for [key], or null if there is none for this activation. */
+    @WorkerThread
+    fun read(key: TaskKey): ThumbnailData? {
+        val file = getFile(key)
+        deleteOtherFiles(key.id, file)
+        if (!file.exists()) {
+            return null
+        }
+        try {
+            DataInputStream(AtomicFile(file).openRead().buffered()).use { input ->
+                if (input.readInt() != FORMAT_VERSION) {
+                    file.delete()
+                    return null
+                }
+                val orientation = input.readInt()
+                val rotation = input.readInt()
+                val insets = input.readRect()
+                val letterboxInsets = input.readRect()
+                val isTranslucent = input.readBoolean()
+                val windowingMode = input.readInt()
+                val appearance = input.readInt()
+                val scale = input.readFloat()
+                val bitmap = BitmapFactory.decodeStream(input) ?: throw IOException("Bad bitmap")
+                return ThumbnailData(
+                    thumbnail = bitmap,
+                    orientation = orientation,
+                    rotation = rotation,
+                    insets = insets,
+                    letterboxInsets = letterboxInsets,
+                    reducedResolution = true,
+                    isRealSnapshot = true,
+                    isTranslucent = isTranslucent,
+                    windowingMode = windowingMode,
+                    appearance = appearance,
+                    scale = scale,
+                )
+            }
+        } catch (e: IOException) {
+            Log.w(TAG, "Failed to read thumbnail of task ${key.id}", e)
+            file.delete()
+            return null
+        }
+    }
+
+    /** Persists [data] for [key] if it was not already, replacing the older thumbnails. */
+    @WorkerThread
+    fun write(key: TaskKey, data: ThumbnailData) {
+        val bitmap = data.thumbnail
+        if (bitmap == null || !data.isRealSnapshot) {
+            return
+        }
+        val file = getFile(key)
+        if (file.exists()) {
+            return
+        }
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Failed to create $dir")
+            return
+        }
+        deleteOtherFiles(key.id, file)
+
+        var scale = data.scale
+        var lowResBitmap = bitmap
+        if (!data.reducedResolution && lowResScale > 0 && lowResScale < 1) {
+            lowResBitmap =
+                Bitmap.createScaledBitmap(
+                    bitmap,
+                    max(1, (bitmap.width * lowResScale).roundToInt()),
+                    max(1, (bitmap.height * lowResScale).roundToInt()),
+                    true, /* filter */
+                )
+            scale *= lowResScale
+        }
+
+        val atomicFile = AtomicFile(file)
+        val stream =
+            try {
+                atomicFile.startWrite()
+            } catch (e: IOException) {
+                Log.w(TAG, "Failed to write thumbnail of task ${key.id}", e)
+                return
+            }
+        try {
+            val output = DataOutputStream(stream.buffered())
+            output.writeInt(FORMAT_VERSION)
+            output.writeInt(data.orientation)
+            output.writeInt(data.rotation)
+            output.writeRect(data.insets)
+            output.writeRect(data.letterboxInsets)
+            output.writeBoolean(data.isTranslucent)
+            output.writeInt(data.windowingMode)
+            output.writeInt(data.appearance)
+            output.writeFloat(scale)
+            if (!lowResBitmap.compress(Bitmap.CompressFormat.WEBP_LOSSY, QUALITY, output)) {
+                throw IOException("Failed to compress bitmap")
+            }
+            output.flush()
+            atomicFile.finishWrite(stream)
+        } catch (e: IOException) {
+            Log.w(TAG, "Failed to write thumbnail of task ${key.id}", e)
+            atomicFile.failWrite(stream)
+            return
+        }
+        removeExcess()
+    }
+
+    /** Deletes the persisted thumbnails of [taskId]. */
+    @WorkerThread
+    fun remove(taskId: Int) {
+        deleteOtherFiles(taskId, null)
+    }
+
+    /** Deletes all the persisted thumbnails. */
+    @WorkerThread
+    fun clear() {
+        dir.listFiles()?.forEach { it.delete() }
+    }
+
+    private fun getFile(key: TaskKey) = File(dir, "${key.id}_${key.lastActiveTime}")
+
+    private fun deleteOtherFiles(taskId: Int, keep: File?) {
+        val prefix = "${taskId}_"
+        dir.listFiles { _, name -> name.startsWith(prefix) }
+            ?.filter { it != keep }
+            ?.forEach { it.delete() }
+    }
+
+    private fun removeExcess() {
+        val files = dir.listFiles() ?: return
+        if (files.size <= maxEntries) {
+            return
+        }
+        files.sortBy { it.lastModified() }
+        for (i in 0 until files.size - maxEntries) {
+            files[i].delete()
+        }
+    }
+
+    private fun DataInputStream.readRect() = Rect(readInt(), readInt(), readInt(), readInt())
+
+    private fun DataOutputStream.writeRect(rect: Rect) {
+        writeInt(rect.left)
+        writeInt(rect.top)
+        writeInt(rect.right)
+        writeInt(rect.bottom)
+    }
+
+    companion object {
+        private const val TAG = "ThumbnailDiskCache"
+        private const val FORMAT_VERSION = 1
+        private const val QUALITY = 80
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.quickstep.util
+
+import android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+import android.content.ComponentCallbacks2.TRIM_MEMORY_MODERATE
+import android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+import android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+import android.graphics.Bitmap
+import android.util.Log
+import androidx.annotation.VisibleForTesting
+import com.android.systemui.shared.recents.model.Task.TaskKey
+import com.android.systemui.shared.recents.model.ThumbnailData
+import java.io.PrintWriter
+import java.util.concurrent.Executor
+import java.util.function.Predicate
+import kotlin.math.max
+import kotlin.math.roundToInt
+
+/**
+ * A [TaskKeyCache] of task thumbnails bounded by the bytes held by the thumbnail bitmaps, with
+ * separate budgets for high-res and low-res thumbnails, so that a few large high-res snapshots
+ * cannot evict all the low-res ones.
+ *
+ * Within each tier entries are evicted in LRU order. The number of entries is also bounded by
+ * [getMaxSize], across both tiers. Under memory pressure, high-res entries are replaced with
+ * scaled down low-res copies on [bgExecutor].
+ */
+class ThumbnailTieredCache(
+    maxSize: Int,
+    private val highResBudgetBytes: Long,
+    private val lowResBudgetBytes: Long,
+    private val lowResScale: Float,
+    private val bgExecutor: Executor,
+) : TaskKeyCache<ThumbnailData> {
+
+    private class CacheEntry(val key: TaskKey, val value: ThumbnailData, var lastAccess: Long) {
+        val bytes: Long = value.thumbnail?.allocationByteCount?.toLong() ?: 0L
+    }
+
+    private val lock = Any()
+    private val highRes = LinkedHashMap<Int, CacheEntry>(0, 0.75f, true /* accessOrder */)
+    private val lowRes = LinkedHashMap<Int, CacheEntry>(0, 0.75f, true /* accessOrder */)
+    private var highResBytes = 0L
+    private var lowResBytes = 0L
+    private var accessCount = 0L
+
+    @Volatile private var cacheSize = maxSize
+
+    private var hits = 0L
+    private var misses = 0L
+    private var evictions = 0L
+    @VisibleForTesting
+    var demotions = 0L
+        private set
+
+    override fun evictAll() {
+        synchronized(lock) {
+            highRes.clear()
+            lowRes.clear()
+            highResBytes = 0
+            lowResBytes = 0
+        }
+    }
+
+    override fun remove(key: TaskKey?) {
+        if (key == null) {
+            return
+        }
+        synchronized(lock) { removeEntry(key.id) }
+    }
+
+    override fun removeAll(keyCheck: Predicate<TaskKey>) {
+        synchronized(lock) {
+            (highRes.values.filter { keyCheck.test(it.key) } +
+                    lowRes.values.filter { keyCheck.test(it.key) })
+                .forEach { removeEntry(it.key.id) }
+        }
+    }
+
+    override fun getAndInvalidateIfModified(key: TaskKey): ThumbnailData? {
+        synchronized(lock) {
+            val entry = highRes[key.id] ?: lowRes[key.id]
+            if (
+                entry != null &&
+                    entry.key.windowingMode == key.windowingMode &&
+                    entry.key.lastActiveTime == key.lastActiveTime
+            ) {
+                hits++
+                entry.lastAccess = ++accessCount
+                return entry.value
+            }
+            misses++
+            removeEntry(key.id)
+            return null
+        }
+    }
+
+    override fun put(key: TaskKey?, value: ThumbnailData?) {
+        if (key == null || value == null) {
+            Log.e(TAG, "Unexpected null key or value: $key, $value")
+            return
+        }
+        synchronized(lock) {
+            removeEntry(key.id)
+            addEntry(key, value)
+            trimToBudget()
+        }
+    }
+
+    override fun updateIfAlreadyInCache(taskId: Int, data: ThumbnailData?) {
+        if (data == null) {
+            return
+        }
+        synchronized(lock) {
+            val entry = removeEntry(taskId) ?: return
+            addEntry(entry.key, data)
+            trimToBudget()
+        }
+    }
+
+    override fun updateCacheSizeAndRemoveExcess(cacheSize: Int) {
+        synchronized(lock) {
+            this.cacheSize = cacheSize
+            trimToBudget()
+        }
+    }
+
+    override fun getMaxSize() = cacheSize
+
+    override fun getSize() = synchronized(lock) { highRes.size + lowRes.size }
+
+    override fun onTrimMemory(level: Int) {
+        if (level >= TRIM_MEMORY_MODERATE) {
+            // The process is likely to be killed, release as much as possible without dropping
+            // all thumbnails
+            demoteHighResEntries()
+            synchronized(lock) { trimTier(lowRes, lowResBudgetBytes / 2) }
+        } else if (
+            level >= TRIM_MEMORY_BACKGROUND ||
+                level == TRIM_MEMORY_RUNNING_LOW ||
+                level == TRIM_MEMORY_RUNNING_CRITICAL
+        ) {
+            demoteHighResEntries()
+        }
+    }
+
+    override fun dump(prefix: String, writer: PrintWriter) {
+        synchronized(lock) {
+            writer.println("${prefix}ThumbnailTieredCache: size=${getSize()} maxSize=$cacheSize")
+            writer.println(
+                "$prefix  highRes: entries=${highRes.size} bytes=$highResBytes" +
+                    " budget=$highResBudgetBytes"
+            )
+            writer.println(
+                "$prefix  lowRes: entries=${lowRes.size} bytes=$lowResBytes" +
+                    " budget=$lowResBudgetBytes"
+            )
+            writer.println(
+                "$prefix  hits=$hits misses=$misses evictions=$evictions demotions=$demotions"
+            )
+        }
+    }
+
+    @VisibleForTesting
+    fun getBytes(reducedResolution: Boolean) =
+        synchronized(lock) { if (reducedResolution) lowResBytes else highResBytes }
+
+    private fun addEntry(key: TaskKey, value: ThumbnailData) {
+        val entry = CacheEntry(key, value, ++accessCount)
+        if (value.reducedResolution) {
+            lowRes[key.id] = entry
+            lowResBytes += entry.bytes
+        } else {
+            highRes[key.id] = entry
+            highResBytes += entry.bytes
+        }
+    }
+
+    private fun removeEntry(taskId: Int): CacheEntry? {
+        highRes.remove(taskId)?.let {
+            highResBytes -= it.bytes
+            return it
+        }
+        lowRes.remove(taskId)?.let {
+            lowResBytes -= it.bytes
+            return it
+        }
+        return null
+    }
+
+    private fun trimToBudget() {
+        trimTier(highRes, highResBudgetBytes)
+        trimTier(lowRes, lowResBudgetBytes)
+        while (highRes.size + lowRes.size > cacheSize) {
+            val highResEldest = highRes.values.firstOrNull()
+            val lowResEldest = lowRes.values.firstOrNull()
+            val eldest =
+                if (
+                    highResEldest == null ||
+                        (lowResEldest != null && lowResEldest.lastAccess < highResEldest.lastAccess)
+                ) {
+                    lowResEldest
+                } else {
+                    highResEldest
+                } ?: break
+            removeEntry(eldest.key.id)
+            evictions++
+        }
+    }
+
+    private fun tierBytes(tier: LinkedHashMap<Int, CacheEntry>) =
+        if (tier === highRes) highResBytes else lowResBytes
+
+    private fun trimTier(tier: LinkedHashMap<Int, CacheEntry>, budgetBytes: Long) {
+        // Always keep the most recently used entry, otherwise a thumbnail larger than the budget
+        // would be fetched again on every access
+        while (tier.size > 1 && tierBytes(tier) > budgetBytes) {
+            removeEntry(tier.keys.first())
+            evictions++
+        }
+    }
+
+    private fun demoteHighResEntries() {
+        val candidates = synchronized(lock) { highRes.values.toList() }
+        if (candidates.isEmpty()) {
+            return
+        }
+        bgExecutor.execute {
+            for (candidate in candidates) {
+                val lowResCopy = createLowResCopy(candidate.value)
+                synchronized(lock) {
+                    val entry = highRes[candidate.key.id]
+                    if (entry === candidate) {
+                        removeEntry(candidate.key.id)
+                        demotions++
+                        if (lowResCopy != null) {
+                            addEntry(candidate.key, lowResCopy)
+                        }
+                    }
+                }
+            }
+            synchronized(lock) { trimToBudget() }
+        }
+    }
+
+    private fun createLowResCopy(data: ThumbnailData): ThumbnailData? {
+        val bitmap = data.thumbnail
+        if (bitmap == null || lowResScale <= 0 || lowResScale >= 1) {
+            return null
+        }
+        val scaled =
+            Bitmap.createScaledBitmap(
+                bitmap,
+                max(1, (bitmap.width * lowResScale).roundToInt()),
+                max(1, (bitmap.height * lowResScale).roundToInt()),
+                true, /* filter */
+            )
+        return data.copy(
+            thumbnail = scaled,
+            reducedResolution = true,
+            scale = data.scale * lowResScale,
+        )
+    }
+
+    companion object {
+        private const val TAG = "ThumbnailTieredCache"
+    }
+}
@@ -51,6 +51,7 @@ import static com.android.launcher3.Utilities.EDGE_NAV_BAR;
 import static com.android.launcher3.Utilities.mapToRange;
 import static com.android.launcher3.Utilities.squaredHypot;
 import static com.android.launcher3.Utilities.squaredTouchSlop;
+import static com.android.launcher3.logging.FrameJankTracer.INTERACTION_OVERVIEW_SWIPE;
 import static com.android.launcher3.logging.StatsLogManager.LauncherEvent.LAUNCHER_OVERVIEW_ACTIONS_SPLIT;
 import static com.android.launcher3.logging.StatsLogManager.LauncherEvent.LAUNCHER_OVERVIEW_ORIENTATION_CHANGED;
 import static com.android.launcher3.logging.StatsLogManager.LauncherEvent.LAUNCHER_TASK_CLEAR_ALL;
@@ -158,6 +159,7 @@ import com.android.launcher3.compat.AccessibilityManagerCompat;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.desktop.DesktopRecentsTransitionController;
 import com.android.launcher3.logger.LauncherAtom;
+import com.android.launcher3.logging.FrameJankTracer;
 import com.android.launcher3.logging.StatsLogManager;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.statehandlers.DepthController;
@@ -1593,6 +1595,7 @@ public abstract class RecentsView<
         if (mOverviewStateEnabled) { // only when in overview
             InteractionJankMonitorWrapper.begin(/* view= */ this, Cuj.CUJ_RECENTS_SCROLLING);
         }
+        FrameJankTracer.INSTANCE.begin(INTERACTION_OVERVIEW_SWIPE, mContainer.getWindow());
     }
 
     @Override
@@ -1607,6 +1610,7 @@ public abstract class RecentsView<
             setSwipeDownShouldLaunchApp(true);
         }
         InteractionJankMonitorWrapper.end(Cuj.CUJ_RECENTS_SCROLLING);
+        FrameJankTracer.INSTANCE.end(INTERACTION_OVERVIEW_SWIPE);
     }
 
     @Override
@@ -6456,9 +6460,11 @@ public abstract class RecentsView<
 
     @Override
     protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        TraceHelper.INSTANCE.beginSection("RecentsView.onScrollChanged");
         super.onScrollChanged(l, t, oldl, oldt);
         dispatchScrollChanged();
         doScrollScale();
+        TraceHelper.INSTANCE.endSection();
     }
 
     private void doScrollScale() {
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.quickstep;
+
+import static com.android.quickstep.BinderCallStats.REPEAT_THRESHOLD;
+import static com.android.quickstep.BinderCallStats.REPEAT_WINDOW_MS;
+import static com.android.quickstep.BinderCallStats.THREAD_MAIN;
+import static com.android.quickstep.BinderCallStats.THREAD_MODEL;
+import static com.android.quickstep.BinderCallStats.WINDOW_COUNT;
+import static com.android.quickstep.BinderCallStats.WINDOW_MS;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.util.LauncherMultivalentJUnit;
+import com.android.quickstep.BinderCallStats.MethodStats;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+@SmallTest
+@RunWith(LauncherMultivalentJUnit.class)
+public class BinderCallStatsTest {
+
+    private static final String DESCRIPTOR = "android.content.pm.ILauncherApps";
+    private static final long MS = 1_000_000L;
+
+    private final BinderCallStats mStats = new BinderCallStats();
+
+    @Test
+    public void testCalls_countedByMethodAndThread() {
+        call(1, THREAD_MODEL, 1000, 2 * MS);
+        call(1, THREAD_MODEL, 5000, 4 * MS);
+        MethodStats main = call(1, THREAD_MAIN, 9000, MS);
+        MethodStats model = mStats.startCall(DESCRIPTOR, 1, THREAD_MODEL, 20000);
+
+        assertThat(model.count).isEqualTo(2);
+        assertThat(model.totalNs).isEqualTo(6 * MS);
+        assertThat(model.maxNs).isEqualTo(4 * MS);
+        assertThat(main.count).isEqualTo(1);
+    }
+
+    @Test
+    public void testRepeatedCalls_reportedWithinWindow() {
+        for (int i = 0; i < REPEAT_THRESHOLD - 1; i++) {
+            call(1, THREAD_MODEL, 1000 + i, MS);
+        }
+        assertThat(dump()).doesNotContain("Repeated calls");
+
+        call(1, THREAD_MODEL, 1000 + REPEAT_WINDOW_MS, MS);
+        call(1, THREAD_MODEL, 1000 + REPEAT_WINDOW_MS, MS);
+
+        assertThat(dump()).contains("x" + (REPEAT_THRESHOLD + 1) + " within");
+    }
+
+    @Test
+    public void testRepeatedCalls_notReportedAcrossWindows() {
+        for (int i = 0; i < REPEAT_THRESHOLD; i++) {
+            call(1, THREAD_MODEL, 1000 + i * (REPEAT_WINDOW_MS + 1), MS);
+        }
+
+        assertThat(dump()).doesNotContain("Repeated calls");
+    }
+
+    @Test
+    public void testRecentHistogram_dropsOldWindows() {
+        MethodStats stats = call(1, THREAD_MODEL, 0, 100_000);
+        call(1, THREAD_MODEL, WINDOW_MS, 3 * MS);
+        call(1, THREAD_MODEL, WINDOW_COUNT * WINDOW_MS, 3 * MS);
+
+        assertThat(stats.getRecentHistogram(WINDOW_COUNT).counts[0]).isEqualTo(0);
+        assertThat(stats.getRecentHistogram(WINDOW_COUNT).toString())
+                .isEqualTo("{<4.0ms: 2}");
+        assertThat(stats.getRecentHistogram(WINDOW_COUNT * 3).toString()).isEqualTo("{}");
+    }
+
+    private MethodStats call(int code, int threadType, long timeMs, long durationNs) {
+        MethodStats stats = mStats.startCall(DESCRIPTOR, code, threadType, timeMs);
+        mStats.endCall(stats, durationNs, timeMs);
+        return stats;
+    }
+
+    private String dump() {
+        StringWriter out = new StringWriter();
+        mStats.dump("", new PrintWriter(out));
+        return out.toString();
+    }
+}
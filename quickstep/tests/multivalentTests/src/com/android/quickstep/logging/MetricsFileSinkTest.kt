@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.quickstep.logging
+
+import android.content.Context
+import android.os.Handler
+import android.os.HandlerThread
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.logger.LauncherAtom.MetricsRecord
+import com.google.common.truth.Truth.assertThat
+import java.io.File
+import java.io.PrintWriter
+import java.io.StringWriter
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit test for [MetricsFileSink]. */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class MetricsFileSinkTest {
+
+    private val context = ApplicationProvider.getApplicationContext() as Context
+    private val dir = File(context.cacheDir, "metrics_file_sink_test")
+    // The looper is stopped, so that records are only written when the test flushes them
+    private val handler =
+        HandlerThread("metrics-test").run {
+            start()
+            quit()
+            Handler(looper)
+        }
+    private val underTest = MetricsFileSink(dir, handler)
+
+    @After
+    fun tearDown() {
+        dir.deleteRecursively()
+    }
+
+    @Test
+    fun flush_writesRecordsInOrder() {
+        underTest.record(createRecord(eventId = 1))
+        underTest.record(createRecord(eventId = 2))
+
+        underTest.flush()
+
+        val records = MetricsFileSink.readRecords(File(dir, MetricsFileSink.FILE_NAME))
+        assertThat(records.map { it.eventId }).containsExactly(1, 2).inOrder()
+        assertThat(records[0].latencyMillis).isEqualTo(100)
+    }
+
+    @Test
+    fun flush_appendsToExistingFile() {
+        underTest.record(createRecord(eventId = 1))
+        underTest.flush()
+        underTest.record(createRecord(eventId = 2))
+        underTest.flush()
+
+        val records = MetricsFileSink.readRecords(File(dir, MetricsFileSink.FILE_NAME))
+        assertThat(records.map { it.eventId }).containsExactly(1, 2).inOrder()
+    }
+
+    @Test
+    fun record_queueFull_dropsRecords() {
+        repeat(MetricsFileSink.MAX_QUEUE_SIZE + 3) { underTest.record(createRecord(eventId = it)) }
+
+        underTest.flush()
+
+        val records = MetricsFileSink.readRecords(File(dir, MetricsFileSink.FILE_NAME))
+        assertThat(records).hasSize(MetricsFileSink.MAX_QUEUE_SIZE)
+        val dump = StringWriter().also { underTest.dump("", PrintWriter(it)) }.toString()
+        assertThat(dump).contains("dropped=3")
+    }
+
+    private fun createRecord(eventId: Int) =
+        MetricsRecord.newBuilder()
+            .setTimestampMillis(1000)
+            .setEventId(eventId)
+            .setInstanceId(7)
+            .setLatencyMillis(100)
+            .build()
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static com.android.quickstep.util.ActiveGestureErrorDetector.GestureEvent.MOTION_DOWN;
+
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.quickstep.util.ActiveGestureLog.CompoundString;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+@SmallTest
+public class ActiveGestureLogTest {
+
+    private final ActiveGestureLog mLog = ActiveGestureLog.INSTANCE;
+
+    @Test
+    public void addLog_rendersPayloadsAtDumpTime() {
+        mLog.incrementLogId();
+        mLog.addLog("intEvent", 42);
+        mLog.addLog("boolEvent", true);
+        mLog.addLog("floatEvent", 1.5f);
+        mLog.addLog(new CompoundString("compound ").append(7));
+
+        String dump = dump();
+        assertTrue(dump.contains("intEvent: 42"));
+        assertTrue(dump.contains("boolEvent: true"));
+        assertTrue(dump.contains("floatEvent: 1.50"));
+        assertTrue(dump.contains("compound 7"));
+    }
+
+    @Test
+    public void addLog_duplicate_countsSimilarEvents() {
+        mLog.incrementLogId();
+        mLog.addLog("repeatedEvent", 3);
+        mLog.addLog("repeatedEvent", 3);
+        mLog.addLog("repeatedEvent", 3);
+        mLog.addLog("repeatedEvent", 4);
+
+        String dump = dump();
+        assertTrue(dump.contains("repeatedEvent: 3 & 2 similar events"));
+        assertTrue(dump.contains("repeatedEvent: 4"));
+    }
+
+    @Test
+    public void trackEvent_isAnalysedButNotPrinted() {
+        int logId = mLog.getLogId();
+        mLog.incrementLogId();
+        mLog.trackEvent(MOTION_DOWN);
+
+        String dump = dump();
+        assertTrue(dump.contains("Error messages for gesture ID: " + (logId + 1)));
+        assertFalse(dump.contains("MOTION_DOWN"));
+    }
+
+    @Test
+    public void addLog_manyGestures_keepsLastGestures() {
+        for (int i = 0; i < 20; i++) {
+            mLog.incrementLogId();
+            mLog.addLog("gesture", i);
+        }
+
+        String dump = dump();
+        assertFalse(dump.contains("gesture: 4\n"));
+        assertTrue(dump.contains("gesture: 5\n"));
+        assertTrue(dump.contains("gesture: 19\n"));
+    }
+
+    private String dump() {
+        StringWriter writer = new StringWriter();
+        mLog.dump("", new PrintWriter(writer));
+        return writer.toString();
+    }
+}
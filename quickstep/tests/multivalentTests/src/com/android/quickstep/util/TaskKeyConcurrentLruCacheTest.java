@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+import android.content.ComponentName;
+import android.content.Intent;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.systemui.shared.recents.model.Task;
+import com.android.systemui.shared.recents.model.ThumbnailData;
+
+import org.junit.Test;
+
+@SmallTest
+public class TaskKeyConcurrentLruCacheTest {
+
+    @Test
+    public void put_overMaxSize_evictsLeastRecentlyAccessed() {
+        TaskKeyConcurrentLruCache<ThumbnailData> cache = new TaskKeyConcurrentLruCache<>(2);
+        Task.TaskKey key1 = createKey(1, 1);
+        Task.TaskKey key2 = createKey(2, 1);
+        Task.TaskKey key3 = createKey(3, 1);
+        ThumbnailData data1 = new ThumbnailData();
+        cache.put(key1, data1);
+        cache.put(key2, new ThumbnailData());
+        // Access the first entry so that the second one is evicted
+        assertEquals(data1, cache.getAndInvalidateIfModified(key1));
+
+        cache.put(key3, new ThumbnailData());
+
+        assertEquals(2, cache.getSize());
+        assertNull(cache.getAndInvalidateIfModified(key2));
+        assertEquals(data1, cache.getAndInvalidateIfModified(key1));
+    }
+
+    @Test
+    public void getAndInvalidateIfModified_lastActiveTimeChanged_removesEntry() {
+        TaskKeyConcurrentLruCache<ThumbnailData> cache = new TaskKeyConcurrentLruCache<>(3);
+        cache.put(createKey(1, 1000), new ThumbnailData());
+
+        assertNull(cache.getAndInvalidateIfModified(createKey(1, 2000)));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void updateIfAlreadyInCache_onlyUpdatesExistingEntries() {
+        TaskKeyConcurrentLruCache<ThumbnailData> cache = new TaskKeyConcurrentLruCache<>(3);
+        Task.TaskKey key1 = createKey(1, 1);
+        cache.put(key1, new ThumbnailData());
+
+        ThumbnailData newData = new ThumbnailData();
+        cache.updateIfAlreadyInCache(1, newData);
+        cache.updateIfAlreadyInCache(2, new ThumbnailData());
+
+        assertEquals(1, cache.getSize());
+        assertEquals(newData, cache.getAndInvalidateIfModified(key1));
+    }
+
+    @Test
+    public void updateCacheSizeAndRemoveExcess_removesEldestEntries() {
+        TaskKeyConcurrentLruCache<ThumbnailData> cache = new TaskKeyConcurrentLruCache<>(3);
+        Task.TaskKey key3 = createKey(3, 1);
+        ThumbnailData data3 = new ThumbnailData();
+        cache.put(createKey(1, 1), new ThumbnailData());
+        cache.put(createKey(2, 1), new ThumbnailData());
+        cache.put(key3, data3);
+
+        cache.updateCacheSizeAndRemoveExcess(1);
+
+        assertEquals(1, cache.getMaxSize());
+        assertEquals(1, cache.getSize());
+        assertEquals(data3, cache.getAndInvalidateIfModified(key3));
+    }
+
+    @Test
+    public void removeAll_removesMatchingEntries() {
+        TaskKeyConcurrentLruCache<ThumbnailData> cache = new TaskKeyConcurrentLruCache<>(3);
+        cache.put(createKey(1, 1), new ThumbnailData());
+        cache.put(createKey(2, 1), new ThumbnailData());
+
+        cache.removeAll(key -> key.id == 1);
+
+        assertEquals(1, cache.getSize());
+        assertNull(cache.getAndInvalidateIfModified(createKey(1, 1)));
+    }
+
+    private static Task.TaskKey createKey(int id, long lastActiveTime) {
+        return new Task.TaskKey(id, 0, new Intent(), new ComponentName("", ""), 0, lastActiveTime);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.quickstep.util
+
+import android.content.ComponentCallbacks2.TRIM_MEMORY_MODERATE
+import android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+import android.content.ComponentName
+import android.content.Intent
+import android.graphics.Bitmap
+import androidx.test.filters.SmallTest
+import com.android.launcher3.util.LauncherMultivalentJUnit
+import com.android.systemui.shared.recents.model.Task.TaskKey
+import com.android.systemui.shared.recents.model.ThumbnailData
+import com.google.common.truth.Truth.assertThat
+import java.util.concurrent.Executor
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@SmallTest
+@RunWith(LauncherMultivalentJUnit::class)
+class ThumbnailTieredCacheTest {
+
+    private val cache =
+        ThumbnailTieredCache(
+            maxSize = 10,
+            highResBudgetBytes = 3 * THUMBNAIL_BYTES,
+            lowResBudgetBytes = 2 * THUMBNAIL_BYTES,
+            lowResScale = 0.5f,
+            bgExecutor = Executor { it.run() },
+        )
+
+    @Test
+    fun put_overHighResBudget_evictsLeastRecentlyUsed() {
+        val keys = (1..4).map { createKey(it) }
+        keys.take(3).forEach { cache.put(it, createThumbnail(reducedResolution = false)) }
+        // Access the first entry so that the second is the least recently used
+        assertThat(cache.getAndInvalidateIfModified(keys[0])).isNotNull()
+
+        cache.put(keys[3], createThumbnail(reducedResolution = false))
+
+        assertThat(cache.getSize()).isEqualTo(3)
+        assertThat(cache.getBytes(reducedResolution = false)).isEqualTo(3 * THUMBNAIL_BYTES)
+        assertThat(cache.getAndInvalidateIfModified(keys[1])).isNull()
+        assertThat(cache.getAndInvalidateIfModified(keys[0])).isNotNull()
+    }
+
+    @Test
+    fun put_highResDoesNotEvictLowRes() {
+        cache.put(createKey(1), createThumbnail(reducedResolution = true))
+        (2..5).forEach { cache.put(createKey(it), createThumbnail(reducedResolution = false)) }
+
+        assertThat(cache.getAndInvalidateIfModified(createKey(1))).isNotNull()
+        assertThat(cache.getBytes(reducedResolution = true)).isEqualTo(THUMBNAIL_BYTES)
+    }
+
+    @Test
+    fun put_overMaxSize_evictsAcrossTiers() {
+        cache.updateCacheSizeAndRemoveExcess(2)
+        cache.put(createKey(1), createThumbnail(reducedResolution = true))
+        cache.put(createKey(2), createThumbnail(reducedResolution = false))
+        cache.put(createKey(3), createThumbnail(reducedResolution = false))
+
+        assertThat(cache.getSize()).isEqualTo(2)
+        assertThat(cache.getAndInvalidateIfModified(createKey(1))).isNull()
+    }
+
+    @Test
+    fun getAndInvalidateIfModified_lastActiveTimeChanged_removesEntry() {
+        cache.put(createKey(1), createThumbnail(reducedResolution = false))
+
+        assertThat(cache.getAndInvalidateIfModified(createKey(1, lastActiveTime = 2))).isNull()
+        assertThat(cache.getSize()).isEqualTo(0)
+        assertThat(cache.getBytes(reducedResolution = false)).isEqualTo(0)
+    }
+
+    @Test
+    fun updateIfAlreadyInCache_movesEntryBetweenTiers() {
+        cache.put(createKey(1), createThumbnail(reducedResolution = true))
+        cache.updateIfAlreadyInCache(1, createThumbnail(reducedResolution = false))
+        cache.updateIfAlreadyInCache(2, createThumbnail(reducedResolution = false))
+
+        assertThat(cache.getSize()).isEqualTo(1)
+        assertThat(cache.getBytes(reducedResolution = true)).isEqualTo(0)
+        assertThat(cache.getBytes(reducedResolution = false)).isEqualTo(THUMBNAIL_BYTES)
+    }
+
+    @Test
+    fun onTrimMemory_runningLow_demotesHighRes() {
+        cache.put(createKey(1), createThumbnail(reducedResolution = false))
+
+        cache.onTrimMemory(TRIM_MEMORY_RUNNING_LOW)
+
+        val demoted = cache.getAndInvalidateIfModified(createKey(1))
+        assertThat(demoted).isNotNull()
+        assertThat(demoted!!.reducedResolution).isTrue()
+        assertThat(demoted.thumbnail!!.width).isEqualTo(THUMBNAIL_SIZE / 2)
+        assertThat(cache.getBytes(reducedResolution = false)).isEqualTo(0)
+        assertThat(cache.demotions).isEqualTo(1)
+    }
+
+    @Test
+    fun onTrimMemory_moderate_trimsLowResToHalfBudget() {
+        cache.put(createKey(1), createThumbnail(reducedResolution = true))
+        cache.put(createKey(2), createThumbnail(reducedResolution = true))
+
+        cache.onTrimMemory(TRIM_MEMORY_MODERATE)
+
+        assertThat(cache.getSize()).isEqualTo(1)
+        assertThat(cache.getAndInvalidateIfModified(createKey(2))).isNotNull()
+    }
+
+    private fun createKey(id: Int, lastActiveTime: Long = 1) =
+        TaskKey(id, 0, Intent(), ComponentName("", ""), 0, lastActiveTime)
+
+    private fun createThumbnail(reducedResolution: Boolean) =
+        ThumbnailData(
+            thumbnail =
+                Bitmap.createBitmap(THUMBNAIL_SIZE, THUMBNAIL_SIZE, Bitmap.Config.ARGB_8888),
+            reducedResolution = reducedResolution,
+        )
+
+    companion object {
+        private const val THUMBNAIL_SIZE = 10
+        private const val THUMBNAIL_BYTES = THUMBNAIL_SIZE * THUMBNAIL_SIZE * 4L
+    }
+}
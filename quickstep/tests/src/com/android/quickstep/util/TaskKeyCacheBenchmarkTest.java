@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.android.systemui.shared.recents.model.Task.TaskKey;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntFunction;
+
+/**
+ * Microbenchmark comparing the {@link TaskKeyCache} implementations under concurrent access,
+ * simulating a background thread loading task data while the UI thread looks up the visible
+ * tasks during a fling.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class TaskKeyCacheBenchmarkTest {
+
+    private static final String TAG = "TaskKeyCacheBenchmark";
+
+    private static final int CACHE_SIZE = 8;
+    private static final int TASK_COUNT = 32;
+    private static final int VISIBLE_TASKS = 3;
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int ITERATIONS = 200_000;
+
+    private final TaskKey[] mKeys = new TaskKey[TASK_COUNT];
+
+    public TaskKeyCacheBenchmarkTest() {
+        for (int i = 0; i < TASK_COUNT; i++) {
+            mKeys[i] = new TaskKey(i, 0, new Intent(), new ComponentName("", ""), 0, i);
+        }
+    }
+
+    @Test
+    public void compareConcurrentAccess() throws Exception {
+        run("TaskKeyLruCache", TaskKeyLruCache::new);
+        run("TaskKeyByLastActiveTimeCache", TaskKeyByLastActiveTimeCache::new);
+        run("TaskKeyConcurrentLruCache", TaskKeyConcurrentLruCache::new);
+    }
+
+    private void run(String name, IntFunction<TaskKeyCache<Object>> factory) throws Exception {
+        runIterations(factory.apply(CACHE_SIZE), WARMUP_ITERATIONS);
+        long nanos = runIterations(factory.apply(CACHE_SIZE), ITERATIONS);
+        assertTrue(nanos > 0);
+        Log.d(TAG, name + ": " + nanos / ITERATIONS + "ns per loader and ui iteration");
+    }
+
+    /**
+     * Runs the loader and ui threads concurrently and returns the time until both finished.
+     */
+    private long runIterations(TaskKeyCache<Object> cache, int iterations) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        Object value = new Object();
+
+        // The loader fetches the data for the tasks around the visible ones and caches them
+        Thread loader = new Thread(() -> {
+            awaitQuietly(start);
+            for (int i = 0; i < iterations; i++) {
+                TaskKey key = mKeys[(i / VISIBLE_TASKS) % TASK_COUNT];
+                if (cache.getAndInvalidateIfModified(key) == null) {
+                    cache.put(key, value);
+                }
+            }
+        }, TAG + "-loader");
+
+        // The ui thread looks up the visible tasks and updates them with new snapshots
+        Thread ui = new Thread(() -> {
+            awaitQuietly(start);
+            for (int i = 0; i < iterations; i++) {
+                int firstVisible = (i / (VISIBLE_TASKS * 2)) % TASK_COUNT;
+                for (int j = 0; j < VISIBLE_TASKS; j++) {
+                    cache.getAndInvalidateIfModified(mKeys[(firstVisible + j) % TASK_COUNT]);
+                }
+                if (i % 16 == 0) {
+                    cache.updateIfAlreadyInCache(firstVisible, value);
+                }
+            }
+        }, TAG + "-ui");
+
+        loader.start();
+        ui.start();
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        start.countDown();
+        loader.join();
+        ui.join();
+        return SystemClock.elapsedRealtimeNanos() - startNanos;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
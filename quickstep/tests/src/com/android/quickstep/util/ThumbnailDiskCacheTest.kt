@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.quickstep.util
+
+import android.content.ComponentName
+import android.content.Context
+import android.content.Intent
+import android.graphics.Bitmap
+import android.graphics.Rect
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.systemui.shared.recents.model.Task.TaskKey
+import com.android.systemui.shared.recents.model.ThumbnailData
+import com.google.common.truth.Truth.assertThat
+import java.io.File
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit test for [ThumbnailDiskCache]. */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class ThumbnailDiskCacheTest {
+
+    private val context = ApplicationProvider.getApplicationContext() as Context
+    private val dir = File(context.cacheDir, "thumbnail_disk_cache_test")
+    private val underTest = ThumbnailDiskCache(dir, lowResScale = 0.5f, maxEntries = 2)
+
+    @After
+    fun tearDown() {
+        dir.deleteRecursively()
+    }
+
+    @Test
+    fun write_thenRead_returnsLowResThumbnail() {
+        underTest.write(createKey(1), createThumbnail())
+
+        val thumbnail = underTest.read(createKey(1))
+
+        assertThat(thumbnail).isNotNull()
+        assertThat(thumbnail!!.reducedResolution).isTrue()
+        assertThat(thumbnail.thumbnail!!.width).isEqualTo(THUMBNAIL_WIDTH / 2)
+        assertThat(thumbnail.scale).isEqualTo(0.5f)
+        assertThat(thumbnail.insets).isEqualTo(Rect(1, 2, 3, 4))
+    }
+
+    @Test
+    fun read_differentLastActiveTime_returnsNullAndDeletes() {
+        underTest.write(createKey(1, lastActiveTime = 1), createThumbnail())
+
+        assertThat(underTest.read(createKey(1, lastActiveTime = 2))).isNull()
+        assertThat(underTest.read(createKey(1, lastActiveTime = 1))).isNull()
+    }
+
+    @Test
+    fun write_overMaxEntries_removesOldest() {
+        underTest.write(createKey(1), createThumbnail())
+        File(dir, "1_1").setLastModified(1000)
+        underTest.write(createKey(2), createThumbnail())
+        underTest.write(createKey(3), createThumbnail())
+
+        assertThat(underTest.read(createKey(1))).isNull()
+        assertThat(underTest.read(createKey(2))).isNotNull()
+        assertThat(underTest.read(createKey(3))).isNotNull()
+    }
+
+    @Test
+    fun remove_deletesThumbnail() {
+        underTest.write(createKey(1), createThumbnail())
+
+        underTest.remove(1)
+
+        assertThat(underTest.read(createKey(1))).isNull()
+    }
+
+    private fun createKey(id: Int, lastActiveTime: Long = 1) =
+        TaskKey(id, 0, Intent(), ComponentName("", ""), 0, lastActiveTime)
+
+    private fun createThumbnail() =
+        ThumbnailData(
+            thumbnail =
+                Bitmap.createBitmap(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, Bitmap.Config.ARGB_8888),
+            insets = Rect(1, 2, 3, 4),
+        )
+
+    companion object {
+        private const val THUMBNAIL_WIDTH = 40
+        private const val THUMBNAIL_HEIGHT = 80
+    }
+}
@@ -71,8 +71,11 @@ import static com.android.launcher3.Utilities.postAsyncCallback;
 import static com.android.launcher3.config.FeatureFlags.FOLDABLE_SINGLE_PAGE;
 import static com.android.launcher3.config.FeatureFlags.MULTI_SELECT_EDIT_MODE;
 import static com.android.launcher3.folder.FolderGridOrganizer.createFolderGridOrganizer;
+import static com.android.launcher3.logging.FrameJankTracer.INTERACTION_STATE_TRANSITION;
 import static com.android.launcher3.logging.KeyboardStateManager.KeyboardState.HIDE;
 import static com.android.launcher3.logging.KeyboardStateManager.KeyboardState.SHOW;
+import static com.android.launcher3.logging.StartupTimeline.CATEGORY_ACTIVITY;
+import static com.android.launcher3.logging.StartupTimeline.CATEGORY_INFLATE;
 import static com.android.launcher3.logging.StatsLogManager.EventEnum;
 import static com.android.launcher3.logging.StatsLogManager.LAUNCHER_STATE_BACKGROUND;
 import static com.android.launcher3.logging.StatsLogManager.LAUNCHER_STATE_HOME;
@@ -197,9 +200,11 @@ import com.android.launcher3.logger.LauncherAtom.ContainerInfo;
 import com.android.launcher3.logger.LauncherAtom.WorkspaceContainer;
 import com.android.launcher3.logging.ColdRebootStartupLatencyLogger;
 import com.android.launcher3.logging.FileLog;
+import com.android.launcher3.logging.FrameJankTracer;
 import com.android.launcher3.logging.InstanceId;
 import com.android.launcher3.logging.InstanceIdSequence;
 import com.android.launcher3.logging.StartupLatencyLogger;
+import com.android.launcher3.logging.StartupTimeline;
 import com.android.launcher3.logging.StatsLogManager;
 import com.android.launcher3.logging.StatsLogManager.LauncherLatencyEvent;
 import com.android.launcher3.model.BgDataModel.Callbacks;
@@ -232,6 +237,7 @@ import com.android.launcher3.util.ActivityTracker;
 import com.android.launcher3.util.BackPressHandler;
 import com.android.launcher3.util.CannedAnimationCoordinator;
 import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.Executors;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.IntSet;
 import com.android.launcher3.util.ItemInflater;
@@ -242,6 +248,7 @@ import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.PendingRequestArgs;
 import com.android.launcher3.util.PluginManagerWrapper;
 import com.android.launcher3.util.RunnableList;
+import com.android.launcher3.util.SafeCloseable;
 import com.android.launcher3.util.ScreenOnTracker;
 import com.android.launcher3.util.ScreenOnTracker.ScreenOnListener;
 import com.android.launcher3.util.SettingsCache;
@@ -265,8 +272,10 @@ import com.android.launcher3.widget.PendingAddWidgetInfo;
 import com.android.launcher3.widget.PendingAppWidgetHostView;
 import com.android.launcher3.widget.WidgetAddFlowHandler;
 import com.android.launcher3.widget.WidgetManagerHelper;
+import com.android.launcher3.widget.WidgetPreviewCache;
 import com.android.launcher3.widget.custom.CustomWidgetManager;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListUpdate;
 import com.android.launcher3.widget.picker.WidgetsFullSheet;
 import com.android.launcher3.widget.picker.model.WidgetPickerDataProvider;
 import com.android.launcher3.widget.util.WidgetSizes;
@@ -437,6 +446,8 @@ public class Launcher extends StatefulActivity<LauncherState>
     @Override
     @TargetApi(Build.VERSION_CODES.S)
     protected void onCreate(Bundle savedInstanceState) {
+        SafeCloseable onCreateSpan = StartupTimeline.INSTANCE.span(
+                CATEGORY_ACTIVITY, "Launcher.onCreate");
         mShouldUpdateSuspensions = sIsNewProcess;
         mStartupLatencyLogger = createStartupLatencyLogger(
                 sIsNewProcess
@@ -605,6 +616,7 @@ public class Launcher extends StatefulActivity<LauncherState>
         getWindow().setSoftInputMode(LayoutParams.SOFT_INPUT_ADJUST_NOTHING);
         setTitle(R.string.home_screen);
         mStartupLatencyLogger.logEnd(LAUNCHER_LATENCY_STARTUP_ACTIVITY_ON_CREATE);
+        onCreateSpan.close();
 
         if (BuildCompat.isAtLeastV()
                 && com.android.launcher3.Flags.enableTwoPaneLauncherSettings()) {
@@ -1223,6 +1235,7 @@ public class Launcher extends StatefulActivity<LauncherState>
             scheduleDeferredCheck();
         }
         addActivityFlags(ACTIVITY_STATE_TRANSITION_ACTIVE);
+        FrameJankTracer.INSTANCE.begin(INTERACTION_STATE_TRANSITION, getWindow());
 
         if (state == SPRING_LOADED || state == EDIT_MODE) {
             // Prevent any Un/InstallShortcutReceivers from updating the db while we are
@@ -1268,6 +1281,7 @@ public class Launcher extends StatefulActivity<LauncherState>
 
         finishAutoCancelActionMode();
         removeActivityFlags(ACTIVITY_STATE_TRANSITION_ACTIVE);
+        FrameJankTracer.INSTANCE.end(INTERACTION_STATE_TRANSITION);
 
         // dispatch window state changed
         getWindow().getDecorView().sendAccessibilityEvent(TYPE_WINDOW_STATE_CHANGED);
@@ -1383,7 +1397,9 @@ public class Launcher extends StatefulActivity<LauncherState>
      */
     protected void setupViews() {
         mStartupLatencyLogger.logStart(LAUNCHER_LATENCY_STARTUP_VIEW_INFLATION);
-        inflateRootView(R.layout.launcher);
+        try (SafeCloseable c = StartupTimeline.INSTANCE.span(CATEGORY_INFLATE, "inflateRootView")) {
+            inflateRootView(R.layout.launcher);
+        }
         mStartupLatencyLogger.logEnd(LAUNCHER_LATENCY_STARTUP_VIEW_INFLATION);
 
         mDragLayer = findViewById(R.id.drag_layer);
@@ -2242,10 +2258,9 @@ public class Launcher extends StatefulActivity<LauncherState>
             // The widget preview db can result in holding onto over
             // 3MB of memory for caching which isn't necessary.
             SQLiteDatabase.releaseMemory();
-
-            // This clears all widget bitmaps from the widget tray
-            // TODO(hyunyoungs)
         }
+        // This clears the widget previews cached for the widget tray
+        WidgetPreviewCache.INSTANCE.executeIfCreated(cache -> cache.onTrimMemory(level));
     }
 
     @Override
@@ -2449,6 +2464,7 @@ public class Launcher extends StatefulActivity<LauncherState>
                     .logCardinality(workspaceItemCount)
                     .logEnd(LauncherLatencyEvent.LAUNCHER_LATENCY_STARTUP_WORKSPACE_LOADER_ASYNC);
         }
+        StartupTimeline.INSTANCE.markFirstDraw(getRootView());
         MAIN_EXECUTOR.getHandler().postAtFrontOfQueue(() -> {
             mStartupLatencyLogger
                     .logEnd(LAUNCHER_LATENCY_STARTUP_TOTAL_DURATION)
@@ -2701,6 +2717,11 @@ public class Launcher extends StatefulActivity<LauncherState>
         mModelCallbacks.bindAllWidgets(allWidgets);
     }
 
+    @Override
+    public void bindUpdatedWidgets(WidgetsListUpdate update) {
+        mModelCallbacks.bindUpdatedWidgets(update);
+    }
+
     @Override
     public void bindSmartspaceWidget() {
         mModelCallbacks.bindSmartspaceWidget();
@@ -2777,6 +2798,9 @@ public class Launcher extends StatefulActivity<LauncherState>
         // Extra logging for general debugging
         mDragLayer.dump(prefix, writer);
         mStateManager.dump(prefix, writer);
+        FrameJankTracer.INSTANCE.dump(prefix, writer);
+        StartupTimeline.INSTANCE.dump(prefix, writer, args);
+        Executors.dump(prefix, writer);
         mPopupDataProvider.dump(prefix, writer);
         mWidgetPickerDataProvider.dump(prefix, writer);
         mDeviceProfile.dump(this, prefix, writer);
@@ -115,7 +115,7 @@ public class LauncherAppState implements SafeCloseable {
             }
         });
 
-        ModelLauncherCallbacks callbacks = mModel.newModelCallbacks();
+        ModelLauncherCallbacks callbacks = mModel.newBatchingModelCallbacks();
         LauncherApps launcherApps = mContext.getSystemService(LauncherApps.class);
         launcherApps.registerCallback(callbacks);
         mOnTerminateCallback.add(() ->
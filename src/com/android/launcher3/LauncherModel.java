@@ -22,6 +22,9 @@ import static com.android.launcher3.LauncherAppState.ACTION_FORCE_ROLOAD;
 import static com.android.launcher3.LauncherPrefs.WORK_EDU_STEP;
 import static com.android.launcher3.config.FeatureFlags.IS_STUDIO_BUILD;
 import static com.android.launcher3.icons.cache.BaseIconCache.EMPTY_CLASS_NAME;
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_BACKGROUND;
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_DEFAULT;
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_INTERACTIVE;
 import static com.android.launcher3.model.PackageUpdatedTask.OP_UPDATE;
 import static com.android.launcher3.pm.UserCache.ACTION_PROFILE_AVAILABLE;
 import static com.android.launcher3.pm.UserCache.ACTION_PROFILE_UNAVAILABLE;
@@ -34,6 +37,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageInstaller;
 import android.content.pm.ShortcutInfo;
+import android.os.Looper;
 import android.os.UserHandle;
 import android.text.TextUtils;
 import android.util.Log;
@@ -59,7 +63,10 @@ import com.android.launcher3.model.ModelDbController;
 import com.android.launcher3.model.ModelDelegate;
 import com.android.launcher3.model.ModelLauncherCallbacks;
 import com.android.launcher3.model.ModelTaskController;
+import com.android.launcher3.model.ModelTaskScheduler;
+import com.android.launcher3.model.ModelTaskScheduler.TaskPriority;
 import com.android.launcher3.model.ModelWriter;
+import com.android.launcher3.model.PackageEventBatcher;
 import com.android.launcher3.model.PackageInstallStateChangedTask;
 import com.android.launcher3.model.PackageUpdatedTask;
 import com.android.launcher3.model.ReloadStringCacheTask;
@@ -77,6 +84,7 @@ import com.android.launcher3.util.ItemInfoMatcher;
 import com.android.launcher3.util.PackageManagerHelper;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.Preconditions;
+import com.android.launcher3.widget.WidgetPreviewCache;
 
 import java.io.FileDescriptor;
 import java.io.PrintWriter;
@@ -141,6 +149,14 @@ public class LauncherModel implements InstallSessionTracker.Callback {
     @NonNull
     private final ModelDelegate mModelDelegate;
 
+    @NonNull
+    private final ModelTaskScheduler mTaskScheduler = new ModelTaskScheduler(
+            MODEL_EXECUTOR::post, MODEL_EXECUTOR::executeUrgent, this::runModelUpdateTask);
+
+    @NonNull
+    private final PackageEventBatcher mPackageEventBatcher = new PackageEventBatcher(
+            MAIN_EXECUTOR.getHandler(), this::enqueueModelUpdateTask);
+
     private int mLastLoadId = -1;
 
     // Runnable to check if the shortcuts permission has changed.
@@ -178,6 +194,15 @@ public class LauncherModel implements InstallSessionTracker.Callback {
         return new ModelLauncherCallbacks(this::enqueueModelUpdateTask);
     }
 
+    /**
+     * Returns the callbacks to register with {@link android.content.pm.LauncherApps}, which batch
+     * the package events when {@link Flags#enablePackageEventBatching} is enabled.
+     */
+    public ModelLauncherCallbacks newBatchingModelCallbacks() {
+        return new ModelLauncherCallbacks(Flags.enablePackageEventBatching()
+                ? mPackageEventBatcher : this::enqueueModelUpdateTask);
+    }
+
     /**
      * Adds the provided items to the workspace.
      */
@@ -394,6 +419,7 @@ public class LauncherModel implements InstallSessionTracker.Callback {
 
                     // Always post the loader task, instead of running directly
                     // (even on same thread) so that we exit any nested synchronized blocks
+                    ModelWriter.closePendingBatches();
                     MODEL_EXECUTOR.post(mLoaderTask);
                 }
             }
@@ -512,7 +538,8 @@ public class LauncherModel implements InstallSessionTracker.Callback {
         HashSet<String> packages = new HashSet<>();
         packages.add(key.mPackageName);
         enqueueModelUpdateTask(new CacheDataUpdatedTask(
-                CacheDataUpdatedTask.OP_SESSION_UPDATE, key.mUser, packages));
+                CacheDataUpdatedTask.OP_SESSION_UPDATE, key.mUser, packages),
+                PRIORITY_BACKGROUND, null /* supersedeKey */);
     }
 
     public class LoaderTransaction implements AutoCloseable {
@@ -563,7 +590,7 @@ public class LauncherModel implements InstallSessionTracker.Callback {
      */
     public void validateModelDataOnResume() {
         MODEL_EXECUTOR.getHandler().removeCallbacks(mDataValidationCheck);
-        MODEL_EXECUTOR.post(mDataValidationCheck);
+        MODEL_EXECUTOR.getHandler().post(mDataValidationCheck);
     }
 
     /**
@@ -574,7 +601,8 @@ public class LauncherModel implements InstallSessionTracker.Callback {
         // If any package icon has changed (app was updated while launcher was dead),
         // update the corresponding shortcuts.
         enqueueModelUpdateTask(new CacheDataUpdatedTask(
-                CacheDataUpdatedTask.OP_CACHE_UPDATE, user, updatedPackages));
+                CacheDataUpdatedTask.OP_CACHE_UPDATE, user, updatedPackages),
+                PRIORITY_BACKGROUND, null /* supersedeKey */);
     }
 
     /**
@@ -585,22 +613,44 @@ public class LauncherModel implements InstallSessionTracker.Callback {
         enqueueModelUpdateTask((taskController, dataModel, apps) ->  {
             dataModel.widgetsModel.onPackageIconsUpdated(updatedPackages, user, mApp);
             taskController.bindUpdatedWidgets(dataModel);
-        });
+        }, PRIORITY_BACKGROUND, null /* supersedeKey */);
     }
 
     public void enqueueModelUpdateTask(@NonNull final ModelUpdateTask task) {
+        enqueueModelUpdateTask(task, PRIORITY_DEFAULT, null /* supersedeKey */);
+    }
+
+    /**
+     * Enqueues a task with the provided priority, see {@link ModelTaskScheduler}. Interactive
+     * tasks run before the tasks already queued, so they must only read the model.
+     *
+     * @param supersedeKey if not null, the pending task of the same priority enqueued with an
+     *                     equal key is cancelled
+     */
+    public void enqueueModelUpdateTask(@NonNull final ModelUpdateTask task,
+            @TaskPriority int priority, @Nullable Object supersedeKey) {
         if (mModelDestroyed) {
             return;
         }
-        MODEL_EXECUTOR.execute(() -> {
-            if (!isModelLoaded()) {
-                // Loader has not yet run.
-                return;
-            }
-            ModelTaskController controller = new ModelTaskController(
-                    mApp, mBgDataModel, mBgAllAppsList, this, MAIN_EXECUTOR);
-            task.execute(controller, mBgDataModel, mBgAllAppsList);
-        });
+        // The task runs after the pending workspace writes
+        ModelWriter.closePendingBatches();
+        if (Flags.enableModelTaskScheduler() && MODEL_EXECUTOR.getLooper() != Looper.myLooper()) {
+            mTaskScheduler.enqueue(task, priority, supersedeKey);
+        } else if (priority == PRIORITY_INTERACTIVE) {
+            MODEL_EXECUTOR.executeUrgent(() -> runModelUpdateTask(task));
+        } else {
+            MODEL_EXECUTOR.execute(() -> runModelUpdateTask(task));
+        }
+    }
+
+    private void runModelUpdateTask(@NonNull ModelUpdateTask task) {
+        if (!isModelLoaded()) {
+            // Loader has not yet run.
+            return;
+        }
+        ModelTaskController controller = new ModelTaskController(
+                mApp, mBgDataModel, mBgAllAppsList, this, MAIN_EXECUTOR);
+        task.execute(controller, mBgDataModel, mBgAllAppsList);
     }
 
     /**
@@ -661,6 +711,15 @@ public class LauncherModel implements InstallSessionTracker.Callback {
         }
         mModelDelegate.dump(prefix, fd, writer, args);
         mBgDataModel.dump(prefix, fd, writer, args);
+        ModelWriter.dumpStats(prefix, writer);
+        mApp.getIconCache().dump(prefix, writer);
+        if (Flags.enableModelTaskScheduler()) {
+            mTaskScheduler.dump(prefix, writer);
+        }
+        if (Flags.enablePackageEventBatching()) {
+            mPackageEventBatcher.dump(prefix, writer);
+        }
+        WidgetPreviewCache.INSTANCE.executeIfCreated(cache -> cache.dump(prefix, writer));
     }
 
     /**
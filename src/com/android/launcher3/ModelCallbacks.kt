@@ -30,6 +30,7 @@ import com.android.launcher3.util.TraceHelper
 import com.android.launcher3.util.ViewOnDrawExecutor
 import com.android.launcher3.widget.PendingAddWidgetInfo
 import com.android.launcher3.widget.model.WidgetsListBaseEntry
+import com.android.launcher3.widget.model.WidgetsListUpdate
 import java.util.function.Predicate
 
 private const val TAG = "ModelCallbacks"
@@ -255,6 +256,14 @@ class ModelCallbacks(private var launcher: Launcher) : BgDataModel.Callbacks {
         launcher.widgetPickerDataProvider.setWidgets(allWidgets, /* defaultWidgets= */ listOf())
     }
 
+    override fun bindUpdatedWidgets(update: WidgetsListUpdate) {
+        launcher.widgetPickerDataProvider.setWidgets(
+            update.entries(),
+            /* defaultWidgets= */ listOf(),
+            update.changedPackages(),
+        )
+    }
+
     /** Returns the ids of the workspaces to bind. */
     override fun getPagesToBindSynchronously(orderedScreenIds: LIntArray): LIntSet {
         // If workspace binding is still in progress, getCurrentPageScreenIds won't be
@@ -32,6 +32,7 @@ import static com.android.launcher3.MotionEventsUtils.isTrackpadMultiFingerSwipe
 import static com.android.launcher3.Utilities.SHOULD_SHOW_FIRST_PAGE_WIDGET;
 import static com.android.launcher3.anim.AnimatorListeners.forSuccessCallback;
 import static com.android.launcher3.config.FeatureFlags.FOLDABLE_SINGLE_PAGE;
+import static com.android.launcher3.logging.FrameJankTracer.INTERACTION_PAGE_FLING;
 import static com.android.launcher3.logging.StatsLogManager.LAUNCHER_STATE_HOME;
 import static com.android.launcher3.logging.StatsLogManager.LauncherEvent.LAUNCHER_SWIPELEFT;
 import static com.android.launcher3.logging.StatsLogManager.LauncherEvent.LAUNCHER_SWIPERIGHT;
@@ -96,6 +97,7 @@ import com.android.launcher3.graphics.DragPreviewProvider;
 import com.android.launcher3.icons.BitmapRenderer;
 import com.android.launcher3.icons.FastBitmapDrawable;
 import com.android.launcher3.logger.LauncherAtom;
+import com.android.launcher3.logging.FrameJankTracer;
 import com.android.launcher3.logging.InstanceId;
 import com.android.launcher3.logging.StatsLogManager;
 import com.android.launcher3.logging.StatsLogManager.LauncherEvent;
@@ -119,6 +121,7 @@ import com.android.launcher3.util.OverlayEdgeEffect;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.RunnableList;
 import com.android.launcher3.util.Thunk;
+import com.android.launcher3.util.TraceHelper;
 import com.android.launcher3.util.WallpaperOffsetInterpolator;
 import com.android.launcher3.widget.LauncherAppWidgetHostView;
 import com.android.launcher3.widget.LauncherWidgetHolder;
@@ -1221,11 +1224,13 @@ public class Workspace<T extends View & PageIndicator> extends PagedView<T>
     protected void onPageBeginTransition() {
         super.onPageBeginTransition();
         updateChildrenLayersEnabled();
+        FrameJankTracer.INSTANCE.begin(INTERACTION_PAGE_FLING, mLauncher.getWindow());
     }
 
     protected void onPageEndTransition() {
         super.onPageEndTransition();
         updateChildrenLayersEnabled();
+        FrameJankTracer.INSTANCE.end(INTERACTION_PAGE_FLING);
 
         if (mDragController.isDragging()) {
             if (workspaceInModalState()) {
@@ -1278,6 +1283,7 @@ public class Workspace<T extends View & PageIndicator> extends PagedView<T>
 
     @Override
     protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        TraceHelper.INSTANCE.beginSection("Workspace.onScrollChanged");
         super.onScrollChanged(l, t, oldl, oldt);
 
         // Update the page indicator progress.
@@ -1293,6 +1299,7 @@ public class Workspace<T extends View & PageIndicator> extends PagedView<T>
         updatePageAlphaValues();
         updatePageScrollValues();
         enableHwLayersOnVisiblePages();
+        TraceHelper.INSTANCE.endSection();
     }
 
     public void showPageIndicatorAtCurrentScroll() {
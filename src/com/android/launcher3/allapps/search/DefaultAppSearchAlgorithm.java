@@ -16,6 +16,7 @@
 package com.android.launcher3.allapps.search;
 
 import static com.android.launcher3.allapps.BaseAllAppsAdapter.VIEW_TYPE_EMPTY_SEARCH;
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_INTERACTIVE;
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
 
 import android.content.Context;
@@ -42,6 +43,8 @@ public class DefaultAppSearchAlgorithm implements SearchAlgorithm<AdapterItem> {
     private final Handler mResultHandler;
     private final boolean mAddNoResultsMessage;
 
+    private volatile String mLatestQuery;
+
     public DefaultAppSearchAlgorithm(Context context) {
         this(context, false);
     }
@@ -61,13 +64,22 @@ public class DefaultAppSearchAlgorithm implements SearchAlgorithm<AdapterItem> {
 
     @Override
     public void doSearch(String query, SearchCallback<AdapterItem> callback) {
+        mLatestQuery = query;
         mAppState.getModel().enqueueModelUpdateTask((taskController, dataModel, apps) ->  {
-            ArrayList<AdapterItem> result = getTitleMatchResult(apps.data, query);
+            if (query != mLatestQuery) {
+                // A newer query is already queued, which will deliver the results.
+                return;
+            }
+            List<AppInfo> matches = apps.getSearchIndex().search(apps.data, query);
+            ArrayList<AdapterItem> result = new ArrayList<>(matches.size());
+            for (int i = 0; i < matches.size(); i++) {
+                result.add(AdapterItem.asApp(matches.get(i)));
+            }
             if (mAddNoResultsMessage && result.isEmpty()) {
                 result.add(getEmptyMessageAdapterItem(query));
             }
             mResultHandler.post(() -> callback.onSearchResult(query, result));
-        });
+        }, PRIORITY_INTERACTIVE, this /* supersedeKey */);
     }
 
     private static AdapterItem getEmptyMessageAdapterItem(String query) {
@@ -16,6 +16,7 @@
 package com.android.launcher3.celllayout;
 
 import android.graphics.Rect;
+import android.os.SystemClock;
 import android.view.View;
 
 import com.android.launcher3.CellLayout;
@@ -37,6 +38,10 @@ public class ReorderAlgorithm {
 
     CellLayout mCellLayout;
 
+    // Memoized rearrangements of the current drag session, or null when not dragging
+    private ReorderSolutionCache mSolutionCache;
+    private long mDeadlineNanos = Long.MAX_VALUE;
+
     public ReorderAlgorithm(CellLayout cellLayout) {
         mCellLayout = cellLayout;
     }
@@ -73,6 +78,15 @@ public class ReorderAlgorithm {
      */
     public ItemConfiguration findReorderSolution(ReorderParameters reorderParameters,
             int[] direction, boolean decX) {
+        ReorderSolutionCache cache = mCellLayout.getReorderSolutionCache();
+        if (cache.isActive()) {
+            cache.validate(mCellLayout, reorderParameters.getDragView());
+            mSolutionCache = cache;
+            mDeadlineNanos = cache.getDeadlineNanos();
+        } else {
+            mSolutionCache = null;
+            mDeadlineNanos = Long.MAX_VALUE;
+        }
         return findReorderSolutionRecursive(reorderParameters.getPixelX(),
                 reorderParameters.getPixelY(), reorderParameters.getMinSpanX(),
                 reorderParameters.getMinSpanY(), reorderParameters.getSpanX(),
@@ -101,6 +115,12 @@ public class ReorderAlgorithm {
                 solution);
 
         if (!success) {
+            if (SystemClock.elapsedRealtimeNanos() > mDeadlineNanos) {
+                // Out of time for this frame, let the caller fall back to a solution which
+                // doesn't rearrange items. The attempts so far are memoized for the next frame.
+                solution.isSolution = false;
+                return solution;
+            }
             // We try shrinking the widget down to size in an alternating pattern, shrink 1 in
             // x, then 1 in y etc.
             if (spanX > minSpanX && (minSpanY == spanY || decX)) {
@@ -126,6 +146,24 @@ public class ReorderAlgorithm {
         // Return early if get invalid cell positions
         if (cellX < 0 || cellY < 0) return false;
 
+        if (mSolutionCache == null) {
+            return computeRearrangement(cellX, cellY, spanX, spanY, direction, ignoreView,
+                    solution);
+        }
+        long key = ReorderSolutionCache.getKey(cellX, cellY, spanX, spanY, direction);
+        ReorderSolutionCache.Entry entry = mSolutionCache.get(key);
+        if (entry != null) {
+            entry.applyTo(solution, direction, mCellLayout.getShortcutsAndWidgets());
+            return entry.success;
+        }
+        boolean success = computeRearrangement(cellX, cellY, spanX, spanY, direction, ignoreView,
+                solution);
+        mSolutionCache.put(key, success, solution, direction, mCellLayout.getShortcutsAndWidgets());
+        return success;
+    }
+
+    private boolean computeRearrangement(int cellX, int cellY, int spanX, int spanY,
+            int[] direction, View ignoreView, ItemConfiguration solution) {
         ArrayList<View> intersectingViews = new ArrayList<>();
         Rect occupiedRect = new Rect(cellX, cellY, cellX + spanX, cellY + spanY);
 
@@ -195,7 +233,7 @@ public class ReorderAlgorithm {
         mCellLayout.mTmpOccupied.markCells(rectOccupiedByPotentialDrop, true);
 
         int[] tmpLocation = findNearestArea(c.cellX, c.cellY, c.spanX, c.spanY, direction,
-                mCellLayout.mTmpOccupied.cells, null, new int[2]);
+                mCellLayout.mTmpOccupied, null, new int[2]);
 
         if (tmpLocation[0] >= 0 && tmpLocation[1] >= 0) {
             c.cellX = tmpLocation[0];
@@ -378,7 +416,7 @@ public class ReorderAlgorithm {
 
         int[] tmpLocation = findNearestArea(boundingRect.left, boundingRect.top,
                 boundingRect.width(), boundingRect.height(), direction,
-                mCellLayout.mTmpOccupied.cells, blockOccupied.cells, new int[2]);
+                mCellLayout.mTmpOccupied, blockOccupied, new int[2]);
 
         // If we successfully found a location by pushing the block of views, we commit it
         if (tmpLocation[0] >= 0 && tmpLocation[1] >= 0) {
@@ -588,10 +626,9 @@ public class ReorderAlgorithm {
      * @param spanX         Horizontal span of the object.
      * @param spanY         Vertical span of the object.
      * @param direction     The favored direction in which the views should move from x, y
-     * @param occupied      The array which represents which cells in the CellLayout are occupied
-     * @param blockOccupied The array which represents which cells in the specified block (cellX,
-     *                      cellY, spanX, spanY) are occupied. This is used when try to move a group
-     *                      of views.
+     * @param occupied      The occupancy of the cells in the CellLayout
+     * @param blockOccupied The occupancy of the cells in the specified block (cellX, cellY,
+     *                      spanX, spanY). This is used when try to move a group of views.
      * @param result        Array in which to place the result, or null (in which case a new array
      *                      will
      *                      be allocated)
@@ -599,7 +636,7 @@ public class ReorderAlgorithm {
      * nearest the requested location.
      */
     public int[] findNearestArea(int cellX, int cellY, int spanX, int spanY, int[] direction,
-            boolean[][] occupied, boolean[][] blockOccupied, int[] result) {
+            GridOccupancy occupied, GridOccupancy blockOccupied, int[] result) {
         // Keep track of best-scoring drop area
         final int[] bestXY = result != null ? result : new int[2];
         float bestDistance = Float.MAX_VALUE;
@@ -609,16 +646,10 @@ public class ReorderAlgorithm {
         final int countY = mCellLayout.getCountY();
 
         for (int y = 0; y < countY - (spanY - 1); y++) {
-            inner:
             for (int x = 0; x < countX - (spanX - 1); x++) {
                 // First, let's see if this thing fits anywhere
-                for (int i = 0; i < spanX; i++) {
-                    for (int j = 0; j < spanY; j++) {
-                        if (occupied[x + i][y + j] && (blockOccupied == null
-                                || blockOccupied[i][j])) {
-                            continue inner;
-                        }
-                    }
+                if (!occupied.isRegionVacant(x, y, spanX, spanY, blockOccupied)) {
+                    continue;
                 }
 
                 float distance = (float) Math.hypot(x - cellX, y - cellY);
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.celllayout;
+
+import android.os.SystemClock;
+import android.util.LongSparseArray;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.CellLayout;
+import com.android.launcher3.ShortcutAndWidgetContainer;
+import com.android.launcher3.util.CellAndSpan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Memoizes the rearrangements computed by {@link ReorderAlgorithm} during a drag session.
+ *
+ * While an item is dragged over a {@link CellLayout}, the positions of the items in it do not
+ * change, so the rearrangement found for a given position, span and push direction of the
+ * dragged item can be reused across drag over events. The cache is cleared whenever the
+ * positions or spans of the items change. The solutions refer to the items by their index, so
+ * that they stay valid when views are replaced at the same position, like the seam added by
+ * {@link MulticellReorderAlgorithm}.
+ *
+ * The session also defines a time budget for a single search while the item is dragged over,
+ * after which the search stops shrinking the dragged item and falls back to the solutions which
+ * don't rearrange items. Since the attempted rearrangements are memoized, the next drag over
+ * event continues where the previous one stopped.
+ */
+public class ReorderSolutionCache {
+
+    // Number of values saved for each item: cellX, cellY, spanX and spanY
+    private static final int VALUES_PER_CHILD = 4;
+
+    private final LongSparseArray<Entry> mEntries = new LongSparseArray<>();
+
+    private boolean mActive;
+    private long mFrameBudgetNanos;
+    private boolean mFrameBudgetEnabled;
+
+    // Layout of the items which the memoized solutions were computed for
+    @Nullable
+    private View mDragView;
+    private int mCountX;
+    private int mCountY;
+    private int mChildCount;
+    private int[] mChildValues = new int[0];
+
+    /**
+     * Starts memoizing solutions, until {@link #endSession()} is called.
+     * @param frameBudgetMs Maximum duration of a single search while dragging over.
+     */
+    public void startSession(int frameBudgetMs) {
+        mActive = true;
+        mFrameBudgetNanos = frameBudgetMs * 1_000_000L;
+        clear();
+    }
+
+    public void endSession() {
+        mActive = false;
+        clear();
+    }
+
+    public boolean isActive() {
+        return mActive;
+    }
+
+    /**
+     * Sets whether the searches are limited to the frame budget. This is only the case while the
+     * item is dragged over, so that the search run on drop is never cut short.
+     */
+    public void setFrameBudgetEnabled(boolean enabled) {
+        mFrameBudgetEnabled = enabled;
+    }
+
+    /**
+     * Returns the time after which a search starting now should stop.
+     */
+    public long getDeadlineNanos() {
+        return mFrameBudgetEnabled
+                ? SystemClock.elapsedRealtimeNanos() + mFrameBudgetNanos : Long.MAX_VALUE;
+    }
+
+    /**
+     * Clears the memoized solutions if the items in {@code cellLayout} have changed since they
+     * were computed.
+     */
+    public void validate(CellLayout cellLayout, View dragView) {
+        ShortcutAndWidgetContainer children = cellLayout.getShortcutsAndWidgets();
+        int childCount = children.getChildCount();
+        boolean changed = dragView != mDragView || cellLayout.getCountX() != mCountX
+                || cellLayout.getCountY() != mCountY || childCount != mChildCount;
+        mDragView = dragView;
+        mCountX = cellLayout.getCountX();
+        mCountY = cellLayout.getCountY();
+        mChildCount = childCount;
+        if (mChildValues.length < childCount * VALUES_PER_CHILD) {
+            mChildValues = Arrays.copyOf(mChildValues, childCount * VALUES_PER_CHILD);
+        }
+        for (int i = 0; i < childCount; i++) {
+            CellLayoutLayoutParams lp =
+                    (CellLayoutLayoutParams) children.getChildAt(i).getLayoutParams();
+            int index = i * VALUES_PER_CHILD;
+            changed |= updateValue(index, lp.getCellX());
+            changed |= updateValue(index + 1, lp.getCellY());
+            changed |= updateValue(index + 2, lp.cellHSpan);
+            changed |= updateValue(index + 3, lp.cellVSpan);
+        }
+        if (changed) {
+            mEntries.clear();
+        }
+    }
+
+    private boolean updateValue(int index, int value) {
+        if (mChildValues[index] == value) {
+            return false;
+        }
+        mChildValues[index] = value;
+        return true;
+    }
+
+    private void clear() {
+        mEntries.clear();
+        mDragView = null;
+        mChildCount = 0;
+    }
+
+    @VisibleForTesting
+    int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * Returns the key of a rearrangement, direction values must be in {-1, 0, 1}.
+     */
+    static long getKey(int cellX, int cellY, int spanX, int spanY, int[] direction) {
+        return ((long) cellX << 40) | ((long) cellY << 32) | ((long) spanX << 24)
+                | ((long) spanY << 16) | ((direction[0] + 1) << 8) | (direction[1] + 1);
+    }
+
+    Entry get(long key) {
+        return mEntries.get(key);
+    }
+
+    Entry put(long key, boolean success, ItemConfiguration solution, int[] direction,
+            ShortcutAndWidgetContainer children) {
+        Entry entry = new Entry(success, solution, direction, children);
+        mEntries.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Result of a single rearrangement attempt.
+     */
+    static class Entry {
+        final boolean success;
+        // Indexes of the items in the layout
+        private final int[] mChildIndexes;
+        private final CellAndSpan[] mCells;
+        private final int[] mIntersectingIndexes;
+        private final int[] mDirection;
+
+        Entry(boolean success, ItemConfiguration solution, int[] direction,
+                ShortcutAndWidgetContainer children) {
+            this.success = success;
+            int size = success ? solution.map.size() : 0;
+            mChildIndexes = new int[size];
+            mCells = new CellAndSpan[size];
+            for (int i = 0; i < size; i++) {
+                mChildIndexes[i] = children.indexOfChild(solution.map.keyAt(i));
+                mCells[i] = new CellAndSpan();
+                mCells[i].copyFrom(solution.map.valueAt(i));
+            }
+            if (success) {
+                mIntersectingIndexes = new int[solution.intersectingViews.size()];
+                for (int i = 0; i < mIntersectingIndexes.length; i++) {
+                    mIntersectingIndexes[i] =
+                            children.indexOfChild(solution.intersectingViews.get(i));
+                }
+            } else {
+                mIntersectingIndexes = null;
+            }
+            mDirection = direction.clone();
+        }
+
+        /**
+         * Updates {@code solution} and {@code direction} as the attempt which created this
+         * entry did.
+         */
+        void applyTo(ItemConfiguration solution, int[] direction,
+                ShortcutAndWidgetContainer children) {
+            for (int i = 0; i < mChildIndexes.length; i++) {
+                CellAndSpan c = solution.map.get(children.getChildAt(mChildIndexes[i]));
+                if (c != null) {
+                    c.copyFrom(mCells[i]);
+                }
+            }
+            if (mIntersectingIndexes != null) {
+                ArrayList<View> intersectingViews = new ArrayList<>(mIntersectingIndexes.length);
+                for (int index : mIntersectingIndexes) {
+                    intersectingViews.add(children.getChildAt(index));
+                }
+                solution.intersectingViews = intersectingViews;
+            }
+            direction[0] = mDirection[0];
+            direction[1] = mDirection[1];
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package com.android.launcher3.folder;
 
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_INTERACTIVE;
+
 import android.annotation.SuppressLint;
 import android.app.admin.DevicePolicyManager;
 import android.content.ComponentName;
@@ -93,7 +95,7 @@ public class FolderNameProvider implements ResourceBasedOverride {
 
     private void load(Context context) {
         LauncherAppState.getInstance(context).getModel().enqueueModelUpdateTask(
-                new FolderNameWorker());
+                new FolderNameWorker(), PRIORITY_INTERACTIVE, null /* supersedeKey */);
     }
 
     private void load(List<AppInfo> appInfos, IntSparseArrayMap<CollectionInfo> folderInfos) {
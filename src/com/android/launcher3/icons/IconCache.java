@@ -17,6 +17,7 @@
 package com.android.launcher3.icons;
 
 import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_DEEP_SHORTCUT;
+import static com.android.launcher3.logging.StartupTimeline.CATEGORY_ICONS;
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
 import static com.android.launcher3.widget.WidgetSections.NO_CATEGORY;
@@ -36,9 +37,11 @@ import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.ShortcutInfo;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteException;
+import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
 import android.os.Looper;
 import android.os.Process;
+import android.os.SystemClock;
 import android.os.Trace;
 import android.os.UserHandle;
 import android.text.TextUtils;
@@ -59,6 +62,7 @@ import com.android.launcher3.icons.cache.CachedObjectCachingLogic;
 import com.android.launcher3.icons.cache.CachingLogic;
 import com.android.launcher3.icons.cache.LauncherActivityCachingLogic;
 import com.android.launcher3.logging.FileLog;
+import com.android.launcher3.logging.StartupTimeline;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.IconRequestInfo;
 import com.android.launcher3.model.data.ItemInfoWithIcon;
@@ -68,15 +72,21 @@ import com.android.launcher3.pm.InstallSessionHelper;
 import com.android.launcher3.pm.UserCache;
 import com.android.launcher3.shortcuts.ShortcutKey;
 import com.android.launcher3.util.CancellableTask;
+import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.InstantAppResolver;
 import com.android.launcher3.util.PackageUserKey;
+import com.android.launcher3.util.SafeCloseable;
 import com.android.launcher3.widget.WidgetSections;
 import com.android.launcher3.widget.WidgetSections.WidgetSection;
 
+import java.io.PrintWriter;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -93,6 +103,11 @@ public class IconCache extends BaseIconCache {
 
     private static final String TAG = "Launcher.IconCache";
 
+    // Tiers of the lookups recorded in the stats
+    public static final int TIER_MEMORY = 0;
+    public static final int TIER_DB = 1;
+    public static final int TIER_PACKAGE_MANAGER = 2;
+
     private final Predicate<ItemInfoWithIcon> mIsUsingFallbackOrNonDefaultIconCheck = w ->
             w.bitmap != null && (w.bitmap.isNullOrLowRes() || !isDefaultIcon(w.bitmap, w.user));
 
@@ -109,6 +124,13 @@ public class IconCache extends BaseIconCache {
 
     private int mPendingIconRequestCount = 0;
 
+    private final IconCacheStats mStats =
+            new IconCacheStats("IconCache", "memory", "db", "package_manager");
+    // Entries returned by the cache which are kept in the memory cache
+    private final WeakHashMap<CacheEntry, Boolean> mLookedUpEntries = new WeakHashMap<>();
+    // Number of entries which were not found in the database, guarded by this
+    private int mDbMissCount;
+
     public IconCache(Context context, InvariantDeviceProfile idp, String dbFileName,
             IconProvider iconProvider) {
         super(context, dbFileName, MODEL_EXECUTOR.getLooper(),
@@ -124,6 +146,7 @@ public class IconCache extends BaseIconCache {
 
         mCancelledTask = new CancellableTask(() -> null, MAIN_EXECUTOR, c -> { });
         mCancelledTask.cancel();
+        mStats.setBytesHeldSupplier(this::getBytesHeld);
     }
 
     @Override
@@ -136,6 +159,17 @@ public class IconCache extends BaseIconCache {
         return mInstantAppResolver.isInstantApp(info);
     }
 
+    @Override
+    protected boolean getEntryFromDB(ComponentKey cacheKey, CacheEntry entry, boolean lowRes) {
+        boolean found = super.getEntryFromDB(cacheKey, entry, lowRes);
+        if (!found) {
+            synchronized (this) {
+                mDbMissCount++;
+            }
+        }
+        return found;
+    }
+
     @NonNull
     @Override
     public BaseIconFactory getIconFactory() {
@@ -195,6 +229,13 @@ public class IconCache extends BaseIconCache {
                     + info == null ? "null" : info.getClass().getName());
             return mCancelledTask;
         }
+        long requestNs = SystemClock.elapsedRealtimeNanos();
+        Supplier<ItemInfoWithIcon> loadTask = task;
+        task = () -> {
+            ItemInfoWithIcon result = loadTask.get();
+            mStats.recordRequest(SystemClock.elapsedRealtimeNanos() - requestNs);
+            return result;
+        };
 
         Runnable endRunnable;
         if (Looper.myLooper() == Looper.getMainLooper()) {
@@ -225,8 +266,8 @@ public class IconCache extends BaseIconCache {
      */
     public synchronized void updateTitleAndIcon(AppInfo application) {
         boolean preferPackageIcon = application.isArchived();
-        CacheEntry entry = cacheLocked(application.componentName,
-                application.user, () -> null, mLauncherActivityInfoCachingLogic,
+        CacheEntry entry = cacheLockedWithStats(application.componentName,
+                application.user, () -> null, mLauncherActivityInfoCachingLogic, null,
                 false, application.usingLowResIcon());
         if (entry.bitmap == null || isDefaultIcon(entry.bitmap, application.user)) {
             return;
@@ -235,9 +276,10 @@ public class IconCache extends BaseIconCache {
         if (preferPackageIcon) {
             String packageName = application.getTargetPackage();
             CacheEntry packageEntry =
-                    cacheLocked(new ComponentName(packageName, packageName + EMPTY_CLASS_NAME),
+                    cacheLockedWithStats(
+                            new ComponentName(packageName, packageName + EMPTY_CLASS_NAME),
                             application.user, () -> null, mLauncherActivityInfoCachingLogic,
-                            true, application.usingLowResIcon());
+                            null, true, application.usingLowResIcon());
             applyPackageEntry(packageEntry, application, entry);
         } else {
             applyCacheEntry(entry, application);
@@ -270,8 +312,8 @@ public class IconCache extends BaseIconCache {
      */
     public <T extends ItemInfoWithIcon> void getShortcutIcon(T info, ShortcutInfo si,
             @NonNull Predicate<T> fallbackIconCheck) {
-        BitmapInfo bitmapInfo = cacheLocked(ShortcutKey.fromInfo(si).componentName,
-                si.getUserHandle(), () -> si, mShortcutCachingLogic, false, false).bitmap;
+        BitmapInfo bitmapInfo = cacheLockedWithStats(ShortcutKey.fromInfo(si).componentName,
+                si.getUserHandle(), () -> si, mShortcutCachingLogic, null, false, false).bitmap;
         if (bitmapInfo.isNullOrLowRes()) {
             bitmapInfo = getDefaultIcon(si.getUserHandle());
         }
@@ -341,8 +383,8 @@ public class IconCache extends BaseIconCache {
      * Loads and returns the icon for the provided object without adding it to memCache
      */
     public synchronized String getTitleNoCache(ComponentWithLabel info) {
-        CacheEntry entry = cacheLocked(info.getComponent(), info.getUser(), () -> info,
-                mComponentWithLabelCachingLogic, false /* usePackageIcon */,
+        CacheEntry entry = cacheLockedWithStats(info.getComponent(), info.getUser(), () -> info,
+                mComponentWithLabelCachingLogic, null, false /* usePackageIcon */,
                 true /* useLowResIcon */);
         return Utilities.trim(entry.title);
     }
@@ -354,8 +396,8 @@ public class IconCache extends BaseIconCache {
             @NonNull ItemInfoWithIcon infoInOut,
             @NonNull Supplier<LauncherActivityInfo> activityInfoProvider,
             boolean usePkgIcon, boolean useLowResIcon) {
-        CacheEntry entry = cacheLocked(infoInOut.getTargetComponent(), infoInOut.user,
-                activityInfoProvider, mLauncherActivityInfoCachingLogic, usePkgIcon,
+        CacheEntry entry = cacheLockedWithStats(infoInOut.getTargetComponent(), infoInOut.user,
+                activityInfoProvider, mLauncherActivityInfoCachingLogic, null, usePkgIcon,
                 useLowResIcon);
         applyCacheEntry(entry, infoInOut);
     }
@@ -367,15 +409,15 @@ public class IconCache extends BaseIconCache {
             @NonNull ItemInfoWithIcon infoInOut,
             @NonNull Supplier<LauncherActivityInfo> activityInfoProvider,
             boolean usePkgIcon, boolean useLowResIcon, boolean preferPackageEntry) {
-        CacheEntry entry = cacheLocked(infoInOut.getTargetComponent(), infoInOut.user,
-                activityInfoProvider, mLauncherActivityInfoCachingLogic, usePkgIcon,
+        CacheEntry entry = cacheLockedWithStats(infoInOut.getTargetComponent(), infoInOut.user,
+                activityInfoProvider, mLauncherActivityInfoCachingLogic, null, usePkgIcon,
                 useLowResIcon);
         if (preferPackageEntry) {
             String packageName = infoInOut.getTargetPackage();
-            CacheEntry packageEntry = cacheLocked(
+            CacheEntry packageEntry = cacheLockedWithStats(
                     new ComponentName(packageName, packageName + EMPTY_CLASS_NAME),
                     infoInOut.user, activityInfoProvider, mLauncherActivityInfoCachingLogic,
-                    usePkgIcon, useLowResIcon);
+                    null, usePkgIcon, useLowResIcon);
             applyPackageEntry(packageEntry, infoInOut, entry);
         } else if (useLowResIcon || !entry.bitmap.isNullOrLowRes()
                 || infoInOut.bitmap.isNullOrLowRes()) {
@@ -437,6 +479,8 @@ public class IconCache extends BaseIconCache {
                                 Pair.create(iconRequest.itemInfo.user, iconRequest.useLowResIcon)));
 
         Trace.beginSection("loadIconsInBulk");
+        SafeCloseable timelineSpan = StartupTimeline.INSTANCE.span(
+                CATEGORY_ICONS, "loadIconsInBulk");
         iconLoadSubsectionsMap.forEach((sectionKey, filteredList) -> {
             Map<ComponentName, List<IconRequestInfo<T>>> duplicateIconRequestsMap =
                     filteredList.stream()
@@ -458,6 +502,7 @@ public class IconCache extends BaseIconCache {
             loadIconSubsection(sectionKey, filteredList, duplicateIconRequestsMap);
             Trace.endSection();
         });
+        timelineSpan.close();
         Trace.endSection();
     }
 
@@ -480,7 +525,7 @@ public class IconCache extends BaseIconCache {
 
                 if (cn != null) {
                     if (duplicateIconRequests != null) {
-                        CacheEntry entry = cacheLocked(
+                        CacheEntry entry = cacheLockedWithStats(
                                 cn,
                                 /* user = */ sectionKey.first,
                                 () -> duplicateIconRequests.get(0).launcherActivityInfo,
@@ -561,8 +606,12 @@ public class IconCache extends BaseIconCache {
      */
     public synchronized void getTitleAndIconForApp(
             @NonNull final PackageItemInfo infoInOut, final boolean useLowResIcon) {
+        long startNs = SystemClock.elapsedRealtimeNanos();
+        // The package entry is loaded from the package manager when it is not in the database
+        int dbMissCount = mDbMissCount;
         CacheEntry entry = getEntryForPackageLocked(
                 infoInOut.packageName, infoInOut.user, useLowResIcon);
+        recordLookup(entry, mDbMissCount != dbMissCount, true /* inMemCache */, startNs);
         applyCacheEntry(entry, infoInOut);
         if (infoInOut.widgetCategory == NO_CATEGORY) {
             return;
@@ -600,6 +649,81 @@ public class IconCache extends BaseIconCache {
         }
     }
 
+    /**
+     * Same as {@link #cacheLocked}, recording the tier which served the entry in the stats.
+     */
+    @NonNull
+    private <T> CacheEntry cacheLockedWithStats(@NonNull ComponentName componentName,
+            @NonNull UserHandle user, @NonNull Supplier<T> infoProvider,
+            @NonNull CachingLogic<T> cachingLogic, @Nullable Cursor cursor,
+            boolean usePackageIcon, boolean useLowResIcon) {
+        long startNs = SystemClock.elapsedRealtimeNanos();
+        // The info is only needed when the entry is not in the memory cache or the database
+        boolean[] providerCalled = new boolean[1];
+        Supplier<T> provider = () -> {
+            providerCalled[0] = true;
+            return infoProvider.get();
+        };
+        CacheEntry entry = cursor == null
+                ? cacheLocked(componentName, user, provider, cachingLogic,
+                        usePackageIcon, useLowResIcon)
+                : cacheLocked(componentName, user, provider, cachingLogic, cursor,
+                        usePackageIcon, useLowResIcon);
+        recordLookup(entry, providerCalled[0], cachingLogic.addToMemCache(), startNs);
+        return entry;
+    }
+
+    /**
+     * Records a lookup in the stats. Entries which were already returned are served from the
+     * memory cache, otherwise they are read from the database or loaded from the package manager.
+     */
+    private void recordLookup(@NonNull CacheEntry entry, boolean loadedFromPackageManager,
+            boolean inMemCache, long startNs) {
+        int tier;
+        synchronized (mLookedUpEntries) {
+            if (loadedFromPackageManager) {
+                tier = TIER_PACKAGE_MANAGER;
+            } else if (mLookedUpEntries.containsKey(entry)) {
+                tier = TIER_MEMORY;
+            } else {
+                tier = TIER_DB;
+            }
+            if (inMemCache) {
+                mLookedUpEntries.put(entry, Boolean.TRUE);
+            }
+        }
+        mStats.record(tier, SystemClock.elapsedRealtimeNanos() - startNs,
+                entry.bitmap == null || entry.bitmap.isLowRes());
+    }
+
+    /**
+     * Returns the size of the icons of the entries in the memory cache.
+     */
+    private long getBytesHeld() {
+        Set<Bitmap> icons = Collections.newSetFromMap(new IdentityHashMap<>());
+        synchronized (mLookedUpEntries) {
+            for (CacheEntry entry : mLookedUpEntries.keySet()) {
+                if (entry.bitmap != null && entry.bitmap.icon != null) {
+                    icons.add(entry.bitmap.icon);
+                }
+            }
+        }
+        long bytes = 0;
+        for (Bitmap icon : icons) {
+            bytes += icon.getAllocationByteCount();
+        }
+        return bytes;
+    }
+
+    @VisibleForTesting
+    public IconCacheStats getStats() {
+        return mStats;
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        mStats.dump(prefix, writer);
+    }
+
     protected void applyCacheEntry(@NonNull final CacheEntry entry,
             @NonNull final ItemInfoWithIcon info) {
         info.title = Utilities.trim(entry.title);
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.icons;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts the icon lookups of an icon cache by the tier which served them, like the memory cache,
+ * the icon database or the package manager, with a histogram of their latency.
+ */
+public class IconCacheStats {
+
+    // Upper bounds of the histogram buckets, the last bucket has no upper bound
+    private static final long[] BUCKET_LIMITS_US = {10, 50, 100, 500, 1_000, 5_000, 10_000, 50_000};
+
+    private final String mName;
+    private final String[] mTierNames;
+
+    // Guarded by this
+    private final long[] mCounts;
+    private final long[] mTotalNs;
+    private final long[][] mHistograms;
+    private long mLowResCount;
+    private long mHighResCount;
+    private long mRequestCount;
+    private long mRequestTotalNs;
+
+    @Nullable
+    private LongSupplier mBytesHeld;
+
+    public IconCacheStats(String name, String... tierNames) {
+        mName = name;
+        mTierNames = tierNames;
+        mCounts = new long[tierNames.length];
+        mTotalNs = new long[tierNames.length];
+        mHistograms = new long[tierNames.length][BUCKET_LIMITS_US.length + 1];
+    }
+
+    /**
+     * Sets the supplier of the bytes held by the cache, printed in the dump.
+     */
+    public void setBytesHeldSupplier(@Nullable LongSupplier bytesHeld) {
+        mBytesHeld = bytesHeld;
+    }
+
+    /**
+     * Records a lookup served by {@code tier}.
+     */
+    @AnyThread
+    public synchronized void record(int tier, long durationNs, boolean lowRes) {
+        mCounts[tier]++;
+        mTotalNs[tier] += durationNs;
+        mHistograms[tier][getBucket(durationNs)]++;
+        if (lowRes) {
+            mLowResCount++;
+        } else {
+            mHighResCount++;
+        }
+    }
+
+    /**
+     * Records an asynchronous request, from the time it was made to the time it was served.
+     */
+    @AnyThread
+    public synchronized void recordRequest(long durationNs) {
+        mRequestCount++;
+        mRequestTotalNs += durationNs;
+    }
+
+    private static int getBucket(long durationNs) {
+        long durationUs = durationNs / 1000;
+        int bucket = 0;
+        while (bucket < BUCKET_LIMITS_US.length && durationUs >= BUCKET_LIMITS_US[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    @VisibleForTesting
+    public synchronized long getCount(int tier) {
+        return mCounts[tier];
+    }
+
+    @VisibleForTesting
+    public synchronized long getLowResCount() {
+        return mLowResCount;
+    }
+
+    @VisibleForTesting
+    public synchronized long getHighResCount() {
+        return mHighResCount;
+    }
+
+    @VisibleForTesting
+    public synchronized long[] getHistogram(int tier) {
+        return mHistograms[tier].clone();
+    }
+
+    @VisibleForTesting
+    public synchronized void reset() {
+        Arrays.fill(mCounts, 0);
+        Arrays.fill(mTotalNs, 0);
+        for (long[] histogram : mHistograms) {
+            Arrays.fill(histogram, 0);
+        }
+        mLowResCount = 0;
+        mHighResCount = 0;
+        mRequestCount = 0;
+        mRequestTotalNs = 0;
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        LongSupplier bytesHeld = mBytesHeld;
+        // Read outside of the lock, the supplier may lock the cache
+        long bytes = bytesHeld == null ? -1 : bytesHeld.getAsLong();
+        synchronized (this) {
+            long total = 0;
+            for (long count : mCounts) {
+                total += count;
+            }
+            writer.println(prefix + mName + " stats: lookups=" + total
+                    + " lowRes=" + mLowResCount + " highRes=" + mHighResCount
+                    + (bytes >= 0 ? " bytesHeld=" + bytes : ""));
+            for (int tier = 0; tier < mTierNames.length; tier++) {
+                writer.println(prefix + "  " + mTierNames[tier]
+                        + ": count=" + mCounts[tier]
+                        + String.format(Locale.US, " (%.1f%%)",
+                                total == 0 ? 0f : 100f * mCounts[tier] / total)
+                        + " avg=" + formatMs(mCounts[tier] == 0
+                                ? 0 : mTotalNs[tier] / mCounts[tier])
+                        + " histogram=" + formatHistogram(mHistograms[tier]));
+            }
+            if (mRequestCount > 0) {
+                writer.println(prefix + "  async requests: count=" + mRequestCount
+                        + " avg=" + formatMs(mRequestTotalNs / mRequestCount));
+            }
+        }
+    }
+
+    private static String formatMs(long ns) {
+        return String.format(Locale.US, "%.3fms", ns / 1_000_000f);
+    }
+
+    private static String formatHistogram(long[] histogram) {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] == 0) {
+                continue;
+            }
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(i < BUCKET_LIMITS_US.length
+                            ? "<" + BUCKET_LIMITS_US[i] + "us"
+                            : ">=" + BUCKET_LIMITS_US[i - 1] + "us")
+                    .append(": ").append(histogram[i]);
+        }
+        return sb.append("}").toString();
+    }
+}
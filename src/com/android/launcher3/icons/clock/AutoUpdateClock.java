@@ -4,17 +4,24 @@ import android.graphics.Canvas;
 import android.graphics.Rect;
 import android.os.SystemClock;
 
+import androidx.annotation.Nullable;
+
 import com.android.launcher3.icons.FastBitmapDrawable;
 import com.android.launcher3.model.data.ItemInfoWithIcon;
 
 import java.util.TimeZone;
 
-class AutoUpdateClock extends FastBitmapDrawable implements Runnable {
+class AutoUpdateClock extends FastBitmapDrawable implements Runnable, ClockTicker.TickListener {
     private ClockLayers mLayers;
+    // Shared ticker updating the clock while visible, or null to schedule its own updates
+    @Nullable
+    private final ClockTicker mTicker;
+    private boolean mIsTicking;
 
-    AutoUpdateClock(ItemInfoWithIcon info, ClockLayers layers) {
+    AutoUpdateClock(ItemInfoWithIcon info, ClockLayers layers, @Nullable ClockTicker ticker) {
         super(info.bitmap);
         mLayers = layers;
+        mTicker = ticker;
     }
 
     private void rescheduleUpdate() {
@@ -29,6 +36,15 @@ class AutoUpdateClock extends FastBitmapDrawable implements Runnable {
         mLayers = layers;
         if (mLayers != null) {
             mLayers.mDrawable.setBounds(getBounds());
+            if (mTicker != null) {
+                mLayers.updateAngles();
+            }
+        }
+        if (mTicker != null) {
+            if (mIsTicking) {
+                mTicker.onListenerChanged();
+            }
+            updateTicking();
         }
         invalidateSelf();
     }
@@ -36,23 +52,60 @@ class AutoUpdateClock extends FastBitmapDrawable implements Runnable {
     void setTimeZone(TimeZone timeZone) {
         if (mLayers != null) {
             mLayers.setTimeZone(timeZone);
+            if (mTicker != null) {
+                mLayers.updateAngles();
+            }
             invalidateSelf();
         }
     }
 
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        boolean changed = super.setVisible(visible, restart);
+        if (mTicker != null) {
+            updateTicking();
+        }
+        return changed;
+    }
+
+    /**
+     * Registers the clock with the ticker while it is attached and visible.
+     */
+    private void updateTicking() {
+        boolean shouldTick = mLayers != null && isVisible() && getCallback() != null;
+        if (shouldTick == mIsTicking) {
+            return;
+        }
+        mIsTicking = shouldTick;
+        if (shouldTick) {
+            // The hands did not move while not ticking
+            mLayers.updateAngles();
+            mTicker.addListener(this);
+        } else {
+            mTicker.removeListener(this);
+        }
+    }
+
     @Override
     public void drawInternal(Canvas canvas, Rect rect) {
         if (mLayers == null) {
             super.drawInternal(canvas, rect);
         } else {
+            if (mTicker != null) {
+                // Views not dispatching their visibility start the ticker on the first draw
+                updateTicking();
+            } else {
+                mLayers.updateAngles();
+            }
             canvas.drawBitmap(mLayers.bitmap, null, rect, mPaint);
-            mLayers.updateAngles();
             canvas.scale(mLayers.scale, mLayers.scale,
                     rect.exactCenterX() + mLayers.offset,
                     rect.exactCenterY() + mLayers.offset);
             canvas.clipPath(mLayers.mDrawable.getIconMask());
             mLayers.mDrawable.getForeground().draw(canvas);
-            rescheduleUpdate();
+            if (mTicker == null) {
+                rescheduleUpdate();
+            }
         }
     }
 
@@ -72,4 +125,19 @@ class AutoUpdateClock extends FastBitmapDrawable implements Runnable {
             rescheduleUpdate();
         }
     }
+
+    @Override
+    public void onTick() {
+        if (getCallback() == null) {
+            // Detached without a visibility change
+            updateTicking();
+        } else if (mLayers != null && mLayers.updateAngles()) {
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public boolean showsSeconds() {
+        return mLayers != null && mLayers.showsSeconds();
+    }
 }
@@ -76,6 +76,13 @@ class ClockLayers {
         return hasChanged;
     }
 
+    /**
+     * Returns whether the clock has a seconds hand, which needs to be updated every second.
+     */
+    boolean showsSeconds() {
+        return mSecondIndex != -1;
+    }
+
     void setTimeZone(TimeZone timeZone) {
         mCurrentTime.setTimeZone(timeZone);
     }
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.icons.clock;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.ArraySet;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.Flags;
+import com.android.launcher3.util.MainThreadInitializedObject;
+import com.android.launcher3.util.SafeCloseable;
+import com.android.launcher3.util.ScreenOnTracker;
+import com.android.launcher3.util.ScreenOnTracker.ScreenOnListener;
+
+import java.util.ArrayList;
+
+/**
+ * Single ticker updating all the visible clock icons of the process.
+ *
+ * Ticks are aligned to the wall clock seconds, or to the minutes when none of the registered
+ * clocks shows a seconds hand, so that all the clocks update in the same frame. The ticker stops
+ * when no clock is registered or the screen is off.
+ */
+@UiThread
+public class ClockTicker implements SafeCloseable, ScreenOnListener {
+
+    public static final MainThreadInitializedObject<ClockTicker> INSTANCE =
+            new MainThreadInitializedObject<>(ClockTicker::new);
+
+    @VisibleForTesting
+    static final long SECOND_MILLIS = 1000L;
+    @VisibleForTesting
+    static final long MINUTE_MILLIS = 60 * SECOND_MILLIS;
+
+    private final Handler mHandler;
+    private final Runnable mTickRunnable = this::onTick;
+    private final ArraySet<TickListener> mListeners = new ArraySet<>();
+    private final ArrayList<TickListener> mDispatchList = new ArrayList<>();
+    @Nullable
+    private final ScreenOnTracker mScreenOnTracker;
+
+    private boolean mIsScreenOn;
+    // Interval of the scheduled tick, or 0 if no tick is scheduled
+    private long mTickInterval;
+
+    private ClockTicker(Context context) {
+        mHandler = new Handler(Looper.getMainLooper());
+        mScreenOnTracker = ScreenOnTracker.INSTANCE.get(context);
+        mIsScreenOn = mScreenOnTracker.isScreenOn();
+        mScreenOnTracker.addListener(this);
+    }
+
+    @VisibleForTesting
+    ClockTicker(Looper looper) {
+        mHandler = new Handler(looper);
+        mScreenOnTracker = null;
+        mIsScreenOn = true;
+    }
+
+    /**
+     * Returns the shared ticker, or null if the clocks schedule their own updates.
+     */
+    @Nullable
+    static ClockTicker getIfEnabled(Context context) {
+        return Flags.enableSharedClockTicker() ? INSTANCE.get(context) : null;
+    }
+
+    /**
+     * Starts dispatching ticks to {@code listener}, until it is removed.
+     */
+    public void addListener(@NonNull TickListener listener) {
+        if (mListeners.add(listener)) {
+            updateSchedule();
+        }
+    }
+
+    /**
+     * Stops dispatching ticks to {@code listener}.
+     */
+    public void removeListener(@NonNull TickListener listener) {
+        if (mListeners.remove(listener)) {
+            updateSchedule();
+        }
+    }
+
+    /**
+     * Re-evaluates the tick interval, after a listener started or stopped showing seconds.
+     */
+    public void onListenerChanged() {
+        updateSchedule();
+    }
+
+    @Override
+    public void onScreenOnChanged(boolean isOn) {
+        // Screen changes are dispatched on a background thread
+        mHandler.post(() -> setScreenOn(isOn));
+    }
+
+    @VisibleForTesting
+    void setScreenOn(boolean isOn) {
+        if (mIsScreenOn == isOn) {
+            return;
+        }
+        mIsScreenOn = isOn;
+        if (isOn) {
+            // The clocks stopped while the screen was off
+            dispatchTick();
+        }
+        updateSchedule();
+    }
+
+    @Override
+    public void close() {
+        if (mScreenOnTracker != null) {
+            mScreenOnTracker.removeListener(this);
+        }
+        mListeners.clear();
+        updateSchedule();
+    }
+
+    /**
+     * Returns the interval of the scheduled tick, or 0 if the ticker is stopped.
+     */
+    @VisibleForTesting
+    long getTickInterval() {
+        return mTickInterval;
+    }
+
+    private void onTick() {
+        mTickInterval = 0;
+        dispatchTick();
+        updateSchedule();
+    }
+
+    private void dispatchTick() {
+        // Listeners may be removed while handling the tick
+        mDispatchList.addAll(mListeners);
+        for (int i = 0; i < mDispatchList.size(); i++) {
+            mDispatchList.get(i).onTick();
+        }
+        mDispatchList.clear();
+    }
+
+    private void updateSchedule() {
+        long interval = 0;
+        if (mIsScreenOn && !mListeners.isEmpty()) {
+            interval = MINUTE_MILLIS;
+            for (int i = 0; i < mListeners.size(); i++) {
+                if (mListeners.valueAt(i).showsSeconds()) {
+                    interval = SECOND_MILLIS;
+                    break;
+                }
+            }
+        }
+        if (interval == mTickInterval) {
+            return;
+        }
+        mHandler.removeCallbacks(mTickRunnable);
+        mTickInterval = interval;
+        if (interval != 0) {
+            mHandler.postDelayed(mTickRunnable,
+                    interval - System.currentTimeMillis() % interval);
+        }
+    }
+
+    /**
+     * Listener for the clock ticks.
+     */
+    public interface TickListener {
+
+        /**
+         * Called on every tick, at the start of every second or minute.
+         */
+        void onTick();
+
+        /**
+         * Returns whether the listener needs a tick every second instead of every minute.
+         */
+        boolean showsSeconds();
+    }
+}
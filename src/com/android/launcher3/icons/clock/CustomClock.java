@@ -85,15 +85,23 @@ public class CustomClock {
         }
         if (layers.mSecondIndex < 0 || layers.mSecondIndex >= numberOfLayers) {
             layers.mSecondIndex = -1;
+        } else if (!isShown(layerDrawable.getDrawable(layers.mSecondIndex))) {
+            // Hidden seconds hands do not need to be updated every second
+            layers.mSecondIndex = -1;
         }
 
         return layers;
     }
 
+    private static boolean isShown(Drawable drawable) {
+        return drawable != null && drawable.isVisible() && drawable.getAlpha() != 0;
+    }
+
     public FastBitmapDrawable drawIcon(ItemInfoWithIcon info, Drawable drawableForDensity,
                                        Metadata metadata) {
         final AutoUpdateClock updater = new AutoUpdateClock(info,
-                getClockLayers(mContext, drawableForDensity, metadata,true).clone()
+                getClockLayers(mContext, drawableForDensity, metadata,true).clone(),
+                ClockTicker.getIfEnabled(mContext)
         );
         mUpdaters.add(updater);
         return updater;
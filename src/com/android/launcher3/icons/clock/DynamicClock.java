@@ -149,7 +149,8 @@ public class DynamicClock extends BroadcastReceiver {
     }
 
     public AutoUpdateClock drawIcon(ItemInfoWithIcon info) {
-        final AutoUpdateClock updater = new AutoUpdateClock(info, mLayers.clone());
+        final AutoUpdateClock updater = new AutoUpdateClock(info, mLayers.clone(),
+                ClockTicker.getIfEnabled(mContext));
         mUpdaters.add(updater);
         return updater;
     }
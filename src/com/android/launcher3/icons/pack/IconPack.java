@@ -2,12 +2,14 @@ package com.android.launcher3.icons.pack;
 
 import android.content.ComponentName;
 import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.util.SparseArray;
 
 import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -20,12 +22,14 @@ import java.util.Map;
 class IconPack {
     private final ApplicationInfo mAi;
     private final CharSequence mPackageLabel;
+    private final File mIndexFile;
     private Data mData;
     private Resources mRes;
 
-    IconPack(ApplicationInfo ai, CharSequence label) {
+    IconPack(ApplicationInfo ai, CharSequence label, File indexFile) {
         mAi = ai;
         mPackageLabel = label;
+        mIndexFile = indexFile;
     }
 
     ApplicationInfo getAi() {
@@ -43,17 +47,20 @@ class IconPack {
     Data getData(PackageManager pm)
             throws PackageManager.NameNotFoundException, XmlPullParserException, IOException {
         if (mData == null) {
-            mData = IconPackParser.parsePackage(pm, getResources(pm), getPackage());
+            // The index is only valid for the exact build of the icon pack it was created from.
+            PackageInfo info = pm.getPackageInfo(getPackage(), 0);
+            long versionCode = info.getLongVersionCode();
+            mData = IconPackIndex.load(mIndexFile, versionCode, info.lastUpdateTime);
+            if (mData == null) {
+                mData = IconPackParser.parsePackage(pm, getResources(pm), getPackage());
+                IconPackIndex.write(mIndexFile, versionCode, info.lastUpdateTime, mData);
+            }
         }
         return mData;
     }
 
-    int getDrawableId(PackageManager pm, ComponentName name)
-            throws PackageManager.NameNotFoundException, IOException, XmlPullParserException {
-        Data data = getData(pm);
-        Resources res = getResources(pm);
-        String pkg = getPackage();
-        return res.getIdentifier(data.drawables.get(name), "drawable", pkg);
+    void deleteIndex() {
+        IconPackIndex.delete(mIndexFile);
     }
 
     private Resources getResources(PackageManager pm) throws PackageManager.NameNotFoundException {
@@ -64,7 +71,7 @@ class IconPack {
     }
 
     static class Data {
-        final Map<ComponentName, String> drawables = new HashMap<>();
+        IconPackIndex.DrawableLookup drawables = IconPackIndex.DrawableLookup.EMPTY;
         final Map<ComponentName, String> calendarPrefix = new HashMap<>();
         final SparseArray<Clock> clockMetadata = new SparseArray<>();
         final List<Integer> iconBacks = new ArrayList<>();
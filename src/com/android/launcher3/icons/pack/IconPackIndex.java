@@ -0,0 +1,292 @@
+package com.android.launcher3.icons.pack;
+
+import android.content.ComponentName;
+import android.content.res.Resources;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent binary index of the parsed appfilter data of an icon pack.
+ *
+ * The index is keyed by the version of the icon pack, so the appfilter XML only has to be
+ * parsed again after the icon pack was updated. Component to drawable mappings are stored
+ * with pre-resolved resource ids in a table sorted by component hash, which is memory-mapped
+ * and binary searched in place.
+ */
+final class IconPackIndex {
+    private static final String TAG = "IconPackIndex";
+
+    private static final String DIR_NAME = "icon_pack_index";
+    private static final int MAGIC = 0x49504958;
+    private static final int FORMAT_VERSION = 1;
+
+    // magic, format version, pack version code, pack update time, entry count
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+
+    private IconPackIndex() { }
+
+    static File getIndexFile(File cacheDir, String pkg) {
+        return new File(new File(cacheDir, DIR_NAME), pkg + ".idx");
+    }
+
+    /**
+     * Loads the index from disk.
+     * @return Parsed data, or null when the index is missing, corrupt or belongs to
+     * a different version of the icon pack.
+     */
+    static IconPack.Data load(File file, long versionCode, long lastUpdateTime) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE
+                    || buffer.getInt() != MAGIC
+                    || buffer.getInt() != FORMAT_VERSION
+                    || buffer.getLong() != versionCode
+                    || buffer.getLong() != lastUpdateTime) {
+                return null;
+            }
+
+            int count = buffer.getInt();
+            IconPack.Data data = new IconPack.Data();
+            data.drawables = new DrawableLookup(buffer, HEADER_SIZE, count);
+            buffer.position(HEADER_SIZE + count * DrawableLookup.ENTRY_SIZE);
+
+            data.scale = buffer.getFloat();
+            readIds(buffer, data.iconBacks);
+            readIds(buffer, data.iconMasks);
+            readIds(buffer, data.iconUpons);
+
+            int calendarCount = buffer.getInt();
+            for (int i = 0; i < calendarCount; i++) {
+                ComponentName cn = ComponentName.unflattenFromString(readString(buffer));
+                String prefix = readString(buffer);
+                if (cn != null) {
+                    data.calendarPrefix.put(cn, prefix);
+                }
+            }
+
+            int clockCount = buffer.getInt();
+            for (int i = 0; i < clockCount; i++) {
+                int drawableId = buffer.getInt();
+                data.clockMetadata.put(drawableId, new IconPack.Clock(buffer.getInt(),
+                        buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                        buffer.getInt()));
+            }
+            return data;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Unable to load icon pack index " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index to disk, replacing any index of an older version of the icon pack.
+     */
+    static void write(File file, long versionCode, long lastUpdateTime, IconPack.Data data) {
+        int size = HEADER_SIZE + data.drawables.size() * DrawableLookup.ENTRY_SIZE + 4
+                + 4 * (3 + data.iconBacks.size() + data.iconMasks.size() + data.iconUpons.size())
+                + 4 + 4 + data.clockMetadata.size() * 7 * 4;
+        byte[][] calendarStrings = new byte[data.calendarPrefix.size() * 2][];
+        int i = 0;
+        for (Map.Entry<ComponentName, String> entry : data.calendarPrefix.entrySet()) {
+            calendarStrings[i++] = entry.getKey().flattenToString()
+                    .getBytes(StandardCharsets.UTF_8);
+            calendarStrings[i++] = entry.getValue().getBytes(StandardCharsets.UTF_8);
+        }
+        for (byte[] string : calendarStrings) {
+            size += 4 + string.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(versionCode)
+                .putLong(lastUpdateTime)
+                .putInt(data.drawables.size());
+        data.drawables.copyEntriesTo(buffer);
+
+        buffer.putFloat(data.scale);
+        writeIds(buffer, data.iconBacks);
+        writeIds(buffer, data.iconMasks);
+        writeIds(buffer, data.iconUpons);
+
+        buffer.putInt(data.calendarPrefix.size());
+        for (byte[] string : calendarStrings) {
+            buffer.putInt(string.length).put(string);
+        }
+
+        buffer.putInt(data.clockMetadata.size());
+        for (int j = 0; j < data.clockMetadata.size(); j++) {
+            IconPack.Clock clock = data.clockMetadata.valueAt(j);
+            buffer.putInt(data.clockMetadata.keyAt(j))
+                    .putInt(clock.hourLayerIndex)
+                    .putInt(clock.minuteLayerIndex)
+                    .putInt(clock.secondLayerIndex)
+                    .putInt(clock.defaultHour)
+                    .putInt(clock.defaultMinute)
+                    .putInt(clock.defaultSecond);
+        }
+
+        File dir = file.getParentFile();
+        File tmp = new File(dir, file.getName() + ".tmp");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Unable to create icon pack index directory " + dir);
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(buffer.array());
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write icon pack index " + file, e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.w(TAG, "Unable to commit icon pack index " + file);
+            tmp.delete();
+        }
+    }
+
+    static void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Unable to delete icon pack index " + file);
+        }
+    }
+
+    private static void readIds(ByteBuffer buffer, List<Integer> out) {
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            out.add(buffer.getInt());
+        }
+    }
+
+    private static void writeIds(ByteBuffer buffer, List<Integer> ids) {
+        buffer.putInt(ids.size());
+        for (int id : ids) {
+            buffer.putInt(id);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the flattened component name, computed without allocating.
+     */
+    static long hash(ComponentName cn) {
+        long hash = 0xcbf29ce484222325L;
+        hash = hash(hash, cn.getPackageName());
+        hash = (hash ^ '/') * 0x100000001b3L;
+        return hash(hash, cn.getClassName());
+    }
+
+    private static long hash(long hash, String s) {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            hash = (hash ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Table of component hashes to drawable resource ids, sorted by hash.
+     * Lookups do not allocate and only use absolute reads, so they are safe to run
+     * concurrently on a shared (memory-mapped) buffer.
+     */
+    static final class DrawableLookup {
+        static final DrawableLookup EMPTY = new DrawableLookup(ByteBuffer.allocate(0), 0, 0);
+
+        // hash, resource id
+        static final int ENTRY_SIZE = 8 + 4;
+
+        private final ByteBuffer mBuffer;
+        private final int mOffset;
+        private final int mCount;
+
+        private DrawableLookup(ByteBuffer buffer, int offset, int count) {
+            mBuffer = buffer;
+            mOffset = offset;
+            mCount = count;
+        }
+
+        /**
+         * Resolves the drawable names of the icon pack and builds an in-memory table.
+         * Entries for which the drawable does not exist are dropped.
+         */
+        static DrawableLookup fromNames(Resources res, String pkg,
+                Map<ComponentName, String> drawables) {
+            Map<Long, Integer> ids = new HashMap<>(drawables.size());
+            for (Map.Entry<ComponentName, String> entry : drawables.entrySet()) {
+                int id = res.getIdentifier(entry.getValue(), "drawable", pkg);
+                if (id != 0) {
+                    ids.put(hash(entry.getKey()), id);
+                }
+            }
+
+            long[] hashes = new long[ids.size()];
+            int i = 0;
+            for (long hash : ids.keySet()) {
+                hashes[i++] = hash;
+            }
+            Arrays.sort(hashes);
+
+            ByteBuffer buffer = ByteBuffer.allocate(hashes.length * ENTRY_SIZE);
+            for (long hash : hashes) {
+                buffer.putLong(hash).putInt(ids.get(hash));
+            }
+            return new DrawableLookup(buffer, 0, hashes.length);
+        }
+
+        /**
+         * @return Drawable resource id for the component, or 0 when the pack has no icon for it.
+         */
+        int get(ComponentName cn) {
+            long hash = hash(cn);
+            int low = 0;
+            int high = mCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midHash = mBuffer.getLong(mOffset + mid * ENTRY_SIZE);
+                if (midHash < hash) {
+                    low = mid + 1;
+                } else if (midHash > hash) {
+                    high = mid - 1;
+                } else {
+                    return mBuffer.getInt(mOffset + mid * ENTRY_SIZE + 8);
+                }
+            }
+            return 0;
+        }
+
+        boolean contains(ComponentName cn) {
+            return get(cn) != 0;
+        }
+
+        int size() {
+            return mCount;
+        }
+
+        private void copyEntriesTo(ByteBuffer out) {
+            ByteBuffer entries = mBuffer.duplicate();
+            entries.limit(mOffset + mCount * ENTRY_SIZE);
+            entries.position(mOffset);
+            out.put(entries);
+        }
+    }
+}
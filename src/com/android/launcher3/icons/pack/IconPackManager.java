@@ -89,7 +89,11 @@ public class IconPackManager extends BroadcastReceiver {
                 Set<ComponentKey> updateKeys = appReloader.withIconPack(pkg);
 
                 // Remove the changed package from the providers to reload the application info.
-                mProviders.remove(pkg);
+                IconPack removed = mProviders.remove(pkg);
+                if (removed != null
+                        && Intent.ACTION_PACKAGE_FULLY_REMOVED.equals(intent.getAction())) {
+                    removed.deleteIndex();
+                }
 
                 // This can reset the global preference, so do this after creating the list.
                 reloadProviders();
@@ -128,7 +132,8 @@ public class IconPackManager extends BroadcastReceiver {
             if (!mProviders.containsKey(packageName)) {
                 ApplicationInfo ai = ri.activityInfo.applicationInfo;
                 CharSequence label = ai.loadLabel(pm);
-                mProviders.put(packageName, new IconPack(ai, label));
+                mProviders.put(packageName, new IconPack(ai, label,
+                        IconPackIndex.getIndexFile(mContext.getCacheDir(), packageName)));
             }
         }
 
@@ -154,7 +159,7 @@ public class IconPackManager extends BroadcastReceiver {
         try {
             IconPack pack = mProviders.get(packPackage);
             IconPack.Data data = pack.getData(mContext.getPackageManager());
-            return data.drawables.containsKey(componentName);
+            return data.drawables.contains(componentName);
         } catch (PackageManager.NameNotFoundException | XmlPullParserException | IOException ignored) {
             return false;
         }
@@ -174,14 +179,12 @@ public class IconPackManager extends BroadcastReceiver {
             try {
                 IconPack pack = mProviders.get(packPackage);
                 IconPack.Data data = pack.getData(mContext.getPackageManager());
-                if (data.drawables.containsKey(key.componentName)) {
-                    int drawableId = pack.getDrawableId(mContext.getPackageManager(), key.componentName);
-                    if (drawableId != 0) {
-                        return new IconResolverExternal(mContext.getPackageManager(), pack.getAi(),
-                                drawableId,
-                                data.calendarPrefix.get(key.componentName),
-                                data.clockMetadata.get(drawableId));
-                    }
+                int drawableId = data.drawables.get(key.componentName);
+                if (drawableId != 0) {
+                    return new IconResolverExternal(mContext.getPackageManager(), pack.getAi(),
+                            drawableId,
+                            data.calendarPrefix.get(key.componentName),
+                            data.clockMetadata.get(drawableId));
                 }
                 if (data.hasMasking()) {
                     return new IconResolverMasked(mContext, data, pack.getAi(), key.hashCode());
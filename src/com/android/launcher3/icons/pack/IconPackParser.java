@@ -10,7 +10,9 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 class IconPackParser {
     private static final String TAG = "IconPackParser";
@@ -18,6 +20,7 @@ class IconPackParser {
     static IconPack.Data parsePackage(PackageManager pm, Resources res, String pkg)
             throws IOException, XmlPullParserException {
         IconPack.Data iconPack = new IconPack.Data();
+        Map<ComponentName, String> drawables = new HashMap<>();
 
         int resId = res.getIdentifier("appfilter", "xml", pkg);
         if (resId != 0) {
@@ -26,7 +29,7 @@ class IconPackParser {
                 if (parseXml.getEventType() == XmlPullParser.START_TAG) {
                     switch (parseXml.getName()) {
                         case "item":
-                            addItem(parseXml, iconPack);
+                            addItem(parseXml, drawables);
                             break;
                         case "calendar":
                             addCalendar(parseXml, iconPack);
@@ -51,17 +54,18 @@ class IconPackParser {
             }
         }
 
+        iconPack.drawables = IconPackIndex.DrawableLookup.fromNames(res, pkg, drawables);
         return iconPack;
     }
 
     private static void addItem(XmlResourceParser parseXml,
-                                IconPack.Data iconPack) {
+                                Map<ComponentName, String> drawables) {
         String component = parseXml.getAttributeValue(null, "component");
         String drawable = parseXml.getAttributeValue(null, "drawable");
         if (component != null && drawable != null) {
             ComponentName componentName = parseComponent(component);
             if (componentName != null) {
-                iconPack.drawables.put(componentName, drawable);
+                drawables.put(componentName, drawable);
             }
         }
     }
@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.DateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.IllegalFormatException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Log storage for {@link FileLog} backed by a memory-mapped ring of fixed-size records.
+ *
+ * Writing a log is a few stores into the mapped file, without allocations or I/O on the calling
+ * thread, the kernel persisting the pages. Tags and message templates are interned in a string
+ * table stored in the same file, so that records only hold their ids and up to
+ * {@link #MAX_ARGS} numeric arguments. Messages which are not templates are stored as text,
+ * spilling over up to {@link #MAX_TEXT_RECORDS} consecutive records, and longer messages are left
+ * to the text log. The oldest records are overwritten once the ring is full.
+ *
+ * File layout: a header, the string table, then {@link #RECORD_COUNT} records.
+ */
+class BinaryFileLog {
+
+    private static final int MAGIC = 0x4C424C47;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_RECORD_COUNT = 8;
+    private static final int HEADER_STRINGS_END = 12;
+
+    private static final int STRINGS_SIZE = 32 << 10;
+    private static final int STRINGS_START = HEADER_SIZE;
+
+    @VisibleForTesting
+    static final int RECORD_COUNT = 2048;
+    private static final int RECORD_SIZE = 256;
+    private static final int RECORDS_START = STRINGS_START + STRINGS_SIZE;
+
+    private static final int RECORD_SEQ = 0;
+    private static final int RECORD_TIME = 8;
+    private static final int RECORD_TAG = 16;
+    private static final int RECORD_TEMPLATE = 20;
+    private static final int RECORD_LEVEL = 24;
+    private static final int RECORD_ARG_COUNT = 25;
+    private static final int RECORD_TEXT_LENGTH = 26;
+    private static final int RECORD_PAYLOAD = 28;
+
+    static final int MAX_ARGS = 4;
+    @VisibleForTesting
+    static final int MAX_TEXT_LENGTH = (RECORD_SIZE - RECORD_PAYLOAD) / 2;
+    private static final int MAX_TEXT_RECORDS = 8;
+    @VisibleForTesting
+    static final int MAX_SPILLED_TEXT_LENGTH = MAX_TEXT_LENGTH * MAX_TEXT_RECORDS;
+
+    private static final int NO_ID = -1;
+    // Template id of the records holding the rest of the text of the previous record
+    private static final int CONTINUATION_ID = -2;
+    private static final String LEVELS = "VDIWEA";
+
+    private static final int FILE_SIZE = RECORDS_START + RECORD_COUNT * RECORD_SIZE;
+
+    private final MappedByteBuffer mBuffer;
+    private final ConcurrentHashMap<String, Integer> mStringIds = new ConcurrentHashMap<>();
+    private final AtomicLong mNextSeq;
+
+    // Guarded by mStringIds
+    private int mStringsEnd;
+
+    private BinaryFileLog(MappedByteBuffer buffer) {
+        mBuffer = buffer;
+        boolean valid = buffer.getInt(HEADER_MAGIC) == MAGIC
+                && buffer.getInt(HEADER_VERSION) == FORMAT_VERSION
+                && buffer.getInt(HEADER_RECORD_COUNT) == RECORD_COUNT;
+        if (!valid) {
+            for (int i = 0; i < RECORD_COUNT; i++) {
+                buffer.putLong(RECORDS_START + i * RECORD_SIZE + RECORD_SEQ, 0);
+            }
+            buffer.putInt(HEADER_STRINGS_END, 0);
+            buffer.putInt(HEADER_MAGIC, MAGIC);
+            buffer.putInt(HEADER_VERSION, FORMAT_VERSION);
+            buffer.putInt(HEADER_RECORD_COUNT, RECORD_COUNT);
+        }
+
+        // Reload the string table so that the ids of the persisted records stay valid
+        int end = Math.min(buffer.getInt(HEADER_STRINGS_END), STRINGS_SIZE);
+        int offset = 0;
+        while (offset + 2 <= end) {
+            int length = buffer.getShort(STRINGS_START + offset);
+            if (length < 0 || offset + 2 + length * 2 > end) {
+                break;
+            }
+            mStringIds.putIfAbsent(readChars(STRINGS_START + offset + 2, length), offset);
+            offset += 2 + length * 2;
+        }
+        mStringsEnd = offset;
+
+        long maxSeq = 0;
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            maxSeq = Math.max(maxSeq, buffer.getLong(RECORDS_START + i * RECORD_SIZE));
+        }
+        mNextSeq = new AtomicLong(maxSeq + 1);
+    }
+
+    /**
+     * Opens or creates the log at {@code file}.
+     */
+    @WorkerThread
+    static BinaryFileLog open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return new BinaryFileLog(channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE));
+        }
+    }
+
+    /**
+     * Records {@code text}, over several records if it is longer than {@link #MAX_TEXT_LENGTH}.
+     *
+     * @return false if the text is longer than {@link #MAX_SPILLED_TEXT_LENGTH}, in which case
+     *         nothing is recorded
+     */
+    boolean writeText(int level, String tag, String text) {
+        int recordCount = Math.max(1, (text.length() + MAX_TEXT_LENGTH - 1) / MAX_TEXT_LENGTH);
+        if (recordCount > MAX_TEXT_RECORDS) {
+            return false;
+        }
+        // Reserve consecutive sequence numbers, so that the continuations follow the first record
+        long firstSeq = mNextSeq.getAndAdd(recordCount);
+        for (int r = 0; r < recordCount; r++) {
+            long seq = firstSeq + r;
+            int start = r * MAX_TEXT_LENGTH;
+            int length = Math.min(text.length() - start, MAX_TEXT_LENGTH);
+            startRecord(seq, level, tag, r == 0 ? NO_ID : CONTINUATION_ID);
+            int record = getRecordOffset(seq);
+            mBuffer.put(record + RECORD_ARG_COUNT, (byte) 0);
+            mBuffer.putShort(record + RECORD_TEXT_LENGTH, (short) length);
+            for (int i = 0; i < length; i++) {
+                mBuffer.putChar(record + RECORD_PAYLOAD + i * 2, text.charAt(start + i));
+            }
+            finishRecord(seq);
+        }
+        return true;
+    }
+
+    /**
+     * Records a message formatted by {@link String#format} from {@code template} and the first
+     * {@code argCount} arguments, which is only formatted when the log is read.
+     *
+     * @return false if the message could not be recorded, see {@link #writeText}
+     */
+    boolean writeTemplate(int level, String tag, String template, int argCount,
+            long arg0, long arg1, long arg2, long arg3) {
+        int templateId = intern(template);
+        if (templateId == NO_ID) {
+            // The string table is full
+            return writeText(level, tag, format(template, argCount, arg0, arg1, arg2, arg3));
+        }
+        long seq = mNextSeq.getAndIncrement();
+        startRecord(seq, level, tag, templateId);
+        int record = getRecordOffset(seq);
+        mBuffer.put(record + RECORD_ARG_COUNT, (byte) argCount);
+        mBuffer.putShort(record + RECORD_TEXT_LENGTH, (short) 0);
+        mBuffer.putLong(record + RECORD_PAYLOAD, arg0);
+        mBuffer.putLong(record + RECORD_PAYLOAD + 8, arg1);
+        mBuffer.putLong(record + RECORD_PAYLOAD + 16, arg2);
+        mBuffer.putLong(record + RECORD_PAYLOAD + 24, arg3);
+        finishRecord(seq);
+        return true;
+    }
+
+    /**
+     * Writes the recorded logs, from the oldest to the newest, to {@code out}. Records which are
+     * being written concurrently may be skipped.
+     */
+    @WorkerThread
+    void dump(PrintWriter out) {
+        long[] order = new long[RECORD_COUNT];
+        int count = 0;
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            long seq = mBuffer.getLong(RECORDS_START + i * RECORD_SIZE + RECORD_SEQ);
+            if (seq > 0) {
+                // Sequence numbers are far below 2^48, leaving room for the index
+                order[count++] = (seq << 16) | i;
+            }
+        }
+        Arrays.sort(order, 0, count);
+
+        DateFormat dateFormat =
+                DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT);
+        StringBuilder line = new StringBuilder();
+        // Sequence number of the last record of the line, or 0 if the line is not printed
+        long lineSeq = 0;
+        for (int i = 0; i < count; i++) {
+            int record = RECORDS_START + (int) (order[i] & 0xFFFF) * RECORD_SIZE;
+            long seq = order[i] >>> 16;
+            int templateId = mBuffer.getInt(record + RECORD_TEMPLATE);
+            if (templateId == CONTINUATION_ID) {
+                // Continuations whose previous record was overwritten are skipped
+                if (lineSeq != 0 && seq == lineSeq + 1) {
+                    appendText(line, record);
+                    lineSeq = mBuffer.getLong(record + RECORD_SEQ) == seq ? seq : 0;
+                }
+                continue;
+            }
+            if (lineSeq != 0) {
+                out.println(line);
+            }
+            line.setLength(0);
+            line.append(dateFormat.format(new Date(mBuffer.getLong(record + RECORD_TIME))))
+                    .append(' ')
+                    .append(getLevelChar(mBuffer.get(record + RECORD_LEVEL)))
+                    .append(' ')
+                    .append(getString(mBuffer.getInt(record + RECORD_TAG)))
+                    .append(' ');
+
+            if (templateId == NO_ID) {
+                appendText(line, record);
+            } else {
+                line.append(format(getString(templateId),
+                        Math.min(mBuffer.get(record + RECORD_ARG_COUNT), MAX_ARGS),
+                        mBuffer.getLong(record + RECORD_PAYLOAD),
+                        mBuffer.getLong(record + RECORD_PAYLOAD + 8),
+                        mBuffer.getLong(record + RECORD_PAYLOAD + 16),
+                        mBuffer.getLong(record + RECORD_PAYLOAD + 24)));
+            }
+            // Skip the records which were overwritten while being read
+            lineSeq = mBuffer.getLong(record + RECORD_SEQ) == seq ? seq : 0;
+        }
+        if (lineSeq != 0) {
+            out.println(line);
+        }
+    }
+
+    private void appendText(StringBuilder line, int record) {
+        int length = Math.min(mBuffer.getShort(record + RECORD_TEXT_LENGTH), MAX_TEXT_LENGTH);
+        line.append(readChars(record + RECORD_PAYLOAD, Math.max(length, 0)));
+    }
+
+    private void startRecord(long seq, int level, String tag, int templateId) {
+        int record = getRecordOffset(seq);
+        // Mark the record as incomplete until all the fields are written
+        mBuffer.putLong(record + RECORD_SEQ, 0);
+        mBuffer.putLong(record + RECORD_TIME, System.currentTimeMillis());
+        mBuffer.putInt(record + RECORD_TAG, intern(tag));
+        mBuffer.putInt(record + RECORD_TEMPLATE, templateId);
+        mBuffer.put(record + RECORD_LEVEL, (byte) level);
+    }
+
+    private void finishRecord(long seq) {
+        mBuffer.putLong(getRecordOffset(seq) + RECORD_SEQ, seq);
+    }
+
+    private static int getRecordOffset(long seq) {
+        return RECORDS_START + (int) (seq % RECORD_COUNT) * RECORD_SIZE;
+    }
+
+    private int intern(String value) {
+        Integer id = mStringIds.get(value);
+        if (id != null) {
+            return id;
+        }
+        synchronized (mStringIds) {
+            id = mStringIds.get(value);
+            if (id != null) {
+                return id;
+            }
+            int length = Math.min(value.length(), Short.MAX_VALUE);
+            int size = 2 + length * 2;
+            if (mStringsEnd + size > STRINGS_SIZE) {
+                return NO_ID;
+            }
+            int offset = mStringsEnd;
+            mBuffer.putShort(STRINGS_START + offset, (short) length);
+            for (int i = 0; i < length; i++) {
+                mBuffer.putChar(STRINGS_START + offset + 2 + i * 2, value.charAt(i));
+            }
+            mStringsEnd += size;
+            mBuffer.putInt(HEADER_STRINGS_END, mStringsEnd);
+            mStringIds.put(value, offset);
+            return offset;
+        }
+    }
+
+    private String getString(int id) {
+        if (id < 0 || id + 2 > STRINGS_SIZE) {
+            return "?";
+        }
+        int length = mBuffer.getShort(STRINGS_START + id);
+        if (length < 0 || id + 2 + length * 2 > STRINGS_SIZE) {
+            return "?";
+        }
+        return readChars(STRINGS_START + id + 2, length);
+    }
+
+    private String readChars(int offset, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = mBuffer.getChar(offset + i * 2);
+        }
+        return new String(chars);
+    }
+
+    private static char getLevelChar(int level) {
+        int index = level - Log.VERBOSE;
+        return index >= 0 && index < LEVELS.length() ? LEVELS.charAt(index) : '?';
+    }
+
+    static String format(String template, int argCount,
+            long arg0, long arg1, long arg2, long arg3) {
+        Object[] args = Arrays.copyOf(new Object[] {arg0, arg1, arg2, arg3}, argCount);
+        try {
+            return String.format(template, args);
+        } catch (IllegalFormatException e) {
+            return template + " " + Arrays.toString(args);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.android.launcher3.logging;
 
+import static com.android.launcher3.Flags.enableBinaryFileLog;
 import static com.android.launcher3.util.Executors.createAndStartNewLooper;
 
 import android.os.Handler;
@@ -16,6 +17,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.text.DateFormat;
 import java.util.Calendar;
@@ -34,6 +36,7 @@ public final class FileLog {
 
     protected static final boolean ENABLED = true;
     private static final String FILE_NAME_PREFIX = "log-";
+    private static final String BINARY_FILE_NAME = "log-ring";
     private static final DateFormat DATE_FORMAT =
             DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT);
 
@@ -41,6 +44,7 @@ public final class FileLog {
 
     private static Handler sHandler = null;
     private static File sLogsDirectory = null;
+    private static volatile BinaryFileLog sBinaryLog = null;
 
     public static final int LOG_DAYS = 4;
 
@@ -51,50 +55,54 @@ public final class FileLog {
                 if (sHandler != null && !logsDir.equals(sLogsDirectory)) {
                     ((HandlerThread) sHandler.getLooper().getThread()).quit();
                     sHandler = null;
+                    sBinaryLog = null;
                 }
             }
         }
         sLogsDirectory = logsDir;
+        if (ENABLED && enableBinaryFileLog() && sBinaryLog == null) {
+            getHandler().sendEmptyMessage(LogWriterCallback.MSG_OPEN_BINARY);
+        }
     }
 
     public static void d(String tag, String msg, Exception e) {
         Log.d(tag, msg, e);
-        print(tag, msg, e);
+        print(Log.DEBUG, tag, msg, e);
     }
 
     public static void d(String tag, String msg) {
         Log.d(tag, msg);
-        print(tag, msg);
+        print(Log.DEBUG, tag, msg, null);
     }
 
     public static void i(String tag, String msg, Exception e) {
         Log.i(tag, msg, e);
-        print(tag, msg, e);
+        print(Log.INFO, tag, msg, e);
     }
 
     public static void i(String tag, String msg) {
         Log.i(tag, msg);
-        print(tag, msg);
+        print(Log.INFO, tag, msg, null);
     }
 
     public static void w(String tag, String msg, Exception e) {
         Log.w(tag, msg, e);
-        print(tag, msg, e);
+        print(Log.WARN, tag, msg, e);
     }
 
     public static void w(String tag, String msg) {
         Log.w(tag, msg);
-        print(tag, msg);
+        print(Log.WARN, tag, msg, null);
     }
 
     public static void e(String tag, String msg, Exception e) {
         Log.e(tag, msg, e);
-        print(tag, msg, e);
+        print(Log.ERROR, tag, msg, e);
     }
 
     public static void e(String tag, String msg) {
         Log.e(tag, msg);
-        print(tag, msg);
+        print(Log.ERROR, tag, msg, null);
     }
 
     public static void print(String tag, String msg) {
@@ -102,9 +110,73 @@ public final class FileLog {
     }
 
     public static void print(String tag, String msg, Exception e) {
+        print(Log.INFO, tag, msg, e);
+    }
+
+    /**
+     * Logs {@code template} formatted with {@code arg0}, see {@link #i(String, String, long,
+     * long)}.
+     */
+    public static void i(String tag, String template, long arg0) {
+        printTemplate(Log.INFO, tag, template, 1, arg0, 0);
+    }
+
+    /**
+     * Logs the message formatted by {@link String#format} from {@code template} and the
+     * arguments. When the binary log is enabled, the message is only formatted if it is written
+     * to logcat, which depends on {@link Log#isLoggable}, or when the logs are dumped.
+     */
+    public static void i(String tag, String template, long arg0, long arg1) {
+        printTemplate(Log.INFO, tag, template, 2, arg0, arg1);
+    }
+
+    /**
+     * Logs {@code template} formatted with {@code arg0}, see {@link #i(String, String, long,
+     * long)}.
+     */
+    public static void w(String tag, String template, long arg0) {
+        printTemplate(Log.WARN, tag, template, 1, arg0, 0);
+    }
+
+    /**
+     * Logs {@code template} formatted with the arguments, see {@link #i(String, String, long,
+     * long)}.
+     */
+    public static void w(String tag, String template, long arg0, long arg1) {
+        printTemplate(Log.WARN, tag, template, 2, arg0, arg1);
+    }
+
+    private static void printTemplate(int level, String tag, String template, int argCount,
+            long arg0, long arg1) {
+        String msg = null;
+        if (Log.isLoggable(tag, level)) {
+            msg = BinaryFileLog.format(template, argCount, arg0, arg1, 0, 0);
+            Log.println(level, tag, msg);
+        }
         if (!ENABLED) {
             return;
         }
+        BinaryFileLog binaryLog = sBinaryLog;
+        if (binaryLog != null
+                && binaryLog.writeTemplate(level, tag, template, argCount, arg0, arg1, 0, 0)) {
+            return;
+        }
+        if (msg == null) {
+            msg = BinaryFileLog.format(template, argCount, arg0, arg1, 0, 0);
+        }
+        print(level, tag, msg, null);
+    }
+
+    private static void print(int level, String tag, String msg, Exception e) {
+        if (!ENABLED) {
+            return;
+        }
+        // Exceptions and very long messages are written to the text logs, as they don't fit in
+        // the binary log records
+        BinaryFileLog binaryLog = sBinaryLog;
+        if (binaryLog != null && e == null && binaryLog.writeText(level, tag, msg)) {
+            return;
+        }
         String out = String.format("%s %s %s", DATE_FORMAT.format(new Date()), tag, msg);
         if (e != null) {
             out += "\n" + Log.getStackTraceString(e);
@@ -143,6 +215,7 @@ public final class FileLog {
      * Writes logs to the file.
      * Log files are named log-0 for even days of the year and log-1 for odd days of the year.
      * Logs older than 36 hours are purged.
+     * Also opens the {@link BinaryFileLog}, which is written directly by the logging threads.
      */
     private static class LogWriterCallback implements Handler.Callback {
 
@@ -151,6 +224,7 @@ public final class FileLog {
         private static final int MSG_WRITE = 1;
         private static final int MSG_CLOSE = 2;
         private static final int MSG_FLUSH = 3;
+        private static final int MSG_OPEN_BINARY = 4;
 
         private String mCurrentFileName = null;
         private PrintWriter mCurrentWriter = null;
@@ -220,10 +294,27 @@ public final class FileLog {
                         for (int i = 0; i < LOG_DAYS; i++) {
                             dumpFile(p.first, FILE_NAME_PREFIX + i);
                         }
+                        BinaryFileLog binaryLog = sBinaryLog;
+                        if (binaryLog != null) {
+                            p.first.println();
+                            p.first.println("--- logfile: " + BINARY_FILE_NAME + " ---");
+                            binaryLog.dump(p.first);
+                        }
                     }
                     p.second.countDown();
                     return true;
                 }
+                case MSG_OPEN_BINARY: {
+                    if (sBinaryLog == null) {
+                        try {
+                            sBinaryLog = BinaryFileLog.open(
+                                    new File(sLogsDirectory, BINARY_FILE_NAME));
+                        } catch (IOException e) {
+                            Log.e("FileLog", "Error opening binary log file", e);
+                        }
+                    }
+                    return true;
+                }
             }
             return true;
         }
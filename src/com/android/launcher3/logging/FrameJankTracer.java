@@ -0,0 +1,367 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import static com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR;
+
+import android.os.Looper;
+import android.util.ArrayMap;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.Window;
+import android.view.Window.OnFrameMetricsAvailableListener;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.util.window.RefreshRateTracker;
+
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Records the duration of the frames rendered during launcher interactions, and attributes the
+ * frames missing their deadline to the launcher sections which ran during them.
+ *
+ * Frame durations come from {@link FrameMetrics}, and the budget of a frame is
+ * {@link RefreshRateTracker#getSingleFrameMs}. Sections are the main thread
+ * {@link com.android.launcher3.util.TraceHelper} sections, which are attributed to the frame whose
+ * intended vsync precedes them. The percentiles of the recent interactions are printed by
+ * {@link #dump}.
+ *
+ * Only one window is recorded at a time: interactions started on another window, like the
+ * taskbar or an overlay, while the frames of a window are recorded are not recorded at all.
+ *
+ * This is disabled by default, to enable it execute the following command:
+ * $ adb shell setprop log.tag.FrameJankTracer DEBUG
+ */
+public class FrameJankTracer {
+
+    private static final String TAG = "FrameJankTracer";
+
+    public static final FrameJankTracer INSTANCE = new FrameJankTracer();
+
+    public static final int INTERACTION_STATE_TRANSITION = 0;
+    public static final int INTERACTION_PAGE_FLING = 1;
+    public static final int INTERACTION_OVERVIEW_SWIPE = 2;
+    private static final String[] INTERACTION_NAMES =
+            {"state_transition", "page_fling", "overview_swipe"};
+
+    private static final int MAX_SECTION_DEPTH = 16;
+    private static final int MAX_PENDING_SECTIONS = 256;
+    private static final int MAX_FRAMES = 1024;
+    private static final int MAX_HISTORY = 20;
+
+    private static final float NS_PER_MS = 1_000_000f;
+
+    private final OnFrameMetricsAvailableListener mFrameMetricsListener =
+            (window, frameMetrics, dropCount) -> onFrameMetricsAvailable(frameMetrics);
+
+    // Guarded by this
+    private final Interaction[] mActiveInteractions = new Interaction[INTERACTION_NAMES.length];
+    private final ArrayDeque<Interaction> mHistory = new ArrayDeque<>();
+    private Window mWindow;
+
+    // Sections waiting to be attributed to a frame, guarded by this
+    private final String[] mPendingSectionNames = new String[MAX_PENDING_SECTIONS];
+    private final long[] mPendingSectionStarts = new long[MAX_PENDING_SECTIONS];
+    private int mPendingSectionsStart;
+    private int mPendingSectionsCount;
+
+    // Stack of the open sections, only accessed on the main thread
+    private final String[] mSectionNames = new String[MAX_SECTION_DEPTH];
+    private final long[] mSectionStarts = new long[MAX_SECTION_DEPTH];
+    private int mSectionDepth;
+
+    private volatile int mActiveCount;
+
+    private FrameJankTracer() { }
+
+    /**
+     * Starts recording the frames of {@code window} for the interaction {@code type}, if enabled.
+     * Ignored if the frames of another window are being recorded.
+     */
+    @MainThread
+    public void begin(int type, Window window) {
+        if (!Log.isLoggable(TAG, Log.DEBUG)) {
+            return;
+        }
+        int budgetMs = RefreshRateTracker.getSingleFrameMs(window.getContext());
+        synchronized (this) {
+            if (mActiveInteractions[type] != null) {
+                return;
+            }
+            if (mWindow == null) {
+                mWindow = window;
+                window.addOnFrameMetricsAvailableListener(
+                        mFrameMetricsListener, UI_HELPER_EXECUTOR.getHandler());
+            } else if (mWindow != window) {
+                // The frames of this window are not reported, don't record zero jank for it
+                Log.d(TAG, "Ignoring " + INTERACTION_NAMES[type] + " on another window");
+                return;
+            }
+            mActiveInteractions[type] = new Interaction(type, budgetMs);
+            mActiveCount++;
+        }
+    }
+
+    /**
+     * Stops recording the interaction {@code type}, and keeps its aggregated frames for dumping.
+     */
+    @MainThread
+    public void end(int type) {
+        if (mActiveCount == 0) {
+            return;
+        }
+        synchronized (this) {
+            Interaction interaction = mActiveInteractions[type];
+            if (interaction == null) {
+                return;
+            }
+            mActiveInteractions[type] = null;
+            mActiveCount--;
+            interaction.finish();
+            mHistory.addLast(interaction);
+            if (mHistory.size() > MAX_HISTORY) {
+                mHistory.removeFirst();
+            }
+            if (mActiveCount == 0) {
+                mWindow.removeOnFrameMetricsAvailableListener(mFrameMetricsListener);
+                mWindow = null;
+                mPendingSectionsCount = 0;
+            }
+        }
+    }
+
+    /**
+     * Starts a named section, when called on the main thread during an interaction.
+     */
+    @AnyThread
+    public void beginSection(String name) {
+        if (mActiveCount == 0 || Looper.myLooper() != Looper.getMainLooper()) {
+            return;
+        }
+        if (mSectionDepth < MAX_SECTION_DEPTH) {
+            mSectionNames[mSectionDepth] = name;
+            mSectionStarts[mSectionDepth] = System.nanoTime();
+        }
+        mSectionDepth++;
+    }
+
+    /**
+     * Ends the last section started by {@link #beginSection}.
+     */
+    @AnyThread
+    public void endSection() {
+        if (mSectionDepth == 0 || Looper.myLooper() != Looper.getMainLooper()) {
+            return;
+        }
+        mSectionDepth--;
+        if (mSectionDepth < MAX_SECTION_DEPTH) {
+            String name = mSectionNames[mSectionDepth];
+            mSectionNames[mSectionDepth] = null;
+            onSectionEnd(name, mSectionStarts[mSectionDepth], System.nanoTime());
+        }
+    }
+
+    private synchronized void onSectionEnd(String name, long startNs, long endNs) {
+        if (mActiveCount == 0) {
+            return;
+        }
+        for (Interaction interaction : mActiveInteractions) {
+            if (interaction != null) {
+                interaction.getSection(name).add(endNs - startNs);
+            }
+        }
+        if (mPendingSectionsCount == MAX_PENDING_SECTIONS) {
+            // Frames are not reported, drop the oldest section
+            mPendingSectionsStart = (mPendingSectionsStart + 1) % MAX_PENDING_SECTIONS;
+            mPendingSectionsCount--;
+        }
+        int index = (mPendingSectionsStart + mPendingSectionsCount) % MAX_PENDING_SECTIONS;
+        mPendingSectionNames[index] = name;
+        mPendingSectionStarts[index] = startNs;
+        mPendingSectionsCount++;
+    }
+
+    private void onFrameMetricsAvailable(FrameMetrics frameMetrics) {
+        if (frameMetrics.getMetric(FrameMetrics.FIRST_DRAW_FRAME) == 1) {
+            return;
+        }
+        onFrame(frameMetrics.getMetric(FrameMetrics.INTENDED_VSYNC_TIMESTAMP),
+                frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION),
+                frameMetrics.getMetric(FrameMetrics.LAYOUT_MEASURE_DURATION),
+                frameMetrics.getMetric(FrameMetrics.DRAW_DURATION));
+    }
+
+    private synchronized void onFrame(long vsyncNs, long totalNs, long layoutNs, long drawNs) {
+        long frameEndNs = vsyncNs + totalNs;
+        boolean janky = false;
+        for (Interaction interaction : mActiveInteractions) {
+            if (interaction != null) {
+                janky |= interaction.addFrame(totalNs, layoutNs, drawNs);
+            }
+        }
+
+        // Sections started before this frame's vsync ran between frames, and are only counted
+        // in the section durations
+        while (mPendingSectionsCount > 0
+                && mPendingSectionStarts[mPendingSectionsStart] < frameEndNs) {
+            String name = mPendingSectionNames[mPendingSectionsStart];
+            if (janky && mPendingSectionStarts[mPendingSectionsStart] >= vsyncNs) {
+                for (Interaction interaction : mActiveInteractions) {
+                    if (interaction != null) {
+                        interaction.getSection(name).onJankyFrame(vsyncNs);
+                    }
+                }
+            }
+            mPendingSectionNames[mPendingSectionsStart] = null;
+            mPendingSectionsStart = (mPendingSectionsStart + 1) % MAX_PENDING_SECTIONS;
+            mPendingSectionsCount--;
+        }
+    }
+
+    /**
+     * Prints the frames of the recent interactions.
+     */
+    public synchronized void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "FrameJankTracer: enabled=" + Log.isLoggable(TAG, Log.DEBUG));
+        for (Interaction interaction : mHistory) {
+            writer.println(prefix + "\t" + INTERACTION_NAMES[interaction.mType]
+                    + ": frames=" + interaction.mFrameCount
+                    + " janky=" + interaction.mJankyFrameCount
+                    + " budget=" + interaction.mBudgetMs + "ms"
+                    + " total(p50/p90/p99/max)=" + interaction.mTotalP50Ms
+                    + "/" + interaction.mTotalP90Ms
+                    + "/" + interaction.mTotalP99Ms
+                    + "/" + interaction.mTotalMaxMs + "ms"
+                    + " layoutP90=" + interaction.mLayoutP90Ms + "ms"
+                    + " drawP90=" + interaction.mDrawP90Ms + "ms");
+            for (Map.Entry<String, Section> e : interaction.mSections.entrySet()) {
+                Section section = e.getValue();
+                writer.println(prefix + "\t\t" + e.getKey()
+                        + ": count=" + section.mCount
+                        + " total=" + section.mTotalNs / NS_PER_MS + "ms"
+                        + " max=" + section.mMaxNs / NS_PER_MS + "ms"
+                        + " jankyFrames=" + section.mJankyFrameCount);
+            }
+        }
+    }
+
+    /**
+     * The frames of an interaction. The frame durations are only kept until the interaction ends,
+     * when they are aggregated into percentiles.
+     */
+    @VisibleForTesting
+    static class Interaction {
+
+        final int mType;
+        final int mBudgetMs;
+        final ArrayMap<String, Section> mSections = new ArrayMap<>();
+
+        float[] mTotalMs = new float[MAX_FRAMES];
+        float[] mLayoutMs = new float[MAX_FRAMES];
+        float[] mDrawMs = new float[MAX_FRAMES];
+        int mFrameCount;
+        int mJankyFrameCount;
+
+        float mTotalP50Ms;
+        float mTotalP90Ms;
+        float mTotalP99Ms;
+        float mTotalMaxMs;
+        float mLayoutP90Ms;
+        float mDrawP90Ms;
+
+        Interaction(int type, int budgetMs) {
+            mType = type;
+            mBudgetMs = budgetMs;
+        }
+
+        /** Adds a frame and returns whether it missed its deadline. */
+        boolean addFrame(long totalNs, long layoutNs, long drawNs) {
+            float totalMs = totalNs / NS_PER_MS;
+            boolean janky = totalMs > mBudgetMs;
+            if (janky) {
+                mJankyFrameCount++;
+            }
+            if (mFrameCount < MAX_FRAMES) {
+                mTotalMs[mFrameCount] = totalMs;
+                mLayoutMs[mFrameCount] = layoutNs / NS_PER_MS;
+                mDrawMs[mFrameCount] = drawNs / NS_PER_MS;
+            }
+            mFrameCount++;
+            return janky;
+        }
+
+        Section getSection(String name) {
+            Section section = mSections.get(name);
+            if (section == null) {
+                section = new Section();
+                mSections.put(name, section);
+            }
+            return section;
+        }
+
+        void finish() {
+            int count = Math.min(mFrameCount, MAX_FRAMES);
+            Arrays.sort(mTotalMs, 0, count);
+            Arrays.sort(mLayoutMs, 0, count);
+            Arrays.sort(mDrawMs, 0, count);
+            mTotalP50Ms = percentile(mTotalMs, count, 0.5f);
+            mTotalP90Ms = percentile(mTotalMs, count, 0.9f);
+            mTotalP99Ms = percentile(mTotalMs, count, 0.99f);
+            mTotalMaxMs = percentile(mTotalMs, count, 1);
+            mLayoutP90Ms = percentile(mLayoutMs, count, 0.9f);
+            mDrawP90Ms = percentile(mDrawMs, count, 0.9f);
+            mTotalMs = mLayoutMs = mDrawMs = null;
+        }
+
+        @VisibleForTesting
+        static float percentile(float[] sorted, int count, float percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * count) - 1;
+            return sorted[Math.max(0, Math.min(index, count - 1))];
+        }
+    }
+
+    private static class Section {
+
+        int mCount;
+        long mTotalNs;
+        long mMaxNs;
+        int mJankyFrameCount;
+        long mLastJankyVsyncNs = -1;
+
+        void add(long durationNs) {
+            mCount++;
+            mTotalNs += durationNs;
+            mMaxNs = Math.max(mMaxNs, durationNs);
+        }
+
+        void onJankyFrame(long vsyncNs) {
+            // Only count each frame once, when the section ran several times during it
+            if (vsyncNs != mLastJankyVsyncNs) {
+                mLastJankyVsyncNs = vsyncNs;
+                mJankyFrameCount++;
+            }
+        }
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.Log;
+import android.view.View;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.util.SafeCloseable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records the spans of work done by the launcher during a cold start, from the process start to
+ * the first frame drawn after the workspace is bound.
+ *
+ * Spans are recorded on any thread until {@link #markFirstDraw} completes, or until
+ * {@link #MAX_SPANS} spans were recorded. Consecutive spans with the same name on a thread, like
+ * the inflation of each workspace item, are merged into a single span.
+ *
+ * {@link #dump} prints the critical path of the start: walking back from the first draw, the span
+ * which ended last before the current one started, on any thread. The whole timeline can be
+ * printed as a Chrome trace JSON, which can be opened in Perfetto, with:
+ * $ adb shell dumpsys activity com.android.launcher3/.Launcher --startup-trace
+ */
+public class StartupTimeline {
+
+    private static final String TAG = "StartupTimeline";
+
+    private static final long NS_PER_MS = 1_000_000L;
+
+    public static final StartupTimeline INSTANCE =
+            new StartupTimeline(Process.getStartElapsedRealtime() * NS_PER_MS);
+
+    public static final String CATEGORY_ACTIVITY = "activity";
+    public static final String CATEGORY_LOADER = "loader";
+    public static final String CATEGORY_PACKAGE_MANAGER = "package_manager";
+    public static final String CATEGORY_ICONS = "icons";
+    public static final String CATEGORY_BIND = "bind";
+    public static final String CATEGORY_INFLATE = "inflate";
+    public static final String CATEGORY_DRAW = "draw";
+
+    public static final String DUMP_ARG_TRACE = "--startup-trace";
+
+    @VisibleForTesting
+    static final int MAX_SPANS = 512;
+    private static final long MAX_DURATION_NS = 60_000_000_000L;
+    private static final long MERGE_GAP_NS = 1_000_000L;
+
+    private static final SafeCloseable NO_OP = () -> { };
+
+    private final long mOriginNs;
+
+    // Guarded by this
+    private final ArrayList<Span> mSpans = new ArrayList<>();
+    private final Map<Integer, Span> mLastSpanByThread = new ArrayMap<>();
+    private boolean mRecording = true;
+    private long mFirstDrawNs = -1;
+    private int mDroppedCount;
+
+    @VisibleForTesting
+    StartupTimeline(long originNs) {
+        mOriginNs = originNs;
+    }
+
+    /**
+     * Returns true while the spans of the start are recorded.
+     */
+    @AnyThread
+    public boolean isRecording() {
+        return mRecording;
+    }
+
+    /**
+     * Starts a span, which ends when the returned object is closed.
+     */
+    @AnyThread
+    public SafeCloseable span(@NonNull String category, @NonNull String name) {
+        if (!mRecording) {
+            return NO_OP;
+        }
+        long startNs = SystemClock.elapsedRealtimeNanos();
+        return () -> addSpan(category, name, startNs, SystemClock.elapsedRealtimeNanos());
+    }
+
+    /**
+     * Records a span of the calling thread, with times from
+     * {@link SystemClock#elapsedRealtimeNanos}.
+     */
+    @AnyThread
+    public void addSpan(@NonNull String category, @NonNull String name, long startNs, long endNs) {
+        if (mRecording) {
+            addSpan(category, name, startNs, endNs,
+                    Process.myTid(), Thread.currentThread().getName());
+        }
+    }
+
+    @VisibleForTesting
+    synchronized void addSpan(String category, String name, long startNs, long endNs,
+            int tid, String threadName) {
+        if (!mRecording) {
+            return;
+        }
+        if (endNs - mOriginNs > MAX_DURATION_NS) {
+            // The launcher was not started with the process, or did not draw
+            stopRecording();
+            return;
+        }
+        Span last = mLastSpanByThread.get(tid);
+        if (last != null && last.name.equals(name) && last.category.equals(category)
+                && startNs - last.endNs < MERGE_GAP_NS) {
+            last.endNs = endNs;
+            last.count++;
+            return;
+        }
+        if (mSpans.size() >= MAX_SPANS) {
+            mDroppedCount++;
+            return;
+        }
+        Span span = new Span(category, name, startNs, endNs, tid, threadName);
+        mSpans.add(span);
+        mLastSpanByThread.put(tid, span);
+    }
+
+    /**
+     * Records the next frame drawn by {@code root} as the end of the start.
+     */
+    @MainThread
+    public void markFirstDraw(@NonNull View root) {
+        if (!mRecording) {
+            return;
+        }
+        long startNs = SystemClock.elapsedRealtimeNanos();
+        root.getViewTreeObserver().registerFrameCommitCallback(() -> {
+            long endNs = SystemClock.elapsedRealtimeNanos();
+            addSpan(CATEGORY_DRAW, "firstDraw", startNs, endNs);
+            onFirstDraw(endNs);
+        });
+    }
+
+    @VisibleForTesting
+    synchronized void onFirstDraw(long timeNs) {
+        if (mRecording) {
+            mFirstDrawNs = timeNs;
+            stopRecording();
+        }
+    }
+
+    private void stopRecording() {
+        mRecording = false;
+        mLastSpanByThread.clear();
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Recorded " + mSpans.size() + " spans, dropped " + mDroppedCount);
+        }
+    }
+
+    /**
+     * Returns the spans on the critical path of the start, from the earliest.
+     */
+    @VisibleForTesting
+    synchronized List<Span> getCriticalPath() {
+        List<Span> topLevel = new ArrayList<>();
+        for (int i = 0; i < mSpans.size(); i++) {
+            if (!isNested(i)) {
+                topLevel.add(mSpans.get(i));
+            }
+        }
+
+        ArrayList<Span> path = new ArrayList<>();
+        long cursor = mFirstDrawNs >= 0 ? mFirstDrawNs : Long.MAX_VALUE;
+        while (true) {
+            Span previous = null;
+            for (Span span : topLevel) {
+                if (span.endNs > cursor || span.startNs >= cursor) {
+                    continue;
+                }
+                if (previous == null || span.endNs > previous.endNs
+                        || (span.endNs == previous.endNs && span.startNs < previous.startNs)) {
+                    previous = span;
+                }
+            }
+            if (previous == null) {
+                break;
+            }
+            path.add(0, previous);
+            cursor = previous.startNs;
+        }
+        return path;
+    }
+
+    /**
+     * Returns true if the span at {@code index} runs inside another span of the same thread. For
+     * spans with the same bounds, the one recorded last is the outer one.
+     */
+    private boolean isNested(int index) {
+        Span span = mSpans.get(index);
+        for (int i = 0; i < mSpans.size(); i++) {
+            Span other = mSpans.get(i);
+            if (i != index && other.tid == span.tid
+                    && other.startNs <= span.startNs && other.endNs >= span.endNs
+                    && (other.endNs - other.startNs > span.endNs - span.startNs || i > index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long getOverlap(Span span, List<Span> path) {
+        long overlap = 0;
+        for (Span p : path) {
+            if (p.tid == span.tid) {
+                overlap += Math.max(0,
+                        Math.min(p.endNs, span.endNs) - Math.max(p.startNs, span.startNs));
+            }
+        }
+        return overlap;
+    }
+
+    /**
+     * Prints the critical path of the start and the time spent in each span. The whole timeline
+     * is printed as JSON when {@code args} contain {@link #DUMP_ARG_TRACE}.
+     */
+    public synchronized void dump(String prefix, PrintWriter writer, String[] args) {
+        writer.println(prefix + "StartupTimeline: " + (mRecording ? "recording" : "finished")
+                + " spans=" + mSpans.size() + " dropped=" + mDroppedCount);
+        if (mSpans.isEmpty()) {
+            return;
+        }
+
+        List<Span> path = getCriticalPath();
+        long pathNs = 0;
+        for (Span span : path) {
+            pathNs += span.endNs - span.startNs;
+        }
+        if (mFirstDrawNs >= 0) {
+            long totalNs = mFirstDrawNs - mOriginNs;
+            writer.println(prefix + "  First draw after " + formatMs(totalNs)
+                    + ", critical path " + formatMs(pathNs)
+                    + ", unattributed " + formatMs(totalNs - pathNs));
+        }
+
+        writer.println(prefix + "  Critical path:");
+        for (Span span : path) {
+            writer.println(prefix + String.format(Locale.US, "    +%9s %9s  %-16s %s%s [%s]",
+                    formatMs(span.startNs - mOriginNs), formatMs(span.endNs - span.startNs),
+                    span.category, span.name, span.count > 1 ? " x" + span.count : "",
+                    span.threadName));
+        }
+
+        // Total and critical path time of the spans, by name
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        for (Span span : mSpans) {
+            long[] total = totals.computeIfAbsent(span.category + "/" + span.name,
+                    k -> new long[3]);
+            total[0] += span.count;
+            total[1] += span.endNs - span.startNs;
+            total[2] += getOverlap(span, path);
+        }
+        writer.println(prefix + String.format(Locale.US, "  %-48s %6s %9s %9s",
+                "Span", "count", "total", "critical"));
+        for (Map.Entry<String, long[]> e : totals.entrySet()) {
+            long[] total = e.getValue();
+            writer.println(prefix + String.format(Locale.US, "  %-48s %6d %9s %9s",
+                    e.getKey(), total[0], formatMs(total[1]), formatMs(total[2])));
+        }
+
+        if (args != null && Arrays.asList(args).contains(DUMP_ARG_TRACE)) {
+            writer.println(prefix + "  Trace:");
+            writer.println(getTraceJson(path));
+        }
+    }
+
+    /**
+     * Returns the timeline in the Chrome trace event format, with times relative to the process
+     * start.
+     */
+    @VisibleForTesting
+    synchronized String getTraceJson(List<Span> criticalPath) {
+        JSONArray events = new JSONArray();
+        Map<Integer, String> threads = new LinkedHashMap<>();
+        try {
+            for (Span span : mSpans) {
+                threads.putIfAbsent(span.tid, span.threadName);
+                events.put(new JSONObject()
+                        .put("name", span.name)
+                        .put("cat", span.category)
+                        .put("ph", "X")
+                        .put("ts", (span.startNs - mOriginNs) / 1000.0)
+                        .put("dur", (span.endNs - span.startNs) / 1000.0)
+                        .put("pid", Process.myPid())
+                        .put("tid", span.tid)
+                        .put("args", new JSONObject()
+                                .put("count", span.count)
+                                .put("critical", criticalPath.contains(span))));
+            }
+            for (Map.Entry<Integer, String> thread : threads.entrySet()) {
+                events.put(new JSONObject()
+                        .put("name", "thread_name")
+                        .put("ph", "M")
+                        .put("pid", Process.myPid())
+                        .put("tid", thread.getKey())
+                        .put("args", new JSONObject().put("name", thread.getValue())));
+            }
+            return new JSONObject()
+                    .put("traceEvents", events)
+                    .put("displayTimeUnit", "ms")
+                    .toString();
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to write the startup trace", e);
+            return "{}";
+        }
+    }
+
+    private static String formatMs(long ns) {
+        return String.format(Locale.US, "%.1fms", ns / (float) NS_PER_MS);
+    }
+
+    @VisibleForTesting
+    static class Span {
+
+        final String category;
+        final String name;
+        final long startNs;
+        final int tid;
+        final String threadName;
+
+        long endNs;
+        int count = 1;
+
+        Span(String category, String name, long startNs, long endNs, int tid,
+                String threadName) {
+            this.category = category;
+            this.name = name;
+            this.startNs = startNs;
+            this.endNs = endNs;
+            this.tid = tid;
+            this.threadName = threadName;
+        }
+    }
+}
@@ -40,6 +40,7 @@ import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.pm.PackageInstallInfo;
 import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.search.AppSearchIndex;
 import com.android.launcher3.util.ApiWrapper;
 import com.android.launcher3.util.FlagOp;
 import com.android.launcher3.util.PackageManagerHelper;
@@ -80,6 +81,8 @@ public class AllAppsList {
 
     private AlphabeticIndexCompat mIndex;
 
+    private final AppSearchIndex mSearchIndex = new AppSearchIndex();
+
     /**
      * @see Callbacks#FLAG_HAS_SHORTCUT_PERMISSION
      * @see Callbacks#FLAG_QUIET_MODE_ENABLED
@@ -134,6 +137,13 @@ public class AllAppsList {
         return mFlags;
     }
 
+    /**
+     * Returns the search index of the titles in {@link #data}.
+     */
+    public AppSearchIndex getSearchIndex() {
+        return mSearchIndex;
+    }
+
 
     /**
      * Add the supplied ApplicationInfo objects to the list, and enqueue it into the
@@ -163,6 +173,7 @@ public class AllAppsList {
         }
 
         data.add(info);
+        mSearchIndex.onAppAdded(info);
         mDataChanged = true;
     }
 
@@ -189,6 +200,7 @@ public class AllAppsList {
         }
 
         data.add(promiseAppInfo);
+        mSearchIndex.onAppAdded(promiseAppInfo);
         mDataChanged = true;
 
         return promiseAppInfo;
@@ -196,7 +208,7 @@ public class AllAppsList {
 
     public void updateSectionName(AppInfo appInfo) {
         appInfo.sectionName = mIndex.computeSectionName(appInfo.title);
-
+        mSearchIndex.onAppUpdated(appInfo);
     }
 
     /** Updates the given PackageInstallInfo's associated AppInfo's installation info. */
@@ -242,6 +254,7 @@ public class AllAppsList {
     private void removeApp(int index) {
         AppInfo removed = data.remove(index);
         if (removed != null) {
+            mSearchIndex.onAppRemoved(removed);
             mDataChanged = true;
             mRemoveListener.accept(removed);
         }
@@ -249,6 +262,7 @@ public class AllAppsList {
 
     public void clear() {
         data.clear();
+        mSearchIndex.clear();
         mDataChanged = false;
         // Reset the index as locales might have changed
         mIndex = new AlphabeticIndexCompat(LocaleList.getDefault());
@@ -301,6 +315,7 @@ public class AllAppsList {
             if (info.user.equals(user) && packages.contains(info.componentName.getPackageName())) {
                 mIconCache.updateTitleAndIcon(info);
                 info.sectionName = mIndex.computeSectionName(info.title);
+                mSearchIndex.onAppUpdated(info);
                 mDataChanged = true;
             }
         }
@@ -345,6 +360,7 @@ public class AllAppsList {
 
                     mIconCache.getTitleAndIcon(applicationInfo, info, false /* useLowResIcon */);
                     applicationInfo.sectionName = mIndex.computeSectionName(applicationInfo.title);
+                    mSearchIndex.onAppUpdated(applicationInfo);
                     applicationInfo.intent = launchIntent;
                     AppInfo.updateRuntimeFlagsForActivityTarget(applicationInfo, info,
                             userCache.getUserInfo(user), apiWrapper, pmHelper);
@@ -17,8 +17,10 @@
 package com.android.launcher3.model;
 
 import static com.android.launcher3.BuildConfig.WIDGETS_ENABLED;
+import static com.android.launcher3.Flags.enableIncrementalWidgetsModel;
 import static com.android.launcher3.Flags.enableSmartspaceRemovalToggle;
 import static com.android.launcher3.Flags.enableWorkspaceInflation;
+import static com.android.launcher3.logging.StartupTimeline.CATEGORY_BIND;
 import static com.android.launcher3.model.ItemInstallQueue.FLAG_LOADER_RUNNING;
 import static com.android.launcher3.model.ModelUtils.filterCurrentWorkspaceItems;
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
@@ -39,6 +41,7 @@ import com.android.launcher3.LauncherSettings;
 import com.android.launcher3.Workspace;
 import com.android.launcher3.celllayout.CellPosMapper;
 import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.logging.StartupTimeline;
 import com.android.launcher3.model.BgDataModel.Callbacks;
 import com.android.launcher3.model.BgDataModel.FixedContainerItems;
 import com.android.launcher3.model.data.AppInfo;
@@ -52,6 +55,7 @@ import com.android.launcher3.util.LooperExecutor;
 import com.android.launcher3.util.LooperIdleLock;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.RunnableList;
+import com.android.launcher3.util.SafeCloseable;
 import com.android.launcher3.widget.model.WidgetsListBaseEntriesBuilder;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
 
@@ -113,6 +117,23 @@ public class BaseLauncherBinder {
         }
     }
 
+    /**
+     * Binds the items of {@code snapshot} before the model is loaded. The workspace stays in the
+     * loading state until the loaded model is bound by {@link #bindWorkspace}, which replaces
+     * these items.
+     */
+    public void bindWorkspaceSnapshot(WorkspaceSnapshot snapshot) {
+        synchronized (mBgDataModel) {
+            mMyBindingId = ++mBgDataModel.lastBindId;
+        }
+        executeCallbacksTask(c -> {
+            c.clearPendingBinds();
+            c.startBinding();
+            c.bindScreens(snapshot.screenIds);
+            c.bindItems(snapshot.items, false);
+        }, mUiExecutor);
+    }
+
     /**
      * Initializes the WorkspaceBinder for binding.
      *
@@ -196,8 +217,10 @@ public class BaseLauncherBinder {
         if (!WIDGETS_ENABLED) {
             return;
         }
-        List<WidgetsListBaseEntry> widgets = new WidgetsListBaseEntriesBuilder(mApp.getContext())
-                .build(mBgDataModel.widgetsModel.getWidgetsByPackageItem());
+        List<WidgetsListBaseEntry> widgets = enableIncrementalWidgetsModel()
+                ? mBgDataModel.widgetsModel.buildListUpdate(mApp.getContext()).entries()
+                : new WidgetsListBaseEntriesBuilder(mApp.getContext())
+                        .build(mBgDataModel.widgetsModel.getWidgetsByPackageItem());
         executeCallbacksTask(c -> c.bindAllWidgets(widgets), mUiExecutor);
     }
 
@@ -248,13 +271,17 @@ public class BaseLauncherBinder {
     }
 
     protected void executeCallbacksTask(CallbackTask task, Executor executor) {
+        // Not using the urgent lane of the UI executor: binding relies on running after the tasks
+        // posted before it, like Callbacks#clearPendingBinds, and would jump ahead of input.
         executor.execute(() -> {
             if (mMyBindingId != mBgDataModel.lastBindId) {
                 Log.d(TAG, "Too many consecutive reloads, skipping obsolete data-bind");
                 return;
             }
-            for (Callbacks cb : mCallbacksList) {
-                task.execute(cb);
+            try (SafeCloseable c = StartupTimeline.INSTANCE.span(CATEGORY_BIND, "callbacksTask")) {
+                for (Callbacks cb : mCallbacksList) {
+                    task.execute(cb);
+                }
             }
         });
     }
@@ -432,7 +459,10 @@ public class BaseLauncherBinder {
                     Log.d(TAG, "Too many consecutive reloads, skipping obsolete data-bind");
                     return;
                 }
-                task.execute(mCallbacks);
+                try (SafeCloseable c = StartupTimeline.INSTANCE.span(
+                        CATEGORY_BIND, "callbacksTask")) {
+                    task.execute(mCallbacks);
+                }
             });
         }
     }
@@ -62,6 +62,7 @@ import com.android.launcher3.util.ItemInflater;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.RunnableList;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListUpdate;
 
 import java.io.FileDescriptor;
 import java.io.PrintWriter;
@@ -538,6 +539,13 @@ public class BgDataModel {
         default void bindRestoreItemsChange(HashSet<ItemInfo> updates) { }
         default void bindWorkspaceComponentsRemoved(Predicate<ItemInfo> matcher) { }
         default void bindAllWidgets(List<WidgetsListBaseEntry> widgets) { }
+
+        /**
+         * Binds the widgets after some packages changed, see {@link WidgetsListUpdate}
+         */
+        default void bindUpdatedWidgets(WidgetsListUpdate update) {
+            bindAllWidgets(update.entries());
+        }
         default void bindSmartspaceWidget() { }
 
         /** Called when workspace has been bound. */
@@ -51,6 +51,20 @@ public class CacheDataUpdatedTask implements ModelUpdateTask {
         mPackages = packages;
     }
 
+    int getOp() {
+        return mOp;
+    }
+
+    @NonNull
+    UserHandle getUser() {
+        return mUser;
+    }
+
+    @NonNull
+    HashSet<String> getPackages() {
+        return mPackages;
+    }
+
     @Override
     public void execute(@NonNull ModelTaskController taskController, @NonNull BgDataModel dataModel,
             @NonNull AllAppsList apps) {
@@ -18,8 +18,10 @@ package com.android.launcher3.model;
 
 import static com.android.launcher3.BuildConfig.WIDGET_ON_FIRST_SCREEN;
 import static com.android.launcher3.Flags.enableLauncherBrMetricsFixed;
+import static com.android.launcher3.Flags.enableParallelLoaderQueries;
 import static com.android.launcher3.Flags.enableSmartspaceAsAWidget;
 import static com.android.launcher3.Flags.enableSmartspaceRemovalToggle;
+import static com.android.launcher3.Flags.enableWorkspaceSnapshot;
 import static com.android.launcher3.LauncherPrefs.IS_FIRST_LOAD_AFTER_RESTORE;
 import static com.android.launcher3.LauncherPrefs.SHOULD_SHOW_SMARTSPACE;
 import static com.android.launcher3.LauncherSettings.Favorites.TABLE_NAME;
@@ -29,6 +31,8 @@ import static com.android.launcher3.model.BgDataModel.Callbacks.FLAG_PRIVATE_PRO
 import static com.android.launcher3.model.BgDataModel.Callbacks.FLAG_QUIET_MODE_CHANGE_PERMISSION;
 import static com.android.launcher3.model.BgDataModel.Callbacks.FLAG_QUIET_MODE_ENABLED;
 import static com.android.launcher3.model.BgDataModel.Callbacks.FLAG_WORK_PROFILE_QUIET_MODE_ENABLED;
+import static com.android.launcher3.logging.StartupTimeline.CATEGORY_LOADER;
+import static com.android.launcher3.logging.StartupTimeline.CATEGORY_PACKAGE_MANAGER;
 import static com.android.launcher3.model.ModelUtils.filterCurrentWorkspaceItems;
 import static com.android.launcher3.model.data.ItemInfoWithIcon.FLAG_INSTALL_SESSION_ACTIVE;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
@@ -45,6 +49,7 @@ import android.content.pm.PackageInstaller.SessionInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ShortcutInfo;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.os.Trace;
 import android.os.UserHandle;
 import android.os.UserManager;
@@ -77,6 +82,7 @@ import com.android.launcher3.icons.cache.CachedObjectCachingLogic;
 import com.android.launcher3.icons.cache.IconCacheUpdateHandler;
 import com.android.launcher3.icons.cache.LauncherActivityCachingLogic;
 import com.android.launcher3.logging.FileLog;
+import com.android.launcher3.logging.StartupTimeline;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.AppPairInfo;
 import com.android.launcher3.model.data.CollectionInfo;
@@ -99,6 +105,7 @@ import com.android.launcher3.util.IntSet;
 import com.android.launcher3.util.LooperIdleLock;
 import com.android.launcher3.util.PackageManagerHelper;
 import com.android.launcher3.util.PackageUserKey;
+import com.android.launcher3.util.SafeCloseable;
 import com.android.launcher3.util.TraceHelper;
 import com.android.launcher3.widget.WidgetInflater;
 
@@ -110,6 +117,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
 
 /**
  * Runnable for the thread that loads the contents of the launcher:
@@ -149,8 +157,11 @@ public class LoaderTask implements Runnable {
     protected final Map<ComponentKey, AppWidgetProviderInfo> mWidgetProvidersMap = new ArrayMap<>();
     private Map<ShortcutKey, ShortcutInfo> mShortcutKeyToPinnedShortcuts;
     private HashMap<PackageUserKey, SessionInfo> mInstallingPkgsCached;
+    @Nullable
+    private ParallelLoaderQueries mParallelQueries;
 
     private boolean mStopped;
+    private long mLastSplitNanos;
 
     private final Set<PackageUserKey> mPendingPackages = new HashSet<>();
     private boolean mItemsDeleted = false;
@@ -237,6 +248,7 @@ public class LoaderTask implements Runnable {
         }
 
         TraceHelper.INSTANCE.beginSection(TAG);
+        mLastSplitNanos = SystemClock.elapsedRealtimeNanos();
         LoaderMemoryLogger memoryLogger = new LoaderMemoryLogger();
         mIsRestoreFromBackup =
                 (Boolean) LauncherPrefs.get(mApp.getContext()).get(IS_FIRST_LOAD_AFTER_RESTORE);
@@ -246,6 +258,15 @@ public class LoaderTask implements Runnable {
                     .newInstance(mApp.getContext());
         }
         try (LauncherModel.LoaderTransaction transaction = mApp.getModel().beginLoader(this)) {
+            if (enableParallelLoaderQueries()) {
+                mParallelQueries = new ParallelLoaderQueries(mApp.getContext(), mLauncherApps,
+                        mUserManager, mUserCache.getUserProfiles(),
+                        hasShortcutsPermission(mApp.getContext()));
+            }
+
+            if (enableWorkspaceSnapshot() && !mIsRestoreFromBackup) {
+                bindWorkspaceSnapshot();
+            }
 
             List<ShortcutInfo> allShortcuts = new ArrayList<>();
             loadWorkspace(allShortcuts, "", memoryLogger, restoreEventLogger);
@@ -372,6 +393,12 @@ public class LoaderTask implements Runnable {
             updateHandler.finish();
             logASplit("finish icon update");
 
+            if (enableWorkspaceSnapshot()
+                    && Objects.equals(mApp.getInvariantDeviceProfile().dbFile, mDbName)) {
+                saveWorkspaceSnapshot();
+                logASplit("saveWorkspaceSnapshot");
+            }
+
             mModelDelegate.modelLoadComplete();
             transaction.commit();
             memoryLogger.clearLogs();
@@ -388,10 +415,49 @@ public class LoaderTask implements Runnable {
         } catch (Exception e) {
             memoryLogger.printLogs();
             throw e;
+        } finally {
+            if (mParallelQueries != null) {
+                mParallelQueries.cancel();
+                mParallelQueries = null;
+            }
         }
         TraceHelper.INSTANCE.endSection();
     }
 
+    /**
+     * Binds the first pages saved by the previous load, if any, so that they are shown while the
+     * workspace is loaded.
+     */
+    private void bindWorkspaceSnapshot() {
+        if (mLauncherBinder.mCallbacksList.length == 0 || mBgDataModel.lastBindId != 0) {
+            // Only bind the snapshot on cold start, when nothing is bound yet
+            return;
+        }
+        Trace.beginSection("BindWorkspaceSnapshot");
+        try {
+            WorkspaceSnapshot snapshot = WorkspaceSnapshot.read(mApp);
+            if (snapshot != null) {
+                mLauncherBinder.bindWorkspaceSnapshot(snapshot);
+                logASplit("bindWorkspaceSnapshot");
+            }
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    private void saveWorkspaceSnapshot() {
+        if (mLauncherBinder.mCallbacksList.length == 0) {
+            return;
+        }
+        IntArray screenIds;
+        synchronized (mBgDataModel) {
+            screenIds = mBgDataModel.collectWorkspaceScreens();
+        }
+        IntSet firstPages =
+                mLauncherBinder.mCallbacksList[0].getPagesToBindSynchronously(screenIds);
+        WorkspaceSnapshot.write(mApp, mBgDataModel, firstPages);
+    }
+
     public synchronized void stopLocked() {
         mStopped = true;
         this.notify();
@@ -537,8 +603,10 @@ public class LoaderTask implements Runnable {
 
             // We can only query for shortcuts when the user is unlocked.
             if (userUnlocked) {
-                QueryResult pinnedShortcuts = new ShortcutRequest(context, user)
-                        .query(ShortcutRequest.PINNED);
+                Supplier<QueryResult> query = packageManagerQuery("getPinnedShortcuts",
+                        () -> new ShortcutRequest(context, user).query(ShortcutRequest.PINNED));
+                QueryResult pinnedShortcuts = mParallelQueries != null
+                        ? mParallelQueries.getPinnedShortcuts(user, query) : query.get();
                 if (pinnedShortcuts.wasSuccess()) {
                     for (ShortcutInfo shortcut : pinnedShortcuts) {
                         mShortcutKeyToPinnedShortcuts.put(ShortcutKey.fromInfo(shortcut),
@@ -697,7 +765,10 @@ public class LoaderTask implements Runnable {
         boolean isPrivateProfileQuiet = false;
         for (UserHandle user : profiles) {
             // Query for the set of apps
-            final List<LauncherActivityInfo> apps = mLauncherApps.getActivityList(null, user);
+            Supplier<List<LauncherActivityInfo>> query = packageManagerQuery("getActivityList",
+                    () -> mLauncherApps.getActivityList(null, user));
+            final List<LauncherActivityInfo> apps = mParallelQueries != null
+                    ? mParallelQueries.getActivityList(user, query) : query.get();
             // Fail if we don't have any apps
             // TODO: Fix this. Only fail for the current user.
             if (apps == null || apps.isEmpty()) {
@@ -794,8 +865,11 @@ public class LoaderTask implements Runnable {
         if (mBgAllAppsList.hasShortcutHostPermission()) {
             for (UserHandle user : mUserCache.getUserProfiles()) {
                 if (mUserManager.isUserUnlocked(user)) {
-                    List<ShortcutInfo> shortcuts = new ShortcutRequest(mApp.getContext(), user)
-                            .query(ShortcutRequest.ALL);
+                    Supplier<QueryResult> query = packageManagerQuery("getDeepShortcuts",
+                            () -> new ShortcutRequest(mApp.getContext(), user)
+                                    .query(ShortcutRequest.ALL));
+                    List<ShortcutInfo> shortcuts = mParallelQueries != null
+                            ? mParallelQueries.getDeepShortcuts(user, query) : query.get();
                     allShortcuts.addAll(shortcuts);
                     mBgDataModel.updateDeepShortcutCounts(null, user, shortcuts);
                 }
@@ -826,9 +900,24 @@ public class LoaderTask implements Runnable {
                 && (provider.provider.getPackageName() != null);
     }
 
-    private static void logASplit(String label) {
+    /**
+     * Returns {@code query} recording its duration in the startup timeline, same as the queries
+     * started by {@link ParallelLoaderQueries}.
+     */
+    private static <T> Supplier<T> packageManagerQuery(String name, Supplier<T> query) {
+        return () -> {
+            try (SafeCloseable c = StartupTimeline.INSTANCE.span(CATEGORY_PACKAGE_MANAGER, name)) {
+                return query.get();
+            }
+        };
+    }
+
+    private void logASplit(String label) {
         if (DEBUG) {
             Log.d(TAG, label);
         }
+        long now = SystemClock.elapsedRealtimeNanos();
+        StartupTimeline.INSTANCE.addSpan(CATEGORY_LOADER, label, mLastSplitNanos, now);
+        mLastSplitNanos = now;
     }
 }
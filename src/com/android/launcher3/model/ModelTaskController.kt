@@ -16,6 +16,7 @@
 
 package com.android.launcher3.model
 
+import com.android.launcher3.Flags.enableIncrementalWidgetsModel
 import com.android.launcher3.LauncherAppState
 import com.android.launcher3.LauncherModel
 import com.android.launcher3.LauncherModel.CallbackTask
@@ -79,6 +80,11 @@ class ModelTaskController(
     }
 
     fun bindUpdatedWidgets(dataModel: BgDataModel) {
+        if (enableIncrementalWidgetsModel()) {
+            val update = dataModel.widgetsModel.buildListUpdate(app.context)
+            scheduleCallbackTask { it.bindUpdatedWidgets(update) }
+            return
+        }
         val widgets =
             WidgetsListBaseEntriesBuilder(app.context)
                 .build(dataModel.widgetsModel.widgetsByPackageItem)
@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.model.PackageUpdatedTask.OP_REMOVE;
+import static com.android.launcher3.model.PackageUpdatedTask.OP_USER_AVAILABILITY_CHANGE;
+
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+import android.os.SystemClock;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.LauncherModel.ModelUpdateTask;
+
+import java.io.PrintWriter;
+import java.lang.annotation.Retention;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Schedules the {@link ModelUpdateTask}s on the model thread by priority.
+ *
+ * Each enqueued task posts its own slot on the model executor, which runs only that task:
+ * <ul>
+ *     <li>{@link #PRIORITY_INTERACTIVE} tasks run first, from a slot posted at the front of the
+ *     queue. They must only read the model, as they run before the writes already queued.</li>
+ *     <li>{@link #PRIORITY_DEFAULT} tasks run in the order they were enqueued, in order with the
+ *     other tasks posted on the model executor.</li>
+ *     <li>{@link #PRIORITY_BACKGROUND} tasks run when no default task is pending, or after
+ *     waiting {@link #MAX_BACKGROUND_DELAY_MS}, their slot being posted again at the end of the
+ *     queue otherwise. They must be refreshes of cached data which give the same result when
+ *     run after later tasks.</li>
+ * </ul>
+ *
+ * Redundant tasks are dropped before they run: a {@link PackageUpdatedTask} identical to a
+ * pending one is coalesced with it unless a dependent task is queued in between, pending
+ * {@link CacheDataUpdatedTask}s for the same user are merged, and the packages removed by a
+ * {@link PackageUpdatedTask} are dropped from the pending cache updates. A task enqueued with a
+ * supersede key cancels the pending task of the same priority with the same key.
+ */
+public class ModelTaskScheduler {
+
+    public static final int PRIORITY_INTERACTIVE = 0;
+    public static final int PRIORITY_DEFAULT = 1;
+    public static final int PRIORITY_BACKGROUND = 2;
+
+    @Retention(SOURCE)
+    @IntDef({PRIORITY_INTERACTIVE, PRIORITY_DEFAULT, PRIORITY_BACKGROUND})
+    public @interface TaskPriority {}
+
+    @VisibleForTesting
+    static final long MAX_BACKGROUND_DELAY_MS = 1000;
+
+    private static final String[] PRIORITY_NAMES = {"interactive", "default", "background"};
+
+    private final Executor mExecutor;
+    private final Executor mUrgentExecutor;
+    private final Consumer<ModelUpdateTask> mTaskRunner;
+    private final LongSupplier mClock;
+
+    private final Object mLock = new Object();
+
+    // Guarded by mLock
+    private final ArrayDeque<PendingTask> mInteractiveTasks = new ArrayDeque<>();
+    private final ArrayDeque<PendingTask> mDefaultTasks = new ArrayDeque<>();
+    private final ArrayDeque<PendingTask> mBackgroundTasks = new ArrayDeque<>();
+    private final long[] mEnqueuedCounts = new long[PRIORITY_NAMES.length];
+    private long mCoalescedCount;
+    private long mCancelledCount;
+    private long mSupersededCount;
+    private int mMaxPendingCount;
+
+    /**
+     * @param executor executor posting the slots of the default and background tasks
+     * @param urgentExecutor executor posting the slots of the interactive tasks
+     * @param taskRunner runs a task on the model thread
+     */
+    public ModelTaskScheduler(@NonNull Executor executor, @NonNull Executor urgentExecutor,
+            @NonNull Consumer<ModelUpdateTask> taskRunner) {
+        this(executor, urgentExecutor, taskRunner, SystemClock::uptimeMillis);
+    }
+
+    @VisibleForTesting
+    ModelTaskScheduler(@NonNull Executor executor, @NonNull Executor urgentExecutor,
+            @NonNull Consumer<ModelUpdateTask> taskRunner, @NonNull LongSupplier clock) {
+        mExecutor = executor;
+        mUrgentExecutor = urgentExecutor;
+        mTaskRunner = taskRunner;
+        mClock = clock;
+    }
+
+    /**
+     * Enqueues {@code task} with the provided priority.
+     *
+     * @param supersedeKey if not null, the pending task of the same priority enqueued with an
+     *                     equal key is cancelled
+     */
+    @AnyThread
+    public void enqueue(@NonNull ModelUpdateTask task, @TaskPriority int priority,
+            @Nullable Object supersedeKey) {
+        PendingTask pending;
+        synchronized (mLock) {
+            mEnqueuedCounts[priority]++;
+            ArrayDeque<PendingTask> queue = getQueueLocked(priority);
+            if (supersedeKey != null) {
+                for (Iterator<PendingTask> it = queue.iterator(); it.hasNext(); ) {
+                    if (supersedeKey.equals(it.next().supersedeKey)) {
+                        it.remove();
+                        mSupersededCount++;
+                    }
+                }
+            }
+            if (task instanceof PackageUpdatedTask packageTask) {
+                if (packageTask.getOp() == OP_REMOVE) {
+                    cancelCacheUpdatesLocked(packageTask);
+                }
+                if (priority == PRIORITY_DEFAULT && coalescePackageTaskLocked(packageTask)) {
+                    mCoalescedCount++;
+                    return;
+                }
+            } else if (task instanceof CacheDataUpdatedTask cacheTask
+                    && priority == PRIORITY_BACKGROUND
+                    && mergeCacheUpdateLocked(cacheTask)) {
+                mCoalescedCount++;
+                return;
+            }
+            pending = new PendingTask(task, priority, supersedeKey, mClock.getAsLong());
+            queue.add(pending);
+            mMaxPendingCount = Math.max(mMaxPendingCount, getPendingCountLocked());
+        }
+        // The slots of cancelled tasks are left posted and do nothing
+        if (priority == PRIORITY_INTERACTIVE) {
+            mUrgentExecutor.execute(pending);
+        } else {
+            mExecutor.execute(pending);
+        }
+    }
+
+    private void runTask(PendingTask pending) {
+        synchronized (mLock) {
+            ArrayDeque<PendingTask> queue = getQueueLocked(pending.priority);
+            if (pending.priority == PRIORITY_BACKGROUND && !mDefaultTasks.isEmpty()
+                    && mClock.getAsLong() - pending.enqueueTime < MAX_BACKGROUND_DELAY_MS
+                    && queue.contains(pending)) {
+                // Wait for the default tasks queued so far
+                mExecutor.execute(pending);
+                return;
+            }
+            if (!queue.remove(pending)) {
+                // Cancelled or superseded
+                return;
+            }
+        }
+        mTaskRunner.accept(pending.task);
+    }
+
+    /**
+     * Returns true if a pending task makes {@code task} redundant. The pending task runs later
+     * and reads the package state at that time, so running both gives the same result, provided
+     * no task queued after it depends on it.
+     */
+    private boolean coalescePackageTaskLocked(PackageUpdatedTask task) {
+        Set<String> packages = getPackageSet(task);
+        for (Iterator<PendingTask> it = mDefaultTasks.descendingIterator(); it.hasNext(); ) {
+            if (!(it.next().task instanceof PackageUpdatedTask pending)) {
+                // Any other task may depend on the pending package tasks
+                return false;
+            }
+            Set<String> pendingPackages = getPackageSet(pending);
+            if (pending.getOp() == task.getOp() && pending.getUser().equals(task.getUser())
+                    && pendingPackages.equals(packages)) {
+                return true;
+            }
+            if (pending.getUser().equals(task.getUser())
+                    && (pending.getOp() == OP_USER_AVAILABILITY_CHANGE
+                            || task.getOp() == OP_USER_AVAILABILITY_CHANGE
+                            || !Collections.disjoint(pendingPackages, packages))) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merges {@code task} into a pending cache update for the same user, returning true if found.
+     */
+    private boolean mergeCacheUpdateLocked(CacheDataUpdatedTask task) {
+        for (PendingTask pending : mBackgroundTasks) {
+            if (pending.task instanceof CacheDataUpdatedTask pendingTask
+                    && pendingTask.getOp() == task.getOp()
+                    && pendingTask.getUser().equals(task.getUser())) {
+                HashSet<String> packages = new HashSet<>(pendingTask.getPackages());
+                packages.addAll(task.getPackages());
+                pending.task = new CacheDataUpdatedTask(task.getOp(), task.getUser(), packages);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the packages removed by {@code task} from the pending cache updates, which would not
+     * find any item to update once it has run.
+     */
+    private void cancelCacheUpdatesLocked(PackageUpdatedTask task) {
+        Set<String> removed = getPackageSet(task);
+        for (Iterator<PendingTask> it = mBackgroundTasks.iterator(); it.hasNext(); ) {
+            PendingTask pending = it.next();
+            if (!(pending.task instanceof CacheDataUpdatedTask pendingTask)
+                    || !pendingTask.getUser().equals(task.getUser())
+                    || Collections.disjoint(pendingTask.getPackages(), removed)) {
+                continue;
+            }
+            HashSet<String> packages = new HashSet<>(pendingTask.getPackages());
+            packages.removeAll(removed);
+            if (packages.isEmpty()) {
+                it.remove();
+                mCancelledCount++;
+            } else {
+                pending.task = new CacheDataUpdatedTask(
+                        pendingTask.getOp(), pendingTask.getUser(), packages);
+            }
+        }
+    }
+
+    private static Set<String> getPackageSet(PackageUpdatedTask task) {
+        return new HashSet<>(Arrays.asList(task.getPackages()));
+    }
+
+    private ArrayDeque<PendingTask> getQueueLocked(@TaskPriority int priority) {
+        return switch (priority) {
+            case PRIORITY_INTERACTIVE -> mInteractiveTasks;
+            case PRIORITY_BACKGROUND -> mBackgroundTasks;
+            default -> mDefaultTasks;
+        };
+    }
+
+    private int getPendingCountLocked() {
+        return mInteractiveTasks.size() + mDefaultTasks.size() + mBackgroundTasks.size();
+    }
+
+    @VisibleForTesting
+    int getPendingCount() {
+        synchronized (mLock) {
+            return getPendingCountLocked();
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        synchronized (mLock) {
+            writer.println(prefix + "ModelTaskScheduler: pending=" + getPendingCountLocked()
+                    + " maxPending=" + mMaxPendingCount
+                    + " coalesced=" + mCoalescedCount
+                    + " cancelled=" + mCancelledCount
+                    + " superseded=" + mSupersededCount);
+            for (int priority = 0; priority < PRIORITY_NAMES.length; priority++) {
+                writer.println(prefix + "  " + PRIORITY_NAMES[priority]
+                        + ": enqueued=" + mEnqueuedCounts[priority]
+                        + " pending=" + getQueueLocked(priority).size());
+            }
+        }
+    }
+
+    private class PendingTask implements Runnable {
+
+        // Replaced when the task is merged with a later one, guarded by mLock
+        ModelUpdateTask task;
+        @TaskPriority
+        final int priority;
+        @Nullable
+        final Object supersedeKey;
+        final long enqueueTime;
+
+        PendingTask(ModelUpdateTask task, @TaskPriority int priority,
+                @Nullable Object supersedeKey, long enqueueTime) {
+            this.task = task;
+            this.priority = priority;
+            this.supersedeKey = supersedeKey;
+            this.enqueueTime = enqueueTime;
+        }
+
+        @Override
+        public void run() {
+            runTask(this);
+        }
+    }
+}
@@ -16,12 +16,14 @@
 
 package com.android.launcher3.model;
 
+import static com.android.launcher3.Flags.enableWorkspaceSnapshot;
 import static com.android.launcher3.LauncherSettings.Favorites.TABLE_NAME;
 import static com.android.launcher3.provider.LauncherDbUtils.itemIdMatch;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.sqlite.SQLiteException;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -48,11 +50,14 @@ import com.android.launcher3.util.ItemInfoMatcher;
 import com.android.launcher3.util.LooperExecutor;
 import com.android.launcher3.widget.LauncherWidgetHolder;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -65,6 +70,17 @@ public class ModelWriter {
 
     private static final String TAG = "ModelWriter";
 
+    // Number of single item updates requested, rows written by update batches and batches
+    private static final AtomicLong sRequestedUpdates = new AtomicLong();
+    private static final AtomicLong sBatchedUpdates = new AtomicLong();
+    private static final AtomicLong sUpdateBatches = new AtomicLong();
+
+    // Single item updates waiting for the model thread, see #enqueueUpdate. Only the last batch
+    // posted by any writer is open, so that the updates of all the writers stay in order.
+    private static final Object sBatchLock = new Object();
+    @Nullable
+    private static UpdateBatchRunnable sPendingBatch;
+
     private final Context mContext;
     private final LauncherModel mModel;
     private final BgDataModel mBgDataModel;
@@ -383,6 +399,48 @@ public class ModelWriter {
         mModel.forceReload();
     }
 
+    /**
+     * Queues a single item update in the pending batch, merging it with the pending update of the
+     * same item if any. The batch is posted to the model thread when it is created, and it is
+     * closed by {@link #closePendingBatches()}. The consecutive updates made while the model
+     * thread is busy are thus written in a single transaction.
+     *
+     * The updates are written in order with the tasks of all the writers, the model update tasks
+     * and the loader, which close the pending batch. Other tasks posted directly on
+     * {@link Executors#MODEL_EXECUTOR} may run after updates requested after them, so they must
+     * call {@link #closePendingBatches()} if they depend on the order of the workspace writes.
+     */
+    private void enqueueUpdate(UpdateItemRunnable update) {
+        sRequestedUpdates.incrementAndGet();
+        synchronized (sBatchLock) {
+            if (sPendingBatch == null || sPendingBatch.getWriter() != this) {
+                sPendingBatch = new UpdateBatchRunnable();
+                MODEL_EXECUTOR.execute(sPendingBatch);
+            }
+            sPendingBatch.add(update);
+        }
+    }
+
+    /**
+     * Closes the pending update batch, must be called before posting a task on the model thread
+     * which has to run after the updates requested so far, and before the updates requested
+     * afterwards.
+     */
+    public static void closePendingBatches() {
+        synchronized (sBatchLock) {
+            sPendingBatch = null;
+        }
+    }
+
+    /**
+     * Dumps the number of requested and batched database updates.
+     */
+    public static void dumpStats(String prefix, PrintWriter writer) {
+        writer.println(prefix + "ModelWriter: requestedUpdates=" + sRequestedUpdates.get()
+                + " batchedUpdates=" + sBatchedUpdates.get()
+                + " batches=" + sUpdateBatches.get());
+    }
+
     private void notifyOtherCallbacks(CallbackTask task) {
         if (mOwner == null) {
             // If the call is happening from a model, it will take care of updating the callbacks
@@ -402,6 +460,10 @@ public class ModelWriter {
         private final Supplier<ContentWriter> mWriter;
         private final int mItemId;
 
+        // Update of the same item which this update replaced in a batch
+        @Nullable
+        private UpdateItemRunnable mPrevious;
+
         UpdateItemRunnable(ItemInfo item, Supplier<ContentWriter> writer) {
             mItem = item;
             mWriter = writer;
@@ -411,9 +473,73 @@ public class ModelWriter {
         @Override
         public void runImpl() {
             mModel.getModelDbController().update(
-                    TABLE_NAME, mWriter.get().getValues(mContext), itemIdMatch(mItemId), null);
+                    TABLE_NAME, getValues(), itemIdMatch(mItemId), null);
             updateItemArrays(mItem, mItemId);
         }
+
+        private ContentValues getValues() {
+            ContentValues values = mWriter.get().getValues(mContext);
+            if (mPrevious == null) {
+                return values;
+            }
+            // Columns which are not written by this update keep the previous value
+            ContentValues merged = mPrevious.getValues();
+            merged.putAll(values);
+            return merged;
+        }
+
+        @Override
+        public void executeOnModelThread() {
+            enqueueUpdate(this);
+        }
+    }
+
+    /**
+     * Writes a batch of {@link UpdateItemRunnable}s in a single transaction.
+     */
+    private class UpdateBatchRunnable implements Runnable {
+
+        private final LinkedHashMap<Integer, UpdateItemRunnable> mUpdates = new LinkedHashMap<>();
+
+        ModelWriter getWriter() {
+            return ModelWriter.this;
+        }
+
+        /**
+         * Adds an update to this batch, must be called while holding {@link #sBatchLock}.
+         */
+        void add(UpdateItemRunnable update) {
+            UpdateItemRunnable previous = mUpdates.remove(update.mItemId);
+            if (previous != null) {
+                update.mPrevious = previous;
+            }
+            mUpdates.put(update.mItemId, update);
+        }
+
+        @Override
+        public void run() {
+            ArrayList<UpdateItemRunnable> updates;
+            synchronized (sBatchLock) {
+                if (sPendingBatch == this) {
+                    sPendingBatch = null;
+                }
+                updates = new ArrayList<>(mUpdates.values());
+            }
+            sUpdateBatches.incrementAndGet();
+            sBatchedUpdates.addAndGet(updates.size());
+            try (SQLiteTransaction t = mModel.getModelDbController().newTransaction()) {
+                for (UpdateItemRunnable update : updates) {
+                    try {
+                        // Each update checks that the model was not reloaded since it was created
+                        update.run();
+                    } catch (SQLiteException e) {
+                        // Don't roll back the other updates of the batch
+                        Log.e(TAG, "Failed to update item " + update.mItemId, e);
+                    }
+                }
+                t.commit();
+            }
+        }
     }
 
     private class UpdateItemsRunnable extends UpdateItemBaseRunnable {
@@ -505,10 +631,15 @@ public class ModelWriter {
                 Log.d(TAG, "Model changed before the task could execute");
                 return;
             }
+            if (enableWorkspaceSnapshot()) {
+                // The snapshot is saved again by the next load
+                WorkspaceSnapshot.invalidate(mContext);
+            }
             runImpl();
         }
 
-        public final void executeOnModelThread() {
+        public void executeOnModelThread() {
+            closePendingBatches();
             MODEL_EXECUTOR.execute(this);
         }
 
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.model.PackageUpdatedTask.OP_ADD;
+import static com.android.launcher3.model.PackageUpdatedTask.OP_REMOVE;
+import static com.android.launcher3.model.PackageUpdatedTask.OP_UPDATE;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.os.UserHandle;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.LauncherModel.ModelUpdateTask;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Batches the package add, update and remove events received in a short window into
+ * multi-package {@link PackageUpdatedTask}s, so that a bulk update from an app store walks the
+ * model and binds once instead of once per package.
+ *
+ * Events of the same op and user are merged into one task, unless a later event changed one of
+ * their packages, so the events of each package are applied in the order they were received.
+ * Any other task flushes the pending batches before being forwarded, as it may depend on them.
+ */
+public class PackageEventBatcher implements Consumer<ModelUpdateTask> {
+
+    // Time without new events after which the batches are flushed
+    @VisibleForTesting
+    static final long DEBOUNCE_MS = 100;
+    // Maximum time an event waits in a batch
+    @VisibleForTesting
+    static final long MAX_DELAY_MS = 500;
+
+    // Upper bounds of the batch size histogram buckets, the last bucket has no upper bound
+    private static final int[] BATCH_SIZE_LIMITS = {2, 5, 10, 50};
+
+    private final Handler mHandler;
+    private final Consumer<ModelUpdateTask> mTaskExecutor;
+    private final Runnable mFlushRunnable = this::flush;
+
+    // Guarded by mBatches
+    private final ArrayList<Batch> mBatches = new ArrayList<>();
+    private long mFirstEventTime;
+    private long mEventCount;
+    private long mTaskCount;
+    private long mFlushCount;
+    private int mMaxBatchSize;
+    private final long[] mBatchSizeHistogram = new long[BATCH_SIZE_LIMITS.length + 1];
+
+    /**
+     * @param handler handler on which the batches are flushed after the debounce window
+     * @param taskExecutor receives the batched tasks and the other tasks
+     */
+    public PackageEventBatcher(@NonNull Handler handler,
+            @NonNull Consumer<ModelUpdateTask> taskExecutor) {
+        mHandler = handler;
+        mTaskExecutor = taskExecutor;
+    }
+
+    @AnyThread
+    @Override
+    public void accept(ModelUpdateTask task) {
+        if (!(task instanceof PackageUpdatedTask packageTask) || !isBatched(packageTask.getOp())) {
+            flush();
+            mTaskExecutor.accept(task);
+            return;
+        }
+        long delay;
+        synchronized (mBatches) {
+            long now = SystemClock.uptimeMillis();
+            if (mBatches.isEmpty()) {
+                mFirstEventTime = now;
+            }
+            addLocked(packageTask);
+            mEventCount++;
+            delay = Math.max(0, Math.min(DEBOUNCE_MS, mFirstEventTime + MAX_DELAY_MS - now));
+        }
+        mHandler.removeCallbacks(mFlushRunnable);
+        mHandler.postDelayed(mFlushRunnable, delay);
+    }
+
+    private void addLocked(PackageUpdatedTask task) {
+        List<String> packages = Arrays.asList(task.getPackages());
+        for (int i = mBatches.size() - 1; i >= 0; i--) {
+            Batch batch = mBatches.get(i);
+            if (!batch.user.equals(task.getUser())) {
+                continue;
+            }
+            if (batch.op == task.getOp()) {
+                batch.packages.addAll(packages);
+                return;
+            }
+            if (!Collections.disjoint(batch.packages, packages)) {
+                // A later event changed the package, keep the events in order
+                break;
+            }
+        }
+        mBatches.add(new Batch(task.getOp(), task.getUser(), packages));
+    }
+
+    /**
+     * Enqueues the pending batches.
+     */
+    @AnyThread
+    public void flush() {
+        mHandler.removeCallbacks(mFlushRunnable);
+        ArrayList<Batch> batches;
+        synchronized (mBatches) {
+            if (mBatches.isEmpty()) {
+                return;
+            }
+            batches = new ArrayList<>(mBatches);
+            mBatches.clear();
+            mFlushCount++;
+            for (Batch batch : batches) {
+                int size = batch.packages.size();
+                mTaskCount++;
+                mMaxBatchSize = Math.max(mMaxBatchSize, size);
+                int bucket = 0;
+                while (bucket < BATCH_SIZE_LIMITS.length && size >= BATCH_SIZE_LIMITS[bucket]) {
+                    bucket++;
+                }
+                mBatchSizeHistogram[bucket]++;
+            }
+        }
+        for (Batch batch : batches) {
+            mTaskExecutor.accept(new PackageUpdatedTask(
+                    batch.op, batch.user, batch.packages.toArray(new String[0])));
+        }
+    }
+
+    private static boolean isBatched(int op) {
+        return op == OP_ADD || op == OP_UPDATE || op == OP_REMOVE;
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        synchronized (mBatches) {
+            StringBuilder histogram = new StringBuilder("{");
+            for (int i = 0; i < mBatchSizeHistogram.length; i++) {
+                if (mBatchSizeHistogram[i] == 0) {
+                    continue;
+                }
+                if (histogram.length() > 1) {
+                    histogram.append(", ");
+                }
+                histogram.append(i < BATCH_SIZE_LIMITS.length
+                                ? "<" + BATCH_SIZE_LIMITS[i]
+                                : ">=" + BATCH_SIZE_LIMITS[i - 1])
+                        .append(": ").append(mBatchSizeHistogram[i]);
+            }
+            writer.println(prefix + "PackageEventBatcher: events=" + mEventCount
+                    + " tasks=" + mTaskCount
+                    + " flushes=" + mFlushCount
+                    + " maxBatchSize=" + mMaxBatchSize
+                    + " batchSizes=" + histogram.append("}")
+                    + " pendingBatches=" + mBatches.size());
+        }
+    }
+
+    private static class Batch {
+
+        final int op;
+        final UserHandle user;
+        final LinkedHashSet<String> packages;
+
+        Batch(int op, UserHandle user, List<String> packages) {
+            this.op = op;
+            this.user = user;
+            this.packages = new LinkedHashSet<>(packages);
+        }
+    }
+}
@@ -105,6 +105,20 @@ public class PackageUpdatedTask implements ModelUpdateTask {
         mPackages = packages;
     }
 
+    int getOp() {
+        return mOp;
+    }
+
+    @NonNull
+    UserHandle getUser() {
+        return mUser;
+    }
+
+    @NonNull
+    String[] getPackages() {
+        return mPackages;
+    }
+
     @Override
     public void execute(@NonNull ModelTaskController taskController, @NonNull BgDataModel dataModel,
             @NonNull AllAppsList appsList) {
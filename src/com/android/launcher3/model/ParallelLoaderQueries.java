@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.logging.StartupTimeline.CATEGORY_PACKAGE_MANAGER;
+import static com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR;
+
+import android.content.Context;
+import android.content.pm.LauncherActivityInfo;
+import android.content.pm.LauncherApps;
+import android.content.pm.ShortcutInfo;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.logging.StartupTimeline;
+import com.android.launcher3.shortcuts.ShortcutRequest;
+import com.android.launcher3.shortcuts.ShortcutRequest.QueryResult;
+import com.android.launcher3.util.SafeCloseable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Per user queries of {@link LoaderTask} which don't depend on the workspace, started on
+ * {@link com.android.launcher3.util.Executors#THREAD_POOL_EXECUTOR} when the loader starts so
+ * that they run in parallel with each other and with loading the workspace.
+ *
+ * The loader consumes the results in the same order as it would run the queries, so the loaded
+ * model is the same as when loading sequentially. If a query failed, or was not started because
+ * the user was locked, the loader runs it itself.
+ */
+class ParallelLoaderQueries {
+
+    private static final String TAG = "ParallelLoaderQueries";
+
+    private final Map<UserHandle, Future<QueryResult>> mPinnedShortcuts = new ArrayMap<>();
+    private final Map<UserHandle, Future<List<LauncherActivityInfo>>> mActivityLists =
+            new ArrayMap<>();
+    private final Map<UserHandle, Future<QueryResult>> mDeepShortcuts = new ArrayMap<>();
+
+    ParallelLoaderQueries(Context context, LauncherApps launcherApps, UserManager userManager,
+            List<UserHandle> profiles, boolean queryDeepShortcuts) {
+        for (UserHandle user : profiles) {
+            mActivityLists.put(user, submit("getActivityList",
+                    () -> launcherApps.getActivityList(null, user)));
+            // Shortcuts can only be queried when the user is unlocked
+            if (!userManager.isUserUnlocked(user)) {
+                continue;
+            }
+            mPinnedShortcuts.put(user, submit("getPinnedShortcuts",
+                    () -> new ShortcutRequest(context, user).query(ShortcutRequest.PINNED)));
+            if (queryDeepShortcuts) {
+                mDeepShortcuts.put(user, submit("getDeepShortcuts",
+                        () -> new ShortcutRequest(context, user).query(ShortcutRequest.ALL)));
+            }
+        }
+    }
+
+    @WorkerThread
+    QueryResult getPinnedShortcuts(UserHandle user, Supplier<QueryResult> query) {
+        return getOrQuery(mPinnedShortcuts.get(user), query);
+    }
+
+    @WorkerThread
+    List<LauncherActivityInfo> getActivityList(UserHandle user,
+            Supplier<List<LauncherActivityInfo>> query) {
+        return getOrQuery(mActivityLists.get(user), query);
+    }
+
+    @WorkerThread
+    List<ShortcutInfo> getDeepShortcuts(UserHandle user, Supplier<QueryResult> query) {
+        return getOrQuery(mDeepShortcuts.get(user), query);
+    }
+
+    /**
+     * Cancels the queries which did not start yet.
+     */
+    void cancel() {
+        mPinnedShortcuts.values().forEach(f -> f.cancel(false));
+        mActivityLists.values().forEach(f -> f.cancel(false));
+        mDeepShortcuts.values().forEach(f -> f.cancel(false));
+    }
+
+    private static <T> Future<T> submit(String name, Callable<T> query) {
+        return THREAD_POOL_EXECUTOR.submit(() -> {
+            try (SafeCloseable c = StartupTimeline.INSTANCE.span(CATEGORY_PACKAGE_MANAGER, name)) {
+                return query.call();
+            }
+        });
+    }
+
+    private static <T> T getOrQuery(@Nullable Future<? extends T> future,
+            @NonNull Supplier<? extends T> query) {
+        if (future != null) {
+            try (SafeCloseable c = StartupTimeline.INSTANCE.span(
+                    CATEGORY_PACKAGE_MANAGER, "awaitParallelQuery")) {
+                T result = future.get();
+                if (result != null) {
+                    return result;
+                }
+            } catch (ExecutionException e) {
+                Log.w(TAG, "Parallel query failed, retrying", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return query.get();
+    }
+}
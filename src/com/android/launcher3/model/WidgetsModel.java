@@ -4,6 +4,7 @@ package com.android.launcher3.model;
 import static android.appwidget.AppWidgetProviderInfo.WIDGET_FEATURE_HIDE_FROM_PICKER;
 
 import static com.android.launcher3.BuildConfig.WIDGETS_ENABLED;
+import static com.android.launcher3.Flags.enableIncrementalWidgetsModel;
 import static com.android.launcher3.pm.ShortcutConfigActivityInfo.queryList;
 import static com.android.launcher3.widget.WidgetSections.NO_CATEGORY;
 
@@ -38,7 +39,11 @@ import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.Preconditions;
 import com.android.launcher3.widget.LauncherAppWidgetProviderInfo;
 import com.android.launcher3.widget.WidgetManagerHelper;
+import com.android.launcher3.widget.WidgetPreviewCache;
 import com.android.launcher3.widget.WidgetSections;
+import com.android.launcher3.widget.model.WidgetsListBaseEntriesBuilder;
+import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListUpdate;
 import com.android.wm.shell.Flags;
 
 import java.util.ArrayList;
@@ -46,6 +51,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -68,6 +74,12 @@ public class WidgetsModel {
     /* Map of widgets and shortcuts that are tracked per package. */
     private final Map<PackageItemInfo, List<WidgetItem>> mWidgetsByPackageItem = new HashMap<>();
 
+    /* Widget picker entries of each package, kept between calls to buildListUpdate. */
+    private final Map<PackageUserKey, List<WidgetsListBaseEntry>> mListEntries = new HashMap<>();
+    /* Packages changed since the last call to buildListUpdate, or null if all changed. */
+    @Nullable
+    private Set<PackageUserKey> mChangedPackages = null;
+
     /**
      * Returns all widgets keyed by their component key.
      */
@@ -93,6 +105,38 @@ public class WidgetsModel {
         return new HashMap<>(mWidgetsByPackageItem);
     }
 
+    /**
+     * Returns the entries of the widget picker, only rebuilding the entries of the packages which
+     * changed since the previous call.
+     */
+    public synchronized WidgetsListUpdate buildListUpdate(Context context) {
+        if (!WIDGETS_ENABLED) {
+            return new WidgetsListUpdate(Collections.emptyList(), null);
+        }
+        Set<PackageUserKey> changedPackages = mChangedPackages;
+        if (changedPackages == null) {
+            mListEntries.clear();
+        } else {
+            mListEntries.keySet().removeAll(changedPackages);
+        }
+        WidgetsListBaseEntriesBuilder builder = new WidgetsListBaseEntriesBuilder(context);
+        for (Entry<PackageItemInfo, List<WidgetItem>> entry : mWidgetsByPackageItem.entrySet()) {
+            PackageUserKey key = PackageUserKey.fromPackageItemInfo(entry.getKey());
+            if (changedPackages == null || changedPackages.contains(key)) {
+                List<WidgetsListBaseEntry> packageEntries =
+                        builder.buildPackageEntries(entry.getKey(), entry.getValue());
+                if (!packageEntries.isEmpty()) {
+                    mListEntries.put(key, packageEntries);
+                }
+            }
+        }
+        mChangedPackages = new HashSet<>();
+
+        List<WidgetsListBaseEntry> entries = new ArrayList<>();
+        mListEntries.values().forEach(entries::addAll);
+        return new WidgetsListUpdate(entries, changedPackages);
+    }
+
     /**
      * @param packageUser If null, all widgets and shortcuts are updated and returned, otherwise
      *                    only widgets and shortcuts associated with the package/user are.
@@ -130,6 +174,7 @@ public class WidgetsModel {
                 updatedItems.add(info);
             }
             setWidgetsAndShortcuts(widgetsAndShortcuts, app, packageUser);
+            WidgetPreviewCache.INSTANCE.executeIfCreated(cache -> cache.invalidate(packageUser));
         } catch (Exception e) {
             if (!FeatureFlags.IS_STUDIO_BUILD && Utilities.isBinderSizeError(e)) {
                 // the returned value may be incomplete and will not be refreshed until the next
@@ -170,6 +215,12 @@ public class WidgetsModel {
                         .map(key -> new Pair<>(packageItemInfoCache.getOrCreate(key), widgetItem)))
                 .collect(groupingBy(pair -> pair.first, mapping(pair -> pair.second, toList()))));
 
+        if (packageUser == null) {
+            mChangedPackages = null;
+        } else {
+            markPackagesChanged(packageItemInfoCache.keySet());
+        }
+
         // Update each package entry
         IconCache iconCache = app.getIconCache();
         for (PackageItemInfo p : packageItemInfoCache.values()) {
@@ -182,9 +233,16 @@ public class WidgetsModel {
         if (!WIDGETS_ENABLED) {
             return;
         }
+        // Previews without a preview image are drawn from the app icon
+        WidgetPreviewCache.INSTANCE.executeIfCreated(cache -> packageNames.forEach(
+                packageName -> cache.invalidate(new PackageUserKey(packageName, user))));
         WidgetManagerHelper widgetManager = new WidgetManagerHelper(app.getContext());
+        List<PackageUserKey> updatedPackages = new ArrayList<>();
         for (Entry<PackageItemInfo, List<WidgetItem>> entry : mWidgetsByPackageItem.entrySet()) {
             if (packageNames.contains(entry.getKey().packageName)) {
+                if (entry.getKey().user.equals(user)) {
+                    updatedPackages.add(PackageUserKey.fromPackageItemInfo(entry.getKey()));
+                }
                 List<WidgetItem> items = entry.getValue();
                 int count = items.size();
                 for (int i = 0; i < count; i++) {
@@ -202,6 +260,13 @@ public class WidgetsModel {
                 }
             }
         }
+        markPackagesChanged(updatedPackages);
+    }
+
+    private synchronized void markPackagesChanged(Collection<PackageUserKey> packages) {
+        if (enableIncrementalWidgetsModel() && mChangedPackages != null) {
+            mChangedPackages.addAll(packages);
+        }
     }
 
     /** Returns {@link PackageItemInfo} of a pending widget. */
@@ -317,5 +382,9 @@ public class WidgetsModel {
         Collection<PackageItemInfo> values() {
             return mMap.values();
         }
+
+        Set<PackageUserKey> keySet() {
+            return mMap.keySet();
+        }
     }
 }
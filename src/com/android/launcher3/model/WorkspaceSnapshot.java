@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_DESKTOP;
+import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_HOTSEAT;
+import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION;
+import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_DEEP_SHORTCUT;
+import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_FOLDER;
+
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.UserHandle;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.icons.BitmapInfo;
+import com.android.launcher3.icons.LauncherIcons;
+import com.android.launcher3.model.data.FolderInfo;
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.util.FlagOp;
+import com.android.launcher3.util.IntArray;
+import com.android.launcher3.util.IntSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A copy of the items on the first pages of the workspace and in the hotseat, with their icons,
+ * saved after the model is loaded. On the next start, it is bound before the workspace is read
+ * from the database, so that the first pages are shown while the model is loading. The loader
+ * then binds the full workspace, replacing the items bound from the snapshot.
+ *
+ * Only app icons, deep shortcuts and folders of those are saved. The snapshot is discarded if the
+ * grid, locale or icon state changed since it was saved, and deleted by the first write to the
+ * workspace after it was saved.
+ */
+public class WorkspaceSnapshot {
+
+    private static final String TAG = "WorkspaceSnapshot";
+
+    private static final String FILE_NAME = "workspace_snapshot";
+    private static final int MAGIC = 0x4C575353;
+    private static final int FORMAT_VERSION = 2;
+
+    // False once the snapshot is known to be deleted, to only delete it once after each save
+    private static volatile boolean sMayExist = true;
+
+    @NonNull
+    public final IntArray screenIds;
+    @NonNull
+    public final ArrayList<ItemInfo> items;
+
+    private WorkspaceSnapshot(@NonNull IntArray screenIds, @NonNull ArrayList<ItemInfo> items) {
+        this.screenIds = screenIds;
+        this.items = items;
+    }
+
+    /**
+     * Returns the file where the snapshot is stored.
+     */
+    public static File getFile(Context context) {
+        return new File(context.getNoBackupFilesDir(), FILE_NAME);
+    }
+
+    /**
+     * Returns a string identifying the state in which a snapshot is valid.
+     */
+    private static String getValidityKey(LauncherAppState app) {
+        InvariantDeviceProfile idp = app.getInvariantDeviceProfile();
+        return idp.dbFile + "," + idp.numColumns + "x" + idp.numRows
+                + "," + idp.numDatabaseHotseatIcons
+                + "," + Locale.getDefault().toLanguageTag()
+                + "," + app.getIconProvider().getSystemIconState();
+    }
+
+    /**
+     * Reads the snapshot, or returns null if there is none or it is no longer valid.
+     */
+    @Nullable
+    @WorkerThread
+    public static WorkspaceSnapshot read(LauncherAppState app) {
+        File file = getFile(app.getContext());
+        if (!file.exists()) {
+            return null;
+        }
+        UserCache userCache = UserCache.INSTANCE.get(app.getContext());
+        try (DataInputStream in = new DataInputStream(new AtomicFile(file).openRead());
+             LauncherIcons iconFactory = LauncherIcons.obtain(app.getContext())) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+                    || !getValidityKey(app).equals(in.readUTF())) {
+                return null;
+            }
+            IntArray screenIds = new IntArray();
+            int screenCount = in.readInt();
+            for (int i = 0; i < screenCount; i++) {
+                screenIds.add(in.readInt());
+            }
+            ArrayList<ItemInfo> items = new ArrayList<>();
+            int itemCount = in.readInt();
+            for (int i = 0; i < itemCount; i++) {
+                ItemInfo item = readItem(in, userCache, iconFactory);
+                if (item != null) {
+                    items.add(item);
+                }
+            }
+            return new WorkspaceSnapshot(screenIds, items);
+        } catch (IOException | URISyntaxException e) {
+            Log.w(TAG, "Failed to read workspace snapshot", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Saves the items of {@code dataModel} on {@code screenIds} and in the hotseat.
+     */
+    @WorkerThread
+    public static void write(LauncherAppState app, BgDataModel dataModel, IntSet screenIds) {
+        UserCache userCache = UserCache.INSTANCE.get(app.getContext());
+        ArrayList<ItemInfo> items = new ArrayList<>();
+        IntArray orderedScreenIds;
+        synchronized (dataModel) {
+            orderedScreenIds = dataModel.collectWorkspaceScreens();
+            for (ItemInfo item : dataModel.workspaceItems) {
+                if (item.container == CONTAINER_HOTSEAT
+                        || (item.container == CONTAINER_DESKTOP
+                                && screenIds.contains(item.screenId))) {
+                    items.add(item);
+                }
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(getValidityKey(app));
+            out.writeInt(orderedScreenIds.size());
+            for (int i = 0; i < orderedScreenIds.size(); i++) {
+                out.writeInt(orderedScreenIds.get(i));
+            }
+            out.writeInt(items.size());
+            for (ItemInfo item : items) {
+                writeItem(out, item, userCache);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to serialize workspace snapshot", e);
+            return;
+        }
+
+        AtomicFile file = new AtomicFile(getFile(app.getContext()));
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            bytes.writeTo(out);
+            file.finishWrite(out);
+            sMayExist = true;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write workspace snapshot", e);
+            if (out != null) {
+                file.failWrite(out);
+            }
+        }
+    }
+
+    /**
+     * Deletes the saved snapshot.
+     */
+    public static void delete(Context context) {
+        sMayExist = false;
+        new AtomicFile(getFile(context)).delete();
+    }
+
+    /**
+     * Deletes the saved snapshot if it was not deleted since it was saved. Must be called on the
+     * model thread before the workspace is written, as the snapshot would no longer match it.
+     */
+    @WorkerThread
+    public static void invalidate(Context context) {
+        if (sMayExist) {
+            delete(context);
+        }
+    }
+
+    private static boolean isSupported(ItemInfo item) {
+        if (item instanceof WorkspaceItemInfo wii) {
+            return (wii.itemType == ITEM_TYPE_APPLICATION
+                    || wii.itemType == ITEM_TYPE_DEEP_SHORTCUT)
+                    && wii.intent != null && !wii.bitmap.isNullOrLowRes();
+        }
+        return item instanceof FolderInfo;
+    }
+
+    private static void writeItem(DataOutputStream out, ItemInfo item, UserCache userCache)
+            throws IOException {
+        boolean supported = isSupported(item);
+        out.writeBoolean(supported);
+        if (!supported) {
+            return;
+        }
+        out.writeInt(item.itemType);
+        out.writeInt(item.id);
+        out.writeInt(item.container);
+        out.writeInt(item.screenId);
+        out.writeInt(item.cellX);
+        out.writeInt(item.cellY);
+        out.writeInt(item.spanX);
+        out.writeInt(item.spanY);
+        out.writeInt(item.rank);
+        out.writeUTF(item.title == null ? "" : item.title.toString());
+        out.writeLong(userCache.getSerialNumberForUser(item.user));
+
+        if (item instanceof FolderInfo folder) {
+            out.writeInt(folder.options);
+            List<ItemInfo> contents = new ArrayList<>(folder.getContents());
+            out.writeInt(contents.size());
+            for (ItemInfo content : contents) {
+                writeItem(out, content, userCache);
+            }
+        } else {
+            WorkspaceItemInfo wii = (WorkspaceItemInfo) item;
+            out.writeUTF(wii.intent.toUri(0));
+            out.writeInt(wii.runtimeStatusFlags);
+            out.writeInt(wii.bitmap.color);
+            writeBitmap(out, wii.bitmap.icon);
+            // Themed icons are drawn from the monochrome icon
+            writeBitmap(out, wii.bitmap.getMono());
+        }
+    }
+
+    private static void writeBitmap(DataOutputStream out, @Nullable Bitmap bitmap)
+            throws IOException {
+        if (bitmap == null) {
+            out.writeInt(0);
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, bytes);
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    @Nullable
+    private static Bitmap readBitmap(DataInputStream in, @Nullable Bitmap.Config config)
+            throws IOException {
+        int size = in.readInt();
+        if (size == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[size];
+        in.readFully(bytes);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = config;
+        Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, size, options);
+        if (bitmap == null) {
+            throw new IOException("Invalid bitmap");
+        }
+        return bitmap;
+    }
+
+    @Nullable
+    private static ItemInfo readItem(DataInputStream in, UserCache userCache,
+            LauncherIcons iconFactory) throws IOException, URISyntaxException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int itemType = in.readInt();
+        ItemInfo item = itemType == ITEM_TYPE_FOLDER ? new FolderInfo() : new WorkspaceItemInfo();
+        item.itemType = itemType;
+        item.id = in.readInt();
+        item.container = in.readInt();
+        item.screenId = in.readInt();
+        item.cellX = in.readInt();
+        item.cellY = in.readInt();
+        item.spanX = in.readInt();
+        item.spanY = in.readInt();
+        item.rank = in.readInt();
+        item.title = in.readUTF();
+        UserHandle user = userCache.getUserForSerialNumber(in.readLong());
+
+        if (item instanceof FolderInfo folder) {
+            folder.options = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ItemInfo content = readItem(in, userCache, iconFactory);
+                if (content != null) {
+                    folder.add(content);
+                }
+            }
+        } else {
+            WorkspaceItemInfo wii = (WorkspaceItemInfo) item;
+            wii.intent = Intent.parseUri(in.readUTF(), 0);
+            wii.runtimeStatusFlags = in.readInt();
+            int color = in.readInt();
+            Bitmap icon = readBitmap(in, Bitmap.Config.ARGB_8888);
+            if (icon == null) {
+                throw new IOException("Missing icon for item " + item.id);
+            }
+            wii.bitmap = BitmapInfo.of(icon, color);
+            Bitmap mono = readBitmap(in, Bitmap.Config.ALPHA_8);
+            if (mono != null) {
+                wii.bitmap.setMonoIcon(mono, iconFactory);
+            }
+            if (user != null) {
+                wii.bitmap = wii.bitmap.withFlags(
+                        userCache.getUserInfo(user).applyBitmapInfoFlags(FlagOp.NO_OP));
+            }
+        }
+        if (user == null) {
+            // The profile was removed since the snapshot was saved
+            return null;
+        }
+        item.user = user;
+        return item;
+    }
+}
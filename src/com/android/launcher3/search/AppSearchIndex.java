@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.search;
+
+import android.os.LocaleList;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.search.StringMatcherUtility.StringMatcher;
+import com.android.launcher3.util.IntArray;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Index of app titles used for matching search queries, maintained incrementally as apps are
+ * added, updated and removed from the all apps list.
+ *
+ * The match start positions and lower case form of every title are computed once per title
+ * and locale, instead of once per query. When a query extends the previous query and the apps
+ * did not change, only the previous results are matched again.
+ *
+ * All methods must be called on the model thread.
+ */
+@WorkerThread
+public class AppSearchIndex {
+
+    private final HashMap<AppInfo, Entry> mEntries = new HashMap<>();
+
+    private LocaleList mLocales;
+    private StringMatcher mMatcher;
+    // Incremented whenever the indexed apps change, to invalidate the previous results
+    private int mGeneration;
+
+    private String mLastQuery;
+    private int mLastGeneration = -1;
+    private List<AppInfo> mLastResult = new ArrayList<>();
+
+    /**
+     * Called when an app is added to the all apps list.
+     */
+    public void onAppAdded(@NonNull AppInfo info) {
+        mEntries.put(info, new Entry());
+        mGeneration++;
+    }
+
+    /**
+     * Called when the title of an app in the all apps list might have changed.
+     */
+    public void onAppUpdated(@NonNull AppInfo info) {
+        Entry entry = mEntries.get(info);
+        if (entry != null) {
+            entry.invalidate();
+        }
+        mGeneration++;
+    }
+
+    /**
+     * Called when an app is removed from the all apps list.
+     */
+    public void onAppRemoved(@NonNull AppInfo info) {
+        mEntries.remove(info);
+        mGeneration++;
+    }
+
+    /**
+     * Removes all the apps from the index.
+     */
+    public void clear() {
+        mEntries.clear();
+        mLastQuery = null;
+        mLastResult = new ArrayList<>();
+        mGeneration++;
+    }
+
+    /**
+     * Returns the apps whose title matches {@code query}, in the order of {@code apps}.
+     * The returned list is retained to refine the next query and must not be modified.
+     */
+    public List<AppInfo> search(@NonNull List<AppInfo> apps, @NonNull String query) {
+        LocaleList locales = LocaleList.getDefault();
+        if (!locales.equals(mLocales)) {
+            // Break points and lower case forms are locale dependent
+            mLocales = locales;
+            mMatcher = StringMatcher.getInstance();
+            mEntries.values().forEach(Entry::invalidate);
+            mGeneration++;
+        }
+
+        String queryTextLower = query.toLowerCase();
+        boolean refine = mLastQuery != null
+                && mLastGeneration == mGeneration
+                && queryTextLower.startsWith(mLastQuery)
+                && StringMatcherUtility.requestSimpleFuzzySearch(mLastQuery)
+                        == StringMatcherUtility.requestSimpleFuzzySearch(queryTextLower)
+                && isUpToDate(apps);
+        List<AppInfo> candidates = refine ? mLastResult : apps;
+
+        ArrayList<AppInfo> result = new ArrayList<>();
+        int total = candidates.size();
+        for (int i = 0; i < total; i++) {
+            AppInfo info = candidates.get(i);
+            Entry entry = getEntry(info);
+            if (StringMatcherUtility.matches(queryTextLower, entry.mTarget, entry.mTargetLower,
+                    entry.mStartPositions, mMatcher)) {
+                result.add(info);
+            }
+        }
+
+        mLastQuery = queryTextLower;
+        mLastGeneration = mGeneration;
+        mLastResult = result;
+        return result;
+    }
+
+    /**
+     * Returns true if every app in {@code apps} is indexed with its current title. Titles can be
+     * updated in place by the icon cache, so this is verified before reusing previous results.
+     */
+    private boolean isUpToDate(List<AppInfo> apps) {
+        if (apps.size() != mEntries.size()) {
+            return false;
+        }
+        int total = apps.size();
+        for (int i = 0; i < total; i++) {
+            AppInfo info = apps.get(i);
+            Entry entry = mEntries.get(info);
+            if (entry == null || entry.mTitle != info.title) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Entry getEntry(AppInfo info) {
+        Entry entry = mEntries.get(info);
+        if (entry == null) {
+            entry = new Entry();
+            mEntries.put(info, entry);
+        }
+        if (entry.mTarget == null || entry.mTitle != info.title) {
+            entry.update(info.title, mMatcher);
+        }
+        return entry;
+    }
+
+    private static class Entry {
+        CharSequence mTitle;
+        String mTarget;
+        String mTargetLower;
+        IntArray mStartPositions;
+
+        void update(CharSequence title, StringMatcher matcher) {
+            mTitle = title;
+            mTarget = title == null ? "" : title.toString();
+            mTargetLower = mTarget.toLowerCase();
+            mStartPositions = StringMatcherUtility.getMatchStartPositions(mTarget, matcher);
+        }
+
+        void invalidate() {
+            mTarget = null;
+        }
+    }
+}
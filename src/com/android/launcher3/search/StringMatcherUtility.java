@@ -67,6 +67,62 @@ public class StringMatcherUtility {
         return false;
     }
 
+    /**
+     * Returns the positions in {@code target} at which {@link #matches} attempts to match a query,
+     * so that they can be computed once and reused across queries.
+     */
+    public static IntArray getMatchStartPositions(String target, StringMatcher matcher) {
+        IntArray positions = new IntArray();
+        int targetLength = target.length();
+        if (targetLength == 0) {
+            return positions;
+        }
+
+        int lastType;
+        int thisType = Character.UNASSIGNED;
+        int nextType = Character.getType(target.codePointAt(0));
+        for (int i = 0; i < targetLength; i++) {
+            lastType = thisType;
+            thisType = nextType;
+            nextType = i < (targetLength - 1)
+                    ? Character.getType(target.codePointAt(i + 1)) : Character.UNASSIGNED;
+            if (matcher.isBreak(thisType, lastType, nextType)) {
+                positions.add(i);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Same as {@link #matches(String, String, StringMatcher)}, but using the precomputed
+     * {@code startPositions} of {@code target} and its lower case form.
+     *
+     * @see #getMatchStartPositions(String, StringMatcher)
+     */
+    public static boolean matches(String query, String target, String targetLowerCase,
+            IntArray startPositions, StringMatcher matcher) {
+        int queryLength = query.length();
+        int end = target.length() - queryLength;
+        if (end < 0 || queryLength <= 0) {
+            return false;
+        }
+
+        if (requestSimpleFuzzySearch(query)) {
+            return targetLowerCase.contains(query);
+        }
+
+        for (int i = 0; i < startPositions.size(); i++) {
+            int start = startPositions.get(i);
+            if (start > end) {
+                break;
+            }
+            if (matcher.matches(query, target.substring(start, start + queryLength))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns a list of breakpoints wherever the string contains a break. For example:
      * "t-mobile" would have breakpoints at [0, 1]
@@ -222,7 +278,7 @@ public class StringMatcherUtility {
     /**
      * Matching optimization to search in Chinese.
      */
-    private static boolean requestSimpleFuzzySearch(String s) {
+    public static boolean requestSimpleFuzzySearch(String s) {
         for (int i = 0; i < s.length(); ) {
             int codepoint = s.codePointAt(i);
             i += Character.charCount(codepoint);
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import android.os.SystemClock;
+import android.util.ArrayMap;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the tasks run by an executor, by task class: the time they waited in the queue, their
+ * run time and the number of tasks queued before them.
+ *
+ * Only the tasks wrapped with {@link #track} are recorded, so the queue depth does not include
+ * the messages posted directly on the handler of a looper executor.
+ */
+public class ExecutorStats {
+
+    private static final int MAX_DUMPED_TASKS = 20;
+
+    private final String mName;
+    private final AtomicInteger mQueueDepth = new AtomicInteger();
+
+    // Guarded by mTaskStats
+    private final ArrayMap<String, TaskStats> mTaskStats = new ArrayMap<>();
+    private int mMaxQueueDepth;
+    private long mUrgentCount;
+
+    public ExecutorStats(String name) {
+        mName = name;
+    }
+
+    /**
+     * Returns the number of tracked tasks waiting to run.
+     */
+    @AnyThread
+    public int getQueueDepth() {
+        return mQueueDepth.get();
+    }
+
+    /**
+     * Returns a runnable running {@code runnable} and recording it when it runs.
+     */
+    @AnyThread
+    public Runnable track(@NonNull Runnable runnable, boolean urgent) {
+        return new TrackedRunnable(runnable, urgent);
+    }
+
+    @VisibleForTesting
+    void record(String taskClass, long waitNs, long runNs, int depth, boolean urgent) {
+        synchronized (mTaskStats) {
+            TaskStats stats = mTaskStats.get(taskClass);
+            if (stats == null) {
+                stats = new TaskStats(taskClass);
+                mTaskStats.put(taskClass, stats);
+            }
+            stats.count++;
+            stats.totalWaitNs += waitNs;
+            stats.maxWaitNs = Math.max(stats.maxWaitNs, waitNs);
+            stats.totalRunNs += runNs;
+            stats.maxRunNs = Math.max(stats.maxRunNs, runNs);
+            stats.totalDepth += depth;
+            stats.maxDepth = Math.max(stats.maxDepth, depth);
+            mMaxQueueDepth = Math.max(mMaxQueueDepth, depth);
+            if (urgent) {
+                mUrgentCount++;
+            }
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        synchronized (mTaskStats) {
+            writer.println(prefix + mName + ": queueDepth=" + mQueueDepth.get()
+                    + " maxQueueDepth=" + mMaxQueueDepth
+                    + " urgentTasks=" + mUrgentCount);
+            List<TaskStats> all = new ArrayList<>(mTaskStats.values());
+            all.sort((a, b) -> Long.compare(b.totalWaitNs + b.totalRunNs,
+                    a.totalWaitNs + a.totalRunNs));
+            for (int i = 0; i < Math.min(all.size(), MAX_DUMPED_TASKS); i++) {
+                TaskStats stats = all.get(i);
+                writer.println(prefix + "  " + stats.taskClass
+                        + " count=" + stats.count
+                        + " wait(avg/max)=" + formatMs(stats.totalWaitNs / stats.count)
+                        + "/" + formatMs(stats.maxWaitNs)
+                        + " run(avg/max)=" + formatMs(stats.totalRunNs / stats.count)
+                        + "/" + formatMs(stats.maxRunNs)
+                        + " depth(avg/max)=" + (stats.totalDepth / stats.count)
+                        + "/" + stats.maxDepth);
+            }
+        }
+    }
+
+    private static String formatMs(long ns) {
+        return String.format(Locale.US, "%.2fms", ns / 1_000_000f);
+    }
+
+    private class TrackedRunnable implements Runnable {
+
+        private final Runnable mRunnable;
+        private final boolean mUrgent;
+        private final long mEnqueueNs;
+        private final int mDepth;
+
+        TrackedRunnable(Runnable runnable, boolean urgent) {
+            mRunnable = runnable;
+            mUrgent = urgent;
+            mDepth = mQueueDepth.getAndIncrement();
+            mEnqueueNs = SystemClock.elapsedRealtimeNanos();
+        }
+
+        @Override
+        public void run() {
+            long startNs = SystemClock.elapsedRealtimeNanos();
+            mQueueDepth.decrementAndGet();
+            try {
+                mRunnable.run();
+            } finally {
+                record(mRunnable.getClass().getName(), startNs - mEnqueueNs,
+                        SystemClock.elapsedRealtimeNanos() - startNs, mDepth, mUrgent);
+            }
+        }
+    }
+
+    private static class TaskStats {
+
+        final String taskClass;
+        long count;
+        long totalWaitNs;
+        long maxWaitNs;
+        long totalRunNs;
+        long maxRunNs;
+        long totalDepth;
+        int maxDepth;
+
+        TaskStats(String taskClass) {
+            this.taskClass = taskClass;
+        }
+    }
+}
@@ -21,6 +21,9 @@ import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Process;
 
+import com.android.launcher3.Flags;
+
+import java.io.PrintWriter;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
@@ -42,17 +45,27 @@ public class Executors {
     /** Dedicated executor instances for work depending on other packages. */
     private static final Map<String, LooperExecutor> PACKAGE_EXECUTORS = new ConcurrentHashMap<>();
 
+    private static final ExecutorStats THREAD_POOL_STATS = new ExecutorStats("ThreadPoolExecutor");
+
     /**
      * An {@link ThreadPoolExecutor} to be used with async task with no limit on the queue size.
      */
     public static final ThreadPoolExecutor THREAD_POOL_EXECUTOR = new ThreadPoolExecutor(
-            POOL_SIZE, POOL_SIZE, KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            POOL_SIZE, POOL_SIZE, KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<>()) {
+
+        @Override
+        public void execute(Runnable command) {
+            super.execute(Flags.enableExecutorMetrics()
+                    ? THREAD_POOL_STATS.track(command, false) : command);
+        }
+    };
 
     /**
      * An {@link LooperExecutor} to be used with async task where order is important.
      */
     public static final LooperExecutor ORDERED_BG_EXECUTOR = new LooperExecutor(
-            createAndStartNewLooper("BackgroundExecutor", THREAD_PRIORITY_BACKGROUND));
+            createAndStartNewLooper("BackgroundExecutor", THREAD_PRIORITY_BACKGROUND),
+            new ExecutorStats("BackgroundExecutor"));
 
     /**
      * Returns the executor for running tasks on the main thread.
@@ -65,7 +78,8 @@ public class Executors {
      */
     public static final LooperExecutor UI_HELPER_EXECUTOR =
             new LooperExecutor(
-                    createAndStartNewLooper("UiThreadHelper", Process.THREAD_PRIORITY_FOREGROUND));
+                    createAndStartNewLooper("UiThreadHelper", Process.THREAD_PRIORITY_FOREGROUND),
+                    new ExecutorStats("UiThreadHelper"));
 
 
     /** A background executor to preinflate views. */
@@ -94,7 +108,8 @@ public class Executors {
      * Executor used for running Launcher model related tasks (eg loading icons or updated db)
      */
     public static final LooperExecutor MODEL_EXECUTOR =
-            new LooperExecutor(createAndStartNewLooper("launcher-loader"));
+            new LooperExecutor(createAndStartNewLooper("launcher-loader"),
+                    new ExecutorStats("launcher-loader"));
 
     /**
      * Returns and caches a single thread executor for a given package.
@@ -107,6 +122,21 @@ public class Executors {
                         createAndStartNewLooper(p, Process.THREAD_PRIORITY_DEFAULT)));
     }
 
+    /**
+     * Prints the tasks recorded for the executors, when {@link Flags#enableExecutorMetrics} is
+     * enabled.
+     */
+    public static void dump(String prefix, PrintWriter writer) {
+        if (!Flags.enableExecutorMetrics()) {
+            return;
+        }
+        writer.println(prefix + "Executors:");
+        MODEL_EXECUTOR.dump(prefix + "  ", writer);
+        UI_HELPER_EXECUTOR.dump(prefix + "  ", writer);
+        ORDERED_BG_EXECUTOR.dump(prefix + "  ", writer);
+        THREAD_POOL_STATS.dump(prefix + "  ", writer);
+    }
+
     /**
      * A simple ThreadFactory to set the thread name and priority when used with executors.
      */
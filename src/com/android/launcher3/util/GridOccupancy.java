@@ -1,23 +1,79 @@
 package com.android.launcher3.util;
 
+import android.graphics.Point;
 import android.graphics.Rect;
 
+import androidx.annotation.Nullable;
+
 import com.android.launcher3.model.data.ItemInfo;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Utility object to manage the occupancy in a grid.
+ *
+ * The occupancy is stored as one bit per cell, with one {@code long} per row where bit {@code x}
+ * is the cell in column {@code x}. This allows checking a horizontal span of a row with a single
+ * mask, and a region with one mask test per row.
  */
 public class GridOccupancy {
 
     private final int mCountX;
     private final int mCountY;
 
-    public final boolean[][] cells;
+    // Bits of all the columns of a row
+    private final long mRowMask;
+    private final long[] mRows;
 
     public GridOccupancy(int countX, int countY) {
+        if (countX > Long.SIZE) {
+            throw new IllegalArgumentException("Grid is wider than " + Long.SIZE + " columns");
+        }
         mCountX = countX;
         mCountY = countY;
-        cells = new boolean[countX][countY];
+        mRowMask = spanMask(countX);
+        mRows = new long[countY];
+    }
+
+    /**
+     * Returns a mask with the lowest {@code span} bits set.
+     */
+    private static long spanMask(int span) {
+        return span >= Long.SIZE ? -1L : (1L << span) - 1;
+    }
+
+    /**
+     * Returns a mask of the cells in row {@code y} that are occupied in any of the {@code spanY}
+     * rows starting at {@code y}.
+     */
+    private long occupiedInRows(int y, int spanY) {
+        long occupied = 0;
+        for (int j = y; j < y + spanY; j++) {
+            occupied |= mRows[j];
+        }
+        return occupied;
+    }
+
+    /**
+     * Returns a mask of the columns {@code x} for which the cells {@code x} to
+     * {@code x + spanX - 1} are all vacant in {@code occupied}.
+     */
+    private long vacantStarts(long occupied, int spanX) {
+        long vacant = ~occupied & mRowMask;
+        long starts = vacant;
+        for (int i = 1; i < spanX && starts != 0; i++) {
+            starts &= vacant >>> i;
+        }
+        return starts;
+    }
+
+    /**
+     * Returns whether the cell at {@code x}, {@code y} is occupied.
+     */
+    public boolean isOccupied(int x, int y) {
+        return (mRows[y] & (1L << x)) != 0;
     }
 
     /**
@@ -30,55 +86,82 @@ public class GridOccupancy {
      * @return true if a vacant cell was found
      */
     public boolean findVacantCell(int[] vacantOut, int spanX, int spanY) {
+        if (spanX <= 0 || spanY <= 0 || spanX > mCountX) {
+            return false;
+        }
         for (int y = 0; (y + spanY) <= mCountY; y++) {
-            for (int x = 0; (x + spanX) <= mCountX; x++) {
-                boolean available = !cells[x][y];
-                out:
-                for (int i = x; i < x + spanX; i++) {
-                    for (int j = y; j < y + spanY; j++) {
-                        available = available && !cells[i][j];
-                        if (!available) break out;
-                    }
-                }
-                if (available) {
-                    vacantOut[0] = x;
-                    vacantOut[1] = y;
-                    return true;
-                }
+            long starts = vacantStarts(occupiedInRows(y, spanY), spanX);
+            if (starts != 0) {
+                vacantOut[0] = Long.numberOfTrailingZeros(starts);
+                vacantOut[1] = y;
+                return true;
             }
         }
         return false;
     }
 
-    public void copyTo(GridOccupancy dest) {
-        for (int i = 0; i < mCountX; i++) {
-            for (int j = 0; j < mCountY; j++) {
-                dest.cells[i][j] = cells[i][j];
+    /**
+     * Returns the top-left cells of all the vacant regions of the given span, ordered by row
+     * and then by column.
+     */
+    public List<Point> findAllVacantCells(int spanX, int spanY) {
+        List<Point> result = new ArrayList<>();
+        if (spanX <= 0 || spanY <= 0 || spanX > mCountX) {
+            return result;
+        }
+        for (int y = 0; (y + spanY) <= mCountY; y++) {
+            long starts = vacantStarts(occupiedInRows(y, spanY), spanX);
+            while (starts != 0) {
+                result.add(new Point(Long.numberOfTrailingZeros(starts), y));
+                starts &= starts - 1;
             }
         }
+        return result;
+    }
+
+    public void copyTo(GridOccupancy dest) {
+        if (dest.mCountX == mCountX && dest.mCountY == mCountY) {
+            System.arraycopy(mRows, 0, dest.mRows, 0, mCountY);
+            return;
+        }
+        for (int y = 0; y < mCountY; y++) {
+            dest.mRows[y] = (dest.mRows[y] & ~mRowMask) | mRows[y];
+        }
     }
 
     public boolean isRegionVacant(int x, int y, int spanX, int spanY) {
+        return isRegionVacant(x, y, spanX, spanY, null);
+    }
+
+    /**
+     * Same as {@link #isRegionVacant(int, int, int, int)}, but only considering the cells of the
+     * region which are occupied in {@code blockMask}, a {@code spanX} by {@code spanY} grid.
+     */
+    public boolean isRegionVacant(int x, int y, int spanX, int spanY,
+            @Nullable GridOccupancy blockMask) {
         int x2 = x + spanX - 1;
         int y2 = y + spanY - 1;
         if (x < 0 || y < 0 || x2 >= mCountX || y2 >= mCountY) {
             return false;
         }
-        for (int i = x; i <= x2; i++) {
-            for (int j = y; j <= y2; j++) {
-                if (cells[i][j]) {
-                    return false;
-                }
+        long spanMask = spanMask(spanX);
+        for (int j = 0; j < spanY; j++) {
+            long mask = blockMask == null ? spanMask : blockMask.mRows[j] & spanMask;
+            if (((mRows[y + j] >>> x) & mask) != 0) {
+                return false;
             }
         }
         return true;
     }
 
     public void markCells(int cellX, int cellY, int spanX, int spanY, boolean value) {
-        if (cellX < 0 || cellY < 0) return;
-        for (int x = cellX; x < cellX + spanX && x < mCountX; x++) {
-            for (int y = cellY; y < cellY + spanY && y < mCountY; y++) {
-                cells[x][y] = value;
+        if (cellX < 0 || cellY < 0 || cellX >= mCountX || spanX <= 0) return;
+        long mask = (spanMask(spanX) << cellX) & mRowMask;
+        for (int y = cellY; y < cellY + spanY && y < mCountY; y++) {
+            if (value) {
+                mRows[y] |= mask;
+            } else {
+                mRows[y] &= ~mask;
             }
         }
     }
@@ -96,7 +179,7 @@ public class GridOccupancy {
     }
 
     public void clear() {
-        markCells(0, 0, mCountX, mCountY, false);
+        Arrays.fill(mRows, 0);
     }
 
     @Override
@@ -104,7 +187,7 @@ public class GridOccupancy {
         StringBuilder s = new StringBuilder("Grid: \n");
         for (int y = 0; y < mCountY; y++) {
             for (int x = 0; x < mCountX; x++) {
-                s.append(cells[x][y] ? 1 : 0).append(" ");
+                s.append(isOccupied(x, y) ? 1 : 0).append(" ");
             }
             s.append("\n");
         }
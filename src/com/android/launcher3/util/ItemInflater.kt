@@ -28,6 +28,8 @@ import com.android.launcher3.LauncherSettings.Favorites
 import com.android.launcher3.R
 import com.android.launcher3.apppairs.AppPairIcon
 import com.android.launcher3.folder.FolderIcon
+import com.android.launcher3.logging.StartupTimeline
+import com.android.launcher3.logging.StartupTimeline.CATEGORY_INFLATE
 import com.android.launcher3.model.ModelWriter
 import com.android.launcher3.model.data.AppPairInfo
 import com.android.launcher3.model.data.FolderInfo
@@ -52,8 +54,19 @@ class ItemInflater<T>(
     private val widgetInflater = WidgetInflater(context)
 
     @JvmOverloads
-    fun inflateItem(item: ItemInfo, writer: ModelWriter, nullableParent: ViewGroup? = null): View? {
-        val parent = nullableParent ?: defaultParent
+    fun inflateItem(item: ItemInfo, writer: ModelWriter, nullableParent: ViewGroup? = null): View? =
+        StartupTimeline.INSTANCE.span(CATEGORY_INFLATE, getSpanName(item)).use {
+            inflateItemInternal(item, writer, nullableParent ?: defaultParent)
+        }
+
+    private fun getSpanName(item: ItemInfo): String =
+        when (item.itemType) {
+            Favorites.ITEM_TYPE_APPWIDGET,
+            Favorites.ITEM_TYPE_CUSTOM_APPWIDGET -> "inflateAppWidget"
+            else -> "inflateItem"
+        }
+
+    private fun inflateItemInternal(item: ItemInfo, writer: ModelWriter, parent: ViewGroup): View? {
         when (item.itemType) {
             Favorites.ITEM_TYPE_APPLICATION,
             Favorites.ITEM_TYPE_DEEP_SHORTCUT,
@@ -20,19 +20,39 @@ import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Process;
 
+import androidx.annotation.Nullable;
+
+import com.android.launcher3.Flags;
+
+import java.io.PrintWriter;
 import java.util.List;
 import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Extension of {@link AbstractExecutorService} which executed on a provided looper.
+ *
+ * When created with {@link ExecutorStats}, the tasks posted through the executor are recorded if
+ * {@link Flags#enableExecutorMetrics} is enabled. Such tasks are wrapped before being posted, so
+ * they cannot be removed from the handler.
  */
 public class LooperExecutor extends AbstractExecutorService {
 
     private final Handler mHandler;
+    @Nullable
+    private final ExecutorStats mStats;
+
+    private final ConcurrentLinkedQueue<Runnable> mUrgentTasks = new ConcurrentLinkedQueue<>();
+    private final Runnable mRunUrgentTasks = this::runUrgentTasks;
 
     public LooperExecutor(Looper looper) {
+        this(looper, null);
+    }
+
+    public LooperExecutor(Looper looper, @Nullable ExecutorStats stats) {
         mHandler = new Handler(looper);
+        mStats = stats;
     }
 
     public Handler getHandler() {
@@ -44,15 +64,59 @@ public class LooperExecutor extends AbstractExecutorService {
         if (getHandler().getLooper() == Looper.myLooper()) {
             runnable.run();
         } else {
-            getHandler().post(runnable);
+            post(runnable);
         }
     }
 
     /**
      * Same as execute, but never runs the action inline.
+     *
+     * When the tasks are recorded, the handler gets a wrapper instead of {@code runnable}, so
+     * {@code getHandler().removeCallbacks(runnable)} does not remove it. Tasks which need to be
+     * removed should be posted directly on {@link #getHandler()}.
      */
     public void post(Runnable runnable) {
-        getHandler().post(runnable);
+        getHandler().post(track(runnable, false));
+    }
+
+    /**
+     * Same as execute, but runs the action before the tasks already queued, after the other
+     * urgent actions. This breaks the ordering with the tasks posted with {@link #execute}, so it
+     * should only be used for user-interactive work which doesn't depend on them. Urgent tasks
+     * are not handler messages and cannot be removed.
+     */
+    public void executeUrgent(Runnable runnable) {
+        if (getHandler().getLooper() == Looper.myLooper()) {
+            runnable.run();
+        } else {
+            mUrgentTasks.add(track(runnable, true));
+            getHandler().postAtFrontOfQueue(mRunUrgentTasks);
+        }
+    }
+
+    private void runUrgentTasks() {
+        Runnable runnable;
+        while ((runnable = mUrgentTasks.poll()) != null) {
+            runnable.run();
+        }
+    }
+
+    private Runnable track(Runnable runnable, boolean urgent) {
+        return mStats != null && Flags.enableExecutorMetrics()
+                ? mStats.track(runnable, urgent) : runnable;
+    }
+
+    /**
+     * Returns the number of tasks waiting to run, or -1 if they are not recorded.
+     */
+    public int getQueueDepth() {
+        return mStats != null && Flags.enableExecutorMetrics() ? mStats.getQueueDepth() : -1;
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        if (mStats != null) {
+            mStats.dump(prefix, writer);
+        }
     }
 
     /**
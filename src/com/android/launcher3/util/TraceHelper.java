@@ -20,6 +20,8 @@ import android.os.Trace;
 
 import androidx.annotation.MainThread;
 
+import com.android.launcher3.logging.FrameJankTracer;
+
 import kotlin.random.Random;
 
 import java.util.function.Supplier;
@@ -49,12 +51,14 @@ public class TraceHelper {
      */
     public void beginSection(String sectionName) {
         Trace.beginSection(sectionName);
+        FrameJankTracer.INSTANCE.beginSection(sectionName);
     }
 
     /**
      * @see Trace#endSection()
      */
     public void endSection() {
+        FrameJankTracer.INSTANCE.endSection();
         Trace.endSection();
     }
 
@@ -15,7 +15,11 @@
  */
 package com.android.launcher3.widget;
 
+import static android.appwidget.AppWidgetProviderInfo.WIDGET_CATEGORY_HOME_SCREEN;
+
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+import static com.android.launcher3.widget.WidgetPreviewExecutor.PRIORITY_PREFETCH;
+import static com.android.launcher3.widget.WidgetPreviewExecutor.PRIORITY_VISIBLE;
 
 import android.content.Context;
 import android.content.res.Resources;
@@ -32,9 +36,11 @@ import android.util.Log;
 import android.util.Size;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.launcher3.DeviceProfile;
+import com.android.launcher3.Flags;
 import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.R;
 import com.android.launcher3.Utilities;
@@ -51,6 +57,7 @@ import com.android.launcher3.widget.util.WidgetSizes;
 
 import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /** Utility class to load widget previews */
 public class DatabaseWidgetPreviewLoader {
@@ -69,7 +76,8 @@ public class DatabaseWidgetPreviewLoader {
     }
 
     /**
-     * Generates the widget preview on {@link Executors#UI_HELPER_EXECUTOR}.
+     * Generates the widget preview on {@link Executors#UI_HELPER_EXECUTOR}, or on
+     * {@link WidgetPreviewExecutor} ahead of the prefetch requests.
      *
      * @return a request id which can be used to cancel the request.
      */
@@ -78,15 +86,68 @@ public class DatabaseWidgetPreviewLoader {
             @NonNull WidgetItem item,
             @NonNull Size previewSize,
             @NonNull Consumer<Bitmap> callback) {
+        if (Flags.enableWidgetPreviewPool()) {
+            WidgetPreviewExecutor pool = WidgetPreviewExecutor.INSTANCE;
+            Runnable[] queuedRequest = new Runnable[1];
+            CancellableTask<Bitmap> request = new CancellableTask<>(
+                    () -> getOrGeneratePreview(item, previewSize),
+                    MAIN_EXECUTOR,
+                    callback,
+                    // Drops the request from the queue when the cell is recycled
+                    () -> pool.remove(queuedRequest[0]));
+            queuedRequest[0] = pool.submit(request, PRIORITY_VISIBLE);
+            return request;
+        }
         Handler handler = getLoaderExecutor().getHandler();
         CancellableTask<Bitmap> request = new CancellableTask<>(
-                () -> generatePreview(item, previewSize.getWidth(), previewSize.getHeight()),
+                () -> getOrGeneratePreview(item, previewSize),
                 MAIN_EXECUTOR,
                 callback);
         Utilities.postAsyncCallback(handler, request);
         return request;
     }
 
+    /**
+     * Returns the preview of {@code item} held in memory by {@link WidgetPreviewCache}, or null.
+     */
+    @Nullable
+    public Bitmap getCachedPreview(@NonNull WidgetItem item, @NonNull Size previewSize) {
+        return Flags.enableWidgetPreviewCache()
+                ? WidgetPreviewCache.INSTANCE.get(mContext).getFromMemory(item, previewSize)
+                : null;
+    }
+
+    /**
+     * Loads the preview of {@code item} in {@link WidgetPreviewCache} on
+     * {@link Executors#UI_HELPER_EXECUTOR}, or on {@link WidgetPreviewExecutor} after the visible
+     * previews, before it is shown.
+     */
+    public void prefetchPreview(@NonNull WidgetItem item, @NonNull Size previewSize) {
+        if (!Flags.enableWidgetPreviewCache() || item.hasPreviewLayout()
+                || (Flags.enableGeneratedPreviews()
+                        && item.hasGeneratedPreview(WIDGET_CATEGORY_HOME_SCREEN))) {
+            // The preview is not generated by this loader
+            return;
+        }
+        if (getCachedPreview(item, previewSize) != null) {
+            return;
+        }
+        Runnable request = () -> getOrGeneratePreview(item, previewSize);
+        if (Flags.enableWidgetPreviewPool()) {
+            WidgetPreviewExecutor.INSTANCE.submit(request, PRIORITY_PREFETCH);
+        } else {
+            getLoaderExecutor().execute(request);
+        }
+    }
+
+    private Bitmap getOrGeneratePreview(WidgetItem item, Size previewSize) {
+        Supplier<Bitmap> generator =
+                () -> generatePreview(item, previewSize.getWidth(), previewSize.getHeight());
+        return Flags.enableWidgetPreviewCache()
+                ? WidgetPreviewCache.INSTANCE.get(mContext).get(item, previewSize, generator)
+                : generator.get();
+    }
+
     @VisibleForTesting
     @NonNull
     public static LooperExecutor getLoaderExecutor() {
@@ -31,6 +31,7 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.Process;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.Log;
@@ -284,15 +285,24 @@ public class WidgetCell extends LinearLayout {
                     : createAppWidgetHostView(context);
             LauncherAppWidgetProviderInfo providerInfo =
                     fromProviderInfo(context, item.widgetInfo.clone());
-            // A hack to force the initial layout to be the preview layout since there is no API for
-            // rendering a preview layout for work profile apps yet. For non-work profile layout, a
-            // proper solution is to use RemoteViews(PackageName, LayoutId).
-            providerInfo.initialLayout = item.widgetInfo.previewLayout;
-            setAppWidgetHostViewPreview(mAppWidgetHostViewPreview, providerInfo, null);
-        } else if (cachedPreview != null) {
-            applyPreview(cachedPreview);
+            RemoteViews previewViews = null;
+            if (Flags.enableWidgetPreviewPool() && item.user.equals(Process.myUserHandle())) {
+                // Unlike the initial layout, remote views are inflated on the host view executor
+                previewViews = new RemoteViews(item.widgetInfo.provider.getPackageName(),
+                        item.widgetInfo.previewLayout);
+            } else {
+                // A hack to force the initial layout to be the preview layout since there is no
+                // API for rendering a preview layout for work profile apps yet. For non-work
+                // profile layout, a proper solution is to use RemoteViews(PackageName, LayoutId).
+                providerInfo.initialLayout = item.widgetInfo.previewLayout;
+            }
+            setAppWidgetHostViewPreview(mAppWidgetHostViewPreview, providerInfo, previewViews);
         } else {
-            if (mActiveRequest == null) {
+            Bitmap preview = cachedPreview != null
+                    ? cachedPreview : mWidgetPreviewLoader.getCachedPreview(mItem, mWidgetSize);
+            if (preview != null) {
+                applyPreview(preview);
+            } else if (mActiveRequest == null) {
                 mActiveRequest = mWidgetPreviewLoader.loadPreview(mItem, mWidgetSize, callback);
             }
         }
@@ -325,6 +335,9 @@ public class WidgetCell extends LinearLayout {
             @Nullable RemoteViews remoteViews) {
         appWidgetHostViewPreview.setImportantForAccessibility(IMPORTANT_FOR_ACCESSIBILITY_NO);
         appWidgetHostViewPreview.setAppWidget(/* appWidgetId= */ -1, providerInfo);
+        if (Flags.enableWidgetPreviewPool()) {
+            appWidgetHostViewPreview.setExecutor(WidgetPreviewExecutor.INSTANCE);
+        }
         appWidgetHostViewPreview.updateAppWidget(remoteViews);
         appWidgetHostViewPreview.setClipToPadding(false);
         appWidgetHostViewPreview.setClipChildren(false);
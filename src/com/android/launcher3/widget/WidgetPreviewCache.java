@@ -0,0 +1,328 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.AtomicFile;
+import android.util.Log;
+import android.util.LruCache;
+import android.util.Size;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.model.WidgetItem;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.MainThreadInitializedObject;
+import com.android.launcher3.util.PackageUserKey;
+import com.android.launcher3.util.SafeCloseable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Two level cache of the widget previews generated by {@link DatabaseWidgetPreviewLoader}, keyed
+ * by provider, user and preview size.
+ *
+ * Previews are kept in a memory LRU cache. The previews rendered from the provider preview image
+ * are also persisted in the cache directory, tagged with the provider APK path and the display
+ * density so that they are regenerated when the provider package is updated. The other previews
+ * are drawn from the app icon, which depends on the icon theme, and are only kept in memory.
+ * The memory cache is only needed while the widget picker is open, and is evicted when the picker
+ * closes or the system is low on memory.
+ */
+public class WidgetPreviewCache implements SafeCloseable {
+
+    private static final String TAG = "WidgetPreviewCache";
+
+    public static final MainThreadInitializedObject<WidgetPreviewCache> INSTANCE =
+            new MainThreadInitializedObject<>(WidgetPreviewCache::new);
+
+    private static final String DIR_NAME = "widget_previews";
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_MEMORY_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_DISK_ENTRIES = 500;
+
+    private final File mDir;
+    private final int mMaxDiskEntries;
+    private final int mDensityDpi;
+    private final LruCache<PreviewKey, CachedPreview> mMemoryCache;
+    // Serializes the disk accesses of the preview worker threads
+    private final Object mDiskLock = new Object();
+
+    // Guarded by this
+    private long mMemoryHits;
+    private long mDiskHits;
+    private long mMisses;
+
+    private WidgetPreviewCache(Context context) {
+        this(new File(context.getCacheDir(), DIR_NAME), MAX_MEMORY_BYTES, MAX_DISK_ENTRIES,
+                context.getResources().getConfiguration().densityDpi);
+    }
+
+    @VisibleForTesting
+    WidgetPreviewCache(File dir, int maxMemoryBytes, int maxDiskEntries, int densityDpi) {
+        mDir = dir;
+        mMaxDiskEntries = maxDiskEntries;
+        mDensityDpi = densityDpi;
+        mMemoryCache = new LruCache<>(maxMemoryBytes) {
+            @Override
+            protected int sizeOf(PreviewKey key, CachedPreview value) {
+                return value.bitmap().getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the preview of {@code item} held in memory, or null.
+     */
+    @AnyThread
+    @Nullable
+    public Bitmap getFromMemory(@NonNull WidgetItem item, @NonNull Size size) {
+        CachedPreview preview = mMemoryCache.get(new PreviewKey(item, size));
+        if (preview == null) {
+            return null;
+        }
+        if (!Objects.equals(preview.version(), getVersion(item))) {
+            // The provider was updated
+            mMemoryCache.remove(new PreviewKey(item, size));
+            return null;
+        }
+        synchronized (this) {
+            mMemoryHits++;
+        }
+        return preview.bitmap();
+    }
+
+    /**
+     * Returns the cached preview of {@code item}, or generates it with {@code generator}.
+     */
+    @WorkerThread
+    @Nullable
+    public Bitmap get(@NonNull WidgetItem item, @NonNull Size size,
+            @NonNull Supplier<Bitmap> generator) {
+        Bitmap bitmap = getFromMemory(item, size);
+        if (bitmap != null) {
+            return bitmap;
+        }
+        PreviewKey key = new PreviewKey(item, size);
+        String version = getVersion(item);
+        if (version != null) {
+            synchronized (mDiskLock) {
+                bitmap = readFromDisk(key, version);
+            }
+        }
+        if (bitmap != null) {
+            synchronized (this) {
+                mDiskHits++;
+            }
+        } else {
+            synchronized (this) {
+                mMisses++;
+            }
+            bitmap = generator.get();
+            if (bitmap == null) {
+                return null;
+            }
+            if (version != null) {
+                synchronized (mDiskLock) {
+                    writeToDisk(key, version, bitmap);
+                }
+            }
+        }
+        mMemoryCache.put(key, new CachedPreview(bitmap, version));
+        return bitmap;
+    }
+
+    /**
+     * Removes the previews of {@code packageUser} from memory, or all previews if null. The
+     * persisted previews are checked against the provider version when they are read.
+     */
+    @AnyThread
+    public void invalidate(@Nullable PackageUserKey packageUser) {
+        if (packageUser == null) {
+            mMemoryCache.evictAll();
+            return;
+        }
+        for (PreviewKey key : mMemoryCache.snapshot().keySet()) {
+            ComponentKey componentKey = key.componentKey();
+            if (componentKey.user.equals(packageUser.mUser) && componentKey.componentName
+                    .getPackageName().equals(packageUser.mPackageName)) {
+                mMemoryCache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes all the previews from memory, when the widget picker is closed.
+     */
+    @AnyThread
+    public void evictMemory() {
+        mMemoryCache.evictAll();
+    }
+
+    /**
+     * Trims the memory cache according to {@code level}, as passed to
+     * {@link android.content.ComponentCallbacks2#onTrimMemory(int)}.
+     */
+    @AnyThread
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            mMemoryCache.evictAll();
+        } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            mMemoryCache.trimToSize(mMemoryCache.maxSize() / 2);
+        }
+    }
+
+    /**
+     * Returns the version of the persisted preview of {@code item}, or null if it is not
+     * persisted.
+     */
+    @Nullable
+    private String getVersion(WidgetItem item) {
+        LauncherAppWidgetProviderInfo info = item.widgetInfo;
+        if (info == null || info.previewImage == 0 || info.providerInfo == null
+                || info.providerInfo.applicationInfo == null) {
+            return null;
+        }
+        return info.providerInfo.applicationInfo.sourceDir + ":" + mDensityDpi;
+    }
+
+    private File getFile(PreviewKey key) {
+        return new File(mDir, Integer.toHexString(key.componentKey().hashCode())
+                + "_" + key.width() + "x" + key.height());
+    }
+
+    @Nullable
+    private Bitmap readFromDisk(PreviewKey key, String version) {
+        File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new AtomicFile(file).openRead())) {
+            if (input.readInt() != FORMAT_VERSION
+                    || !input.readUTF().equals(key.componentKey().toString())
+                    || !input.readUTF().equals(version)) {
+                file.delete();
+                return null;
+            }
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.HARDWARE;
+            Bitmap bitmap = BitmapFactory.decodeStream(input, null, options);
+            if (bitmap == null) {
+                throw new IOException("Bad bitmap");
+            }
+            return bitmap;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read preview of " + key.componentKey(), e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeToDisk(PreviewKey key, String version, Bitmap bitmap) {
+        if (!mDir.exists() && !mDir.mkdirs()) {
+            Log.w(TAG, "Failed to create " + mDir);
+            return;
+        }
+        Bitmap softwareBitmap = bitmap.getConfig() == Bitmap.Config.HARDWARE
+                ? bitmap.copy(Bitmap.Config.ARGB_8888, false) : bitmap;
+        if (softwareBitmap == null) {
+            return;
+        }
+        AtomicFile atomicFile = new AtomicFile(getFile(key));
+        FileOutputStream stream;
+        try {
+            stream = atomicFile.startWrite();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write preview of " + key.componentKey(), e);
+            return;
+        }
+        try {
+            DataOutputStream output = new DataOutputStream(stream);
+            output.writeInt(FORMAT_VERSION);
+            output.writeUTF(key.componentKey().toString());
+            output.writeUTF(version);
+            if (!softwareBitmap.compress(Bitmap.CompressFormat.WEBP_LOSSLESS, 100, output)) {
+                throw new IOException("Failed to compress bitmap");
+            }
+            output.flush();
+            atomicFile.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write preview of " + key.componentKey(), e);
+            atomicFile.failWrite(stream);
+            return;
+        } finally {
+            if (softwareBitmap != bitmap) {
+                softwareBitmap.recycle();
+            }
+        }
+        removeExcess();
+    }
+
+    @VisibleForTesting
+    void removeExcess() {
+        File[] files = mDir.listFiles();
+        if (files == null || files.length <= mMaxDiskEntries) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - mMaxDiskEntries; i++) {
+            files[i].delete();
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        synchronized (this) {
+            writer.println(prefix + TAG + ": memoryHits=" + mMemoryHits
+                    + " diskHits=" + mDiskHits
+                    + " misses=" + mMisses
+                    + " memoryBytes=" + mMemoryCache.size()
+                    + " memoryEntries=" + mMemoryCache.snapshot().size());
+        }
+    }
+
+    @Override
+    public void close() {
+        mMemoryCache.evictAll();
+    }
+
+    private record PreviewKey(ComponentKey componentKey, int width, int height) {
+
+        PreviewKey(WidgetItem item, Size size) {
+            this(new ComponentKey(item.componentName, item.user),
+                    size.getWidth(), size.getHeight());
+        }
+    }
+
+    private record CachedPreview(Bitmap bitmap, @Nullable String version) { }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+import android.os.Process;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.util.Executors.SimpleThreadFactory;
+
+import java.lang.annotation.Retention;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool rendering the widget previews and inflating their remote views.
+ *
+ * Requests for the cells on screen run before the prefetch requests. Among requests of the same
+ * priority the latest runs first, as the cells bound first are the first to scroll out of view
+ * when the user flings the list. Requests can be removed from the queue once their cell is
+ * recycled.
+ */
+public class WidgetPreviewExecutor implements Executor {
+
+    public static final int PRIORITY_VISIBLE = 0;
+    public static final int PRIORITY_PREFETCH = 1;
+
+    @Retention(SOURCE)
+    @IntDef({PRIORITY_VISIBLE, PRIORITY_PREFETCH})
+    public @interface PreviewPriority {}
+
+    private static final int POOL_SIZE = 2;
+    private static final int KEEP_ALIVE_SECONDS = 5;
+
+    public static final WidgetPreviewExecutor INSTANCE = new WidgetPreviewExecutor(POOL_SIZE);
+
+    private final ThreadPoolExecutor mPool;
+    private final AtomicLong mSequence = new AtomicLong();
+
+    @VisibleForTesting
+    WidgetPreviewExecutor(int poolSize) {
+        mPool = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(),
+                new SimpleThreadFactory("widget-preview", Process.THREAD_PRIORITY_DEFAULT));
+        mPool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs {@code command} as a request for a visible cell.
+     */
+    @Override
+    public void execute(@NonNull Runnable command) {
+        submit(command, PRIORITY_VISIBLE);
+    }
+
+    /**
+     * Queues {@code command} with the provided priority.
+     *
+     * @return a handle which can be passed to {@link #remove} to drop the request
+     */
+    @NonNull
+    public Runnable submit(@NonNull Runnable command, @PreviewPriority int priority) {
+        PreviewRequest request =
+                new PreviewRequest(command, priority, mSequence.getAndIncrement());
+        mPool.execute(request);
+        return request;
+    }
+
+    /**
+     * Removes a request returned by {@link #submit} if it did not start.
+     */
+    public void remove(@NonNull Runnable request) {
+        mPool.remove(request);
+    }
+
+    private static class PreviewRequest implements Runnable, Comparable<PreviewRequest> {
+
+        private final Runnable mCommand;
+        private final int mPriority;
+        private final long mSequence;
+
+        PreviewRequest(Runnable command, int priority, long sequence) {
+            mCommand = command;
+            mPriority = priority;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            mCommand.run();
+        }
+
+        @Override
+        public int compareTo(PreviewRequest other) {
+            return mPriority != other.mPriority
+                    ? Integer.compare(mPriority, other.mPriority)
+                    : Long.compare(other.mSequence, mSequence);
+        }
+    }
+}
@@ -27,25 +27,38 @@ import java.util.function.Predicate
  */
 class WidgetsListBaseEntriesBuilder(val context: Context) {
 
+    private val indexer by lazy { AlphabeticIndexCompat(context) }
+
     /** Builds the widgets list entries in a format understandable by the widget picking UI. */
     @JvmOverloads
     fun build(
         widgetsByPackageItem: Map<PackageItemInfo, List<WidgetItem>>,
         widgetFilter: Predicate<WidgetItem> = Predicate<WidgetItem> { true },
     ): List<WidgetsListBaseEntry> {
-        val indexer = AlphabeticIndexCompat(context)
-
         return buildList {
             for ((pkgItem, widgetItems) in widgetsByPackageItem.entries) {
-                val filteredWidgetItems = widgetItems.filter { widgetFilter.test(it) }
-                if (filteredWidgetItems.isNotEmpty()) {
-                    // Enables fast scroll popup to show right characters in all locales.
-                    val sectionName = pkgItem.title?.let { indexer.computeSectionName(it) } ?: ""
-
-                    add(WidgetsListHeaderEntry.create(pkgItem, sectionName, filteredWidgetItems))
-                    add(WidgetsListContentEntry(pkgItem, sectionName, filteredWidgetItems))
-                }
+                addAll(buildPackageEntries(pkgItem, widgetItems, widgetFilter))
             }
         }
     }
+
+    /** Builds the header and content entries of a single package, if it has any widget. */
+    @JvmOverloads
+    fun buildPackageEntries(
+        pkgItem: PackageItemInfo,
+        widgetItems: List<WidgetItem>,
+        widgetFilter: Predicate<WidgetItem> = Predicate<WidgetItem> { true },
+    ): List<WidgetsListBaseEntry> {
+        val filteredWidgetItems = widgetItems.filter { widgetFilter.test(it) }
+        if (filteredWidgetItems.isEmpty()) {
+            return emptyList()
+        }
+        // Enables fast scroll popup to show right characters in all locales.
+        val sectionName = pkgItem.title?.let { indexer.computeSectionName(it) } ?: ""
+
+        return listOf(
+            WidgetsListHeaderEntry.create(pkgItem, sectionName, filteredWidgetItems),
+            WidgetsListContentEntry(pkgItem, sectionName, filteredWidgetItems),
+        )
+    }
 }
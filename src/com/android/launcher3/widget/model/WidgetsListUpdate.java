@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.launcher3.util.PackageUserKey;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Widget picker entries built by the widgets model, with the packages whose entries changed since
+ * the previous update.
+ *
+ * @param entries all the entries of the widget picker
+ * @param changedPackages packages whose entries were added, removed or rebuilt, or null if all
+ *                        the entries were rebuilt
+ */
+public record WidgetsListUpdate(@NonNull List<WidgetsListBaseEntry> entries,
+        @Nullable Set<PackageUserKey> changedPackages) { }
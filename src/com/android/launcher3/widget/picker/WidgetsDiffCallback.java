@@ -16,11 +16,15 @@
 
 package com.android.launcher3.widget.picker;
 
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.DiffUtil.Callback;
 
+import com.android.launcher3.util.PackageUserKey;
+import com.android.launcher3.widget.model.WidgetListSpaceEntry;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * DiffUtil callback to compare widgets
@@ -29,12 +33,22 @@ public class WidgetsDiffCallback extends Callback {
 
     private final List<WidgetsListBaseEntry> mOldEntries;
     private final List<WidgetsListBaseEntry> mNewEntries;
+    // Packages whose entries changed, or null if any entry may have changed
+    @Nullable private final Set<PackageUserKey> mChangedPackages;
 
     public WidgetsDiffCallback(
             List<WidgetsListBaseEntry> oldEntries,
             List<WidgetsListBaseEntry> newEntries) {
+        this(oldEntries, newEntries, /* changedPackages= */ null);
+    }
+
+    public WidgetsDiffCallback(
+            List<WidgetsListBaseEntry> oldEntries,
+            List<WidgetsListBaseEntry> newEntries,
+            @Nullable Set<PackageUserKey> changedPackages) {
         mOldEntries = oldEntries;
         mNewEntries = newEntries;
+        mChangedPackages = changedPackages;
     }
 
     @Override
@@ -58,7 +72,14 @@ public class WidgetsDiffCallback extends Callback {
 
     @Override
     public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-        // Always update all entries since the icon may have changed
-        return false;
+        if (mChangedPackages == null) {
+            // Always update all entries since the icon may have changed
+            return false;
+        }
+        WidgetsListBaseEntry oldItem = mOldEntries.get(oldItemPosition);
+        WidgetsListBaseEntry newItem = mNewEntries.get(newItemPosition);
+        return !(newItem instanceof WidgetListSpaceEntry)
+                && !mChangedPackages.contains(PackageUserKey.fromPackageItemInfo(newItem.mPkgItem))
+                && oldItem.equals(newItem);
     }
 }
@@ -41,6 +41,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.RecyclerView.Adapter;
 import androidx.recyclerview.widget.RecyclerView.ViewHolder;
 
+import com.android.launcher3.Flags;
 import com.android.launcher3.R;
 import com.android.launcher3.recyclerview.ViewHolderBinder;
 import com.android.launcher3.util.LabelComparator;
@@ -58,6 +59,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.OptionalInt;
+import java.util.Set;
 import java.util.function.IntSupplier;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -169,20 +171,68 @@ public class WidgetsListAdapter extends Adapter<ViewHolder> implements OnHeaderC
 
     /** Updates the widget list based on {@code tempEntries}. */
     public void setWidgets(List<WidgetsListBaseEntry> tempEntries) {
-        mAllEntries.clear();
-        mAllEntries.add(new WidgetListSpaceEntry());
-        tempEntries.stream().sorted(mRowComparator).forEach(mAllEntries::add);
-        updateVisibleEntries();
+        setWidgets(tempEntries, /* changedPackages= */ null);
+    }
+
+    /**
+     * Updates the widget list based on {@code tempEntries}. If {@code changedPackages} is not null,
+     * only the entries of these packages are replaced and the other rows are not rebound.
+     */
+    public void setWidgets(List<WidgetsListBaseEntry> tempEntries,
+            @Nullable Set<PackageUserKey> changedPackages) {
+        if (changedPackages == null || mAllEntries.isEmpty()) {
+            mAllEntries.clear();
+            mAllEntries.add(new WidgetListSpaceEntry());
+            tempEntries.stream().sorted(mRowComparator).forEach(mAllEntries::add);
+            updateVisibleEntries();
+            return;
+        }
+        Predicate<WidgetsListBaseEntry> isChanged = entry ->
+                !(entry instanceof WidgetListSpaceEntry) && changedPackages.contains(
+                        PackageUserKey.fromPackageItemInfo(entry.mPkgItem));
+        mAllEntries.removeIf(isChanged);
+        tempEntries.stream().filter(isChanged).forEach(this::insertSorted);
+        updateVisibleEntries(changedPackages);
+    }
+
+    private void insertSorted(WidgetsListBaseEntry entry) {
+        // Inserts after the equal entries, so that a header stays before its content
+        int low = 1;
+        int high = mAllEntries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mRowComparator.compare(mAllEntries.get(mid), entry) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        mAllEntries.add(low, entry);
     }
 
     /** Updates the widget list based on {@code searchResults}. */
     public void setWidgetsOnSearch(List<WidgetsListBaseEntry> searchResults) {
         // Forget the expanded package every time widget list is refreshed in search mode.
         mWidgetsContentVisiblePackageUserKey = null;
+        if (Flags.enableWidgetSearchIndex()) {
+            // Keep the ranking of the search results
+            mAllEntries.clear();
+            mAllEntries.add(new WidgetListSpaceEntry());
+            mAllEntries.addAll(searchResults);
+            updateVisibleEntries();
+            return;
+        }
         setWidgets(searchResults);
     }
 
     private void updateVisibleEntries() {
+        updateVisibleEntries(/* changedPackages= */ null);
+    }
+
+    /**
+     * @param changedPackages the packages whose entries changed, or null to rebind all the rows
+     */
+    private void updateVisibleEntries(@Nullable Set<PackageUserKey> changedPackages) {
         // Get the current top of the header with the matching key before adjusting the visible
         // entries.
         OptionalInt previousPositionForPackageUserKey =
@@ -212,7 +262,8 @@ public class WidgetsListAdapter extends Adapter<ViewHolder> implements OnHeaderC
                 .collect(Collectors.toList());
 
         DiffResult diffResult = DiffUtil.calculateDiff(
-                new WidgetsDiffCallback(mVisibleEntries, newVisibleEntries), false);
+                new WidgetsDiffCallback(mVisibleEntries, newVisibleEntries, changedPackages),
+                false);
         mVisibleEntries.clear();
         mVisibleEntries.addAll(newVisibleEntries);
         diffResult.dispatchUpdatesTo(this);
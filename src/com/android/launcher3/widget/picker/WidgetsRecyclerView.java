@@ -16,24 +16,40 @@
 
 package com.android.launcher3.widget.picker;
 
+import static com.android.launcher3.widget.util.WidgetSizes.getWidgetItemSizePx;
+
 import android.content.Context;
 import android.graphics.Point;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.RecyclerView.OnItemTouchListener;
 
+import com.android.launcher3.DeviceProfile;
 import com.android.launcher3.FastScrollRecyclerView;
+import com.android.launcher3.Flags;
 import com.android.launcher3.R;
+import com.android.launcher3.model.WidgetItem;
 import com.android.launcher3.util.ScrollableLayoutManager;
+import com.android.launcher3.views.ActivityContext;
+import com.android.launcher3.widget.DatabaseWidgetPreviewLoader;
+import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListContentEntry;
+
+import java.util.List;
 
 /**
  * The widgets recycler view.
  */
 public class WidgetsRecyclerView extends FastScrollRecyclerView implements OnItemTouchListener {
 
+    // Number of rows past the visible ones whose previews are loaded while scrolling
+    private static final int PREFETCH_ROW_COUNT = 3;
+
     private WidgetsListAdapter mAdapter;
 
     private final int mScrollbarTop;
@@ -42,6 +58,11 @@ public class WidgetsRecyclerView extends FastScrollRecyclerView implements OnIte
     private boolean mTouchDownOnScroller;
     private HeaderViewDimensionsProvider mHeaderViewDimensionsProvider;
 
+    @Nullable
+    private DatabaseWidgetPreviewLoader mPreviewLoader;
+    private int mPrefetchStart = NO_POSITION;
+    private int mPrefetchEnd = NO_POSITION;
+
     public WidgetsRecyclerView(Context context) {
         this(context, null);
     }
@@ -55,6 +76,52 @@ public class WidgetsRecyclerView extends FastScrollRecyclerView implements OnIte
         super(context, attrs, defStyleAttr);
         mScrollbarTop = getResources().getDimensionPixelSize(R.dimen.dynamic_grid_edge_margin);
         addOnItemTouchListener(this);
+        if (Flags.enableWidgetPreviewCache()) {
+            mPreviewLoader = new DatabaseWidgetPreviewLoader(context);
+            addOnScrollListener(new OnScrollListener() {
+                @Override
+                public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                    prefetchPreviews(dy);
+                }
+            });
+        }
+    }
+
+    /**
+     * Loads the previews of the rows about to scroll into view, in the scroll direction.
+     */
+    private void prefetchPreviews(int dy) {
+        if (dy == 0 || mPreviewLoader == null || mAdapter == null) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) getLayoutManager();
+        int start;
+        int end;
+        if (dy > 0) {
+            start = layoutManager.findLastVisibleItemPosition() + 1;
+            end = start + PREFETCH_ROW_COUNT;
+        } else {
+            end = layoutManager.findFirstVisibleItemPosition();
+            start = end - PREFETCH_ROW_COUNT;
+        }
+        List<WidgetsListBaseEntry> entries = mAdapter.getItems();
+        start = Math.max(start, 0);
+        end = Math.min(end, entries.size());
+        if (start >= end || (start == mPrefetchStart && end == mPrefetchEnd)) {
+            return;
+        }
+        mPrefetchStart = start;
+        mPrefetchEnd = end;
+
+        DeviceProfile dp = ActivityContext.lookupContext(getContext()).getDeviceProfile();
+        for (int i = start; i < end; i++) {
+            if (entries.get(i) instanceof WidgetsListContentEntry entry) {
+                for (WidgetItem item : entry.mWidgets) {
+                    mPreviewLoader.prefetchPreview(
+                            item, getWidgetItemSizePx(getContext(), dp, item));
+                }
+            }
+        }
     }
 
     @Override
@@ -17,6 +17,7 @@
 package com.android.launcher3.widget.picker.model
 
 import com.android.launcher3.model.data.ItemInfo
+import com.android.launcher3.util.PackageUserKey
 import com.android.launcher3.widget.model.WidgetsListBaseEntry
 import com.android.launcher3.widget.picker.model.data.WidgetPickerData
 import com.android.launcher3.widget.picker.model.data.WidgetPickerDataUtils.withRecommendedWidgets
@@ -33,6 +34,13 @@ class WidgetPickerDataProvider {
 
     private var changeListener: WidgetPickerDataChangeListener? = null
 
+    /**
+     * Packages whose widgets changed in the update being notified to
+     * [WidgetPickerDataChangeListener.onWidgetsBound], or null if the changes are unknown.
+     */
+    var changedPackages: Set<PackageUserKey>? = null
+        private set
+
     /** Sets a listener to be called back when widget data is updated. */
     fun setChangeListener(changeListener: WidgetPickerDataChangeListener?) {
         this.changeListener = changeListener
@@ -46,16 +54,23 @@ class WidgetPickerDataProvider {
     /**
      * Updates the widgets available to the widget picker.
      *
-     * Generally called when the widgets model has new data.
+     * Generally called when the widgets model has new data. [changedPackages] are the packages
+     * whose entries changed since the previous call, if known.
      */
     @JvmOverloads
     fun setWidgets(
         allWidgets: List<WidgetsListBaseEntry>,
-        defaultWidgets: List<WidgetsListBaseEntry> = listOf()
+        defaultWidgets: List<WidgetsListBaseEntry> = listOf(),
+        changedPackages: Set<PackageUserKey>? = null,
     ) {
         mWidgetPickerData =
             mWidgetPickerData.withWidgets(allWidgets = allWidgets, defaultWidgets = defaultWidgets)
-        changeListener?.onWidgetsBound()
+        this.changedPackages = changedPackages
+        try {
+            changeListener?.onWidgetsBound()
+        } finally {
+            this.changedPackages = null
+        }
     }
 
     /**
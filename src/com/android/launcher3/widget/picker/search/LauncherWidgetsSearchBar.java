@@ -53,7 +53,8 @@ public class LauncherWidgetsSearchBar extends LinearLayout implements WidgetsSea
     public void initialize(WidgetsSearchDataProvider dataProvider,
             SearchModeListener searchModeListener) {
         mController = new WidgetsSearchBarController(
-                new SimpleWidgetsSearchAlgorithm(dataProvider),
+                new SimpleWidgetsSearchAlgorithm(dataProvider,
+                        WidgetsSearchIndex.INSTANCE.get(getContext())),
                 mEditText, mCancelButton, searchModeListener);
     }
 
@@ -20,6 +20,7 @@ import static com.android.launcher3.search.StringMatcherUtility.matches;
 
 import android.os.Handler;
 
+import com.android.launcher3.Flags;
 import com.android.launcher3.model.WidgetItem;
 import com.android.launcher3.search.SearchAlgorithm;
 import com.android.launcher3.search.SearchCallback;
@@ -40,15 +41,24 @@ public final class SimpleWidgetsSearchAlgorithm implements SearchAlgorithm<Widge
 
     private final Handler mResultHandler;
     private final WidgetsSearchDataProvider mDataProvider;
+    private final WidgetsSearchIndex mIndex;
 
     public SimpleWidgetsSearchAlgorithm(WidgetsSearchDataProvider dataProvider) {
+        this(dataProvider, new WidgetsSearchIndex());
+    }
+
+    public SimpleWidgetsSearchAlgorithm(WidgetsSearchDataProvider dataProvider,
+            WidgetsSearchIndex index) {
         mResultHandler = new Handler();
         mDataProvider = dataProvider;
+        mIndex = index;
     }
 
     @Override
     public void doSearch(String query, SearchCallback<WidgetsListBaseEntry> callback) {
-        ArrayList<WidgetsListBaseEntry> result = getFilteredWidgets(mDataProvider, query);
+        ArrayList<WidgetsListBaseEntry> result = Flags.enableWidgetSearchIndex()
+                ? mIndex.search(mDataProvider.getWidgets(), query)
+                : getFilteredWidgets(mDataProvider, query);
         mResultHandler.post(() -> callback.onSearchResult(query, result));
     }
 
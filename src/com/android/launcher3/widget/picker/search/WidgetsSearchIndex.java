@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget.picker.search;
+
+import static com.android.launcher3.search.StringMatcherUtility.requestSimpleFuzzySearch;
+
+import android.os.LocaleList;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.model.WidgetItem;
+import com.android.launcher3.search.StringMatcherUtility;
+import com.android.launcher3.search.StringMatcherUtility.StringMatcher;
+import com.android.launcher3.util.IntArray;
+import com.android.launcher3.util.MainThreadInitializedObject;
+import com.android.launcher3.util.PackageUserKey;
+import com.android.launcher3.util.SafeCloseable;
+import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListContentEntry;
+import com.android.launcher3.widget.model.WidgetsListHeaderEntry;
+import com.android.launcher3.widget.picker.WidgetsListAdapter.WidgetListBaseRowEntryComparator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Index of the app titles, widget labels and widget descriptions used for matching widget picker
+ * search queries, maintained incrementally as the widget entries change.
+ *
+ * The lower case form and match start positions of every text are computed once. Packages are
+ * bucketed by the first character of the words of their texts, so that a query is only matched
+ * against the packages having a word starting with its first character. When a query extends the
+ * previous query and the widgets did not change, only the previous results are matched again.
+ * Results are ranked by app title matches, then widget label matches, then description matches,
+ * and sorted by app title within each rank.
+ *
+ * All methods must be called on the main thread.
+ */
+@UiThread
+public class WidgetsSearchIndex implements SafeCloseable {
+
+    public static final MainThreadInitializedObject<WidgetsSearchIndex> INSTANCE =
+            new MainThreadInitializedObject<>(context -> new WidgetsSearchIndex());
+
+    private static final int RANK_TITLE = 0;
+    private static final int RANK_LABEL = 1;
+    private static final int RANK_DESCRIPTION = 2;
+
+    // Words starting with other characters may match queries starting with a different
+    // character through collation, e.g. "é" for "e", so their packages are always matched
+    private static final int BUCKET_COUNT = 128;
+
+    private final HashMap<PackageUserKey, PackageEntry> mPackages = new HashMap<>();
+    private final List<HashSet<PackageEntry>> mBuckets = new ArrayList<>(BUCKET_COUNT);
+    private final HashSet<PackageEntry> mUnbucketed = new HashSet<>();
+
+    private LocaleList mLocales;
+    private StringMatcher mMatcher;
+    private WidgetListBaseRowEntryComparator mRowComparator;
+    // Incremented whenever the indexed widgets change, to invalidate the previous results
+    private int mGeneration;
+    private int mUpdateCount;
+
+    private String mLastQuery;
+    private int mLastGeneration = -1;
+    private List<PackageEntry> mLastMatches = new ArrayList<>();
+
+    @VisibleForTesting
+    WidgetsSearchIndex() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets.add(new HashSet<>());
+        }
+    }
+
+    /**
+     * Returns the header and content entries of the widgets of {@code entries} matching
+     * {@code query}, best matches first.
+     */
+    @NonNull
+    public ArrayList<WidgetsListBaseEntry> search(@NonNull List<WidgetsListBaseEntry> entries,
+            @NonNull String query) {
+        update(entries);
+
+        String queryLower = query.toLowerCase();
+        if (queryLower.isEmpty()) {
+            return new ArrayList<>();
+        }
+        boolean fuzzy = requestSimpleFuzzySearch(queryLower);
+        boolean refine = mLastQuery != null
+                && mLastGeneration == mGeneration
+                && queryLower.startsWith(mLastQuery)
+                && requestSimpleFuzzySearch(mLastQuery) == fuzzy;
+        Collection<PackageEntry> candidates =
+                refine ? mLastMatches : getCandidates(queryLower.charAt(0), fuzzy);
+
+        ArrayList<Match> matches = new ArrayList<>();
+        ArrayList<PackageEntry> matchedPackages = new ArrayList<>();
+        for (PackageEntry pkg : candidates) {
+            Match match = pkg.match(queryLower, mMatcher);
+            if (match != null) {
+                matches.add(match);
+                matchedPackages.add(pkg);
+            }
+        }
+        mLastQuery = queryLower;
+        mLastGeneration = mGeneration;
+        mLastMatches = matchedPackages;
+
+        matches.sort(Comparator.comparingInt(Match::rank)
+                .thenComparing(match -> match.pkg().header, mRowComparator)
+                .thenComparingInt(match -> match.pkg().order));
+        ArrayList<WidgetsListBaseEntry> results = new ArrayList<>();
+        for (Match match : matches) {
+            WidgetsListHeaderEntry header = match.pkg().header;
+            results.add(WidgetsListHeaderEntry.createForSearch(header.mPkgItem,
+                    header.mTitleSectionName, match.items()));
+            results.add(new WidgetsListContentEntry(header.mPkgItem,
+                    header.mTitleSectionName, match.items()));
+        }
+        return results;
+    }
+
+    /**
+     * Indexes the packages of {@code entries} which are not indexed with the same header entry
+     * and title, and removes the packages not in {@code entries}.
+     */
+    private void update(List<WidgetsListBaseEntry> entries) {
+        LocaleList locales = LocaleList.getDefault();
+        if (!locales.equals(mLocales)) {
+            // Break points and lower case forms are locale dependent
+            mLocales = locales;
+            mMatcher = StringMatcher.getInstance();
+            mRowComparator = new WidgetListBaseRowEntryComparator();
+            close();
+        }
+
+        int updateCount = ++mUpdateCount;
+        int order = 0;
+        for (WidgetsListBaseEntry entry : entries) {
+            if (!(entry instanceof WidgetsListHeaderEntry header)) {
+                continue;
+            }
+            PackageUserKey key = PackageUserKey.fromPackageItemInfo(header.mPkgItem);
+            PackageEntry pkg = mPackages.get(key);
+            if (pkg == null || pkg.header != header || pkg.title != header.mPkgItem.title) {
+                if (pkg != null) {
+                    removeFromBuckets(pkg);
+                }
+                pkg = new PackageEntry(header, mMatcher);
+                addToBuckets(pkg);
+                mPackages.put(key, pkg);
+                mGeneration++;
+            }
+            pkg.order = order++;
+            pkg.updateCount = updateCount;
+        }
+
+        if (mPackages.size() != order) {
+            Iterator<PackageEntry> iterator = mPackages.values().iterator();
+            while (iterator.hasNext()) {
+                PackageEntry pkg = iterator.next();
+                if (pkg.updateCount != updateCount) {
+                    removeFromBuckets(pkg);
+                    iterator.remove();
+                }
+            }
+            mGeneration++;
+        }
+    }
+
+    private Collection<PackageEntry> getCandidates(char queryStart, boolean fuzzy) {
+        if (fuzzy || queryStart >= BUCKET_COUNT) {
+            // The query may match anywhere in the texts
+            return mPackages.values();
+        }
+        HashSet<PackageEntry> candidates = new HashSet<>(mBuckets.get(queryStart));
+        candidates.addAll(mUnbucketed);
+        return candidates;
+    }
+
+    private void addToBuckets(PackageEntry pkg) {
+        for (IndexedText text : pkg.texts) {
+            for (int i = 0; i < text.startPositions.size(); i++) {
+                char c = Character.toLowerCase(text.target.charAt(text.startPositions.get(i)));
+                (c < BUCKET_COUNT ? mBuckets.get(c) : mUnbucketed).add(pkg);
+            }
+        }
+    }
+
+    private void removeFromBuckets(PackageEntry pkg) {
+        for (HashSet<PackageEntry> bucket : mBuckets) {
+            bucket.remove(pkg);
+        }
+        mUnbucketed.remove(pkg);
+    }
+
+    @Override
+    public void close() {
+        mPackages.clear();
+        mBuckets.forEach(HashSet::clear);
+        mUnbucketed.clear();
+        mLastQuery = null;
+        mLastMatches = new ArrayList<>();
+        mGeneration++;
+    }
+
+    private record Match(PackageEntry pkg, int rank, List<WidgetItem> items) { }
+
+    private static class PackageEntry {
+
+        final WidgetsListHeaderEntry header;
+        final CharSequence title;
+        final IndexedText titleText;
+        final IndexedText[] labels;
+        final IndexedText[] descriptions;
+        final ArrayList<IndexedText> texts = new ArrayList<>();
+
+        int order;
+        int updateCount;
+
+        PackageEntry(WidgetsListHeaderEntry header, StringMatcher matcher) {
+            this.header = header;
+            title = header.mPkgItem.title;
+            titleText = new IndexedText(title, matcher);
+            texts.add(titleText);
+
+            int count = header.mWidgets.size();
+            labels = new IndexedText[count];
+            descriptions = new IndexedText[count];
+            for (int i = 0; i < count; i++) {
+                WidgetItem item = header.mWidgets.get(i);
+                labels[i] = new IndexedText(item.label, matcher);
+                descriptions[i] = new IndexedText(item.description, matcher);
+                texts.add(labels[i]);
+                texts.add(descriptions[i]);
+            }
+        }
+
+        @Nullable
+        Match match(String queryLower, StringMatcher matcher) {
+            if (titleText.matches(queryLower, matcher)) {
+                return new Match(this, RANK_TITLE, header.mWidgets);
+            }
+            int rank = Integer.MAX_VALUE;
+            ArrayList<WidgetItem> items = new ArrayList<>();
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i].matches(queryLower, matcher)) {
+                    rank = Math.min(rank, RANK_LABEL);
+                    items.add(header.mWidgets.get(i));
+                } else if (descriptions[i].matches(queryLower, matcher)) {
+                    rank = Math.min(rank, RANK_DESCRIPTION);
+                    items.add(header.mWidgets.get(i));
+                }
+            }
+            return items.isEmpty() ? null : new Match(this, rank, items);
+        }
+    }
+
+    private static class IndexedText {
+
+        final String target;
+        final String targetLower;
+        final IntArray startPositions;
+
+        IndexedText(@Nullable CharSequence text, StringMatcher matcher) {
+            target = text == null ? "" : text.toString();
+            targetLower = target.toLowerCase();
+            startPositions = StringMatcherUtility.getMatchStartPositions(target, matcher);
+        }
+
+        boolean matches(String queryLower, StringMatcher matcher) {
+            return StringMatcherUtility.matches(
+                    queryLower, target, targetLower, startPositions, matcher);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.celllayout;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.CellLayout;
+import com.android.launcher3.MultipageCellLayout;
+import com.android.launcher3.util.ActivityContextWrapper;
+import com.android.launcher3.views.DoubleShadowBubbleTextView;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests for {@link ReorderSolutionCache}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class ReorderSolutionCacheTest {
+
+    private static final int FRAME_BUDGET_MS = 16;
+
+    @Rule
+    public UnitTestCellLayoutBuilderRule mCellLayoutBuilder = new UnitTestCellLayoutBuilderRule();
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = new ActivityContextWrapper(getApplicationContext());
+    }
+
+    @Test
+    public void testReorder_memoizesSolutions() {
+        CellLayout cl = createCellLayoutWithIcons(4, 4, false);
+        ReorderSolutionCache cache = cl.getReorderSolutionCache();
+        cache.startSession(FRAME_BUDGET_MS);
+
+        ItemConfiguration first = reorder(cl, 0, 0, 2, 2);
+        int size = cache.size();
+        assertTrue(size > 0);
+        ItemConfiguration second = reorder(cl, 0, 0, 2, 2);
+
+        assertEquals(size, cache.size());
+        assertEquals(first.isSolution, second.isSolution);
+        assertEquals(first.cellX, second.cellX);
+        assertEquals(first.cellY, second.cellY);
+        assertEquals(first.spanX, second.spanX);
+        assertEquals(first.spanY, second.spanY);
+    }
+
+    @Test
+    public void testValidate_itemMoved_clearsSolutions() {
+        CellLayout cl = createCellLayoutWithIcons(4, 4, false);
+        ReorderSolutionCache cache = cl.getReorderSolutionCache();
+        cache.startSession(FRAME_BUDGET_MS);
+        reorder(cl, 0, 0, 2, 2);
+        assertTrue(cache.size() > 0);
+
+        View child = cl.getShortcutsAndWidgets().getChildAt(0);
+        ((CellLayoutLayoutParams) child.getLayoutParams()).setCellY(3);
+        cache.validate(cl, null /* dragView */);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testValidate_sameItems_keepsSolutions() {
+        CellLayout cl = createCellLayoutWithIcons(4, 4, false);
+        ReorderSolutionCache cache = cl.getReorderSolutionCache();
+        cache.startSession(FRAME_BUDGET_MS);
+        reorder(cl, 0, 0, 2, 2);
+        int size = cache.size();
+
+        cache.validate(cl, null /* dragView */);
+
+        assertEquals(size, cache.size());
+    }
+
+    @Test
+    public void testValidate_multipageNewSeam_keepsSolutions() {
+        MultipageCellLayout cl = (MultipageCellLayout) createCellLayoutWithIcons(6, 4, true);
+        ReorderSolutionCache cache = cl.getReorderSolutionCache();
+        cache.startSession(FRAME_BUDGET_MS);
+        reorder(cl, 0, 0, 2, 2);
+        int size = cache.size();
+        assertTrue(size > 0);
+
+        // Every reorder algorithm adds its own seam view
+        cl.createReorderAlgorithm().simulateSeam(() -> {
+            cache.validate(cl, null /* dragView */);
+            return null;
+        });
+
+        assertEquals(size, cache.size());
+    }
+
+    @Test
+    public void testEndSession_clearsSolutions() {
+        CellLayout cl = createCellLayoutWithIcons(4, 4, false);
+        ReorderSolutionCache cache = cl.getReorderSolutionCache();
+        cache.startSession(FRAME_BUDGET_MS);
+        reorder(cl, 0, 0, 2, 2);
+
+        cache.endSession();
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testDeadline_onlyWhileDraggingOver() {
+        ReorderSolutionCache cache = new ReorderSolutionCache();
+        cache.startSession(FRAME_BUDGET_MS);
+        assertEquals(Long.MAX_VALUE, cache.getDeadlineNanos());
+
+        cache.setFrameBudgetEnabled(true);
+        assertNotEquals(Long.MAX_VALUE, cache.getDeadlineNanos());
+
+        cache.setFrameBudgetEnabled(false);
+        assertEquals(Long.MAX_VALUE, cache.getDeadlineNanos());
+    }
+
+    @Test
+    public void testReorder_budgetDisabled_findsShrunkSolution() {
+        // A full 2x2 grid with a single icon, the dragged widget must shrink to fit
+        CellLayout cl = mCellLayoutBuilder.createCellLayoutDefaultSize(2, 2, false);
+        addIcon(cl, 0, 0);
+        ReorderSolutionCache cache = cl.getReorderSolutionCache();
+        cache.startSession(0 /* frameBudgetMs */);
+
+        ItemConfiguration solution = reorder(cl, 0, 0, 2, 2, 1, 1);
+
+        assertNotNull(solution);
+        assertTrue(solution.isSolution);
+    }
+
+    private CellLayout createCellLayoutWithIcons(int columns, int rows, boolean isMulti) {
+        CellLayout cl = mCellLayoutBuilder.createCellLayoutDefaultSize(columns, rows, isMulti);
+        for (int x = 0; x < columns; x++) {
+            addIcon(cl, x, 0);
+        }
+        addIcon(cl, 0, 1);
+        return cl;
+    }
+
+    private void addIcon(CellLayout cl, int cellX, int cellY) {
+        View icon = new DoubleShadowBubbleTextView(mContext);
+        CellLayoutLayoutParams lp = new CellLayoutLayoutParams(cellX, cellY, 1, 1);
+        icon.setLayoutParams(lp);
+        cl.addViewToCellLayout(icon, -1, icon.getId(), lp, true);
+    }
+
+    private ItemConfiguration reorder(CellLayout cl, int cellX, int cellY, int spanX, int spanY) {
+        return reorder(cl, cellX, cellY, spanX, spanY, spanX, spanY);
+    }
+
+    private ItemConfiguration reorder(CellLayout cl, int cellX, int cellY, int spanX, int spanY,
+            int minSpanX, int minSpanY) {
+        int[] pixelXY = new int[2];
+        cl.regionToCenterPoint(cellX, cellY, spanX, spanY, pixelXY);
+        return cl.calculateReorder(pixelXY[0], pixelXY[1], minSpanX, minSpanY, spanX, spanY,
+                null /* dragView */);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.icons;
+
+import static com.android.launcher3.icons.IconCache.TIER_DB;
+import static com.android.launcher3.icons.IconCache.TIER_MEMORY;
+import static com.android.launcher3.icons.IconCache.TIER_PACKAGE_MANAGER;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Tests for {@link IconCacheStats}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class IconCacheStatsTest {
+
+    private final IconCacheStats mStats =
+            new IconCacheStats("Test", "memory", "db", "package_manager");
+
+    @Test
+    public void testRecord_countsByTierAndResolution() {
+        mStats.record(TIER_MEMORY, 1_000, false);
+        mStats.record(TIER_MEMORY, 2_000, true);
+        mStats.record(TIER_DB, 200_000, false);
+        mStats.record(TIER_PACKAGE_MANAGER, 20_000_000, false);
+
+        assertEquals(2, mStats.getCount(TIER_MEMORY));
+        assertEquals(1, mStats.getCount(TIER_DB));
+        assertEquals(1, mStats.getCount(TIER_PACKAGE_MANAGER));
+        assertEquals(1, mStats.getLowResCount());
+        assertEquals(3, mStats.getHighResCount());
+    }
+
+    @Test
+    public void testRecord_histogramBuckets() {
+        mStats.record(TIER_DB, 5_000, false);
+        mStats.record(TIER_DB, 10_000, false);
+        mStats.record(TIER_DB, 60_000_000, false);
+
+        assertArrayEquals(new long[] {1, 1, 0, 0, 0, 0, 0, 0, 1}, mStats.getHistogram(TIER_DB));
+    }
+
+    @Test
+    public void testDump() {
+        mStats.setBytesHeldSupplier(() -> 4096);
+        mStats.record(TIER_MEMORY, 1_000, false);
+        mStats.record(TIER_DB, 1_000, false);
+        mStats.recordRequest(3_000_000);
+
+        StringWriter out = new StringWriter();
+        mStats.dump("", new PrintWriter(out));
+        String dump = out.toString();
+        assertTrue(dump.contains("lookups=2"));
+        assertTrue(dump.contains("bytesHeld=4096"));
+        assertTrue(dump.contains("memory: count=1 (50.0%)"));
+        assertTrue(dump.contains("async requests: count=1 avg=3.000ms"));
+    }
+
+    @Test
+    public void testReset() {
+        mStats.record(TIER_MEMORY, 1_000, true);
+        mStats.reset();
+
+        assertEquals(0, mStats.getCount(TIER_MEMORY));
+        assertEquals(0, mStats.getLowResCount());
+    }
+}
@@ -18,6 +18,8 @@ package com.android.launcher3.icons;
 import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
 
 import static com.android.launcher3.icons.IconCache.EXTRA_SHORTCUT_BADGE_OVERRIDE_PACKAGE;
+import static com.android.launcher3.icons.IconCache.TIER_MEMORY;
+import static com.android.launcher3.icons.IconCache.TIER_PACKAGE_MANAGER;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
 
 import static org.junit.Assert.assertEquals;
@@ -30,6 +32,7 @@ import android.content.Intent;
 import android.content.pm.ShortcutInfo;
 import android.content.pm.ShortcutInfo.Builder;
 import android.os.PersistableBundle;
+import android.os.Process;
 import android.text.TextUtils;
 
 import androidx.annotation.Nullable;
@@ -112,6 +115,21 @@ public class IconCacheTest {
         assertEquals(((PackageItemInfo) item).packageName, otherPackage);
     }
 
+    @Test
+    public void getTitleAndIconForApp_recordsPackageManagerLoad() throws Exception {
+        // The in memory cache has no database, so the first lookup uses the package manager
+        MODEL_EXECUTOR.submit(() -> mIconCache.getTitleAndIconForApp(
+                new PackageItemInfo(mContext.getPackageName(), Process.myUserHandle()),
+                false /* useLowResIcon */)).get();
+        assertEquals(1, mIconCache.getStats().getCount(TIER_PACKAGE_MANAGER));
+
+        MODEL_EXECUTOR.submit(() -> mIconCache.getTitleAndIconForApp(
+                new PackageItemInfo(mContext.getPackageName(), Process.myUserHandle()),
+                false /* useLowResIcon */)).get();
+        assertEquals(1, mIconCache.getStats().getCount(TIER_PACKAGE_MANAGER));
+        assertEquals(1, mIconCache.getStats().getCount(TIER_MEMORY));
+    }
+
     private ItemInfoWithIcon getBadgingInfo(Context context,
             @Nullable ComponentName cn, @Nullable String badgeOverride) throws Exception {
         Builder builder = new Builder(context, "test-shortcut")
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.icons.clock
+
+import android.os.Looper
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.icons.clock.ClockTicker.MINUTE_MILLIS
+import com.android.launcher3.icons.clock.ClockTicker.SECOND_MILLIS
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class ClockTickerTest {
+
+    private val underTest = ClockTicker(Looper.getMainLooper())
+
+    @After
+    fun tearDown() {
+        underTest.close()
+    }
+
+    @Test
+    fun no_listeners_not_ticking() {
+        assertThat(underTest.tickInterval).isEqualTo(0)
+    }
+
+    @Test
+    fun seconds_listener_ticks_every_second() {
+        underTest.addListener(TestListener(showsSeconds = false))
+        assertThat(underTest.tickInterval).isEqualTo(MINUTE_MILLIS)
+
+        underTest.addListener(TestListener(showsSeconds = true))
+        assertThat(underTest.tickInterval).isEqualTo(SECOND_MILLIS)
+    }
+
+    @Test
+    fun removed_listeners_stop_ticking() {
+        val listener = TestListener(showsSeconds = true)
+        underTest.addListener(listener)
+        underTest.removeListener(listener)
+
+        assertThat(underTest.tickInterval).isEqualTo(0)
+    }
+
+    @Test
+    fun screen_off_pauses_until_screen_on() {
+        val listener = TestListener(showsSeconds = true)
+        underTest.addListener(listener)
+
+        underTest.setScreenOn(false)
+        assertThat(underTest.tickInterval).isEqualTo(0)
+
+        underTest.setScreenOn(true)
+        assertThat(underTest.tickInterval).isEqualTo(SECOND_MILLIS)
+        assertThat(listener.ticks).isEqualTo(1)
+    }
+
+    private class TestListener(private val showsSeconds: Boolean) : ClockTicker.TickListener {
+        var ticks = 0
+
+        override fun onTick() {
+            ticks++
+        }
+
+        override fun showsSeconds() = showsSeconds
+    }
+}
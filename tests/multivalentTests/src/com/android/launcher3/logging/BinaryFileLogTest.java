@@ -0,0 +1,127 @@
+package com.android.launcher3.logging;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Tests for {@link BinaryFileLog}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class BinaryFileLogTest {
+
+    private File mFile;
+
+    @Before
+    public void setUp() {
+        mFile = new File(getApplicationContext().getCacheDir(), "binary-log-test");
+        mFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void testWriteText() throws Exception {
+        BinaryFileLog log = BinaryFileLog.open(mFile);
+        log.writeText(Log.WARN, "Testing", "hoolalala");
+
+        assertTrue(dump(log).contains("W Testing hoolalala"));
+    }
+
+    @Test
+    public void testWriteText_spillsOverRecords() throws Exception {
+        BinaryFileLog log = BinaryFileLog.open(mFile);
+        String text = "a".repeat(BinaryFileLog.MAX_TEXT_LENGTH) + "bcd";
+        assertTrue(log.writeText(Log.DEBUG, "Testing", text));
+        log.writeText(Log.DEBUG, "Testing", "hoolalala");
+
+        String out = dump(log);
+        assertTrue(out.contains("D Testing " + text + "\n"));
+        assertEquals(2, out.split("\n").length);
+    }
+
+    @Test
+    public void testWriteText_tooLong_notRecorded() throws Exception {
+        BinaryFileLog log = BinaryFileLog.open(mFile);
+        String text = "a".repeat(BinaryFileLog.MAX_SPILLED_TEXT_LENGTH) + "bcd";
+
+        assertFalse(log.writeText(Log.DEBUG, "Testing", text));
+        assertFalse(dump(log).contains("Testing"));
+    }
+
+    @Test
+    public void testWriteText_overwrittenFirstRecord_continuationSkipped() throws Exception {
+        BinaryFileLog log = BinaryFileLog.open(mFile);
+        log.writeText(Log.DEBUG, "Testing", "a".repeat(BinaryFileLog.MAX_TEXT_LENGTH) + "bcd");
+        // Overwrites the first record of the text, but not its continuation
+        for (int i = 0; i < BinaryFileLog.RECORD_COUNT - 1; i++) {
+            log.writeTemplate(Log.INFO, "Testing", "record %d.", 1, i, 0, 0, 0);
+        }
+
+        String out = dump(log);
+        assertFalse(out.contains("bcd"));
+        assertEquals(BinaryFileLog.RECORD_COUNT - 1, out.split("\n").length);
+    }
+
+    @Test
+    public void testWriteTemplate() throws Exception {
+        BinaryFileLog log = BinaryFileLog.open(mFile);
+        log.writeTemplate(Log.INFO, "Testing", "migrating %d => %d", 2, 12, 34, 0, 0);
+
+        assertTrue(dump(log).contains("I Testing migrating 12 => 34"));
+    }
+
+    @Test
+    public void testReopen_keepsLogs() throws Exception {
+        BinaryFileLog log = BinaryFileLog.open(mFile);
+        log.writeTemplate(Log.INFO, "Testing", "value %d", 1, 42, 0, 0, 0);
+        log.writeText(Log.INFO, "Testing", "abracadabra");
+
+        log = BinaryFileLog.open(mFile);
+        log.writeText(Log.INFO, "Testing", "hoolalala");
+
+        String out = dump(log);
+        assertTrue(out.contains("value 42"));
+        assertTrue(out.indexOf("abracadabra") < out.indexOf("hoolalala"));
+    }
+
+    @Test
+    public void testRingFull_oldestOverwritten() throws Exception {
+        BinaryFileLog log = BinaryFileLog.open(mFile);
+        for (int i = 0; i <= BinaryFileLog.RECORD_COUNT; i++) {
+            log.writeTemplate(Log.INFO, "Testing", "record %d.", 1, i, 0, 0, 0);
+        }
+
+        String out = dump(log);
+        assertFalse(out.contains("record 0."));
+        assertTrue(out.contains("record 1."));
+        assertTrue(out.contains("record " + BinaryFileLog.RECORD_COUNT + "."));
+        assertEquals(BinaryFileLog.RECORD_COUNT, out.split("\n").length);
+    }
+
+    private static String dump(BinaryFileLog log) {
+        StringWriter writer = new StringWriter();
+        log.dump(new PrintWriter(writer));
+        return writer.toString();
+    }
+}
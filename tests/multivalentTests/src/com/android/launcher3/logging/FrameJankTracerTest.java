@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import static com.android.launcher3.logging.FrameJankTracer.INTERACTION_PAGE_FLING;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.logging.FrameJankTracer.Interaction;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests for {@link FrameJankTracer}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class FrameJankTracerTest {
+
+    private static final long NS_PER_MS = 1_000_000L;
+    private static final float DELTA = 0.001f;
+
+    @Test
+    public void testFinish_computesPercentiles() {
+        Interaction interaction = new Interaction(INTERACTION_PAGE_FLING, 16);
+        // Added out of order, with 1 to 100ms total, 2x smaller layouts and 4x smaller draws
+        for (int ms = 100; ms > 0; ms--) {
+            interaction.addFrame(ms * NS_PER_MS, ms * NS_PER_MS / 2, ms * NS_PER_MS / 4);
+        }
+        interaction.finish();
+
+        assertEquals(100, interaction.mFrameCount);
+        assertEquals(84, interaction.mJankyFrameCount);
+        assertEquals(50, interaction.mTotalP50Ms, DELTA);
+        assertEquals(90, interaction.mTotalP90Ms, DELTA);
+        assertEquals(99, interaction.mTotalP99Ms, DELTA);
+        assertEquals(100, interaction.mTotalMaxMs, DELTA);
+        assertEquals(45, interaction.mLayoutP90Ms, DELTA);
+        assertEquals(22.5f, interaction.mDrawP90Ms, DELTA);
+    }
+
+    @Test
+    public void testAddFrame_jankyOnlyAboveBudget() {
+        Interaction interaction = new Interaction(INTERACTION_PAGE_FLING, 16);
+
+        assertFalse(interaction.addFrame(16 * NS_PER_MS, 0, 0));
+        assertTrue(interaction.addFrame(16 * NS_PER_MS + 1, 0, 0));
+        assertEquals(1, interaction.mJankyFrameCount);
+    }
+
+    @Test
+    public void testFinish_noFrames() {
+        Interaction interaction = new Interaction(INTERACTION_PAGE_FLING, 16);
+        interaction.finish();
+
+        assertEquals(0, interaction.mTotalP50Ms, DELTA);
+        assertEquals(0, interaction.mTotalMaxMs, DELTA);
+    }
+
+    @Test
+    public void testPercentile_nearestRank() {
+        float[] sorted = {1, 2, 3, 4};
+
+        assertEquals(1, Interaction.percentile(sorted, 4, 0.25f), DELTA);
+        assertEquals(2, Interaction.percentile(sorted, 4, 0.5f), DELTA);
+        assertEquals(4, Interaction.percentile(sorted, 4, 0.99f), DELTA);
+        assertEquals(1, Interaction.percentile(sorted, 4, 0), DELTA);
+        assertEquals(3, Interaction.percentile(sorted, 3, 1), DELTA);
+    }
+}
@@ -0,0 +1,111 @@
+package com.android.launcher3.logging;
+
+import static com.android.launcher3.logging.StartupTimeline.CATEGORY_ACTIVITY;
+import static com.android.launcher3.logging.StartupTimeline.CATEGORY_BIND;
+import static com.android.launcher3.logging.StartupTimeline.CATEGORY_DRAW;
+import static com.android.launcher3.logging.StartupTimeline.CATEGORY_ICONS;
+import static com.android.launcher3.logging.StartupTimeline.CATEGORY_INFLATE;
+import static com.android.launcher3.logging.StartupTimeline.CATEGORY_LOADER;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.logging.StartupTimeline.Span;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+
+/**
+ * Tests for {@link StartupTimeline}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class StartupTimelineTest {
+
+    private static final long MS = 1_000_000L;
+    private static final int MAIN = 1;
+    private static final int MODEL = 2;
+
+    private final StartupTimeline mTimeline = new StartupTimeline(0);
+
+    @Test
+    public void testCriticalPath_followsLatestSpanOnAnyThread() {
+        mTimeline.addSpan(CATEGORY_ACTIVITY, "onCreate", 10 * MS, 50 * MS, MAIN, "main");
+        mTimeline.addSpan(CATEGORY_ICONS, "loadIconsInBulk", 30 * MS, 60 * MS, MODEL, "model");
+        mTimeline.addSpan(CATEGORY_LOADER, "loadWorkspace", 20 * MS, 80 * MS, MODEL, "model");
+        mTimeline.addSpan(CATEGORY_BIND, "callbacksTask", 85 * MS, 100 * MS, MAIN, "main");
+        mTimeline.addSpan(CATEGORY_DRAW, "firstDraw", 100 * MS, 110 * MS, MAIN, "main");
+        mTimeline.onFirstDraw(110 * MS);
+
+        List<Span> path = mTimeline.getCriticalPath();
+        assertEquals(3, path.size());
+        assertEquals("loadWorkspace", path.get(0).name);
+        assertEquals("callbacksTask", path.get(1).name);
+        assertEquals("firstDraw", path.get(2).name);
+    }
+
+    @Test
+    public void testAddSpan_mergesConsecutiveSpans() {
+        mTimeline.addSpan(CATEGORY_INFLATE, "inflateItem", 0, MS, MAIN, "main");
+        mTimeline.addSpan(CATEGORY_INFLATE, "inflateItem", MS, 2 * MS, MAIN, "main");
+        mTimeline.addSpan(CATEGORY_INFLATE, "inflateItem", 2 * MS, 3 * MS, MAIN, "main");
+        mTimeline.addSpan(CATEGORY_INFLATE, "inflateItem", 10 * MS, 11 * MS, MAIN, "main");
+        mTimeline.onFirstDraw(20 * MS);
+
+        String dump = dump(new String[0]);
+        assertTrue(dump.contains("spans=2"));
+        assertTrue(dump.contains("inflateItem x3"));
+    }
+
+    @Test
+    public void testAddSpan_ignoredAfterFirstDraw() {
+        mTimeline.onFirstDraw(10 * MS);
+        mTimeline.addSpan(CATEGORY_BIND, "callbacksTask", 20 * MS, 30 * MS, MAIN, "main");
+
+        assertFalse(mTimeline.isRecording());
+        assertTrue(dump(new String[0]).contains("spans=0"));
+    }
+
+    @Test
+    public void testAddSpan_dropsSpansOverLimit() {
+        for (int i = 0; i < StartupTimeline.MAX_SPANS + 3; i++) {
+            mTimeline.addSpan(CATEGORY_BIND, "task" + i, i * MS, i * MS + 1, MAIN, "main");
+        }
+
+        assertTrue(dump(new String[0]).contains("dropped=3"));
+    }
+
+    @Test
+    public void testTraceJson() throws Exception {
+        mTimeline.addSpan(CATEGORY_LOADER, "loadWorkspace", 2 * MS, 5 * MS, MODEL, "model");
+        mTimeline.onFirstDraw(10 * MS);
+
+        JSONObject trace = new JSONObject(mTimeline.getTraceJson(mTimeline.getCriticalPath()));
+        JSONObject event = trace.getJSONArray("traceEvents").getJSONObject(0);
+        assertEquals("loadWorkspace", event.getString("name"));
+        assertEquals("X", event.getString("ph"));
+        assertEquals(2000, event.getDouble("ts"), 0);
+        assertEquals(3000, event.getDouble("dur"), 0);
+        assertTrue(event.getJSONObject("args").getBoolean("critical"));
+        JSONObject thread = trace.getJSONArray("traceEvents").getJSONObject(1);
+        assertEquals("thread_name", thread.getString("name"));
+        assertEquals("model", thread.getJSONObject("args").getString("name"));
+
+        assertTrue(dump(new String[] {StartupTimeline.DUMP_ARG_TRACE}).contains("traceEvents"));
+    }
+
+    private String dump(String[] args) {
+        StringWriter out = new StringWriter();
+        mTimeline.dump("", new PrintWriter(out), args);
+        return out.toString();
+    }
+}
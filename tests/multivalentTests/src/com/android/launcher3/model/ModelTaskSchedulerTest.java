@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static android.os.Process.myUserHandle;
+
+import static com.android.launcher3.model.CacheDataUpdatedTask.OP_CACHE_UPDATE;
+import static com.android.launcher3.model.ModelTaskScheduler.MAX_BACKGROUND_DELAY_MS;
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_BACKGROUND;
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_DEFAULT;
+import static com.android.launcher3.model.ModelTaskScheduler.PRIORITY_INTERACTIVE;
+import static com.android.launcher3.model.PackageUpdatedTask.OP_REMOVE;
+import static com.android.launcher3.model.PackageUpdatedTask.OP_UPDATE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.annotation.NonNull;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.LauncherModel.ModelUpdateTask;
+import com.android.launcher3.util.LauncherMultivalentJUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Tests for {@link ModelTaskScheduler}
+ */
+@SmallTest
+@RunWith(LauncherMultivalentJUnit.class)
+public class ModelTaskSchedulerTest {
+
+    private static final String PACKAGE_1 = "com.example.app1";
+    private static final String PACKAGE_2 = "com.example.app2";
+
+    private final ArrayDeque<Runnable> mSlots = new ArrayDeque<>();
+    private final List<ModelUpdateTask> mRunTasks = new ArrayList<>();
+    private long mTimeMs;
+    private final ModelTaskScheduler mScheduler = new ModelTaskScheduler(
+            mSlots::addLast, mSlots::addFirst, mRunTasks::add, () -> mTimeMs);
+
+    @Test
+    public void testDefaultTasks_runInOrder() {
+        ModelUpdateTask first = newTask();
+        ModelUpdateTask second = newTask();
+        mScheduler.enqueue(first, PRIORITY_DEFAULT, null);
+        mScheduler.enqueue(second, PRIORITY_DEFAULT, null);
+
+        runAllSlots();
+        assertThat(mRunTasks).containsExactly(first, second).inOrder();
+    }
+
+    @Test
+    public void testInteractiveTask_runsBeforeQueuedTasks() {
+        ModelUpdateTask write = newTask();
+        ModelUpdateTask search = newTask();
+        mScheduler.enqueue(write, PRIORITY_DEFAULT, null);
+        mScheduler.enqueue(search, PRIORITY_INTERACTIVE, null);
+
+        runAllSlots();
+        assertThat(mRunTasks).containsExactly(search, write).inOrder();
+    }
+
+    @Test
+    public void testBackgroundTask_runsAfterDefaultTasks() {
+        ModelUpdateTask refresh = newTask();
+        ModelUpdateTask write = newTask();
+        mScheduler.enqueue(refresh, PRIORITY_BACKGROUND, null);
+        mScheduler.enqueue(write, PRIORITY_DEFAULT, null);
+
+        runAllSlots();
+        assertThat(mRunTasks).containsExactly(write, refresh).inOrder();
+    }
+
+    @Test
+    public void testBackgroundTask_overdue_runsBeforeDefaultTasks() {
+        ModelUpdateTask refresh = newTask();
+        ModelUpdateTask write = newTask();
+        mScheduler.enqueue(refresh, PRIORITY_BACKGROUND, null);
+        mScheduler.enqueue(write, PRIORITY_DEFAULT, null);
+        mTimeMs += MAX_BACKGROUND_DELAY_MS;
+
+        runAllSlots();
+        assertThat(mRunTasks).containsExactly(refresh, write).inOrder();
+    }
+
+    @Test
+    public void testDefaultTasks_inOrderWithOtherExecutorTasks() {
+        // A write posted directly on the executor, such as a ModelWriter batch
+        ModelUpdateTask write = newTask();
+        ModelUpdateTask refresh = newTask();
+        ModelUpdateTask task = newTask();
+        mScheduler.enqueue(refresh, PRIORITY_BACKGROUND, null);
+        mSlots.addLast(() -> mRunTasks.add(write));
+        mScheduler.enqueue(task, PRIORITY_DEFAULT, null);
+
+        // The slot of the background task does not run the default task ahead of the write
+        runAllSlots();
+        assertThat(mRunTasks).containsExactly(write, task, refresh).inOrder();
+    }
+
+    @Test
+    public void testDefaultTasks_notDelayedByOverdueBackgroundTasks() {
+        ModelUpdateTask task = newTask();
+        ModelUpdateTask write = newTask();
+        ModelUpdateTask refresh = newTask();
+        mScheduler.enqueue(task, PRIORITY_DEFAULT, null);
+        mSlots.addLast(() -> mRunTasks.add(write));
+        mScheduler.enqueue(refresh, PRIORITY_BACKGROUND, null);
+        mTimeMs += MAX_BACKGROUND_DELAY_MS;
+
+        // The slot of the default task does not run the overdue background task instead
+        runAllSlots();
+        assertThat(mRunTasks).containsExactly(task, write, refresh).inOrder();
+    }
+
+    @Test
+    public void testSupersedeKey_cancelsPendingTask() {
+        Object key = new Object();
+        ModelUpdateTask write = newTask();
+        ModelUpdateTask oldQuery = newTask();
+        ModelUpdateTask newQuery = newTask();
+        mScheduler.enqueue(write, PRIORITY_DEFAULT, null);
+        mScheduler.enqueue(oldQuery, PRIORITY_INTERACTIVE, key);
+        mScheduler.enqueue(newQuery, PRIORITY_INTERACTIVE, key);
+
+        // The slot left by the superseded query does not run the write ahead of its own slot
+        mSlots.poll().run();
+        mSlots.poll().run();
+        assertThat(mRunTasks).containsExactly(newQuery);
+        assertThat(mSlots).hasSize(1);
+
+        runAllSlots();
+        assertThat(mRunTasks).containsExactly(newQuery, write).inOrder();
+    }
+
+    @Test
+    public void testPackageTasks_identicalCoalesced() {
+        PackageUpdatedTask first = new PackageUpdatedTask(OP_UPDATE, myUserHandle(), PACKAGE_1);
+        PackageUpdatedTask other = new PackageUpdatedTask(OP_UPDATE, myUserHandle(), PACKAGE_2);
+        mScheduler.enqueue(first, PRIORITY_DEFAULT, null);
+        mScheduler.enqueue(other, PRIORITY_DEFAULT, null);
+        mScheduler.enqueue(new PackageUpdatedTask(OP_UPDATE, myUserHandle(), PACKAGE_1),
+                PRIORITY_DEFAULT, null);
+
+        assertThat(mScheduler.getPendingCount()).isEqualTo(2);
+        runAllSlots();
+        assertThat(mRunTasks).containsExactly(first, other).inOrder();
+    }
+
+    @Test
+    public void testPackageTasks_notCoalescedAcrossDependentTask() {
+        mScheduler.enqueue(new PackageUpdatedTask(OP_UPDATE, myUserHandle(), PACKAGE_1),
+                PRIORITY_DEFAULT, null);
+        mScheduler.enqueue(new PackageUpdatedTask(OP_REMOVE, myUserHandle(), PACKAGE_1),
+                PRIORITY_DEFAULT, null);
+        mScheduler.enqueue(new PackageUpdatedTask(OP_UPDATE, myUserHandle(), PACKAGE_1),
+                PRIORITY_DEFAULT, null);
+        mScheduler.enqueue(newTask(), PRIORITY_DEFAULT, null);
+        mScheduler.enqueue(new PackageUpdatedTask(OP_UPDATE, myUserHandle(), PACKAGE_1),
+                PRIORITY_DEFAULT, null);
+
+        assertThat(mScheduler.getPendingCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void testCacheUpdates_mergedAndCancelledByRemove() {
+        mScheduler.enqueue(newCacheTask(PACKAGE_1), PRIORITY_BACKGROUND, null);
+        mScheduler.enqueue(newCacheTask(PACKAGE_2), PRIORITY_BACKGROUND, null);
+        assertThat(mScheduler.getPendingCount()).isEqualTo(1);
+
+        PackageUpdatedTask remove = new PackageUpdatedTask(OP_REMOVE, myUserHandle(), PACKAGE_1);
+        mScheduler.enqueue(remove, PRIORITY_DEFAULT, null);
+
+        runAllSlots();
+        assertThat(mRunTasks).hasSize(2);
+        assertThat(mRunTasks.get(0)).isSameInstanceAs(remove);
+        CacheDataUpdatedTask refresh = (CacheDataUpdatedTask) mRunTasks.get(1);
+        assertThat(refresh.getPackages()).containsExactly(PACKAGE_2);
+    }
+
+    private void runAllSlots() {
+        Runnable slot;
+        while ((slot = mSlots.poll()) != null) {
+            slot.run();
+        }
+    }
+
+    private static ModelUpdateTask newTask() {
+        return new TestTask();
+    }
+
+    private static CacheDataUpdatedTask newCacheTask(String packageName) {
+        HashSet<String> packages = new HashSet<>();
+        packages.add(packageName);
+        return new CacheDataUpdatedTask(OP_CACHE_UPDATE, myUserHandle(), packages);
+    }
+
+    private static class TestTask implements ModelUpdateTask {
+
+        @Override
+        public void execute(@NonNull ModelTaskController taskController,
+                @NonNull BgDataModel dataModel, @NonNull AllAppsList apps) { }
+    }
+}
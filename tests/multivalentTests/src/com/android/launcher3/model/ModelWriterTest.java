@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.LauncherSettings.Favorites.CELLX;
+import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_DESKTOP;
+import static com.android.launcher3.LauncherSettings.Favorites.TABLE_NAME;
+import static com.android.launcher3.provider.LauncherDbUtils.itemIdMatch;
+import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+import static com.android.launcher3.util.LauncherModelHelper.TEST_ACTIVITY;
+import static com.android.launcher3.util.LauncherModelHelper.TEST_ACTIVITY2;
+import static com.android.launcher3.util.LauncherModelHelper.TEST_PACKAGE;
+import static com.android.launcher3.util.TestUtil.runOnExecutorSync;
+
+import static org.junit.Assert.assertEquals;
+
+import android.database.Cursor;
+import android.os.ConditionVariable;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.LauncherModel;
+import com.android.launcher3.celllayout.CellPosMapper;
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.util.LauncherLayoutBuilder;
+import com.android.launcher3.util.LauncherModelHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the batched item updates of {@link ModelWriter}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class ModelWriterTest {
+
+    @Rule
+    public ModelTestRule mModelTestRule = new ModelTestRule();
+
+    private LauncherModelHelper mModelHelper;
+    private LauncherModel mModel;
+    private WorkspaceItemInfo mItem;
+    private final ConditionVariable mModelThreadBlocker = new ConditionVariable();
+
+    @Before
+    public void setup() throws Exception {
+        mModelHelper = new LauncherModelHelper();
+        mModelHelper.setupDefaultLayoutProvider(new LauncherLayoutBuilder()
+                .atWorkspace(0, 1, 0).putApp(TEST_PACKAGE, TEST_ACTIVITY)
+                .atWorkspace(1, 1, 0).putApp(TEST_PACKAGE, TEST_ACTIVITY2));
+        mModelHelper.loadModelSync();
+        mModel = mModelHelper.getModel();
+        List<ItemInfo> items = new ArrayList<>(mModelHelper.getBgDataModel().workspaceItems);
+        mItem = (WorkspaceItemInfo) items.stream()
+                .filter(item -> item instanceof WorkspaceItemInfo).findFirst().get();
+    }
+
+    @After
+    public void tearDown() {
+        mModelThreadBlocker.open();
+        mModelHelper.destroy();
+    }
+
+    @Test
+    public void testUpdates_sameItem_lastWriteWins() {
+        ModelWriter writer = newWriter();
+        blockModelThread();
+
+        moveItem(writer, 2);
+        moveItem(writer, 3);
+        waitForModelThread();
+
+        assertEquals(3, readCellX());
+        assertEquals(3, mItem.cellX);
+    }
+
+    @Test
+    public void testUpdates_aroundModelTask_writtenInOrder() {
+        ModelWriter writer = newWriter();
+        AtomicInteger cellXInTask = new AtomicInteger(-1);
+        blockModelThread();
+
+        moveItem(writer, 2);
+        mModel.enqueueModelUpdateTask(
+                (taskController, dataModel, apps) -> cellXInTask.set(readCellX()));
+        moveItem(writer, 3);
+        waitForModelThread();
+
+        assertEquals(2, cellXInTask.get());
+        assertEquals(3, readCellX());
+    }
+
+    @Test
+    public void testUpdates_fromOtherWriters_writtenInOrder() {
+        ModelWriter writer1 = newWriter();
+        ModelWriter writer2 = newWriter();
+        blockModelThread();
+
+        moveItem(writer1, 2);
+        moveItem(writer2, 3);
+        moveItem(writer1, 4);
+        waitForModelThread();
+
+        assertEquals(4, readCellX());
+    }
+
+    private ModelWriter newWriter() {
+        return mModel.getWriter(false /* verifyChanges */, CellPosMapper.DEFAULT, null /* owner */);
+    }
+
+    private void moveItem(ModelWriter writer, int cellX) {
+        writer.moveItemInDatabase(mItem, CONTAINER_DESKTOP, mItem.screenId, cellX, mItem.cellY);
+    }
+
+    /**
+     * Keeps the model thread busy so that the following updates are queued.
+     */
+    private void blockModelThread() {
+        MODEL_EXECUTOR.execute(mModelThreadBlocker::block);
+    }
+
+    private void waitForModelThread() {
+        mModelThreadBlocker.open();
+        runOnExecutorSync(MODEL_EXECUTOR, () -> { });
+    }
+
+    private int readCellX() {
+        try (Cursor c = mModel.getModelDbController().query(TABLE_NAME, new String[] {CELLX},
+                itemIdMatch(mItem.id), null, null)) {
+            c.moveToFirst();
+            return c.getInt(0);
+        }
+    }
+}
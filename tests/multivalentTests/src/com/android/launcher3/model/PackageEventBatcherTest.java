@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static android.os.Process.myUserHandle;
+
+import static com.android.launcher3.model.PackageUpdatedTask.OP_ADD;
+import static com.android.launcher3.model.PackageUpdatedTask.OP_REMOVE;
+import static com.android.launcher3.model.PackageUpdatedTask.OP_SUSPEND;
+import static com.android.launcher3.model.PackageUpdatedTask.OP_UPDATE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.LauncherModel.ModelUpdateTask;
+import com.android.launcher3.util.LauncherMultivalentJUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link PackageEventBatcher}
+ */
+@SmallTest
+@RunWith(LauncherMultivalentJUnit.class)
+public class PackageEventBatcherTest {
+
+    private static final String PACKAGE_1 = "com.example.app1";
+    private static final String PACKAGE_2 = "com.example.app2";
+    private static final String PACKAGE_3 = "com.example.app3";
+
+    private final List<ModelUpdateTask> mTasks = new ArrayList<>();
+    private final PackageEventBatcher mBatcher =
+            new PackageEventBatcher(new Handler(Looper.getMainLooper()), mTasks::add);
+
+    @Test
+    public void testEvents_mergedByOpAndUser() {
+        mBatcher.accept(new PackageUpdatedTask(OP_UPDATE, myUserHandle(), PACKAGE_1));
+        mBatcher.accept(new PackageUpdatedTask(OP_ADD, myUserHandle(), PACKAGE_2));
+        mBatcher.accept(new PackageUpdatedTask(OP_UPDATE, myUserHandle(), PACKAGE_3));
+        mBatcher.accept(new PackageUpdatedTask(OP_UPDATE, myUserHandle(), PACKAGE_1));
+        assertThat(mTasks).isEmpty();
+
+        mBatcher.flush();
+        assertThat(mTasks).hasSize(2);
+        assertTask(mTasks.get(0), OP_UPDATE, PACKAGE_1, PACKAGE_3);
+        assertTask(mTasks.get(1), OP_ADD, PACKAGE_2);
+    }
+
+    @Test
+    public void testEvents_samePackageKeptInOrder() {
+        mBatcher.accept(new PackageUpdatedTask(OP_REMOVE, myUserHandle(), PACKAGE_1));
+        mBatcher.accept(new PackageUpdatedTask(OP_ADD, myUserHandle(), PACKAGE_1));
+        mBatcher.accept(new PackageUpdatedTask(OP_REMOVE, myUserHandle(), PACKAGE_1));
+
+        mBatcher.flush();
+        assertThat(mTasks).hasSize(3);
+        assertTask(mTasks.get(0), OP_REMOVE, PACKAGE_1);
+        assertTask(mTasks.get(1), OP_ADD, PACKAGE_1);
+        assertTask(mTasks.get(2), OP_REMOVE, PACKAGE_1);
+    }
+
+    @Test
+    public void testOtherTask_flushesPendingBatches() {
+        PackageUpdatedTask suspend = new PackageUpdatedTask(OP_SUSPEND, myUserHandle(), PACKAGE_2);
+        mBatcher.accept(new PackageUpdatedTask(OP_ADD, myUserHandle(), PACKAGE_1));
+        mBatcher.accept(suspend);
+
+        assertThat(mTasks).hasSize(2);
+        assertTask(mTasks.get(0), OP_ADD, PACKAGE_1);
+        assertThat(mTasks.get(1)).isSameInstanceAs(suspend);
+    }
+
+    @Test
+    public void testDump_batchSizes() {
+        mBatcher.accept(new PackageUpdatedTask(OP_UPDATE, myUserHandle(), PACKAGE_1));
+        mBatcher.accept(new PackageUpdatedTask(OP_UPDATE, myUserHandle(), PACKAGE_2));
+        mBatcher.flush();
+
+        StringWriter out = new StringWriter();
+        mBatcher.dump("", new PrintWriter(out));
+        assertThat(out.toString()).contains(
+                "events=2 tasks=1 flushes=1 maxBatchSize=2 batchSizes={<5: 1}");
+    }
+
+    private static void assertTask(ModelUpdateTask task, int op, String... packages) {
+        PackageUpdatedTask packageTask = (PackageUpdatedTask) task;
+        assertThat(packageTask.getOp()).isEqualTo(op);
+        assertThat(packageTask.getPackages()).asList().containsExactly(packages).inOrder();
+    }
+}
@@ -20,12 +20,15 @@ import android.appwidget.AppWidgetManager
 import android.content.ComponentName
 import android.content.Context
 import android.os.UserHandle
+import android.platform.test.annotations.EnableFlags
+import android.platform.test.flag.junit.SetFlagsRule
 import android.platform.test.rule.AllowedDevices
 import android.platform.test.rule.DeviceProduct
 import android.platform.test.rule.LimitDevicesRule
 import androidx.test.core.app.ApplicationProvider
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import com.android.launcher3.DeviceProfile
+import com.android.launcher3.Flags.FLAG_ENABLE_INCREMENTAL_WIDGETS_MODEL
 import com.android.launcher3.InvariantDeviceProfile
 import com.android.launcher3.LauncherAppState
 import com.android.launcher3.icons.IconCache
@@ -60,6 +63,7 @@ import org.mockito.kotlin.whenever
 class WidgetsModelTest {
     @Rule @JvmField val limitDevicesRule = LimitDevicesRule()
     @Rule @JvmField val mockitoRule: MockitoRule = MockitoJUnit.rule()
+    @get:Rule val setFlagsRule = SetFlagsRule()
 
     @Mock private lateinit var appWidgetManager: AppWidgetManager
     @Mock private lateinit var app: LauncherAppState
@@ -215,10 +219,38 @@ class WidgetsModelTest {
         // No exception
     }
 
-    private fun loadWidgets() {
+    @Test
+    @EnableFlags(FLAG_ENABLE_INCREMENTAL_WIDGETS_MODEL)
+    fun buildListUpdate_onlyRebuildsChangedPackages() {
+        loadWidgets()
+        val initial = underTest.buildListUpdate(context)
+
+        // All the packages are built after a full update, with a header and a content entry each
+        assertThat(initial.changedPackages()).isNull()
+        assertThat(initial.entries()).hasSize(6)
+
+        // App B no longer has widgets
+        val appBKey =
+            PackageUserKey.fromPackageItemInfo(
+                initial.entries()
+                    .first { it.mPkgItem.packageName == AppBTestWidgetComponent.packageName }
+                    .mPkgItem
+            )
+        loadWidgets(appBKey)
+        val update = underTest.buildListUpdate(context)
+
+        assertThat(update.changedPackages()).containsExactly(appBKey)
+        assertThat(update.entries()).hasSize(4)
+        // The entries of the other packages are reused
+        initial.entries()
+            .filter { PackageUserKey.fromPackageItemInfo(it.mPkgItem) != appBKey }
+            .forEach { entry -> assertThat(update.entries().any { it === entry }).isTrue() }
+    }
+
+    private fun loadWidgets(packageUser: PackageUserKey? = null) {
         val latch = CountDownLatch(1)
         Executors.MODEL_EXECUTOR.execute {
-            underTest.update(app, /* packageUser= */ null)
+            underTest.update(app, packageUser)
             latch.countDown()
         }
         if (!latch.await(LOAD_WIDGETS_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_DESKTOP;
+import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_HOTSEAT;
+import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+import static com.android.launcher3.util.LauncherModelHelper.TEST_ACTIVITY;
+import static com.android.launcher3.util.LauncherModelHelper.TEST_ACTIVITY2;
+import static com.android.launcher3.util.LauncherModelHelper.TEST_ACTIVITY3;
+import static com.android.launcher3.util.LauncherModelHelper.TEST_PACKAGE;
+import static com.android.launcher3.util.TestUtil.runOnExecutorSync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.platform.test.annotations.EnableFlags;
+import android.platform.test.flag.junit.SetFlagsRule;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.Flags;
+import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.celllayout.CellPosMapper;
+import com.android.launcher3.icons.LauncherIcons;
+import com.android.launcher3.model.data.FolderInfo;
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.util.IntSet;
+import com.android.launcher3.util.LauncherLayoutBuilder;
+import com.android.launcher3.util.LauncherModelHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Tests for {@link WorkspaceSnapshot}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class WorkspaceSnapshotTest {
+
+    @Rule(order = 0)
+    public final SetFlagsRule mSetFlagsRule = new SetFlagsRule();
+
+    @Rule(order = 1)
+    public ModelTestRule mModelTestRule = new ModelTestRule();
+
+    private LauncherModelHelper mModelHelper;
+    private LauncherAppState mApp;
+
+    @Before
+    public void setup() throws Exception {
+        mModelHelper = new LauncherModelHelper();
+        mApp = LauncherAppState.getInstance(mModelHelper.sandboxContext);
+        mModelHelper.setupDefaultLayoutProvider(new LauncherLayoutBuilder()
+                .atHotseat(0).putApp(TEST_PACKAGE, TEST_ACTIVITY)
+                .atWorkspace(0, 1, 0).putApp(TEST_PACKAGE, TEST_ACTIVITY2)
+                .atWorkspace(1, 1, 0).putFolder("MyFolder")
+                .addApp(TEST_PACKAGE, TEST_ACTIVITY)
+                .addApp(TEST_PACKAGE, TEST_ACTIVITY3)
+                .build()
+                .atWorkspace(0, 1, 1).putApp(TEST_PACKAGE, TEST_ACTIVITY3));
+        mModelHelper.loadModelSync();
+        WorkspaceSnapshot.delete(mModelHelper.sandboxContext);
+    }
+
+    @After
+    public void tearDown() {
+        WorkspaceSnapshot.delete(mModelHelper.sandboxContext);
+        mModelHelper.destroy();
+    }
+
+    @Test
+    public void testWriteRead_keepsFirstPagesAndHotseat() throws Exception {
+        HashMap<Integer, ItemInfo> expected = new HashMap<>();
+        for (ItemInfo item : getBgDataModel().workspaceItems) {
+            if (item.container == CONTAINER_HOTSEAT
+                    || (item.container == CONTAINER_DESKTOP && item.screenId == 0)) {
+                expected.put(item.id, item);
+            }
+        }
+        assertEquals(3, expected.size());
+
+        WorkspaceSnapshot snapshot = writeAndRead();
+
+        assertNotNull(snapshot);
+        assertEquals(expected.size(), snapshot.items.size());
+        for (ItemInfo item : snapshot.items) {
+            ItemInfo original = expected.get(item.id);
+            assertNotNull(original);
+            assertEquals(original.itemType, item.itemType);
+            assertEquals(original.container, item.container);
+            assertEquals(original.screenId, item.screenId);
+            assertEquals(original.cellX, item.cellX);
+            assertEquals(original.cellY, item.cellY);
+            assertEquals(original.title.toString(), item.title.toString());
+            assertEquals(original.user, item.user);
+            if (item instanceof FolderInfo folder) {
+                assertEquals(2, folder.getContents().size());
+            } else {
+                WorkspaceItemInfo wii = (WorkspaceItemInfo) item;
+                WorkspaceItemInfo originalWii = (WorkspaceItemInfo) original;
+                assertEquals(originalWii.getTargetComponent(), wii.getTargetComponent());
+                assertEquals(originalWii.bitmap.color, wii.bitmap.color);
+                assertEquals(originalWii.bitmap.icon.getWidth(), wii.bitmap.icon.getWidth());
+            }
+        }
+    }
+
+    @Test
+    public void testWriteRead_keepsMonochromeIcon() throws Exception {
+        WorkspaceItemInfo themed = getDesktopApp();
+        Bitmap mono = Bitmap.createBitmap(themed.bitmap.icon.getWidth(),
+                themed.bitmap.icon.getHeight(), Bitmap.Config.ALPHA_8);
+        try (LauncherIcons iconFactory = LauncherIcons.obtain(mModelHelper.sandboxContext)) {
+            themed.bitmap.setMonoIcon(mono, iconFactory);
+        }
+
+        WorkspaceSnapshot snapshot = writeAndRead();
+
+        assertNotNull(snapshot);
+        WorkspaceItemInfo read = (WorkspaceItemInfo) snapshot.items.stream()
+                .filter(item -> item.id == themed.id).findFirst().get();
+        assertNotNull(read.bitmap.getMono());
+        assertEquals(mono.getWidth(), read.bitmap.getMono().getWidth());
+    }
+
+    @Test
+    public void testRead_otherGrid_discarded() throws Exception {
+        writeAndRead();
+
+        mApp.getInvariantDeviceProfile().numColumns++;
+        try {
+            assertNull(MODEL_EXECUTOR.submit(() -> WorkspaceSnapshot.read(mApp)).get());
+        } finally {
+            mApp.getInvariantDeviceProfile().numColumns--;
+        }
+    }
+
+    @Test
+    @EnableFlags(Flags.FLAG_ENABLE_WORKSPACE_SNAPSHOT)
+    public void testWorkspaceWrite_deletesSnapshot() throws Exception {
+        writeAndRead();
+        assertTrue(WorkspaceSnapshot.getFile(mModelHelper.sandboxContext).exists());
+
+        WorkspaceItemInfo item = getDesktopApp();
+        ModelWriter writer = mModelHelper.getModel().getWriter(
+                false /* verifyChanges */, CellPosMapper.DEFAULT, null /* owner */);
+        writer.moveItemInDatabase(item, CONTAINER_DESKTOP, item.screenId, item.cellX + 1,
+                item.cellY);
+        runOnExecutorSync(MODEL_EXECUTOR, () -> { });
+
+        assertFalse(WorkspaceSnapshot.getFile(mModelHelper.sandboxContext).exists());
+    }
+
+    private WorkspaceSnapshot writeAndRead() throws Exception {
+        return MODEL_EXECUTOR.submit(() -> {
+            WorkspaceSnapshot.write(mApp, getBgDataModel(), IntSet.wrap(0));
+            return WorkspaceSnapshot.read(mApp);
+        }).get();
+    }
+
+    private WorkspaceItemInfo getDesktopApp() {
+        List<ItemInfo> items = new ArrayList<>(getBgDataModel().workspaceItems);
+        return (WorkspaceItemInfo) items.stream()
+                .filter(item -> item.container == CONTAINER_DESKTOP && item.screenId == 0
+                        && item instanceof WorkspaceItemInfo)
+                .findFirst().get();
+    }
+
+    private BgDataModel getBgDataModel() {
+        return mModelHelper.getBgDataModel();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Tests for {@link ExecutorStats}
+ */
+@SmallTest
+@RunWith(LauncherMultivalentJUnit.class)
+public class ExecutorStatsTest {
+
+    private final ExecutorStats mStats = new ExecutorStats("test");
+
+    @Test
+    public void testTrack_queueDepth() {
+        Runnable first = mStats.track(() -> { }, false);
+        Runnable second = mStats.track(() -> { }, false);
+        assertThat(mStats.getQueueDepth()).isEqualTo(2);
+
+        first.run();
+        assertThat(mStats.getQueueDepth()).isEqualTo(1);
+        second.run();
+        assertThat(mStats.getQueueDepth()).isEqualTo(0);
+        assertThat(dump()).contains("maxQueueDepth=1");
+    }
+
+    @Test
+    public void testTrack_recordedWhenTaskThrows() {
+        Runnable task = mStats.track(() -> {
+            throw new IllegalStateException();
+        }, true);
+
+        try {
+            task.run();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        assertThat(mStats.getQueueDepth()).isEqualTo(0);
+        assertThat(dump()).contains("urgentTasks=1");
+    }
+
+    @Test
+    public void testDump_groupedByTaskClass() {
+        mStats.record("TaskA", 2_000_000, 1_000_000, 0, false);
+        mStats.record("TaskA", 4_000_000, 3_000_000, 2, false);
+        mStats.record("TaskB", 0, 500_000, 1, true);
+
+        String dump = dump();
+        assertThat(dump).contains("urgentTasks=1");
+        assertThat(dump).contains("TaskA count=2 wait(avg/max)=3.00ms/4.00ms"
+                + " run(avg/max)=2.00ms/3.00ms depth(avg/max)=1/2");
+        assertThat(dump.indexOf("TaskA")).isLessThan(dump.indexOf("TaskB"));
+    }
+
+    private String dump() {
+        StringWriter out = new StringWriter();
+        mStats.dump("", new PrintWriter(out));
+        return out.toString();
+    }
+}
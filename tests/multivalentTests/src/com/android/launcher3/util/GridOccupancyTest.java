@@ -4,12 +4,16 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import android.graphics.Point;
+
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.SmallTest;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
+
 /**
  * Unit tests for {@link GridOccupancy}
  */
@@ -55,13 +59,59 @@ public class GridOccupancyTest {
         assertFalse(grid.isRegionVacant(0, 0, 2, 1));
     }
 
+    @Test
+    public void testIsRegionVacantWithBlockMask() {
+        GridOccupancy grid = initGrid(4,
+                1, 1, 1, 0, 0,
+                0, 0, 1, 1, 0,
+                0, 0, 0, 0, 0,
+                1, 1, 0, 0, 0
+        );
+        GridOccupancy block = initGrid(2,
+                0, 1,
+                1, 1
+        );
+
+        assertTrue(grid.isRegionVacant(0, 1, 2, 2, null));
+        assertFalse(grid.isRegionVacant(1, 1, 2, 2, null));
+        assertTrue(grid.isRegionVacant(3, 1, 2, 2, block));
+        assertFalse(grid.isRegionVacant(1, 0, 2, 2, block));
+    }
+
+    @Test
+    public void testFindAllVacantCells() {
+        GridOccupancy grid = initGrid(4,
+                1, 1, 1, 0, 0,
+                0, 0, 1, 1, 0,
+                0, 0, 0, 0, 0,
+                1, 1, 0, 0, 0
+        );
+
+        assertEquals(Arrays.asList(new Point(0, 1), new Point(2, 2), new Point(3, 2)),
+                grid.findAllVacantCells(2, 2));
+        assertEquals(Arrays.asList(new Point(2, 2)), grid.findAllVacantCells(3, 2));
+        assertTrue(grid.findAllVacantCells(3, 3).isEmpty());
+    }
+
+    @Test
+    public void testCopyTo() {
+        GridOccupancy grid = initGrid(2,
+                1, 0, 1,
+                0, 1, 0
+        );
+        GridOccupancy dest = new GridOccupancy(3, 2);
+        dest.markCells(0, 0, 3, 2, true);
+        grid.copyTo(dest);
+        assertEquals(grid.toString(), dest.toString());
+    }
+
     private GridOccupancy initGrid(int rows, int... cells) {
         int cols = cells.length / rows;
         int i = 0;
         GridOccupancy grid = new GridOccupancy(cols, rows);
         for (int y = 0; y < rows; y++) {
             for (int x = 0; x < cols; x++) {
-                grid.cells[x][y] = cells[i] != 0;
+                grid.markCells(x, y, 1, 1, cells[i] != 0);
                 i++;
             }
         }
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static com.android.launcher3.util.WidgetUtils.createAppWidgetProviderInfo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Size;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.icons.IconCache;
+import com.android.launcher3.model.WidgetItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Tests for {@link WidgetPreviewCache}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class WidgetPreviewCacheTest {
+
+    private static final int MAX_MEMORY_BYTES = 1024 * 1024;
+    private static final int MAX_DISK_ENTRIES = 2;
+    private static final int DENSITY_DPI = 420;
+    private static final Size PREVIEW_SIZE = new Size(20, 10);
+
+    @Mock private IconCache mIconCache;
+
+    private Context mContext;
+    private InvariantDeviceProfile mTestProfile;
+    private File mDir;
+    private WidgetPreviewCache mCache;
+    private final AtomicInteger mGeneratedCount = new AtomicInteger();
+    private final Supplier<Bitmap> mGenerator = () -> {
+        mGeneratedCount.incrementAndGet();
+        return Bitmap.createBitmap(
+                PREVIEW_SIZE.getWidth(), PREVIEW_SIZE.getHeight(), Bitmap.Config.ARGB_8888);
+    };
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        doReturn("Widget").when(mIconCache).getTitleNoCache(any());
+        mContext = getApplicationContext();
+        mTestProfile = new InvariantDeviceProfile();
+        mTestProfile.numRows = 5;
+        mTestProfile.numColumns = 5;
+        mDir = new File(mContext.getCacheDir(), "widget_preview_cache_test");
+        deleteDir();
+        mCache = createCache();
+    }
+
+    @After
+    public void tearDown() {
+        mCache.close();
+        deleteDir();
+    }
+
+    @Test
+    public void get_persistedPreview_readFromDiskAfterRestart() {
+        WidgetItem item = createItem("com.example.notes", "/data/app/notes-1/base.apk");
+        Bitmap generated = mCache.get(item, PREVIEW_SIZE, mGenerator);
+        assertNotNull(generated);
+        assertEquals(1, getFileCount());
+
+        Bitmap read = createCache().get(item, PREVIEW_SIZE, mGenerator);
+
+        assertEquals(1, mGeneratedCount.get());
+        assertNotNull(read);
+        assertEquals(generated.getWidth(), read.getWidth());
+        assertEquals(generated.getHeight(), read.getHeight());
+    }
+
+    @Test
+    public void get_providerUpdated_regeneratesPreview() {
+        mCache.get(createItem("com.example.notes", "/data/app/notes-1/base.apk"),
+                PREVIEW_SIZE, mGenerator);
+        WidgetItem updated = createItem("com.example.notes", "/data/app/notes-2/base.apk");
+
+        assertNull(mCache.getFromMemory(updated, PREVIEW_SIZE));
+        assertNotNull(createCache().get(updated, PREVIEW_SIZE, mGenerator));
+        assertEquals(2, mGeneratedCount.get());
+        // The stale preview was replaced
+        assertEquals(1, getFileCount());
+    }
+
+    @Test
+    public void get_otherDensity_regeneratesPreview() {
+        WidgetItem item = createItem("com.example.notes", "/data/app/notes-1/base.apk");
+        mCache.get(item, PREVIEW_SIZE, mGenerator);
+
+        new WidgetPreviewCache(mDir, MAX_MEMORY_BYTES, MAX_DISK_ENTRIES, DENSITY_DPI * 2)
+                .get(item, PREVIEW_SIZE, mGenerator);
+
+        assertEquals(2, mGeneratedCount.get());
+    }
+
+    @Test
+    public void get_iconPreview_notPersisted() {
+        WidgetItem item = createItem("com.example.notes", "/data/app/notes-1/base.apk");
+        item.widgetInfo.previewImage = 0;
+
+        assertNotNull(mCache.get(item, PREVIEW_SIZE, mGenerator));
+
+        assertEquals(0, getFileCount());
+        assertNotNull(mCache.getFromMemory(item, PREVIEW_SIZE));
+    }
+
+    @Test
+    public void get_moreThanMaxEntries_removesExcess() {
+        for (String pkg : new String[] {"com.example.a", "com.example.b", "com.example.c"}) {
+            mCache.get(createItem(pkg, "/data/app/" + pkg + "/base.apk"), PREVIEW_SIZE,
+                    mGenerator);
+        }
+
+        assertEquals(MAX_DISK_ENTRIES, getFileCount());
+    }
+
+    @Test
+    public void removeExcess_deletesOldestFiles() throws Exception {
+        assertTrue(mDir.mkdirs());
+        File[] files = new File[MAX_DISK_ENTRIES + 2];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = new File(mDir, "preview" + i);
+            assertTrue(files[i].createNewFile());
+            assertTrue(files[i].setLastModified((files.length - i) * 60_000L));
+        }
+
+        mCache.removeExcess();
+
+        assertTrue(files[0].exists());
+        assertTrue(files[1].exists());
+        assertFalse(files[2].exists());
+        assertFalse(files[3].exists());
+    }
+
+    @Test
+    public void evictMemory_keepsPersistedPreviews() {
+        WidgetItem item = createItem("com.example.notes", "/data/app/notes-1/base.apk");
+        mCache.get(item, PREVIEW_SIZE, mGenerator);
+
+        mCache.evictMemory();
+
+        assertNull(mCache.getFromMemory(item, PREVIEW_SIZE));
+        assertNotNull(mCache.get(item, PREVIEW_SIZE, mGenerator));
+        assertEquals(1, mGeneratedCount.get());
+    }
+
+    @Test
+    public void onTrimMemory_runningLow_evictsMemory() {
+        WidgetItem item = createItem("com.example.notes", "/data/app/notes-1/base.apk");
+        item.widgetInfo.previewImage = 0;
+        mCache.get(item, PREVIEW_SIZE, mGenerator);
+
+        mCache.onTrimMemory(TRIM_MEMORY_RUNNING_LOW);
+
+        assertNull(mCache.getFromMemory(item, PREVIEW_SIZE));
+    }
+
+    private WidgetPreviewCache createCache() {
+        return new WidgetPreviewCache(mDir, MAX_MEMORY_BYTES, MAX_DISK_ENTRIES, DENSITY_DPI);
+    }
+
+    private WidgetItem createItem(String packageName, String sourceDir) {
+        ComponentName cn = ComponentName.createRelative(packageName, ".SampleWidget");
+        LauncherAppWidgetProviderInfo widgetInfo = LauncherAppWidgetProviderInfo
+                .fromProviderInfo(mContext, createAppWidgetProviderInfo(cn));
+        widgetInfo.previewImage = android.R.drawable.ic_menu_add;
+        widgetInfo.providerInfo.applicationInfo.sourceDir = sourceDir;
+        return new WidgetItem(widgetInfo, mTestProfile, mIconCache, mContext);
+    }
+
+    private int getFileCount() {
+        File[] files = mDir.listFiles();
+        return files == null ? 0 : files.length;
+    }
+
+    private void deleteDir() {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDir.delete();
+    }
+}
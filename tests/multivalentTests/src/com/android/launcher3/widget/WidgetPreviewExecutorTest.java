@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static com.android.launcher3.widget.WidgetPreviewExecutor.PRIORITY_PREFETCH;
+import static com.android.launcher3.widget.WidgetPreviewExecutor.PRIORITY_VISIBLE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.util.LauncherMultivalentJUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link WidgetPreviewExecutor}
+ */
+@SmallTest
+@RunWith(LauncherMultivalentJUnit.class)
+public class WidgetPreviewExecutorTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final WidgetPreviewExecutor mExecutor = new WidgetPreviewExecutor(1);
+    private final List<String> mRunOrder = new CopyOnWriteArrayList<>();
+    private final CountDownLatch mBlocker = new CountDownLatch(1);
+
+    @Test
+    public void testVisibleRequests_runBeforePrefetch_latestFirst() throws Exception {
+        blockWorker();
+        CountDownLatch done = new CountDownLatch(3);
+        mExecutor.submit(record("prefetch", done), PRIORITY_PREFETCH);
+        mExecutor.submit(record("visible1", done), PRIORITY_VISIBLE);
+        mExecutor.submit(record("visible2", done), PRIORITY_VISIBLE);
+
+        mBlocker.countDown();
+        assertThat(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        assertThat(mRunOrder).containsExactly("visible2", "visible1", "prefetch").inOrder();
+    }
+
+    @Test
+    public void testRemovedRequest_notRun() throws Exception {
+        blockWorker();
+        CountDownLatch done = new CountDownLatch(1);
+        Runnable removed = mExecutor.submit(record("removed", done), PRIORITY_VISIBLE);
+        mExecutor.submit(record("kept", done), PRIORITY_PREFETCH);
+        mExecutor.remove(removed);
+
+        mBlocker.countDown();
+        assertThat(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        assertThat(mRunOrder).containsExactly("kept");
+    }
+
+    private void blockWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        mExecutor.submit(() -> {
+            started.countDown();
+            try {
+                mBlocker.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, PRIORITY_VISIBLE);
+        assertThat(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private Runnable record(String name, CountDownLatch done) {
+        return () -> {
+            mRunOrder.add(name);
+            done.countDown();
+        };
+    }
+}
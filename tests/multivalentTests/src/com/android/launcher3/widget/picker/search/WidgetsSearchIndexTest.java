@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget.picker.search;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static com.android.launcher3.util.WidgetUtils.createAppWidgetProviderInfo;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Process;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.icons.ComponentWithLabel;
+import com.android.launcher3.icons.IconCache;
+import com.android.launcher3.model.WidgetItem;
+import com.android.launcher3.model.data.PackageItemInfo;
+import com.android.launcher3.widget.LauncherAppWidgetProviderInfo;
+import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListHeaderEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class WidgetsSearchIndexTest {
+
+    @Mock private IconCache mIconCache;
+
+    private InvariantDeviceProfile mTestProfile;
+    private Context mContext;
+    private WidgetsSearchIndex mIndex;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        doAnswer(invocation -> {
+            ComponentWithLabel componentWithLabel = (ComponentWithLabel) invocation.getArgument(0);
+            return componentWithLabel.getComponent().getShortClassName();
+        }).when(mIconCache).getTitleNoCache(any());
+        mTestProfile = new InvariantDeviceProfile();
+        mTestProfile.numRows = 5;
+        mTestProfile.numColumns = 5;
+        mContext = getApplicationContext();
+        mIndex = new WidgetsSearchIndex();
+    }
+
+    @Test
+    public void search_ranksTitleMatchesBeforeLabelMatches() {
+        // Notes widgets are labelled ".SampleWidget<N>"
+        WidgetsListHeaderEntry notes = createHeaderEntry("com.example.notes", "Notes", 2);
+        WidgetsListHeaderEntry samples = createHeaderEntry("com.example.samples", "Samples", 1);
+
+        List<WidgetsListBaseEntry> results = mIndex.search(List.of(notes, samples), "Sam");
+
+        assertThat(getTitles(results)).containsExactly("Samples", "Notes").inOrder();
+        assertThat(results.get(2).mWidgets).hasSize(2);
+    }
+
+    @Test
+    public void search_sameRank_sortedByTitle() {
+        WidgetsListHeaderEntry zoo = createHeaderEntry("com.example.zoo", "Zoo app", 1);
+        WidgetsListHeaderEntry store = createHeaderEntry("com.example.store", "App store", 1);
+        WidgetsListHeaderEntry maps = createHeaderEntry("com.example.maps", "Maps app", 1);
+
+        List<WidgetsListBaseEntry> results = mIndex.search(List.of(zoo, maps, store), "app");
+
+        assertThat(getTitles(results))
+                .containsExactly("App store", "Maps app", "Zoo app").inOrder();
+    }
+
+    @Test
+    public void search_matchesOnlyMatchingWidgetLabels() {
+        WidgetsListHeaderEntry notes = createHeaderEntry("com.example.notes", "Notes", 3);
+
+        List<WidgetsListBaseEntry> results = mIndex.search(List.of(notes), "SampleWidget1");
+
+        assertThat(getTitles(results)).containsExactly("Notes");
+        assertThat(results.get(0).mWidgets).containsExactly(notes.mWidgets.get(1));
+    }
+
+    @Test
+    public void search_refinedQueryAfterUpdate_includesNewPackages() {
+        WidgetsListHeaderEntry calendar = createHeaderEntry("com.example.calendar", "Calendar", 1);
+        WidgetsListHeaderEntry clock = createHeaderEntry("com.example.clock", "Clock", 1);
+        assertThat(getTitles(mIndex.search(List.of(calendar, clock), "C")))
+                .containsExactly("Calendar", "Clock");
+
+        WidgetsListHeaderEntry camera = createHeaderEntry("com.example.camera", "Camera", 1);
+        assertThat(getTitles(mIndex.search(List.of(calendar, camera, clock), "Ca")))
+                .containsExactly("Calendar", "Camera").inOrder();
+    }
+
+    @Test
+    public void search_removedPackage_notMatched() {
+        WidgetsListHeaderEntry calendar = createHeaderEntry("com.example.calendar", "Calendar", 1);
+        WidgetsListHeaderEntry camera = createHeaderEntry("com.example.camera", "Camera", 1);
+        mIndex.search(List.of(calendar, camera), "Ca");
+
+        assertThat(getTitles(mIndex.search(List.of(camera), "Cam"))).containsExactly("Camera");
+        assertThat(getTitles(mIndex.search(List.of(camera), "Cal"))).isEmpty();
+    }
+
+    private static List<String> getTitles(List<WidgetsListBaseEntry> results) {
+        return results.stream()
+                .filter(entry -> entry instanceof WidgetsListHeaderEntry)
+                .map(entry -> entry.mPkgItem.title.toString())
+                .collect(Collectors.toList());
+    }
+
+    private WidgetsListHeaderEntry createHeaderEntry(String packageName, String appName,
+            int numOfWidgets) {
+        List<WidgetItem> widgetItems = new ArrayList<>();
+        for (int i = 0; i < numOfWidgets; i++) {
+            ComponentName cn = ComponentName.createRelative(packageName, ".SampleWidget" + i);
+            LauncherAppWidgetProviderInfo widgetInfo = LauncherAppWidgetProviderInfo
+                    .fromProviderInfo(mContext, createAppWidgetProviderInfo(cn));
+            widgetItems.add(new WidgetItem(widgetInfo, mTestProfile, mIconCache, mContext));
+        }
+        PackageItemInfo pInfo = new PackageItemInfo(packageName, Process.myUserHandle());
+        pInfo.title = appName;
+        return WidgetsListHeaderEntry.create(pInfo, /* titleSectionName= */ "", widgetItems);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.launcher3.model.data.AppInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for {@link AppSearchIndex}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class AppSearchIndexTest {
+
+    private final AppSearchIndex mIndex = new AppSearchIndex();
+    private final List<AppInfo> mApps = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        addApp("YouTube");
+        addApp("Play Store");
+        addApp("Photos");
+        addApp("电子邮件");
+    }
+
+    @Test
+    public void search_matchesSameAsStringMatcherUtility() {
+        for (String query : Arrays.asList("y", "you", "tube", "p", "ph", "st", "邮件", "ube")) {
+            List<AppInfo> expected = new ArrayList<>();
+            for (AppInfo info : mApps) {
+                if (StringMatcherUtility.matches(query, info.title.toString(),
+                        StringMatcherUtility.StringMatcher.getInstance())) {
+                    expected.add(info);
+                }
+            }
+            assertEquals(query, expected, new ArrayList<>(mIndex.search(mApps, query)));
+        }
+    }
+
+    @Test
+    public void search_refinedQuery_narrowsResults() {
+        assertEquals(2, mIndex.search(mApps, "p").size());
+        assertEquals(1, mIndex.search(mApps, "ph").size());
+        assertEquals(0, mIndex.search(mApps, "phx").size());
+        assertEquals(2, mIndex.search(mApps, "p").size());
+    }
+
+    @Test
+    public void search_titleUpdatedInPlace_isReindexed() {
+        assertEquals(2, mIndex.search(mApps, "p").size());
+        mApps.get(0).title = "Pinball";
+        List<AppInfo> result = mIndex.search(mApps, "pi");
+        assertEquals(1, result.size());
+        assertTrue(result.contains(mApps.get(0)));
+    }
+
+    @Test
+    public void search_afterAddAndRemove_reflectsChanges() {
+        assertEquals(2, mIndex.search(mApps, "p").size());
+        AppInfo pinball = addApp("Pinball");
+        assertEquals(3, mIndex.search(mApps, "p").size());
+
+        mApps.remove(pinball);
+        mIndex.onAppRemoved(pinball);
+        assertEquals(2, mIndex.search(mApps, "p").size());
+    }
+
+    private AppInfo addApp(String title) {
+        AppInfo info = new AppInfo();
+        info.title = title;
+        mApps.add(info);
+        mIndex.onAppAdded(info);
+        return info;
+    }
+}
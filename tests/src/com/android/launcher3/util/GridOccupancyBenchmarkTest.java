@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static org.junit.Assert.assertEquals;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+/**
+ * Microbenchmark comparing {@link GridOccupancy} with the previous {@code boolean[][]} based
+ * implementation, on grids from 4x5 to 10x10. Both implementations are also checked to return
+ * the same results.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class GridOccupancyBenchmarkTest {
+
+    private static final String TAG = "GridOccupancyBenchmark";
+
+    private static final int[][] GRID_SIZES = {{4, 5}, {5, 5}, {6, 5}, {6, 6}, {8, 8}, {10, 10}};
+    private static final int GRIDS_PER_SIZE = 200;
+    private static final int ITERATIONS = 50;
+
+    @Test
+    public void compareWithBooleanGrid() {
+        Random random = new Random(0);
+        for (int[] size : GRID_SIZES) {
+            int countX = size[0];
+            int countY = size[1];
+            GridOccupancy[] grids = new GridOccupancy[GRIDS_PER_SIZE];
+            BooleanGridOccupancy[] legacyGrids = new BooleanGridOccupancy[GRIDS_PER_SIZE];
+            for (int i = 0; i < GRIDS_PER_SIZE; i++) {
+                grids[i] = new GridOccupancy(countX, countY);
+                legacyGrids[i] = new BooleanGridOccupancy(countX, countY);
+                for (int x = 0; x < countX; x++) {
+                    for (int y = 0; y < countY; y++) {
+                        boolean occupied = random.nextInt(3) == 0;
+                        grids[i].markCells(x, y, 1, 1, occupied);
+                        legacyGrids[i].cells[x][y] = occupied;
+                    }
+                }
+            }
+
+            int[] result = new int[2];
+            int[] legacyResult = new int[2];
+            for (int i = 0; i < GRIDS_PER_SIZE; i++) {
+                for (int spanX = 1; spanX <= 4; spanX++) {
+                    for (int spanY = 1; spanY <= 4; spanY++) {
+                        boolean found = grids[i].findVacantCell(result, spanX, spanY);
+                        assertEquals(legacyGrids[i].findVacantCell(legacyResult, spanX, spanY),
+                                found);
+                        if (found) {
+                            assertEquals(legacyResult[0], result[0]);
+                            assertEquals(legacyResult[1], result[1]);
+                        }
+                        assertEquals(legacyGrids[i].isRegionVacant(1, 1, spanX, spanY),
+                                grids[i].isRegionVacant(1, 1, spanX, spanY));
+                    }
+                }
+            }
+
+            GridOccupancy dest = new GridOccupancy(countX, countY);
+            BooleanGridOccupancy legacyDest = new BooleanGridOccupancy(countX, countY);
+
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int n = 0; n < ITERATIONS; n++) {
+                for (GridOccupancy grid : grids) {
+                    for (int span = 1; span <= 4; span++) {
+                        grid.findVacantCell(result, span, span);
+                        grid.isRegionVacant(0, 0, span, span);
+                    }
+                    grid.copyTo(dest);
+                }
+            }
+            long bitsetNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            for (int n = 0; n < ITERATIONS; n++) {
+                for (BooleanGridOccupancy grid : legacyGrids) {
+                    for (int span = 1; span <= 4; span++) {
+                        grid.findVacantCell(legacyResult, span, span);
+                        grid.isRegionVacant(0, 0, span, span);
+                    }
+                    grid.copyTo(legacyDest);
+                }
+            }
+            long legacyNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+            Log.d(TAG, countX + "x" + countY + ": bitset=" + bitsetNanos / 1000 + "us"
+                    + ", boolean[][]=" + legacyNanos / 1000 + "us");
+        }
+    }
+
+    /**
+     * Copy of the previous implementation of {@link GridOccupancy}.
+     */
+    private static class BooleanGridOccupancy {
+
+        private final int mCountX;
+        private final int mCountY;
+
+        final boolean[][] cells;
+
+        BooleanGridOccupancy(int countX, int countY) {
+            mCountX = countX;
+            mCountY = countY;
+            cells = new boolean[countX][countY];
+        }
+
+        boolean findVacantCell(int[] vacantOut, int spanX, int spanY) {
+            for (int y = 0; (y + spanY) <= mCountY; y++) {
+                for (int x = 0; (x + spanX) <= mCountX; x++) {
+                    boolean available = !cells[x][y];
+                    out:
+                    for (int i = x; i < x + spanX; i++) {
+                        for (int j = y; j < y + spanY; j++) {
+                            available = available && !cells[i][j];
+                            if (!available) break out;
+                        }
+                    }
+                    if (available) {
+                        vacantOut[0] = x;
+                        vacantOut[1] = y;
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        void copyTo(BooleanGridOccupancy dest) {
+            for (int i = 0; i < mCountX; i++) {
+                for (int j = 0; j < mCountY; j++) {
+                    dest.cells[i][j] = cells[i][j];
+                }
+            }
+        }
+
+        boolean isRegionVacant(int x, int y, int spanX, int spanY) {
+            int x2 = x + spanX - 1;
+            int y2 = y + spanY - 1;
+            if (x < 0 || y < 0 || x2 >= mCountX || y2 >= mCountY) {
+                return false;
+            }
+            for (int i = x; i <= x2; i++) {
+                for (int j = y; j <= y2; j++) {
+                    if (cells[i][j]) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}